@@ -0,0 +1,159 @@
+package Benchmarks;
+
+import Infra.RelationshipEdge;
+import Infra.SimpleEdge;
+import Infra.Vertex;
+import MPI.BinaryCodec;
+import Util.Config;
+import changeExploration.Change;
+import org.jgrapht.Graph;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares BinaryCodec with the formats it replaces for the data shipped by the coordinator and the workers:
+ * Java serialization of graph fragments and change lists, and the tab-separated text of the edges to be shipped.
+ * The encoded sizes are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CodecBenchmark
+{
+    @Param({"20000"})
+    public int numberOfVertices;
+
+    @Param({"none", "deflate"})
+    public String compression;
+
+    private Graph<Vertex, RelationshipEdge> graph;
+    private List<Change> changes;
+    private HashMap<Integer, ArrayList<SimpleEdge>> edges;
+
+    private byte[] serializedGraph, encodedGraph;
+    private byte[] serializedChanges, encodedChanges;
+    private byte[] edgesText, encodedEdges;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, ClassNotFoundException
+    {
+        Config.compression = compression;
+        var fixture = new SyntheticFixture(numberOfVertices, "pattern0100.txt");
+        graph = fixture.loadGraph().getGraph().getGraph();
+        changes = fixture.generateChanges(2, 0.05).get(2);
+        fixture.close();
+
+        edges = new HashMap<>();
+        edges.put(1, new ArrayList<>());
+        for (var edge : graph.edgeSet())
+            edges.get(1).add(new SimpleEdge(edge));
+
+        serializedGraph = javaSerialize(graph);
+        encodedGraph = BinaryCodec.encodeGraph(graph);
+        serializedChanges = javaSerialize(changes);
+        encodedChanges = BinaryCodec.encodeChanges(changes);
+        edgesText = edgesToText(edges);
+        encodedEdges = BinaryCodec.encodeEdges(edges);
+
+        System.out.println();
+        System.out.println("Bytes (" + compression + "): graph " + serializedGraph.length + " -> " + encodedGraph.length
+            + ", changes " + serializedChanges.length + " -> " + encodedChanges.length
+            + ", edges " + edgesText.length + " -> " + encodedEdges.length);
+    }
+
+    //region --[Graph fragments]-----------------------------------------
+    @Benchmark
+    public byte[] graphJavaEncode() throws IOException { return javaSerialize(graph); }
+
+    @Benchmark
+    public byte[] graphCodecEncode() { return BinaryCodec.encodeGraph(graph); }
+
+    @Benchmark
+    public Object graphJavaDecode() throws IOException, ClassNotFoundException { return javaDeserialize(serializedGraph); }
+
+    @Benchmark
+    public Object graphCodecDecode() { return BinaryCodec.decodeGraph(encodedGraph); }
+    //endregion
+
+    //region --[Changes]-----------------------------------------
+    @Benchmark
+    public byte[] changesJavaEncode() throws IOException { return javaSerialize(changes); }
+
+    @Benchmark
+    public byte[] changesCodecEncode() { return BinaryCodec.encodeChanges(changes); }
+
+    @Benchmark
+    public Object changesJavaDecode() throws IOException, ClassNotFoundException { return javaDeserialize(serializedChanges); }
+
+    @Benchmark
+    public Object changesCodecDecode() { return BinaryCodec.decodeChanges(encodedChanges); }
+    //endregion
+
+    //region --[Edges to be shipped]-----------------------------------------
+    @Benchmark
+    public byte[] edgesTextEncode() { return edgesToText(edges); }
+
+    @Benchmark
+    public byte[] edgesCodecEncode() { return BinaryCodec.encodeEdges(edges); }
+
+    @Benchmark
+    public Object edgesTextDecode() { return textToEdges(edgesText); }
+
+    @Benchmark
+    public Object edgesCodecDecode() { return BinaryCodec.decodeEdges(encodedEdges); }
+    //endregion
+
+    //region --[Methods: Private]---------------------------------------
+    private static byte[] javaSerialize(Object obj) throws IOException
+    {
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new ObjectOutputStream(bytes))
+        {
+            out.writeObject(obj);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object javaDeserialize(byte[] bytes) throws IOException, ClassNotFoundException
+    {
+        try (var in = new ObjectInputStream(new ByteArrayInputStream(bytes)))
+        {
+            return in.readObject();
+        }
+    }
+
+    // The format of the files of the edges to be shipped before BinaryCodec
+    private static byte[] edgesToText(HashMap<Integer, ArrayList<SimpleEdge>> edges)
+    {
+        var sb = new StringBuilder();
+        for (var entry : edges.entrySet())
+        {
+            sb.append(entry.getKey()).append("\n");
+            for (var edge : entry.getValue())
+                sb.append(edge.getSrc()).append("\t").append(edge.getDst()).append("\t").append(edge.getLabel()).append("\n");
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<SimpleEdge> textToEdges(byte[] text)
+    {
+        var lines = new String(text, StandardCharsets.UTF_8).split("\n");
+        var result = new ArrayList<SimpleEdge>();
+        for (int i = 1; i < lines.length; i++)
+        {
+            var arr = lines[i].split("\t");
+            result.add(new SimpleEdge(arr[0], arr[1], arr[2]));
+        }
+        return result;
+    }
+    //endregion
+}
@@ -0,0 +1,70 @@
+package Benchmarks;
+
+import IncrementalRunner.IncUpdates;
+import Infra.TGFD;
+import Infra.VF2DataGraph;
+import changeExploration.Change;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures applying the changes of one snapshot to the graph with IncUpdates, including the matches found
+ * before and after each change. Every iteration starts from a fresh copy of the first snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class IncUpdatesBenchmark
+{
+    @Param({"20000"})
+    public int numberOfVertices;
+
+    @Param({"pattern0100.txt,pattern0200.txt,pattern0201.txt,pattern0300.txt"})
+    public String patterns;
+
+    @Param({"0.04"})
+    public double changeRate;
+
+    private SyntheticFixture fixture;
+    private List<Change> changes;
+    private HashMap<String, TGFD> tgfdsByName;
+    private VF2DataGraph graph;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        fixture = new SyntheticFixture(numberOfVertices, patterns.split(","));
+        changes = fixture.generateChanges(1, changeRate).get(2);
+        tgfdsByName = new HashMap<>();
+        for (var tgfd : fixture.getTGFDs())
+            tgfdsByName.put(tgfd.getName(), tgfd);
+    }
+
+    @Setup(Level.Iteration)
+    public void setupIteration()
+    {
+        graph = fixture.loadGraph().getGraph();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        fixture.close();
+    }
+
+    @Benchmark
+    public void updateGraph(Blackhole blackhole)
+    {
+        var incUpdates = new IncUpdates(graph, fixture.getTGFDs());
+        incUpdates.AddNewVertices(changes);
+        for (var change : changes)
+            blackhole.consume(incUpdates.updateGraph(change, tgfdsByName));
+    }
+}
@@ -0,0 +1,259 @@
+package Benchmarks;
+
+import Infra.TGFD;
+import Loader.SyntheticLoader;
+import SyntheticGraph.SyntheticGenerator;
+import SyntheticGraph.SyntheticGraphWriter;
+import Util.Config;
+import Util.Metrics;
+import Util.testRunner;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.json.simple.JSONValue;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * End-to-end benchmark of the testRunner pipeline (load, matching of the first snapshot, incremental updates
+ * and OptBatchTED) on a synthetic workload generated from a seed.
+ *
+ * Usage: java -cp benchmarks.jar Benchmarks.MacroBenchmark [-option value]...
+ *  -vertices <integer>      number of vertices of the first snapshot (default 100000)
+ *  -degree <double>         average number of outgoing edges per vertex (default 4)
+ *  -types <type=weight,...> relative number of vertices of each type, e.g. person=20,message=40
+ *  -values <integer>        number of distinct values of each attribute (default 50)
+ *  -snapshots <integer>     number of snapshots, including the first one (default 5)
+ *  -changerate <double>     number of changes per snapshot relative to the graph size (default 0.04)
+ *  -tgfds <integer>         number of TGFDs, one per edge type of the schema (default 4)
+ *  -deltamax <integer>      maximum delta of the TGFDs in days (default 30)
+ *  -seed <long>             seed of the graph, the changes and the random values (default 2021)
+ *  -workdir <path>          directory of the generated files, lowercase only (default: new temporary directory)
+ *  -out <path>              path of the JSON report (default macro-benchmark.json)
+ */
+public class MacroBenchmark
+{
+    //region --[Fields: Private]---------------------------------------
+    private static final LocalDate FIRST_SNAPSHOT = LocalDate.parse("2021-01-01");
+
+    private int numberOfVertices = 100000;
+    private double averageDegree = 4;
+    private String types = "";
+    private int numberOfValues = 50;
+    private int numberOfSnapshots = 5;
+    private double changeRate = 0.04;
+    private int numberOfTGFDs = 4;
+    private int deltaMax = 30;
+    private long seed = 2021;
+    private String workDirectory = null;
+    private String outputPath = "macro-benchmark.json";
+
+    /** Time (ms) to generate the input files, which is not part of the pipeline. */
+    private final LinkedHashMap<String, Long> generationRuntimes = new LinkedHashMap<>();
+    //endregion
+
+    //region --[Methods: Public]---------------------------------------
+    public static void main(String[] args) throws IOException
+    {
+        var benchmark = new MacroBenchmark();
+        benchmark.parseArguments(args);
+        var report = benchmark.run();
+
+        try (var writer = new FileWriter(benchmark.outputPath))
+        {
+            writer.write(JSONValue.toJSONString(report));
+        }
+        System.out.println(JSONValue.toJSONString(report));
+        System.out.println("Report saved to: " + benchmark.outputPath);
+    }
+    //endregion
+
+    //region --[Methods: Private]--------------------------------------
+    private void parseArguments(String[] args)
+    {
+        if (args.length % 2 != 0)
+            throw new IllegalArgumentException("Expected pairs of -option value, see the usage in MacroBenchmark");
+
+        for (int i = 0; i < args.length; i += 2)
+        {
+            var value = args[i + 1];
+            switch (args[i].toLowerCase())
+            {
+                case "-vertices": numberOfVertices = Integer.parseInt(value); break;
+                case "-degree": averageDegree = Double.parseDouble(value); break;
+                case "-types": types = value; break;
+                case "-values": numberOfValues = Integer.parseInt(value); break;
+                case "-snapshots": numberOfSnapshots = Integer.parseInt(value); break;
+                case "-changerate": changeRate = Double.parseDouble(value); break;
+                case "-tgfds": numberOfTGFDs = Integer.parseInt(value); break;
+                case "-deltamax": deltaMax = Integer.parseInt(value); break;
+                case "-seed": seed = Long.parseLong(value); break;
+                case "-workdir": workDirectory = value; break;
+                case "-out": outputPath = value; break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+    }
+
+    private LinkedHashMap<String, Object> run() throws IOException
+    {
+        // Config lowercases the lines of the config file, so the paths of the generated files must be lowercase
+        var directory = workDirectory == null
+            ? Files.createTempDirectory("tgfd-macro")
+            : Files.createDirectories(Path.of(workDirectory));
+        if (!directory.toAbsolutePath().toString().equals(directory.toAbsolutePath().toString().toLowerCase()))
+            throw new IllegalArgumentException("The work directory must be a lowercase path: " + directory);
+
+        var configPath = generateInput(directory.toAbsolutePath());
+        Config.parse(configPath);
+        Config.metrics = true;
+        Metrics.reset();
+
+        // Only measure the pipeline itself
+        System.gc();
+        var heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .collect(Collectors.toList());
+        heapPools.forEach(pool -> pool.resetPeakUsage());
+        long gcTime = getGarbageCollectionTime();
+        long gcCount = getGarbageCollectionCount();
+        long startTime = System.currentTimeMillis();
+
+        var runner = new testRunner();
+        runner.load();
+        runner.run();
+
+        long totalTime = System.currentTimeMillis() - startTime;
+        gcTime = getGarbageCollectionTime() - gcTime;
+        gcCount = getGarbageCollectionCount() - gcCount;
+        // Sum of the peaks of the heap pools, which is an upper bound of the peak of the whole heap
+        long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+
+        var runtimes = runner.getRuntimes();
+        var counts = runner.getCounts();
+
+        var throughput = new LinkedHashMap<String, Object>();
+        throughput.put("graphElementsLoadedPerSecond", perSecond(Metrics.getCount(Metrics.GRAPH_SIZE), getMilliseconds(Metrics.LOAD_GRAPH)));
+        throughput.put("changesPerSecond", perSecond(Metrics.getCount(Metrics.CHANGES), getMilliseconds(Metrics.SNAPSHOT_UPDATE)));
+        throughput.put("matchesPerSecond", perSecond(Metrics.getCount(Metrics.MATCHES), totalTime));
+
+        var memory = new LinkedHashMap<String, Object>();
+        memory.put("peakHeapBytes", peakHeap);
+        memory.put("maxHeapBytes", Runtime.getRuntime().maxMemory());
+        memory.put("gcTimeMs", gcTime);
+        memory.put("gcCount", gcCount);
+
+        var report = new LinkedHashMap<String, Object>();
+        report.put("parameters", getParameters(directory));
+        report.put("generationMs", generationRuntimes);
+        report.put("phasesMs", runtimes);
+        report.put("totalMs", totalTime);
+        report.put("counts", counts);
+        report.put("throughput", throughput);
+        report.put("memory", memory);
+        return report;
+    }
+
+    /**
+     * Writes the first snapshot, the TGFDs, the changes of the next snapshots and the config file read by testRunner.
+     * @return Path of the config file.
+     */
+    private String generateInput(Path directory) throws IOException
+    {
+        long startTime = System.currentTimeMillis();
+        var graphPath = directory.resolve("graph.txt").toString();
+        var writer = new SyntheticGraphWriter(numberOfVertices, averageDegree, seed);
+        writer.setNumberOfValues(numberOfValues);
+        for (var type : types.split(","))
+        {
+            if (type.isEmpty())
+                continue;
+            var typeAndWeight = type.split("=");
+            writer.setTypeWeight(typeAndWeight[0], Double.parseDouble(typeAndWeight[1]));
+        }
+        writer.write(graphPath);
+        var patternPath = directory.resolve("patterns.txt").toString();
+        writer.writePatterns(patternPath, numberOfTGFDs, deltaMax);
+        generationRuntimes.put("graph", System.currentTimeMillis() - startTime);
+
+        startTime = System.currentTimeMillis();
+        var loader = new SyntheticLoader(new ArrayList<TGFD>(), Collections.singletonList(graphPath), seed);
+        var changesBySnapshot = new SyntheticGenerator(loader, seed).generateSnapshot(numberOfSnapshots - 1, changeRate);
+        var mapper = new ObjectMapper();
+        var config = new StringBuilder();
+        config.append("-p ").append(patternPath).append("\n");
+        config.append("-d1 ").append(graphPath).append("\n");
+        config.append("-s1 ").append(FIRST_SNAPSHOT).append("\n");
+        config.append("-dataset synthetic\n");
+        config.append("-seed ").append(seed).append("\n");
+        for (int snapshot = 2; snapshot <= numberOfSnapshots; snapshot++)
+        {
+            var changesPath = directory.resolve("changes_t" + (snapshot - 1) + "_t" + snapshot + ".json").toString();
+            try (var changesWriter = new FileWriter(changesPath))
+            {
+                mapper.writeValue(changesWriter, changesBySnapshot.get(snapshot));
+            }
+            config.append("-c").append(snapshot).append(" ").append(changesPath).append("\n");
+            config.append("-s").append(snapshot).append(" ").append(FIRST_SNAPSHOT.plusDays(snapshot - 1)).append("\n");
+        }
+        generationRuntimes.put("changes", System.currentTimeMillis() - startTime);
+
+        var configPath = directory.resolve("conf.txt").toString();
+        try (var configWriter = new FileWriter(configPath))
+        {
+            configWriter.write(config.toString());
+        }
+        return configPath;
+    }
+
+    private LinkedHashMap<String, Object> getParameters(Path directory)
+    {
+        var parameters = new LinkedHashMap<String, Object>();
+        parameters.put("vertices", numberOfVertices);
+        parameters.put("degree", averageDegree);
+        parameters.put("types", types);
+        parameters.put("values", numberOfValues);
+        parameters.put("snapshots", numberOfSnapshots);
+        parameters.put("changeRate", changeRate);
+        parameters.put("tgfds", numberOfTGFDs);
+        parameters.put("deltaMax", deltaMax);
+        parameters.put("seed", seed);
+        parameters.put("workDirectory", directory.toString());
+        parameters.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        parameters.put("javaVersion", System.getProperty("java.version"));
+        return parameters;
+    }
+
+    private static long getMilliseconds(String timer)
+    {
+        return Math.round(Metrics.getSum(timer) * 1000);
+    }
+
+    private static double perSecond(long count, long runTimeInMS)
+    {
+        if (runTimeInMS == 0)
+            return 0;
+        return count * 1000.0 / runTimeInMS;
+    }
+
+    private static long getGarbageCollectionTime()
+    {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+            .mapToLong(gc -> Math.max(0, gc.getCollectionTime()))
+            .sum();
+    }
+
+    private static long getGarbageCollectionCount()
+    {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+            .mapToLong(gc -> Math.max(0, gc.getCollectionCount()))
+            .sum();
+    }
+    //endregion
+}
@@ -0,0 +1,101 @@
+package Benchmarks;
+
+import Infra.*;
+import org.jgrapht.GraphMapping;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures storing the matches of a snapshot in a MatchCollection and extending them to the next snapshots.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MatchCollectionBenchmark
+{
+    @Param({"20000"})
+    public int numberOfVertices;
+
+    @Param({"pattern0100.txt", "pattern0201.txt"})
+    public String pattern;
+
+    private SyntheticFixture fixture;
+    private TGFD tgfd;
+    private HashMap<String, GraphMapping<Vertex, RelationshipEdge>> matches;
+
+    /** Signatures of the matches reported as new or removed in each snapshot (every hundredth match). */
+    private List<String> newSignatures;
+    private List<String> removedSignatures;
+
+    /** Collection extended by addTimestamp, one snapshot per invocation. */
+    private MatchCollection matchCollection;
+    private LocalDate timestamp;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        fixture = new SyntheticFixture(numberOfVertices, pattern);
+        tgfd = fixture.getTGFDs().get(0);
+        matches = SyntheticFixture.findMatches(fixture.loadGraph().getGraph(), tgfd);
+
+        newSignatures = new ArrayList<>();
+        removedSignatures = new ArrayList<>();
+        int i = 0;
+        for (var mapping : matches.values())
+        {
+            var signature = Match.signatureFromX(tgfd.getPattern(), mapping, tgfd.getDependency().getX());
+            if (i % 200 == 0)
+                newSignatures.add(signature);
+            else if (i % 200 == 100)
+                removedSignatures.add(signature);
+            i++;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setupIteration()
+    {
+        if (matchCollection != null)
+            matchCollection.close();
+        matchCollection = newMatchCollection();
+        timestamp = SyntheticFixture.FIRST_SNAPSHOT;
+        matchCollection.addMatches(timestamp, matches);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        matchCollection.close();
+        fixture.close();
+    }
+
+    @Benchmark
+    public MatchCollection addMatches()
+    {
+        var collection = newMatchCollection();
+        collection.addMatches(SyntheticFixture.FIRST_SNAPSHOT, matches);
+        collection.close();
+        return collection;
+    }
+
+    @Benchmark
+    public MatchCollection addTimestamp()
+    {
+        timestamp = timestamp.plusDays(1);
+        matchCollection.addTimestamp(timestamp, newSignatures, removedSignatures);
+        return matchCollection;
+    }
+
+    private MatchCollection newMatchCollection()
+    {
+        return new MatchCollection(tgfd.getPattern(), tgfd.getDependency(), tgfd.getDelta().getGranularity());
+    }
+}
@@ -0,0 +1,67 @@
+package Benchmarks;
+
+import Infra.*;
+import org.jgrapht.GraphMapping;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the signatures computed for every match, which are the keys of MatchCollection and IncrementalChange.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SignatureBenchmark
+{
+    @Param({"20000"})
+    public int numberOfVertices;
+
+    @Param({"pattern0100.txt", "pattern0201.txt"})
+    public String pattern;
+
+    private SyntheticFixture fixture;
+    private TGFD tgfd;
+    private List<GraphMapping<Vertex, RelationshipEdge>> mappings;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        fixture = new SyntheticFixture(numberOfVertices, pattern);
+        tgfd = fixture.getTGFDs().get(0);
+        mappings = new ArrayList<>(SyntheticFixture.findMatches(fixture.loadGraph().getGraph(), tgfd).values());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        fixture.close();
+    }
+
+    @Benchmark
+    public void signatureFromX(Blackhole blackhole)
+    {
+        for (var mapping : mappings)
+            blackhole.consume(Match.signatureFromX(tgfd.getPattern(), mapping, tgfd.getDependency().getX()));
+    }
+
+    @Benchmark
+    public void signatureFromY(Blackhole blackhole)
+    {
+        for (var mapping : mappings)
+            blackhole.consume(Match.signatureFromY(tgfd.getPattern(), mapping, tgfd.getDependency().getY()));
+    }
+
+    @Benchmark
+    public void signatureFromPattern(Blackhole blackhole)
+    {
+        for (var mapping : mappings)
+            blackhole.consume(Match.signatureFromPattern(tgfd.getPattern(), mapping));
+    }
+}
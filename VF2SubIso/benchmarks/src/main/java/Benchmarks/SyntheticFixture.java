@@ -0,0 +1,143 @@
+package Benchmarks;
+
+import Infra.*;
+import Loader.SyntheticLoader;
+import Loader.TGFDGenerator;
+import SyntheticGraph.SyntheticGenerator;
+import SyntheticGraph.SyntheticGraphWriter;
+import VF2Runner.VF2SubgraphIsomorphism;
+import changeExploration.Change;
+import org.jgrapht.GraphMapping;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Synthetic graph and TGFDs shared by the benchmarks.
+ * Everything is generated locally from a fixed seed, so all runs measure the same input.
+ */
+public class SyntheticFixture
+{
+    //region --[Fields: Public]----------------------------------------
+    /** Seed of the graph, of the random attribute values and of the changes. */
+    public static final long SEED = 2021;
+
+    /** Average number of outgoing edges per vertex. */
+    public static final double AVERAGE_DEGREE = 4;
+
+    /** Timestamp of the first snapshot. */
+    public static final LocalDate FIRST_SNAPSHOT = LocalDate.parse("2021-01-01");
+    //endregion
+
+    //region --[Fields: Private]---------------------------------------
+    private final Path directory;
+    private final String graphPath;
+    private final List<TGFD> tgfds;
+    //endregion
+
+    //region --[Constructors]------------------------------------------
+    /**
+     * Writes the synthetic graph and the patterns to a temporary directory.
+     * @param numberOfVertices Number of vertices of the graph.
+     * @param patternNames Names of the pattern files of samplePatterns/synthetic (e.g. pattern0100.txt).
+     */
+    public SyntheticFixture(int numberOfVertices, String... patternNames)
+    {
+        try
+        {
+            directory = Files.createTempDirectory("tgfd-benchmark");
+            graphPath = directory.resolve("graph.txt").toString();
+            new SyntheticGraphWriter(numberOfVertices, AVERAGE_DEGREE, SEED).write(graphPath);
+
+            var patternPath = directory.resolve("patterns.txt");
+            for (var patternName : patternNames)
+            {
+                try (InputStream in = SyntheticFixture.class.getResourceAsStream("/samplePatterns/synthetic/" + patternName))
+                {
+                    if (in == null)
+                        throw new IllegalArgumentException("Unknown pattern: " + patternName);
+                    Files.write(patternPath, (new String(in.readAllBytes()).trim() + "\n").getBytes(),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                }
+            }
+            tgfds = new TGFDGenerator(patternPath.toString()).getTGFDs();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+    //endregion
+
+    //region --[Methods: Public]---------------------------------------
+    /** Loads a new copy of the first snapshot. All copies are identical. */
+    public SyntheticLoader loadGraph()
+    {
+        return new SyntheticLoader(tgfds, Collections.singletonList(graphPath), SEED);
+    }
+
+    /**
+     * Generates the changes of the next snapshots, on a separate copy of the graph.
+     * @return Changes by snapshot, starting from snapshot 2.
+     */
+    public HashMap<Integer, List<Change>> generateChanges(int numberOfSnapshots, double changeRate)
+    {
+        return new SyntheticGenerator(loadGraph(), SEED).generateSnapshot(numberOfSnapshots, changeRate);
+    }
+
+    /** Returns the data vertices of the center type of the pattern of the TGFD. */
+    public static List<DataVertex> getCenters(VF2DataGraph graph, TGFD tgfd)
+    {
+        var centerType = tgfd.getPattern().getCenterVertexType();
+        var centers = new ArrayList<DataVertex>();
+        for (Vertex v : graph.getGraph().vertexSet())
+        {
+            if (v.getTypes().contains(centerType))
+                centers.add((DataVertex) v);
+        }
+        // Sort by URI so the order does not depend on hashing
+        centers.sort(Comparator.comparing(DataVertex::getVertexURI));
+        return centers;
+    }
+
+    /**
+     * Finds all the matches of the pattern of the TGFD in the graph.
+     * @return Matches by signature from the pattern, in a stable order.
+     */
+    public static LinkedHashMap<String, GraphMapping<Vertex, RelationshipEdge>> findMatches(VF2DataGraph graph, TGFD tgfd)
+    {
+        var matches = new TreeMap<String, GraphMapping<Vertex, RelationshipEdge>>();
+        var results = new VF2SubgraphIsomorphism().execute(graph.getGraph(), tgfd.getPattern(), false);
+        while (results != null && results.hasNext())
+        {
+            var mapping = results.next();
+            matches.put(Match.signatureFromPattern(tgfd.getPattern(), mapping), mapping);
+        }
+        return new LinkedHashMap<>(matches);
+    }
+
+    /** Returns the timestamp of a snapshot, one day apart, starting from snapshot 1. */
+    public static LocalDate getTimestamp(int snapshot)
+    {
+        return FIRST_SNAPSHOT.plusDays(snapshot - 1);
+    }
+
+    /** Gets the TGFDs of the patterns. */
+    public List<TGFD> getTGFDs() { return tgfds; }
+
+    /** Deletes the temporary files. */
+    public void close()
+    {
+        new File(graphPath).delete();
+        directory.resolve("patterns.txt").toFile().delete();
+        directory.toFile().delete();
+    }
+    //endregion
+}
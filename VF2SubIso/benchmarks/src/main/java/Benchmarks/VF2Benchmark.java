@@ -0,0 +1,79 @@
+package Benchmarks;
+
+import Infra.*;
+import VF2Runner.VF2SubgraphIsomorphism;
+import org.jgrapht.Graph;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the matching step of a joblet: extracting the subgraph within the diameter of each center vertex
+ * and running VF2 on it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class VF2Benchmark
+{
+    @Param({"20000"})
+    public int numberOfVertices;
+
+    @Param({"pattern0100.txt", "pattern0201.txt", "pattern0700.txt"})
+    public String pattern;
+
+    private SyntheticFixture fixture;
+    private VF2DataGraph graph;
+    private TGFD tgfd;
+    private List<DataVertex> centers;
+    private List<Graph<Vertex, RelationshipEdge>> subgraphs;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        fixture = new SyntheticFixture(numberOfVertices, pattern);
+        graph = fixture.loadGraph().getGraph();
+        tgfd = fixture.getTGFDs().get(0);
+        centers = SyntheticFixture.getCenters(graph, tgfd);
+
+        subgraphs = new ArrayList<>(centers.size());
+        for (var center : centers)
+            subgraphs.add(graph.getSubGraphWithinDiameter(center, tgfd.getPattern().getDiameter()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        fixture.close();
+    }
+
+    @Benchmark
+    public void getSubGraphWithinDiameter(Blackhole blackhole)
+    {
+        for (var center : centers)
+            blackhole.consume(graph.getSubGraphWithinDiameter(center, tgfd.getPattern().getDiameter()));
+    }
+
+    @Benchmark
+    public int executeOnSubgraphs()
+    {
+        var VF2 = new VF2SubgraphIsomorphism();
+        int numberOfMatches = 0;
+        for (var subgraph : subgraphs)
+        {
+            var results = VF2.execute(subgraph, tgfd.getPattern(), false);
+            while (results != null && results.hasNext())
+            {
+                results.next();
+                numberOfMatches++;
+            }
+        }
+        return numberOfMatches;
+    }
+}
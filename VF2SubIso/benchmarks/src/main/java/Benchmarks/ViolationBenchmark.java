@@ -0,0 +1,95 @@
+package Benchmarks;
+
+import BatchViolation.NaiveBatchTED;
+import BatchViolation.OptBatchTED;
+import IncrementalRunner.IncUpdates;
+import IncrementalRunner.IncrementalChange;
+import Infra.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures finding the violations of a TGFD over several snapshots,
+ * once the matches are collected the same way testSyntheticInc does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ViolationBenchmark
+{
+    @Param({"20000"})
+    public int numberOfVertices;
+
+    @Param({"pattern0100.txt", "pattern0201.txt"})
+    public String pattern;
+
+    @Param({"5"})
+    public int numberOfSnapshots;
+
+    @Param({"0.04"})
+    public double changeRate;
+
+    private SyntheticFixture fixture;
+    private TGFD tgfd;
+    private MatchCollection matchCollection;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        fixture = new SyntheticFixture(numberOfVertices, pattern);
+        tgfd = fixture.getTGFDs().get(0);
+        var changesBySnapshot = fixture.generateChanges(numberOfSnapshots - 1, changeRate);
+
+        var graph = fixture.loadGraph().getGraph();
+        matchCollection = new MatchCollection(tgfd.getPattern(), tgfd.getDependency(), tgfd.getDelta().getGranularity());
+        matchCollection.addMatches(SyntheticFixture.getTimestamp(1), SyntheticFixture.findMatches(graph, tgfd));
+
+        var tgfdsByName = new HashMap<String, TGFD>();
+        tgfdsByName.put(tgfd.getName(), tgfd);
+        for (int snapshot = 2; snapshot <= numberOfSnapshots; snapshot++)
+        {
+            var timestamp = SyntheticFixture.getTimestamp(snapshot);
+            var changes = changesBySnapshot.get(snapshot);
+            var incUpdates = new IncUpdates(graph, fixture.getTGFDs());
+            incUpdates.AddNewVertices(changes);
+
+            var newSignatures = new ArrayList<String>();
+            var removedSignatures = new ArrayList<String>();
+            for (var change : changes)
+            {
+                HashMap<String, IncrementalChange> incrementalChanges = incUpdates.updateGraph(change, tgfdsByName);
+                if (incrementalChanges == null || !incrementalChanges.containsKey(tgfd.getName()))
+                    continue;
+                var incrementalChange = incrementalChanges.get(tgfd.getName());
+                newSignatures.addAll(incrementalChange.getNewMatches().keySet());
+                removedSignatures.addAll(incrementalChange.getRemovedMatchesSignatures());
+                matchCollection.addMatches(timestamp, incrementalChange.getNewMatches());
+            }
+            matchCollection.addTimestamp(timestamp, newSignatures, removedSignatures);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        matchCollection.close();
+        fixture.close();
+    }
+
+    @Benchmark
+    public Set<Violation> optBatchTED()
+    {
+        return new OptBatchTED(matchCollection, tgfd).findViolations();
+    }
+
+    @Benchmark
+    public Set<Violation> naiveBatchTED()
+    {
+        return new NaiveBatchTED(matchCollection, tgfd).findViolations();
+    }
+}
@@ -1,39 +1,22 @@
 package AmazonStorage;
 
-import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
-import com.amazonaws.services.s3.model.*;
+import Storage.ObjectStores;
 import Util.Config;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 
 public class S3Storage {
 
     public static boolean upload(String bucketName, String key, Object obj)
     {
-        String fileName="./tempGraph.ser";
         try {
-            FileOutputStream file = new FileOutputStream(fileName);
-            ObjectOutputStream out = new ObjectOutputStream(file);
-            out.writeObject(obj);
-            out.close();
-            file.close();
-            System.out.println("Object has been serialized.");
-
-            System.out.println("Uploading to Amazon S3");
-
-            final AmazonS3 s3Client = AmazonS3ClientBuilder.standard().withRegion(Config.region).build();
-            File fileToBeUploaded = new File(fileName);
-            PutObjectRequest request = new PutObjectRequest(bucketName, key, fileToBeUploaded).withCannedAcl(CannedAccessControlList.PublicRead);
-            PutObjectResult result = s3Client.putObject(request);
-            System.out.println("Uploading Done. [Bucket name: " + bucketName + "] [Key: " + key + "]");
-
-            System.out.println("Cleaning up the temporary storage...");
-            boolean deleted = fileToBeUploaded.delete();
-            if(deleted)
-                System.out.println("All done.");
-            else
-                System.out.println("Couldn't delete the temporary file: '" + fileName + "' ");
+            System.out.println("Uploading to " + Config.objectStore + " [Bucket name: " + bucketName + "] [Key: " + key + "]");
+            try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(ObjectStores.getDefault().create(bucketName, key))))
+            {
+                out.writeObject(obj);
+            }
+            System.out.println("Object has been serialized and uploaded.");
             return true;
         }
         catch (Exception e) {
@@ -44,31 +27,29 @@ public class S3Storage {
 
     public static void upload(String bucketName, String key, String textToBeUploaded)
     {
-        String fileName="./tmp.txt";
         try {
-            FileWriter file = new FileWriter(fileName);
-            file.write(textToBeUploaded);
-            file.close();
-            System.out.println("Text has been stored in a temporary file.");
-
-            System.out.println("Uploading to Amazon S3");
-
-            final AmazonS3 s3Client = AmazonS3ClientBuilder.standard().withRegion(Config.region).build();
-            File fileToBeUploaded = new File(fileName);
-            PutObjectRequest request = new PutObjectRequest(bucketName, key, fileToBeUploaded).withCannedAcl(CannedAccessControlList.PublicRead);
-            PutObjectResult result = s3Client.putObject(request);
-            System.out.println("Uploading Done. [Bucket name: " + bucketName + "] [Key: " + key + "]");
+            System.out.println("Uploading to " + Config.objectStore + " [Bucket name: " + bucketName + "] [Key: " + key + "]");
+            try (Writer writer = new OutputStreamWriter(ObjectStores.getDefault().create(bucketName, key), StandardCharsets.UTF_8))
+            {
+                writer.write(textToBeUploaded);
+            }
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
 
-            System.out.println("Cleaning up the temporary storage...");
-            boolean deleted = fileToBeUploaded.delete();
-            if(deleted)
-                System.out.println("All done.");
-            else
-                System.out.println("Couldn't delete the temporary file: '" + fileName + "' ");
+    public static boolean upload(String bucketName, String key, byte[] bytes)
+    {
+        try {
+            System.out.println("Uploading to " + Config.objectStore + " [Bucket name: " + bucketName + "] [Key: " + key + "] [Size: " + bytes.length + " bytes]");
+            ObjectStores.getDefault().write(bucketName, key, bytes);
+            return true;
         }
         catch (Exception e) {
             e.printStackTrace();
         }
+        return false;
     }
 
     public static Object downloadObject(String bucketName, String key)
@@ -76,17 +57,11 @@ public class S3Storage {
         Object obj=null;
         try
         {
-            S3Object fullObject;
-            AmazonS3 s3Client = AmazonS3ClientBuilder.standard()
-                    .withRegion(Config.region)
-                    .build();
-            System.out.println("Downloading the object from Amazon S3 - Bucket name: " + bucketName +" - Key: " + key);
-            fullObject = s3Client.getObject(new GetObjectRequest(bucketName, key));
-
-            ObjectInputStream in = new ObjectInputStream(fullObject.getObjectContent());
-            obj = in.readObject();
-            in.close();
-            fullObject.close();
+            System.out.println("Downloading the object - Bucket name: " + bucketName +" - Key: " + key);
+            try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(ObjectStores.getDefault().open(bucketName, key))))
+            {
+                obj = in.readObject();
+            }
         }
         catch (Exception e)
         {
@@ -95,26 +70,34 @@ public class S3Storage {
         return obj;
     }
 
+    public static byte[] downloadBytes(String bucketName, String key)
+    {
+        try
+        {
+            System.out.println("Downloading the object - Bucket name: " + bucketName +" - Key: " + key);
+            return ObjectStores.getDefault().readAll(bucketName, key);
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
     public static StringBuilder downloadWholeTextFile(String bucketName, String key)
     {
         StringBuilder sb=new StringBuilder();
         try
         {
-            S3Object fullObject;
-            AmazonS3 s3Client = AmazonS3ClientBuilder.standard()
-                    .withRegion(Config.region)
-                    .build();
-            System.out.println("Downloading text file from Amazon S3 - Bucket name: " + bucketName +" - Key: " + key);
-            fullObject = s3Client.getObject(new GetObjectRequest(bucketName, key));
-
-            BufferedReader br = new BufferedReader(new InputStreamReader(fullObject.getObjectContent()));
-            String line= br.readLine();
-            while (line!=null) {
-                sb.append(line).append("\n");
-                line=br.readLine();
+            System.out.println("Downloading text file - Bucket name: " + bucketName +" - Key: " + key);
+            try (BufferedReader br = new BufferedReader(new InputStreamReader(ObjectStores.getDefault().open(bucketName, key), StandardCharsets.UTF_8)))
+            {
+                String line= br.readLine();
+                while (line!=null) {
+                    sb.append(line).append("\n");
+                    line=br.readLine();
+                }
             }
-            br.close();
-            fullObject.close();
         }
         catch (Exception e)
         {
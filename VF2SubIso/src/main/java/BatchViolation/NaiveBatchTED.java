@@ -1,6 +1,7 @@
 package BatchViolation;
 
 import Infra.*;
+import Util.Metrics;
 
 import java.time.LocalDate;
 import java.util.*;
@@ -19,6 +20,7 @@ public class NaiveBatchTED {
 
     public Set<Violation> findViolations()
     {
+        long startTime=Metrics.startTimer();
         Set<Violation> violations=new HashSet<>();
         Delta delta=tgfd.getDelta();
 
@@ -64,6 +66,8 @@ public class NaiveBatchTED {
                 }
             }
         }
+        Metrics.stopTimer(Metrics.VIOLATION_DETECTION, startTime);
+        Metrics.add(Metrics.VIOLATIONS, violations.size());
         return violations;
     }
 }
@@ -1,6 +1,7 @@
 package BatchViolation;
 
 import Infra.*;
+import Util.Metrics;
 
 import java.time.LocalDate;
 import java.util.HashMap;
@@ -21,11 +22,13 @@ public class OptBatchTED {
 
     public Set<Violation> findViolations()
     {
+        long startTime=Metrics.startTimer();
         Set<Violation> violations=new HashSet<>();
         Delta delta=tgfd.getDelta();
         var Y=tgfd.getDependency().getY().get(0);
 
-        for (Match match:matches.getMatches()) {
+        // Matches are visited one by one, so spilled matches are read back sequentially from the disk
+        matches.forEachMatch(match -> {
             // If Y is a constant literal
             if(Y.getLiteralType()==Literal.LiteralType.Constant)
             {
@@ -72,7 +75,9 @@ public class OptBatchTED {
                     }
                 }
             }
-        }
+        });
+        Metrics.stopTimer(Metrics.VIOLATION_DETECTION, startTime);
+        Metrics.add(Metrics.VIOLATIONS, violations.size());
         return violations;
     }
 }
@@ -0,0 +1,88 @@
+package Discovery;
+
+import Infra.ConstantLiteral;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Matches of a pattern in each snapshot, as the attribute literals of their matched vertices.
+ *
+ * A literal, a vertex type with an attribute name and value, is stored once and a match is the array of the IDs
+ * of its distinct literals, one per attribute of a matched vertex, so the matches do not hold a ConstantLiteral each.
+ * The IDs are not thread-safe: the matches found in parallel are collected in their own PatternMatches, then added here.
+ */
+public class PatternMatches {
+
+    private ArrayList<ConstantLiteral> literals=new ArrayList<>();
+    // ID of each literal by vertex type, attribute name and attribute value
+    private HashMap<String, HashMap<String, HashMap<String, Integer>>> ids=new HashMap<>();
+    private ArrayList<ArrayList<int[]>> matchesPerTimestamps=new ArrayList<>();
+
+    public PatternMatches(int numOfSnapshots)
+    {
+        for (int timestamp=0;timestamp<numOfSnapshots;timestamp++)
+            matchesPerTimestamps.add(new ArrayList<>());
+    }
+
+    public int getLiteralId(String vertexType, String attrName, String attrValue)
+    {
+        HashMap<String, Integer> idsByValue=ids.computeIfAbsent(vertexType, type -> new HashMap<>())
+                .computeIfAbsent(attrName, name -> new HashMap<>());
+        Integer id=idsByValue.get(attrValue);
+        if(id==null)
+        {
+            id=literals.size();
+            idsByValue.put(attrValue, id);
+            literals.add(new ConstantLiteral(vertexType, attrName, attrValue));
+        }
+        return id;
+    }
+
+    public ConstantLiteral getLiteral(int id) {
+        return literals.get(id);
+    }
+
+    public int getNumberOfLiterals() {
+        return literals.size();
+    }
+
+    public void addMatch(int timestamp, int[] match) {
+        matchesPerTimestamps.get(timestamp).add(match);
+    }
+
+    /** Adds the matches of a timestamp of other matches, with the IDs of their literals in this one. */
+    public void addAll(int timestamp, PatternMatches other, int otherTimestamp)
+    {
+        int[] newIds=new int[other.literals.size()];
+        for (int id=0;id<newIds.length;id++)
+        {
+            ConstantLiteral literal=other.literals.get(id);
+            newIds[id]=getLiteralId(literal.getVertexType(), literal.getAttrName(), literal.getAttrValue());
+        }
+        for (int[] match:other.matchesPerTimestamps.get(otherTimestamp))
+        {
+            int[] newMatch=new int[match.length];
+            for (int i=0;i<match.length;i++)
+                newMatch[i]=newIds[match[i]];
+            matchesPerTimestamps.get(timestamp).add(newMatch);
+        }
+    }
+
+    public ArrayList<int[]> getMatches(int timestamp) {
+        return matchesPerTimestamps.get(timestamp);
+    }
+
+    public ArrayList<ArrayList<int[]>> getMatchesPerTimestamps() {
+        return matchesPerTimestamps;
+    }
+
+    public int getNumberOfMatches()
+    {
+        int size=0;
+        for (ArrayList<int[]> matches:matchesPerTimestamps)
+            size+=matches.size();
+        return size;
+    }
+
+}
@@ -3,6 +3,8 @@ package Discovery;
 import VF2Runner.VF2SubgraphIsomorphism;
 import Loader.DBPediaLoader;
 import Infra.*;
+import Util.Config;
+import Util.WorkStealingPool;
 import org.apache.commons.cli.*;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
@@ -10,7 +12,6 @@ import org.apache.jena.rdf.model.Statement;
 import org.apache.jena.rdf.model.StmtIterator;
 import org.jetbrains.annotations.NotNull;
 import org.jgrapht.GraphMapping;
-import org.jgrapht.alg.isomorphism.VF2AbstractIsomorphismInspector;
 
 import java.io.FileNotFoundException;
 import java.io.PrintStream;
@@ -146,6 +147,7 @@ public class TgfdDiscovery {
         options.addOption("a", true, "run experiment for specified active attribute set size");
         options.addOption("theta", true, "run experiment using a specific support threshold");
         options.addOption("K", false, "run experiment for k = 1 to 5");
+        options.addOption("threads", true, "run pattern matching on a specific number of threads");
 
         CommandLineParser parser = new DefaultParser();
         CommandLine cmd = null;
@@ -184,6 +186,9 @@ public class TgfdDiscovery {
         int gamma = cmd.getOptionValue("a") == null ? DEFAULT_GAMMA : Integer.parseInt(cmd.getOptionValue("a"));
         double theta = cmd.getOptionValue("theta") == null ? DEFAULT_THETA : Double.parseDouble(cmd.getOptionValue("theta"));
         int k = cmd.getOptionValue("k") == null ? DEFAULT_K : Integer.parseInt(cmd.getOptionValue("k"));
+        if (cmd.getOptionValue("threads") != null) {
+            Config.workerThreads = Integer.parseInt(cmd.getOptionValue("threads"));
+        }
 
         ArrayList<DBPediaLoader> graphs = loadDBpediaSnapshots(graphSize);
 
@@ -200,10 +205,7 @@ public class TgfdDiscovery {
             while (patternTreeNode == null) {
                 patternTreeNode = tgfdDiscovery.vSpawn();
             }
-            ArrayList<ArrayList<HashSet<ConstantLiteral>>> matches = new ArrayList<>();
-            for (int timestamp = 0; timestamp < tgfdDiscovery.numOfSnapshots; timestamp++) {
-                matches.add(new ArrayList<>());
-            }
+            PatternMatches matches = new PatternMatches(tgfdDiscovery.numOfSnapshots);
             int numOfMatchesFound = tgfdDiscovery.getMatchesForPattern(graphs, patternTreeNode, matches); // this can be called repeatedly on many graphs
             if (numOfMatchesFound == 0) continue;
             ArrayList<TGFD> tgfds = tgfdDiscovery.hSpawn(patternTreeNode, matches);
@@ -475,29 +477,40 @@ public class TgfdDiscovery {
         System.out.println();
     }
 
-    public static Map<Set<ConstantLiteral>, ArrayList<Entry<ConstantLiteral, List<Integer>>>> findMatches(List<ConstantLiteral> attributes, ArrayList<ArrayList<HashSet<ConstantLiteral>>> matchesPerTimestamps) {
+    public static Map<Set<ConstantLiteral>, ArrayList<Entry<ConstantLiteral, List<Integer>>>> findMatches(List<ConstantLiteral> attributes, PatternMatches matchesPerTimestamps) {
         String yVertexType = attributes.get(attributes.size()-1).getVertexType();
         String yAttrName = attributes.get(attributes.size()-1).getAttrName();
         List<ConstantLiteral> xAttributes = attributes.subList(0,attributes.size()-1);
+        // Whether each literal of the matches is Y, and the number of X attributes it is a value of
+        boolean[] isY = new boolean[matchesPerTimestamps.getNumberOfLiterals()];
+        int[] numOfXAttributes = new int[matchesPerTimestamps.getNumberOfLiterals()];
+        for (int id = 0; id < isY.length; id++) {
+            ConstantLiteral literal = matchesPerTimestamps.getLiteral(id);
+            isY[id] = literal.getVertexType().equals(yVertexType) && literal.getAttrName().equals(yAttrName);
+            for (ConstantLiteral attibute : xAttributes) {
+                if (literal.getVertexType().equals(attibute.getVertexType()) && literal.getAttrName().equals(attibute.getAttrName())) {
+                    numOfXAttributes[id]++;
+                }
+            }
+        }
         Map<Set<ConstantLiteral>, Map<ConstantLiteral, List<Integer>>> entitiesWithRHSvalues = new HashMap<>();
         int t = 2015;
-        for (ArrayList<HashSet<ConstantLiteral>> matchesInOneTimeStamp : matchesPerTimestamps) {
+        for (ArrayList<int[]> matchesInOneTimeStamp : matchesPerTimestamps.getMatchesPerTimestamps()) {
             System.out.println("---------- Attribute values in " + t + " ---------- ");
             int numOfMatches = 0;
             if (matchesInOneTimeStamp.size() > 0) {
-                for(HashSet<ConstantLiteral> match : matchesInOneTimeStamp) {
-                    if (match.size() < attributes.size()) continue;
+                for(int[] match : matchesInOneTimeStamp) {
+                    if (match.length < attributes.size()) continue;
                     Set<ConstantLiteral> entity = new HashSet<>();
                     ConstantLiteral rhs = null;
-                    for (ConstantLiteral literalInMatch : match) {
-                        if (literalInMatch.getVertexType().equals(yVertexType) && literalInMatch.getAttrName().equals(yAttrName)) {
+                    for (int id : match) {
+                        ConstantLiteral literalInMatch = matchesPerTimestamps.getLiteral(id);
+                        if (isY[id]) {
                             rhs = new ConstantLiteral(literalInMatch.getVertexType(), literalInMatch.getAttrName(), literalInMatch.getAttrValue());
                             continue;
                         }
-                        for (ConstantLiteral attibute : xAttributes) {
-                            if (literalInMatch.getVertexType().equals(attibute.getVertexType()) && literalInMatch.getAttrName().equals(attibute.getAttrName())) {
-                                entity.add(new ConstantLiteral(literalInMatch.getVertexType(), literalInMatch.getAttrName(), literalInMatch.getAttrValue()));
-                            }
+                        for (int i = 0; i < numOfXAttributes[id]; i++) {
+                            entity.add(new ConstantLiteral(literalInMatch.getVertexType(), literalInMatch.getAttrName(), literalInMatch.getAttrValue()));
                         }
                     }
                     if (entity.size() < xAttributes.size() || rhs == null) continue;
@@ -578,7 +591,7 @@ public class TgfdDiscovery {
         return false;
     }
 
-    public ArrayList<TGFD> deltaDiscovery(double theta, PatternTreeNode patternNode, LiteralTreeNode literalTreeNode, ArrayList<ConstantLiteral> literalPath, ArrayList<ArrayList<HashSet<ConstantLiteral>>> matchesPerTimestamps) {
+    public ArrayList<TGFD> deltaDiscovery(double theta, PatternTreeNode patternNode, LiteralTreeNode literalTreeNode, ArrayList<ConstantLiteral> literalPath, PatternMatches matchesPerTimestamps) {
         ArrayList<TGFD> tgfds = new ArrayList<>();
 
         // Add dependency attributes to pattern
@@ -907,7 +920,7 @@ public class TgfdDiscovery {
         return graphs;
     }
 
-    public ArrayList<TGFD> hSpawn(PatternTreeNode patternTreeNode, ArrayList<ArrayList<HashSet<ConstantLiteral>>> matchesPerTimestamps) {
+    public ArrayList<TGFD> hSpawn(PatternTreeNode patternTreeNode, PatternMatches matchesPerTimestamps) {
         ArrayList<TGFD> tgfds = new ArrayList<>();
 
         System.out.println("Performing HSpawn for " + patternTreeNode.getPattern());
@@ -1258,51 +1271,77 @@ public class TgfdDiscovery {
         return false;
     }
 
-    public int getMatchesForPattern(ArrayList<DBPediaLoader> graphs, PatternTreeNode patternTreeNode, ArrayList<ArrayList<HashSet<ConstantLiteral>>> matchesPerTimestamps) {
+    /**
+     * Finds the matches of the pattern in each snapshot, on Config.workerThreads threads.
+     * The snapshots are matched in parallel, and each of them is split into partitions of the data vertices that an
+     * anchor vertex of the pattern can be mapped to. A partition is matched over the subgraph within the eccentricity
+     * of the anchor from its vertices, and keeps the matches of the anchor to one of them, so a match is found once.
+     */
+    public int getMatchesForPattern(ArrayList<DBPediaLoader> graphs, PatternTreeNode patternTreeNode, PatternMatches matchesPerTimestamps) {
         // TO-DO: Potential speed up for single-edge/single-node patterns. Iterate through all edges/nodes in graph.
         HashSet<ConstantLiteral> activeAttributesInPattern = getActiveAttributesInPattern(patternTreeNode.getGraph().vertexSet());
+        HashMap<String, ArrayList<String>> activeAttrNamesByType = new HashMap<>();
+        for (ConstantLiteral attribute : activeAttributesInPattern) {
+            activeAttrNamesByType.computeIfAbsent(attribute.getVertexType(), type -> new ArrayList<>()).add(attribute.getAttrName());
+        }
+        VF2PatternGraph pattern = patternTreeNode.getPattern();
+        List<Vertex> patternVertices = new ArrayList<>(pattern.getPattern().vertexSet());
+        Vertex anchor = null;
+        int eccentricity = Integer.MAX_VALUE;
+        for (Vertex v : patternVertices) {
+            int e = getEccentricity(pattern, v);
+            if (e < eccentricity) {
+                anchor = v;
+                eccentricity = e;
+            }
+        }
+        Set<String> validTypes = new HashSet<>();
+        for (Vertex v : patternVertices) {
+            validTypes.addAll(v.getTypes());
+        }
+
+        // Partitions of the anchors of each snapshot, a single partition is matched over the whole snapshot
+        List<int[]> tasks = new ArrayList<>();
+        ArrayList<List<List<DataVertex>>> partitions = new ArrayList<>();
         for (int year = 0; year < this.numOfSnapshots; year++) {
-            VF2AbstractIsomorphismInspector<Vertex, RelationshipEdge> results = new VF2SubgraphIsomorphism().execute2(graphs.get(year).getGraph(), patternTreeNode.getPattern(), false);
-            ArrayList<HashSet<ConstantLiteral>> matches = new ArrayList<>();
-            if (results.isomorphismExists()) {
-                Iterator<GraphMapping<Vertex, RelationshipEdge>> iterator = results.getMappings();
-                while (iterator.hasNext()) {
-                    GraphMapping<Vertex, RelationshipEdge> result = iterator.next();
-                    HashSet<ConstantLiteral> match = new HashSet<>();
-                    for (Vertex v : patternTreeNode.getGraph().vertexSet()) {
-                        Vertex currentMatchedVertex = result.getVertexCorrespondence(v, false);
-                        if (currentMatchedVertex == null) continue;
-                        String patternVertexType = new ArrayList<>(currentMatchedVertex.getTypes()).get(0);
-                        for (ConstantLiteral attribute : activeAttributesInPattern) {
-                            if (!attribute.getVertexType().equals(patternVertexType)) continue;
-                            for (String attrName : currentMatchedVertex.getAllAttributesNames()) {
-                                if (!attribute.getAttrName().equals(attrName)) continue;
-                                String xAttrValue = currentMatchedVertex.getAttributeValueByName(attrName);
-                                ConstantLiteral xLiteral = new ConstantLiteral(patternVertexType, attrName, xAttrValue);
-                                match.add(xLiteral);
-                            }
-                        }
-                    }
-                    if (match.size() == 0) continue;
-                    matches.add(match);
+            List<DataVertex> anchors = new ArrayList<>();
+            if (anchor != null && Config.workerThreads > 1) {
+                for (Vertex v : graphs.get(year).getGraph().getVerticesByType(anchor.getTypes().iterator().next())) {
+                    if (v.getTypes().containsAll(anchor.getTypes())) anchors.add((DataVertex) v);
                 }
-                System.out.println("Number of matches found in " + (2015 + year) + ": " + matches.size());
-                matches.sort(new Comparator<HashSet<ConstantLiteral>>() {
-                    @Override
-                    public int compare(HashSet<ConstantLiteral> o1, HashSet<ConstantLiteral> o2) {
-                        return o1.size() - o2.size();
-                    }
-                });
             }
-            matchesPerTimestamps.get(year).addAll(matches);
+            int numOfPartitions = Math.max(1, Math.min(anchors.size(), 4 * Config.workerThreads));
+            List<List<DataVertex>> partitionsOfYear = new ArrayList<>();
+            for (int part = 0; part < numOfPartitions; part++) {
+                partitionsOfYear.add(numOfPartitions == 1 ? null : anchors.subList(part * anchors.size() / numOfPartitions, (part + 1) * anchors.size() / numOfPartitions));
+                tasks.add(new int[]{year, part});
+            }
+            partitions.add(partitionsOfYear);
+        }
+
+        PatternMatches[][] matchesOfTasks = new PatternMatches[this.numOfSnapshots][];
+        for (int year = 0; year < this.numOfSnapshots; year++) {
+            matchesOfTasks[year] = new PatternMatches[partitions.get(year).size()];
+        }
+        Vertex anchorVertex = anchor;
+        int anchorEccentricity = eccentricity;
+        WorkStealingPool.forEachLargestFirst(tasks,
+                task -> partitions.get(task[0]).get(task[1]) == null ? Double.MAX_VALUE : partitions.get(task[0]).get(task[1]).size(),
+                task -> matchesOfTasks[task[0]][task[1]] = getMatchesInPartition(graphs.get(task[0]).getGraph(), pattern, patternVertices,
+                        activeAttrNamesByType, anchorVertex, anchorEccentricity, validTypes, partitions.get(task[0]).get(task[1])));
+
+        for (int year = 0; year < this.numOfSnapshots; year++) {
+            for (PatternMatches matchesOfTask : matchesOfTasks[year]) {
+                matchesPerTimestamps.addAll(year, matchesOfTask, 0);
+            }
+            ArrayList<int[]> matches = matchesPerTimestamps.getMatches(year);
+            System.out.println("Number of matches found in " + (2015 + year) + ": " + matches.size());
+            matches.sort(Comparator.comparingInt(match -> match.length));
         }
         // TO-DO: Should we implement pattern support here to weed out patterns with few matches in later iterations?
         // Is there an ideal pattern support threshold after which very few TGFDs are discovered?
         // How much does the real pattern differ from the estimate?
-        double numberOfMatchesFound = 0;
-        for (ArrayList<HashSet<ConstantLiteral>> matchesInOneTimestamp : matchesPerTimestamps) {
-            numberOfMatchesFound += matchesInOneTimestamp.size();
-        }
+        double numberOfMatchesFound = matchesPerTimestamps.getNumberOfMatches();
         if (numberOfMatchesFound == 0) {
             System.out.println("Mark as pruned. No matches found for pattern " + patternTreeNode.getPattern());
             patternTreeNode.setIsPruned();
@@ -1315,4 +1354,80 @@ public class TgfdDiscovery {
         return (int) numberOfMatchesFound;
     }
 
-}
\ No newline at end of file
+
+    // The literals of the active attributes of the matched vertices of each match, looked up by the type of each vertex
+    private static PatternMatches getMatchesInPartition(VF2DataGraph graph, VF2PatternGraph pattern, List<Vertex> patternVertices,
+                                                        HashMap<String, ArrayList<String>> activeAttrNamesByType, Vertex anchor,
+                                                        int eccentricity, Set<String> validTypes, List<DataVertex> anchors) {
+        PatternMatches matches = new PatternMatches(1);
+        Iterator<GraphMapping<Vertex, RelationshipEdge>> results;
+        Set<Vertex> anchorSet = null;
+        if (anchors == null) {
+            results = new VF2SubgraphIsomorphism().execute(graph.getGraph(), pattern, false);
+        } else {
+            anchorSet = Collections.newSetFromMap(new IdentityHashMap<>());
+            anchorSet.addAll(anchors);
+            results = new VF2SubgraphIsomorphism().execute(graph.getSubGraphWithinDiameter(anchors, eccentricity, validTypes), pattern, false);
+        }
+        if (results == null) return matches;
+
+        // The attribute names of the type of each pattern vertex, the type of a matched vertex is usually the same
+        String[] patternVertexTypes = new String[patternVertices.size()];
+        List<List<String>> attrNamesOfPatternVertices = new ArrayList<>();
+        for (int i = 0; i < patternVertices.size(); i++) {
+            patternVertexTypes[i] = new ArrayList<>(patternVertices.get(i).getTypes()).get(0);
+            attrNamesOfPatternVertices.add(activeAttrNamesByType.getOrDefault(patternVertexTypes[i], new ArrayList<>()));
+        }
+        int[] match = new int[16];
+        while (results.hasNext()) {
+            GraphMapping<Vertex, RelationshipEdge> result = results.next();
+            if (anchorSet != null && !anchorSet.contains(result.getVertexCorrespondence(anchor, false))) continue;
+            int size = 0;
+            for (int i = 0; i < patternVertices.size(); i++) {
+                Vertex currentMatchedVertex = result.getVertexCorrespondence(patternVertices.get(i), false);
+                if (currentMatchedVertex == null) continue;
+                String matchedVertexType = new ArrayList<>(currentMatchedVertex.getTypes()).get(0);
+                List<String> attrNames = matchedVertexType.equals(patternVertexTypes[i])
+                        ? attrNamesOfPatternVertices.get(i)
+                        : activeAttrNamesByType.getOrDefault(matchedVertexType, new ArrayList<>());
+                for (String attrName : attrNames) {
+                    if (!currentMatchedVertex.hasAttribute(attrName)) continue;
+                    if (size == match.length) match = Arrays.copyOf(match, 2 * size);
+                    match[size++] = matches.getLiteralId(matchedVertexType, attrName, currentMatchedVertex.getAttributeValueByName(attrName));
+                }
+            }
+            if (size == 0) continue;
+            // A match is a set of literals: two matched vertices of the same type may have the same value
+            Arrays.sort(match, 0, size);
+            int distinct = 1;
+            for (int i = 1; i < size; i++) {
+                if (match[i] != match[distinct - 1]) match[distinct++] = match[i];
+            }
+            matches.addMatch(0, Arrays.copyOf(match, distinct));
+        }
+        return matches;
+    }
+
+    // Largest distance from the vertex to the other vertices of the pattern, following the edges in both directions
+    private static int getEccentricity(VF2PatternGraph pattern, Vertex source) {
+        HashMap<Vertex, Integer> visited = new HashMap<>();
+        LinkedList<Vertex> queue = new LinkedList<>();
+        visited.put(source, 0);
+        queue.add(source);
+        int eccentricity = 0;
+        while (!queue.isEmpty()) {
+            Vertex v = queue.poll();
+            int distance = visited.get(v);
+            eccentricity = Math.max(eccentricity, distance);
+            List<Vertex> neighbours = new ArrayList<>();
+            for (RelationshipEdge edge : pattern.getPattern().outgoingEdgesOf(v)) neighbours.add(edge.getTarget());
+            for (RelationshipEdge edge : pattern.getPattern().incomingEdgesOf(v)) neighbours.add(edge.getSource());
+            for (Vertex w : neighbours) {
+                if (visited.containsKey(w)) continue;
+                visited.put(w, distance + 1);
+                queue.add(w);
+            }
+        }
+        return visited.size() < pattern.getPattern().vertexSet().size() ? Integer.MAX_VALUE : eccentricity;
+    }
+}
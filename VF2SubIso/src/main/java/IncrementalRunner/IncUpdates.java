@@ -1,8 +1,11 @@
 package IncrementalRunner;
 
+import VF2Runner.MultiPatternMatcher;
 import VF2Runner.VF2SubgraphIsomorphism;
 import changeExploration.*;
 import Infra.*;
+import Util.Config;
+import Util.Metrics;
 import org.jgrapht.Graph;
 import org.jgrapht.GraphMapping;
 
@@ -12,15 +15,26 @@ public class IncUpdates {
 
     private VF2DataGraph baseGraph;
     private VF2SubgraphIsomorphism VF2;
+    // Matches the affected TGFDs together, or null to run VF2 for each of them
+    private MultiPatternMatcher matcher;
 
     /** Map of the relevant TGFDs for each entity type */
     private HashMap<String, HashSet<String>> relevantTGFDs =new HashMap <>();
 
 
     public IncUpdates(VF2DataGraph baseGraph, List<TGFD> tgfds)
+    {
+        this(baseGraph, tgfds, Config.multiPatternMatching ? new MultiPatternMatcher(tgfds) : null);
+    }
+
+    /**
+     * @param matcher Matcher of the TGFDs, shared by the IncUpdates of the joblets so it is only compiled once, or null to run VF2
+     */
+    public IncUpdates(VF2DataGraph baseGraph, List<TGFD> tgfds, MultiPatternMatcher matcher)
     {
         this.baseGraph=baseGraph;
         this.VF2= new VF2SubgraphIsomorphism();
+        this.matcher=matcher;
 
         for (TGFD tgfd:tgfds) {
             extractValidTypesFromTGFD(tgfd);
@@ -28,9 +42,21 @@ public class IncUpdates {
     }
 
     public HashMap<String,IncrementalChange> updateGraph(Change change, HashMap<String,TGFD> tgfdsByName)
+    {
+        long startTime=Metrics.startTimer();
+        HashMap<String,IncrementalChange> incrementalChangeHashMap=applyChange(change,tgfdsByName);
+        Metrics.stopTimer(Metrics.CHANGE_APPLICATION, startTime);
+        return incrementalChangeHashMap;
+    }
+
+    private HashMap<String,IncrementalChange> applyChange(Change change, HashMap<String,TGFD> tgfdsByName)
     {
         // Remove TGFDs from the Affected TGFD lists of the change if that TGFD is not loaded.
-        change.getTGFDs().removeIf(TGFDName -> !tgfdsByName.containsKey(TGFDName));
+        // The change may be applied to several joblets at the same time
+        synchronized (change)
+        {
+            change.getTGFDs().removeIf(TGFDName -> !tgfdsByName.containsKey(TGFDName));
+        }
 
         if(change instanceof EdgeChange)
         {
@@ -45,10 +71,13 @@ public class IncUpdates {
             }
             // If TGFD list in the change is empty (specifically for synthetic graph),
             // we need to find the relevant TGFDs and add to the TGFD list
-            if(change.getTGFDs().size()==0)
+            synchronized (change)
             {
-                findRelevantTGFDs(edgeChange,v1);
-                findRelevantTGFDs(edgeChange,v2);
+                if(change.getTGFDs().size()==0)
+                {
+                    findRelevantTGFDs(edgeChange,v1);
+                    findRelevantTGFDs(edgeChange,v2);
+                }
             }
 
             if(edgeChange.getTypeOfChange()== ChangeType.insertEdge)
@@ -70,9 +99,10 @@ public class IncUpdates {
             }
             // If TGFD list in the change is empty (specifically for synthetic graph),
             // we need to find the relevant TGFDs and add to the TGFD list
-            if(change.getTGFDs().size()==0)
+            synchronized (change)
             {
-                findRelevantTGFDs(attributeChange,v1);
+                if(change.getTGFDs().size()==0)
+                    findRelevantTGFDs(attributeChange,v1);
             }
             if(attributeChange.getTypeOfChange()==ChangeType.changeAttr || attributeChange.getTypeOfChange()==ChangeType.insertAttr)
             {
@@ -110,9 +140,10 @@ public class IncUpdates {
         //runtime=System.currentTimeMillis();
 
         // run VF2
+        HashMap<String, Iterator<GraphMapping<Vertex, RelationshipEdge>>> beforeChanges=findMatches(subgraph,affectedTGFDNames,tgfdsByName);
         for (String tgfdName:affectedTGFDNames) {
 
-            Iterator<GraphMapping<Vertex, RelationshipEdge>> beforeChange = VF2.execute(subgraph,tgfdsByName.get(tgfdName).getPattern(),false);
+            Iterator<GraphMapping<Vertex, RelationshipEdge>> beforeChange = beforeChanges.get(tgfdName);
             IncrementalChange incrementalChange=new IncrementalChange(beforeChange,tgfdsByName.get(tgfdName).getPattern());
             incrementalChangeHashMap.put(tgfdsByName.get(tgfdName).getName(),incrementalChange);
         }
@@ -143,8 +174,9 @@ public class IncUpdates {
 
 
         // Run VF2 again...
+        HashMap<String, Iterator<GraphMapping<Vertex, RelationshipEdge>>> afterChanges=findMatches(subgraph,affectedTGFDNames,tgfdsByName);
         for (String tgfdName:affectedTGFDNames) {
-            Iterator<GraphMapping<Vertex, RelationshipEdge>> afterChange = VF2.execute(subgraph,tgfdsByName.get(tgfdName).getPattern(),false);
+            Iterator<GraphMapping<Vertex, RelationshipEdge>> afterChange = afterChanges.get(tgfdName);
             String res = incrementalChangeHashMap.get(tgfdsByName.get(tgfdName).getName()).addAfterMatches(afterChange);
 
             //System.out.print("  ** Add: " + (System.currentTimeMillis()-runtime) + " - " + res + " \n");
@@ -164,8 +196,9 @@ public class IncUpdates {
         //runtime=System.currentTimeMillis();
 
         // run VF2
+        HashMap<String, Iterator<GraphMapping<Vertex, RelationshipEdge>>> beforeChanges=findMatches(subgraph,affectedTGFDNames,tgfdsByName);
         for (String tgfdName:affectedTGFDNames) {
-            Iterator<GraphMapping<Vertex, RelationshipEdge>> beforeChange = VF2.execute(subgraph,tgfdsByName.get(tgfdName).getPattern(),false);
+            Iterator<GraphMapping<Vertex, RelationshipEdge>> beforeChange = beforeChanges.get(tgfdName);
             IncrementalChange incrementalChange=new IncrementalChange(beforeChange,tgfdsByName.get(tgfdName).getPattern());
             incrementalChangeHashMap.put(tgfdsByName.get(tgfdName).getName(),incrementalChange);
 
@@ -182,8 +215,9 @@ public class IncUpdates {
 
 
         // Run VF2 again...
+        HashMap<String, Iterator<GraphMapping<Vertex, RelationshipEdge>>> afterChanges=findMatches(subgraph,affectedTGFDNames,tgfdsByName);
         for (String tgfdName:affectedTGFDNames) {
-            Iterator<GraphMapping<Vertex, RelationshipEdge>> afterChange = VF2.execute(subgraph,tgfdsByName.get(tgfdName).getPattern(),false);
+            Iterator<GraphMapping<Vertex, RelationshipEdge>> afterChange = afterChanges.get(tgfdName);
             String res = incrementalChangeHashMap.get(tgfdsByName.get(tgfdName).getName()).addAfterMatches(afterChange);
 
             //System.out.print("  ** Upd: " + (System.currentTimeMillis()-runtime) + " - " + res + " \n");
@@ -191,6 +225,25 @@ public class IncUpdates {
         return incrementalChangeHashMap;
     }
 
+    /**
+     * Finds the matches of the affected TGFDs in the subgraph, in one pass of the matcher if there is one
+     * @return The matches of each TGFD by name, null if there is no match
+     */
+    private HashMap<String, Iterator<GraphMapping<Vertex, RelationshipEdge>>> findMatches(
+            Graph<Vertex, RelationshipEdge> subgraph, Set <String> affectedTGFDNames, HashMap<String,TGFD> tgfdsByName)
+    {
+        HashMap<String, Iterator<GraphMapping<Vertex, RelationshipEdge>>> matches=new HashMap<>();
+        HashMap<String, List<GraphMapping<Vertex, RelationshipEdge>>> matchesByTGFD=matcher==null ? new HashMap<>()
+                : matcher.execute(subgraph, tgfd -> affectedTGFDNames.contains(tgfd.getName()));
+        for (String tgfdName:affectedTGFDNames) {
+            if(matchesByTGFD.containsKey(tgfdName))
+                matches.put(tgfdName, matchesByTGFD.get(tgfdName).iterator());
+            else
+                matches.put(tgfdName, VF2.execute(subgraph,tgfdsByName.get(tgfdName).getPattern(),false));
+        }
+        return matches;
+    }
+
     private int getDiameter(Set <String> affectedTGFDNames, HashMap<String,TGFD> tgfdsByName)
     {
         //TODO: Need to get the max diameter
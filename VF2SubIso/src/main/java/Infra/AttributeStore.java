@@ -0,0 +1,531 @@
+package Infra;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Columnar store of the attributes of data vertices, keyed by (attribute name code, vertex id).
+ *
+ * Each attribute name has its own column. Columns are split into pages of PAGE_SIZE vertices that are
+ * allocated off-heap only when a vertex of the page has a value for the attribute. Values are kept as:
+ *  - long for integers,
+ *  - epoch day for dates (yyyy-mm-dd),
+ *  - raw bits for decimals,
+ *  - dictionary code for any other string.
+ * A value is only stored in a primitive form if converting it back gives exactly the same string,
+ * so getValue always returns the original (lowercased) value.
+ *
+ * The store is shared by the threads that load and match the graph. The attributes of a vertex are guarded by one of
+ * LOCK_STRIPES locks chosen by its id, so the vertices of different stripes are written in parallel.
+ * Reads are optimistic: they only take the read lock if a write of the same stripe ran while they read.
+ * The dictionaries are only locked to add an entry, and the arrays read without a lock are published by volatile fields.
+ */
+public class AttributeStore
+{
+    //region --[Fields: Private]---------------------------------------
+    /** Kinds of values stored in a cell. */
+    private static final byte ABSENT = 0;
+    private static final byte STRING = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte DATE = 4;
+    private static final byte NULL = 5;
+
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private static final int LOCK_STRIPES = 64;
+
+    /** Store shared by all data vertices. */
+    private static final AttributeStore instance = new AttributeStore();
+
+    /** Frees the vertex ids of the data vertices that are garbage collected. */
+    private static final Cleaner cleaner = Cleaner.create();
+
+    /** Dictionary of attribute names, with the column of each name. A code is put in nameCodes once its entries are set. */
+    private final ConcurrentHashMap<String, Integer> nameCodes = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[16];
+    private volatile Column[] columns = new Column[16];
+
+    /** Dictionary of string values. A code is put in valueCodes once its entry is set. */
+    private final ConcurrentHashMap<String, Integer> valueCodes = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[1024];
+
+    /** Codes of the attribute names set for each vertex id, in pages of PAGE_SIZE vertices. */
+    private volatile int[][][] codesByVertex = new int[][][] { new int[PAGE_SIZE][] };
+
+    /** Locks of the vertices, by vertex id. */
+    private final StampedLock[] locks = new StampedLock[LOCK_STRIPES];
+
+    /** Guards the ids. */
+    private final Object idLock = new Object();
+
+    /** Ids released by garbage collected vertices that can be reused. */
+    private int[] freeIds = new int[16];
+    private int freeIdCount = 0;
+
+    /** Next id never assigned before. */
+    private int nextId = 0;
+    //endregion
+
+    //region --[Classes: Private]--------------------------------------
+    /** A column of a single attribute, stored off-heap in pages of PAGE_SIZE vertices. */
+    private static class Column
+    {
+        /** Kind of the value of each vertex in the page. A page is set in kinds after its payloads. */
+        private volatile ByteBuffer[] kinds = new ByteBuffer[0];
+
+        /** Payload of the value of each vertex in the page. */
+        private volatile ByteBuffer[] payloads = new ByteBuffer[0];
+
+        private byte getKind(int vertexId)
+        {
+            int page = vertexId >>> PAGE_BITS;
+            var pages = kinds;
+            if (page >= pages.length || pages[page] == null)
+                return ABSENT;
+            return pages[page].get(vertexId & PAGE_MASK);
+        }
+
+        private long getPayload(int vertexId)
+        {
+            return payloads[vertexId >>> PAGE_BITS].getLong((vertexId & PAGE_MASK) * Long.BYTES);
+        }
+
+        /** The vertices of a page are set under different locks, each of them in its own cell. */
+        private void set(int vertexId, byte kind, long payload)
+        {
+            int page = vertexId >>> PAGE_BITS;
+            var pages = kinds;
+            if (page >= pages.length || pages[page] == null)
+                addPage(page);
+            payloads[page].putLong((vertexId & PAGE_MASK) * Long.BYTES, payload);
+            kinds[page].put(vertexId & PAGE_MASK, kind);
+        }
+
+        private synchronized void addPage(int page)
+        {
+            if (page >= kinds.length)
+            {
+                int length = Math.max(page + 1, kinds.length * 2);
+                payloads = Arrays.copyOf(payloads, length);
+                kinds = Arrays.copyOf(kinds, length);
+            }
+            if (kinds[page] == null)
+            {
+                payloads[page] = ByteBuffer.allocateDirect(PAGE_SIZE * Long.BYTES);
+                kinds[page] = ByteBuffer.allocateDirect(PAGE_SIZE);
+            }
+        }
+    }
+    //endregion
+
+    //region --[Constructors]------------------------------------------
+    private AttributeStore()
+    {
+        for (int i = 0; i < LOCK_STRIPES; i++)
+            locks[i] = new StampedLock();
+    }
+    //endregion
+
+    //region --[Methods: Public]---------------------------------------
+    /** Gets the store shared by all data vertices. */
+    public static AttributeStore getInstance() { return instance; }
+
+    /**
+     * Assigns an id to a vertex. The id is released when the vertex is garbage collected.
+     * @param vertex Vertex whose attributes are stored in this store.
+     */
+    public int register(Vertex vertex)
+    {
+        int id;
+        synchronized (idLock)
+        {
+            id = freeIdCount > 0 ? freeIds[--freeIdCount] : nextId++;
+            int page = id >>> PAGE_BITS;
+            if (page >= codesByVertex.length)
+            {
+                var pages = Arrays.copyOf(codesByVertex, codesByVertex.length * 2);
+                for (int i = codesByVertex.length; i < pages.length; i++)
+                    pages[i] = new int[PAGE_SIZE][];
+                codesByVertex = pages;
+            }
+        }
+        var lock = lock(id);
+        long stamp = lock.writeLock();
+        try
+        {
+            setCodes(id, new int[0]);
+        }
+        finally
+        {
+            lock.unlockWrite(stamp);
+        }
+        cleaner.register(vertex, () -> release(id));
+        return id;
+    }
+
+    /** Returns the value of the attribute, or null if the vertex does not have the attribute. */
+    public String getValue(int vertexId, String name)
+    {
+        var code = nameCodes.get(name);
+        if (code == null)
+            return null;
+
+        var column = columns[code];
+        var lock = lock(vertexId);
+        long stamp = lock.tryOptimisticRead();
+        String value = null;
+        try
+        {
+            value = readValue(column, vertexId);
+        }
+        catch (RuntimeException e)
+        {
+            // A cell written while it was read, it is read again under the lock
+            stamp = 0;
+        }
+        if (lock.validate(stamp))
+            return value;
+        stamp = lock.readLock();
+        try
+        {
+            return readValue(column, vertexId);
+        }
+        finally
+        {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** Returns true if the vertex has the attribute. */
+    public boolean hasValue(int vertexId, String name)
+    {
+        var code = nameCodes.get(name);
+        if (code == null)
+            return false;
+
+        var column = columns[code];
+        var lock = lock(vertexId);
+        long stamp = lock.tryOptimisticRead();
+        byte kind = column.getKind(vertexId);
+        if (lock.validate(stamp))
+            return kind != ABSENT;
+        stamp = lock.readLock();
+        try
+        {
+            return column.getKind(vertexId) != ABSENT;
+        }
+        finally
+        {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Sets the value of an attribute of the vertex.
+     * @param value Value of the attribute, null for an attribute without value.
+     */
+    public void setValue(int vertexId, String name, String value)
+    {
+        int code = getOrAddNameCode(name);
+        var column = columns[code];
+        byte kind;
+        long payload;
+        if (value == null)
+        {
+            kind = NULL;
+            payload = 0;
+        }
+        else if (isCanonicalLong(value))
+        {
+            kind = LONG;
+            payload = Long.parseLong(value);
+        }
+        else if (isCanonicalDate(value))
+        {
+            kind = DATE;
+            payload = LocalDate.parse(value).toEpochDay();
+        }
+        else if (isCanonicalDouble(value))
+        {
+            kind = DOUBLE;
+            payload = Double.doubleToRawLongBits(Double.parseDouble(value));
+        }
+        else
+        {
+            kind = STRING;
+            payload = getOrAddValueCode(value);
+        }
+
+        var lock = lock(vertexId);
+        long stamp = lock.writeLock();
+        try
+        {
+            if (column.getKind(vertexId) == ABSENT)
+            {
+                var codes = getCodes(vertexId);
+                codes = Arrays.copyOf(codes, codes.length + 1);
+                codes[codes.length - 1] = code;
+                setCodes(vertexId, codes);
+            }
+            column.set(vertexId, kind, payload);
+        }
+        finally
+        {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** Removes an attribute of the vertex. */
+    public void removeValue(int vertexId, String name)
+    {
+        var code = nameCodes.get(name);
+        if (code == null)
+            return;
+
+        var lock = lock(vertexId);
+        long stamp = lock.writeLock();
+        try
+        {
+            if (columns[code].getKind(vertexId) == ABSENT)
+                return;
+            columns[code].set(vertexId, ABSENT, 0);
+            setCodes(vertexId, Arrays.stream(getCodes(vertexId)).filter(c -> c != code).toArray());
+        }
+        finally
+        {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** Removes all the attributes of the vertex. */
+    public void removeAll(int vertexId)
+    {
+        var lock = lock(vertexId);
+        long stamp = lock.writeLock();
+        try
+        {
+            clear(vertexId, new int[0]);
+        }
+        finally
+        {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** Returns the names of all the attributes of the vertex. */
+    public List<String> getNames(int vertexId)
+    {
+        var lock = lock(vertexId);
+        long stamp = lock.tryOptimisticRead();
+        int[] codes = getCodes(vertexId);
+        if (!lock.validate(stamp))
+        {
+            stamp = lock.readLock();
+            try
+            {
+                codes = getCodes(vertexId);
+            }
+            finally
+            {
+                lock.unlockRead(stamp);
+            }
+        }
+        var names = this.names;
+        var result = new ArrayList<String>(codes.length);
+        for (int code : codes)
+            result.add(names[code]);
+        return result;
+    }
+
+    /** Returns all the attributes of the vertex as new Attribute objects. */
+    public List<Attribute> getAttributes(int vertexId)
+    {
+        var lock = lock(vertexId);
+        long stamp = lock.readLock();
+        try
+        {
+            var codes = getCodes(vertexId);
+            var names = this.names;
+            var columns = this.columns;
+            var result = new ArrayList<Attribute>(codes.length);
+            for (int code : codes)
+            {
+                var value = readValue(columns[code], vertexId);
+                result.add(value == null ? new Attribute(names[code]) : new Attribute(names[code], value));
+            }
+            return result;
+        }
+        finally
+        {
+            lock.unlockRead(stamp);
+        }
+    }
+    //endregion
+
+    //region --[Methods: Private]--------------------------------------
+    private StampedLock lock(int vertexId)
+    {
+        return locks[vertexId & (LOCK_STRIPES - 1)];
+    }
+
+    /** Reads the value of the vertex in the column, under the lock of the vertex or validated by it. */
+    private String readValue(Column column, int vertexId)
+    {
+        switch (column.getKind(vertexId))
+        {
+            case STRING: return values[(int)column.getPayload(vertexId)];
+            case LONG: return Long.toString(column.getPayload(vertexId));
+            case DOUBLE: return Double.toString(Double.longBitsToDouble(column.getPayload(vertexId)));
+            case DATE: return LocalDate.ofEpochDay(column.getPayload(vertexId)).toString();
+            default: return null;
+        }
+    }
+
+    /** Removes the attributes of the vertex and sets its codes, under the write lock of the vertex. */
+    private void clear(int vertexId, int[] codes)
+    {
+        for (int code : getCodes(vertexId))
+            columns[code].set(vertexId, ABSENT, 0);
+        setCodes(vertexId, codes);
+    }
+
+    /** Gets the codes of the names of the vertex, under the lock of the vertex. */
+    private int[] getCodes(int vertexId)
+    {
+        return codesByVertex[vertexId >>> PAGE_BITS][vertexId & PAGE_MASK];
+    }
+
+    private void setCodes(int vertexId, int[] codes)
+    {
+        codesByVertex[vertexId >>> PAGE_BITS][vertexId & PAGE_MASK] = codes;
+    }
+
+    private int getOrAddNameCode(String name)
+    {
+        var code = nameCodes.get(name);
+        if (code != null)
+            return code;
+        synchronized (nameCodes)
+        {
+            code = nameCodes.get(name);
+            if (code == null)
+            {
+                code = nameCodes.size();
+                if (code == names.length)
+                {
+                    names = Arrays.copyOf(names, code * 2);
+                    columns = Arrays.copyOf(columns, code * 2);
+                }
+                names[code] = name;
+                columns[code] = new Column();
+                nameCodes.put(name, code);
+            }
+            return code;
+        }
+    }
+
+    private int getOrAddValueCode(String value)
+    {
+        var code = valueCodes.get(value);
+        if (code != null)
+            return code;
+        synchronized (valueCodes)
+        {
+            code = valueCodes.get(value);
+            if (code == null)
+            {
+                code = valueCodes.size();
+                if (code == values.length)
+                    values = Arrays.copyOf(values, code * 2);
+                values[code] = value;
+                valueCodes.put(value, code);
+            }
+            return code;
+        }
+    }
+
+    /** Clears the attributes of a garbage collected vertex and makes its id reusable. */
+    private void release(int vertexId)
+    {
+        var lock = lock(vertexId);
+        long stamp = lock.writeLock();
+        try
+        {
+            clear(vertexId, null);
+        }
+        finally
+        {
+            lock.unlockWrite(stamp);
+        }
+        synchronized (idLock)
+        {
+            if (freeIdCount == freeIds.length)
+                freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+            freeIds[freeIdCount++] = vertexId;
+        }
+    }
+
+    /** Returns true if the value is an integer that Long.toString gives back unchanged. */
+    private static boolean isCanonicalLong(String value)
+    {
+        int start = value.startsWith("-") ? 1 : 0;
+        int length = value.length() - start;
+        if (length == 0 || length > 18)
+            return false;
+        if (value.charAt(start) == '0' && (length > 1 || start == 1))
+            return false;
+        for (int i = start; i < value.length(); i++)
+        {
+            if (value.charAt(i) < '0' || value.charAt(i) > '9')
+                return false;
+        }
+        return true;
+    }
+
+    /** Returns true if the value is a yyyy-mm-dd date that LocalDate.toString gives back unchanged. */
+    private static boolean isCanonicalDate(String value)
+    {
+        if (value.length() != 10 || value.charAt(4) != '-' || value.charAt(7) != '-')
+            return false;
+        try
+        {
+            return LocalDate.parse(value).toString().equals(value);
+        }
+        catch (DateTimeParseException e)
+        {
+            return false;
+        }
+    }
+
+    /** Returns true if the value is a decimal that Double.toString gives back unchanged. */
+    private static boolean isCanonicalDouble(String value)
+    {
+        if (value.isEmpty() || value.indexOf('.') < 0)
+            return false;
+        for (int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && c != '.' && c != '-')
+                return false;
+        }
+        try
+        {
+            return Double.toString(Double.parseDouble(value)).equals(value);
+        }
+        catch (NumberFormatException e)
+        {
+            return false;
+        }
+    }
+    //endregion
+}
@@ -49,6 +49,28 @@ public class BackwardVertexGraphMapping<V, E> implements GraphMapping<V, E>
                 ((DataVertex)entry.getValue()).getVertexURI());
         }
     }
+
+    /**
+     * Constructs a new BackwardVertexGraphMapping from vertex ids, e.g. when a match is read back from a MatchStore.
+     * @param backwardMapping Mapping from the pattern vertices to the ids of the matched vertices.
+     */
+    public BackwardVertexGraphMapping(
+        Map<V, String> backwardMapping,
+        LocalDate timestamp,
+        TemporalGraph<V> temporalGraph)
+    {
+        this.backwardMapping = backwardMapping;
+        this.timestamp = timestamp;
+        this.temporalGraph = temporalGraph;
+    }
+    //endregion
+
+    //region --[Properties: Public]------------------------------------
+    /** Gets the timestamp of the mapping. */
+    public LocalDate getTimestamp() { return timestamp; }
+
+    /** Gets the id of the vertex mapped to the given pattern vertex, or null if it is not mapped. */
+    public String getVertexId(V v) { return backwardMapping.get(v); }
     //endregion
 
     //region --[GraphMapping]------------------------------------------
@@ -1,7 +1,10 @@
 package Infra;
 
+import Util.Config;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 
 public class DataVertex extends Vertex implements Serializable {
@@ -14,6 +17,8 @@ public class DataVertex extends Vertex implements Serializable {
     public DataVertex(String uri, String type) {
         super(type.toLowerCase());
         this.vertexURI=uri.toLowerCase();
+        if(Config.columnarAttributes)
+            useAttributeStore();
         this.addAttribute("uri",vertexURI);
         // ???: Is Integer large enough for our use case of possible 10+ million vertices? [2021-02-07]
 //        this.hashValue=vertexURI.hashCode();
@@ -39,19 +44,23 @@ public class DataVertex extends Vertex implements Serializable {
     public boolean isMapped(Vertex v) {
         if(v instanceof DataVertex)
             return false;
-        if (super.getTypes().containsAll(v.getTypes())) {
-            if (super.getAllAttributesNames().containsAll(v.getAllAttributesNames())) {
-                for (Attribute attr : v.getAllAttributesList())
-                    if (!attr.isNULL() && !super.getAttributeValueByName(attr.getAttrName()).equals(attr.getAttrValue())) {
-                        return false;
-                    }
-                return true;
-            } else {
-                return false;
-            }
-        } else {
+        if (!super.getTypes().containsAll(v.getTypes()))
             return false;
+        // Look up the literals of the pattern vertex one by one, so the attributes of this vertex are not copied
+        for (Attribute attr : v.getAllAttributesList()) {
+            if (!super.hasAttribute(attr.getAttrName()))
+                return false;
+            if (!attr.isNULL() && !super.getAttributeValueByName(attr.getAttrName()).equals(attr.getAttrValue()))
+                return false;
         }
+        return true;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+        if(Config.columnarAttributes)
+            useAttributeStore();
     }
 
     @Override
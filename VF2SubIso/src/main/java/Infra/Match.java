@@ -1,6 +1,7 @@
 package Infra;
 
 import QPathBasedWorkload.VertexMapping;
+import Util.Metrics;
 import org.jgrapht.GraphMapping;
 
 import java.time.Duration;
@@ -250,6 +251,7 @@ public final class Match {
             ArrayList<Literal> xLiterals)
     {
         // We assume that all x variable literals are also defined in the pattern? [2021-02-13]
+        long startTime = Metrics.startTimer();
         var builder = new StringBuilder();
 
         // TODO: consider collecting (type, name, attr) and sorting at the end [2021-02-14]
@@ -286,7 +288,9 @@ public final class Match {
             }
         });
         // TODO: consider returning a hash [2021-02-13]
-        return builder.toString();
+        var signature = builder.toString();
+        Metrics.stopTimer(Metrics.SIGNATURE, startTime);
+        return signature;
     }
 
     /**
@@ -301,6 +305,7 @@ public final class Match {
             ArrayList<Literal> xLiterals)
     {
         // We assume that all x variable literals are also defined in the pattern? [2021-02-13]
+        long startTime = Metrics.startTimer();
         var builder = new StringBuilder();
 
         // TODO: consider collecting (type, name, attr) and sorting at the end [2021-02-14]
@@ -337,7 +342,9 @@ public final class Match {
             }
         });
         // TODO: consider returning a hash [2021-02-13]
-        return builder.toString();
+        var signature = builder.toString();
+        Metrics.stopTimer(Metrics.SIGNATURE, startTime);
+        return signature;
     }
 
     /**
@@ -352,6 +359,7 @@ public final class Match {
             ArrayList<Literal> yLiterals)
     {
         // We assume that all x variable literals are also defined in the pattern? [2021-02-13]
+        long startTime = Metrics.startTimer();
         var builder = new StringBuilder();
 
         // NOTE: Ensure stable sorting of vertices [2021-02-13]
@@ -398,7 +406,9 @@ public final class Match {
             }
         });
         // TODO: consider returning a hash [2021-02-13]
-        return builder.toString();
+        var signature = builder.toString();
+        Metrics.stopTimer(Metrics.SIGNATURE, startTime);
+        return signature;
     }
 
     /**
@@ -413,6 +423,7 @@ public final class Match {
             ArrayList<Literal> yLiterals)
     {
         // We assume that all x variable literals are also defined in the pattern? [2021-02-13]
+        long startTime = Metrics.startTimer();
         var builder = new StringBuilder();
 
         // NOTE: Ensure stable sorting of vertices [2021-02-13]
@@ -459,7 +470,9 @@ public final class Match {
             }
         });
         // TODO: consider returning a hash [2021-02-13]
-        return builder.toString();
+        var signature = builder.toString();
+        Metrics.stopTimer(Metrics.SIGNATURE, startTime);
+        return signature;
     }
 
     /**
@@ -471,6 +484,7 @@ public final class Match {
             VF2PatternGraph pattern,
             GraphMapping<Vertex, RelationshipEdge> mapping)
     {
+        long startTime = Metrics.startTimer();
         var builder = new StringBuilder();
 
         // NOTE: Ensure stable sorting of vertices [2021-02-13]
@@ -484,7 +498,9 @@ public final class Match {
             builder.append(",");
         });
         // TODO: consider returning a hash [2021-02-13]
-        return builder.toString();
+        var signature = builder.toString();
+        Metrics.stopTimer(Metrics.SIGNATURE, startTime);
+        return signature;
     }
 
     /**
@@ -496,6 +512,7 @@ public final class Match {
             VF2PatternGraph pattern,
             VertexMapping mapping)
     {
+        long startTime = Metrics.startTimer();
         var builder = new StringBuilder();
 
         // NOTE: Ensure stable sorting of vertices [2021-02-13]
@@ -509,7 +526,9 @@ public final class Match {
             builder.append(",");
         });
         // TODO: consider returning a hash [2021-02-13]
-        return builder.toString();
+        var signature = builder.toString();
+        Metrics.stopTimer(Metrics.SIGNATURE, startTime);
+        return signature;
     }
     //endregion
 
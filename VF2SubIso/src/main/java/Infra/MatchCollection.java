@@ -1,20 +1,29 @@
 package Infra;
 
 import QPathBasedWorkload.VertexMapping;
+import Util.Config;
+import Util.Metrics;
 import org.jgrapht.GraphMapping;
 
 import java.time.Duration;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
  * Class that stores matches across timestamps for a single TGFD.
+ *
+ * If Config.matchCacheSize is set, only the most recently used matches are kept in memory
+ * and the rest are spilled to a MatchStore on the local disk.
+ *
+ * Matches and timestamps can be added and read concurrently by the threads of a worker.
+ * The mappings should be found before calling addMatches, since the collection is locked while they are added,
+ * and the collection is locked while forEachMatch runs the action, so the action should not wait for a writer.
  */
 public class MatchCollection
 {
     //region --[Fields: Private]---------------------------------------
-    // TODO: handle concurrent use of TemporalGraph [2021-02-24]
     /** Temporal graph containing the vertices to reduce memory consumption by the matches. */
     private TemporalGraph<Vertex> temporalGraph;
 
@@ -25,8 +34,11 @@ public class MatchCollection
     private Duration granularity;
 
     // TODO: replace map value type with List<Match> [2021-02-23]
-    /** Mapping of match signatures to matches. */
-    private AbstractMap<String, Match> matchesBySignature = new HashMap<>();
+    /** Mapping of match signatures to matches (only the cached ones if matchStore is used). */
+    private AbstractMap<String, Match> matchesBySignature;
+
+    /** Disk store of the matches evicted from matchesBySignature, null if all matches are kept in memory. */
+    private MatchStore matchStore = null;
 
     // TODO: deduplicate vertices in Match [2021-02-23]
     // This may not be so easy because we need to deduplicate by vertex and time.
@@ -56,6 +68,26 @@ public class MatchCollection
         this.dependency = dependency;
         this.granularity = granularity;
         this.temporalGraph = new TemporalGraph<>(granularity);
+
+        if (Config.matchCacheSize > 0)
+        {
+            this.matchStore = new MatchStore(temporalGraph, pattern, Config.matchSpillDirectory, Config.matchSegmentSize);
+            this.matchesBySignature = new LinkedHashMap<>(16, 0.75f, true)
+            {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Match> eldest)
+                {
+                    if (size() <= Config.matchCacheSize)
+                        return false;
+                    matchStore.append(eldest.getValue());
+                    return true;
+                }
+            };
+        }
+        else
+        {
+            this.matchesBySignature = new HashMap<>();
+        }
     }
     //endregion
 
@@ -71,7 +103,7 @@ public class MatchCollection
     {
         var signature = Match.signatureFromX(pattern, mapping, dependency.getX());
 
-        var match = matchesBySignature.getOrDefault(signature, null);
+        var match = getCachedMatch(signature);
         if (match == null)
         {
             match = new Match(temporalGraph, mapping, signature, timestamp);
@@ -95,7 +127,7 @@ public class MatchCollection
     {
         var signature = Match.signatureFromX(pattern, mapping, dependency.getX());
 
-        var match = matchesBySignature.getOrDefault(signature, null);
+        var match = getCachedMatch(signature);
         if (match == null)
         {
             match = new Match(temporalGraph, mapping, signature, timestamp);
@@ -108,6 +140,23 @@ public class MatchCollection
         match.addSignatureY(timestamp,granularity,signatureY);
     }
 
+    /**
+     * Gets the match with the signature and moves it to the cache if it was spilled.
+     * @param signature Signature of the match computed from X.
+     * @return The match, or null if there is no match with the signature.
+     */
+    private Match getCachedMatch(String signature)
+    {
+        var match = matchesBySignature.get(signature);
+        if (match == null && matchStore != null)
+        {
+            match = matchStore.remove(signature);
+            if (match != null)
+                matchesBySignature.put(signature, match);
+        }
+        return match;
+    }
+
     /**
      * Adds vertices of the match to the TemporalGraph shared by matches in this collection.
      * @param timestamp Timepoint of the match.
@@ -153,7 +202,7 @@ public class MatchCollection
      * @param timestamp Timepoint of the matches.
      * @param mappingIterator An iterator over all isomorphic mappings from the pattern.
      */
-    public int addMatches(
+    public synchronized int addMatches(
         LocalDate timestamp,
         Iterator<GraphMapping<Vertex, RelationshipEdge>> mappingIterator)
     {
@@ -163,24 +212,41 @@ public class MatchCollection
         timestamps.add(timestamp);
 
         int matchCount = 0;
-        long start= System.currentTimeMillis();
+        long startTime = Metrics.startTimer();
         while (mappingIterator.hasNext())
         {
             GraphMapping<Vertex, RelationshipEdge> mapping = mappingIterator.next();
             addMatch(timestamp, mapping);
             addVertices(timestamp, mapping);
+            matchCount++;
         }
-        System.out.println("Total Number of matches: " + matchCount);
+        Metrics.stopTimer(Metrics.MATCH_INGEST, startTime);
+        Metrics.add(Metrics.MATCHES, matchCount);
         return matchCount;
     }
 
 
+    /**
+     * Adds a match for a timestamp as soon as it is found, so the matches are not held by the caller.
+     * @param timestamp Timepoint of the match.
+     * @param mapping The mapping of the match.
+     */
+    public synchronized void addMatches(
+            LocalDate timestamp,
+            GraphMapping<Vertex, RelationshipEdge> mapping)
+    {
+        timestamps.add(timestamp);
+        addMatch(timestamp, mapping);
+        addVertices(timestamp, mapping);
+        Metrics.increment(Metrics.MATCHES);
+    }
+
     /**
      * Adds matches for a timestamp.
      * @param timestamp Timepoint of the matches.
      * @param mappings An Arraylist of vertex mapping to the graph pattern.
      */
-    public int addMatches(
+    public synchronized int addMatches(
             LocalDate timestamp,
             Collection<VertexMapping> mappings)
     {
@@ -190,13 +256,15 @@ public class MatchCollection
         timestamps.add(timestamp);
 
         int matchCount = 0;
-        long start= System.currentTimeMillis();
+        long startTime = Metrics.startTimer();
         for (VertexMapping mapping:mappings) {
 
             addMatch(timestamp, mapping);
             addVertices(timestamp, mapping);
+            matchCount++;
         }
-        System.out.println("Total Number of matches: " + matchCount);
+        Metrics.stopTimer(Metrics.MATCH_INGEST, startTime);
+        Metrics.add(Metrics.MATCHES, matchCount);
         return matchCount;
     }
 
@@ -206,17 +274,29 @@ public class MatchCollection
      * @param timepoint Timepoint of the matches.
      * @param newMatches A HashMap of <SignatureFromPattern,mapping> of all the new matches.
      */
-    public void addMatches(
+    public synchronized void addMatches(
         LocalDate timepoint,
         HashMap <String, GraphMapping <Vertex, RelationshipEdge>> newMatches)
     {
         timestamps.add(timepoint);
 
+        long startTime = Metrics.startTimer();
         for (var mapping : newMatches.values())
         {
             addMatch(timepoint, mapping);
             addVertices(timepoint, mapping);
         }
+        Metrics.stopTimer(Metrics.MATCH_INGEST, startTime);
+        Metrics.add(Metrics.MATCHES, newMatches.size());
+    }
+
+    /**
+     * Records a snapshot without changing the matches, for a TGFD that may not have any match in it.
+     * @param timestamp Timestamp of the snapshot.
+     */
+    public synchronized void addTimestamp(LocalDate timestamp)
+    {
+        timestamps.add(timestamp);
     }
 
     /**
@@ -225,13 +305,14 @@ public class MatchCollection
      * @param newMatchesSignatures Signatures from new matches.
      * @param removedMatchesSignatures Signatures from deleted matches.
      */
-    public void addTimestamp(
+    public synchronized void addTimestamp(
         LocalDate timestamp,
         Collection<String> newMatchesSignatures,
         Collection<String> removedMatchesSignatures)
     {
         timestamps.add(timestamp);
 
+        long startTime = Metrics.startTimer();
         var newSignatures = newMatchesSignatures.stream().collect(Collectors.toSet());
         var removedSignatures = removedMatchesSignatures.stream().collect(Collectors.toSet());
 
@@ -242,6 +323,35 @@ public class MatchCollection
 
         for (var signature : signaturesToUpdate)
             matchesBySignature.get(signature).addTimepoint(timestamp, granularity);
+
+        // Spilled matches are updated in a single sequential pass over the store
+        if (matchStore != null && matchStore.size() > 0)
+        {
+            matchStore.rewrite(match -> {
+                if (!newSignatures.contains(match.getSignatureX()) && !removedSignatures.contains(match.getSignatureX()))
+                    match.addTimepoint(timestamp, granularity);
+            });
+        }
+        Metrics.stopTimer(Metrics.MATCH_TIMESTAMP, startTime);
+    }
+
+    /**
+     * Runs the action for every match across all time.
+     * Unlike getMatches(), spilled matches are read back one at a time instead of being loaded into memory together.
+     * @param action Action to run for each match.
+     */
+    public synchronized void forEachMatch(Consumer<Match> action)
+    {
+        new ArrayList<>(matchesBySignature.values()).forEach(action);
+        if (matchStore != null)
+            matchStore.forEach(action);
+    }
+
+    /** Deletes the spilled matches from the local disk. */
+    public synchronized void close()
+    {
+        if (matchStore != null)
+            matchStore.close();
     }
     //endregion
 
@@ -250,25 +360,31 @@ public class MatchCollection
     public Duration getGranularity() { return this.granularity; }
 
     /** Gets all the timestamps from the input data (snapshots of the data). */
-    public LocalDate[] getTimestamps() {
+    public synchronized LocalDate[] getTimestamps() {
         return timestamps.stream().toArray(LocalDate[]::new);
     }
 
     /** Returns matches across all time. */
-    public List<Match> getMatches() {
-        return new ArrayList<>(matchesBySignature
-                .values());
+    public synchronized List<Match> getMatches() {
+        var matches = new ArrayList<Match>();
+        forEachMatch(matches::add);
+        return matches;
     }
 
     /** Returns matches applicable for only the given timestamp. */
-    public List<Match> getMatches(LocalDate timestamp) {
+    public synchronized List<Match> getMatches(LocalDate timestamp) {
         var intervals = List.of(new Interval(timestamp, timestamp));
-        return matchesBySignature
-            .values()
-            .stream()
-            .filter(match -> match.getIntervals().stream().anyMatch(intv -> intv.contains(timestamp)))
-            .map(match -> match.WithIntervals(intervals))
-            .collect(Collectors.toList());
+        var matches = new ArrayList<Match>();
+        forEachMatch(match -> {
+            if (match.getIntervals().stream().anyMatch(intv -> intv.contains(timestamp)))
+                matches.add(match.WithIntervals(intervals));
+        });
+        return matches;
+    }
+
+    /** Returns number of matches across all time, including the spilled ones. */
+    public synchronized int size() {
+        return matchesBySignature.size() + (matchStore != null ? matchStore.size() : 0);
     }
     //endregion
 }
\ No newline at end of file
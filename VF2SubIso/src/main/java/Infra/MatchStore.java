@@ -0,0 +1,395 @@
+package Infra;
+
+import QPathBasedWorkload.VertexMapping;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Append-only disk store for matches that were evicted from the in-memory cache of a MatchCollection.
+ *
+ * Matches are written to local segment files and indexed by signatureX. A match record only keeps the
+ * vertex ids of the mapping; vertices are resolved again from the shared TemporalGraph when the match is read back.
+ */
+public class MatchStore
+{
+    //region --[Fields: Private]---------------------------------------
+    /** Mapping kinds stored in a record. */
+    private static final byte GRAPH_MAPPING = 0;
+    private static final byte VERTEX_MAPPING = 1;
+
+    /** Number of bits used for the offset inside a segment when encoding a record location. */
+    private static final int OFFSET_BITS = 40;
+
+    /** Temporal graph containing the vertices of the matches. */
+    private final TemporalGraph<Vertex> temporalGraph;
+
+    /** Pattern vertices in a fixed order, used to encode the mappings by position. */
+    private final List<Vertex> patternVertices;
+
+    /** Directory holding the segment files of this store. */
+    private final Path directory;
+
+    /** Maximum size of a segment file in bytes. */
+    private final long segmentSize;
+
+    /** Segment files in the order they were written. */
+    private List<Path> segments = new ArrayList<>();
+
+    /** Location (segment id and offset) of the live record of each spilled match, by signatureX. */
+    private HashMap<String, Long> locationBySignature = new HashMap<>();
+
+    /** Writer of the current segment. */
+    private DataOutputStream writer;
+
+    /** Number of bytes written to the current segment. */
+    private long writerPosition = 0;
+
+    /** Number of segments created by this store, used to name new segments. */
+    private int segmentCounter = 0;
+    //endregion
+
+    //region --[Constructors]------------------------------------------
+    /**
+     * Creates a MatchStore.
+     * @param temporalGraph Temporal graph containing the vertices of the matches.
+     * @param pattern Pattern of all matches in this store.
+     * @param parentDirectory Directory where the segment files are created.
+     * @param segmentSize Maximum size of a segment file in bytes.
+     */
+    public MatchStore(
+        TemporalGraph<Vertex> temporalGraph,
+        VF2PatternGraph pattern,
+        String parentDirectory,
+        long segmentSize)
+    {
+        this.temporalGraph = temporalGraph;
+        this.patternVertices = new ArrayList<>(pattern.getPattern().vertexSet());
+        this.segmentSize = segmentSize;
+        try
+        {
+            this.directory = Files.createTempDirectory(Path.of(parentDirectory), "matches_");
+            this.directory.toFile().deleteOnExit();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Cannot create the match store directory in " + parentDirectory, e);
+        }
+    }
+    //endregion
+
+    //region --[Methods: Public]---------------------------------------
+    /**
+     * Writes a match to the store. Any previous record of the same signatureX becomes stale.
+     * @param match Match to spill.
+     */
+    public void append(Match match)
+    {
+        try
+        {
+            byte[] record = encode(match);
+            if (writer == null || writerPosition + record.length + Integer.BYTES > segmentSize)
+                openNewSegment();
+
+            long location = ((long)(segments.size() - 1) << OFFSET_BITS) | writerPosition;
+            writer.writeInt(record.length);
+            writer.write(record);
+            writerPosition += Integer.BYTES + record.length;
+            locationBySignature.put(match.getSignatureX(), location);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Cannot spill match to " + directory, e);
+        }
+    }
+
+    /**
+     * Reads back a match and removes it from the store.
+     * @param signatureX Signature of the match computed from X.
+     * @return The match, or null if the store does not contain it.
+     */
+    public Match remove(String signatureX)
+    {
+        var location = locationBySignature.remove(signatureX);
+        if (location == null)
+            return null;
+
+        try
+        {
+            if (writer != null)
+                writer.flush();
+            var segment = segments.get((int)(location >>> OFFSET_BITS));
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ))
+            {
+                channel.position(location & ((1L << OFFSET_BITS) - 1));
+                var in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+                byte[] record = new byte[in.readInt()];
+                in.readFully(record);
+                return decode(record);
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Cannot read match from " + directory, e);
+        }
+    }
+
+    /**
+     * Reads all live matches sequentially, segment by segment.
+     * @param action Action to run for each match.
+     */
+    public void forEach(Consumer<Match> action)
+    {
+        scan(segments, locationBySignature, action);
+    }
+
+    /**
+     * Rewrites all live matches into new segments after applying the update to each of them.
+     * Old segments are deleted, so this also compacts the stale records away.
+     * @param update Update to apply to each match before it is written back.
+     */
+    public void rewrite(Consumer<Match> update)
+    {
+        var oldSegments = segments;
+        var oldLocations = locationBySignature;
+
+        closeWriter();
+        segments = new ArrayList<>();
+        locationBySignature = new HashMap<>();
+
+        scan(oldSegments, oldLocations, match -> {
+            update.accept(match);
+            append(match);
+        });
+
+        for (var segment : oldSegments)
+            segment.toFile().delete();
+    }
+
+    /** Returns number of matches in the store. */
+    public int size()
+    {
+        return locationBySignature.size();
+    }
+
+    /** Closes the store and deletes its segment files. */
+    public void close()
+    {
+        closeWriter();
+        for (var segment : segments)
+            segment.toFile().delete();
+        directory.toFile().delete();
+        segments = new ArrayList<>();
+        locationBySignature = new HashMap<>();
+    }
+    //endregion
+
+    //region --[Methods: Private]--------------------------------------
+    /** Closes the current segment and opens a new one for appending. */
+    private void openNewSegment() throws IOException
+    {
+        closeWriter();
+        var segment = directory.resolve("segment_" + (segmentCounter++) + ".bin");
+        segment.toFile().deleteOnExit();
+        segments.add(segment);
+        writer = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(segment.toFile()), 1 << 16));
+        writerPosition = 0;
+    }
+
+    private void closeWriter()
+    {
+        if (writer == null)
+            return;
+        try
+        {
+            writer.close();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Cannot close the match store segment", e);
+        }
+        writer = null;
+    }
+
+    /**
+     * Reads the records of the segments in order and runs the action on the live ones.
+     * @param segmentsToScan Segments to read.
+     * @param locations Location of the live record of each signatureX.
+     * @param action Action to run for each live match.
+     */
+    private void scan(List<Path> segmentsToScan, Map<String, Long> locations, Consumer<Match> action)
+    {
+        try
+        {
+            if (writer != null)
+                writer.flush();
+            for (int segmentId = 0; segmentId < segmentsToScan.size(); segmentId++)
+            {
+                try (var in = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(segmentsToScan.get(segmentId).toFile()), 1 << 16)))
+                {
+                    long offset = 0;
+                    long length = segmentsToScan.get(segmentId).toFile().length();
+                    while (offset < length)
+                    {
+                        byte[] record = new byte[in.readInt()];
+                        in.readFully(record);
+                        long location = ((long)segmentId << OFFSET_BITS) | offset;
+                        offset += Integer.BYTES + record.length;
+
+                        // Records that were read back or rewritten later are stale
+                        var signatureX = readString(new DataInputStream(new ByteArrayInputStream(record)));
+                        if (!Long.valueOf(location).equals(locations.get(signatureX)))
+                            continue;
+                        action.accept(decode(record));
+                    }
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Cannot read matches from " + directory, e);
+        }
+    }
+
+    /** Encodes a match into a record. The signatureX is always written first. */
+    private byte[] encode(Match match) throws IOException
+    {
+        var bytes = new ByteArrayOutputStream();
+        var out = new DataOutputStream(bytes);
+
+        writeString(out, match.getSignatureX());
+        writeString(out, match.getSignatureFromPattern());
+
+        LocalDate initialTimepoint;
+        if (match.getMatchMapping() != null)
+        {
+            var mapping = (BackwardVertexGraphMapping<Vertex, RelationshipEdge>)match.getMatchMapping();
+            out.writeByte(GRAPH_MAPPING);
+            initialTimepoint = mapping.getTimestamp();
+            out.writeLong(initialTimepoint.toEpochDay());
+            for (var patternVertex : patternVertices)
+                writeString(out, mapping.getVertexId(patternVertex));
+        }
+        else
+        {
+            var mapping = match.getMatchVertexMapping();
+            out.writeByte(VERTEX_MAPPING);
+            initialTimepoint = match.getIntervals().get(0).getStart();
+            out.writeLong(initialTimepoint.toEpochDay());
+            for (var patternVertex : patternVertices)
+            {
+                var matchVertex = mapping.getVertexCorrespondence(patternVertex);
+                writeString(out, matchVertex == null ? null : ((DataVertex)matchVertex).getVertexURI());
+            }
+        }
+
+        writeIntervals(out, match.getIntervals());
+        out.writeInt(match.getSignatureYWithInterval().size());
+        for (var entry : match.getSignatureYWithInterval().entrySet())
+        {
+            writeString(out, entry.getKey());
+            writeIntervals(out, entry.getValue());
+        }
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /** Decodes a record into a match. */
+    private Match decode(byte[] record) throws IOException
+    {
+        var in = new DataInputStream(new ByteArrayInputStream(record));
+
+        var signatureX = readString(in);
+        var signatureFromPattern = readString(in);
+        var mappingKind = in.readByte();
+        var initialTimepoint = LocalDate.ofEpochDay(in.readLong());
+
+        Match match;
+        if (mappingKind == GRAPH_MAPPING)
+        {
+            var vertexIds = new HashMap<Vertex, String>();
+            for (var patternVertex : patternVertices)
+            {
+                var vertexId = readString(in);
+                if (vertexId != null)
+                    vertexIds.put(patternVertex, vertexId);
+            }
+            var mapping = new BackwardVertexGraphMapping<Vertex, RelationshipEdge>(vertexIds, initialTimepoint, temporalGraph);
+            match = new Match(temporalGraph, mapping, signatureX, initialTimepoint);
+        }
+        else
+        {
+            var mapping = new VertexMapping();
+            for (var patternVertex : patternVertices)
+            {
+                var vertexId = readString(in);
+                if (vertexId != null)
+                    mapping.addMapping(temporalGraph.getVertex(vertexId, initialTimepoint), (PatternVertex)patternVertex);
+            }
+            match = new Match(temporalGraph, mapping, signatureX, initialTimepoint);
+        }
+        match.setSignatureFromPattern(signatureFromPattern);
+
+        match.getIntervals().addAll(readIntervals(in));
+        int signatureYCount = in.readInt();
+        for (int i = 0; i < signatureYCount; i++)
+        {
+            var signatureY = readString(in);
+            match.getSignatureYWithInterval().put(signatureY, readIntervals(in));
+        }
+        return match;
+    }
+
+    private static void writeIntervals(DataOutputStream out, List<Interval> intervals) throws IOException
+    {
+        out.writeInt(intervals.size());
+        for (var interval : intervals)
+        {
+            out.writeLong(interval.getStart().toEpochDay());
+            out.writeLong(interval.getEnd().toEpochDay());
+        }
+    }
+
+    private static List<Interval> readIntervals(DataInputStream in) throws IOException
+    {
+        int count = in.readInt();
+        var intervals = new ArrayList<Interval>(count);
+        for (int i = 0; i < count; i++)
+            intervals.add(new Interval(LocalDate.ofEpochDay(in.readLong()), LocalDate.ofEpochDay(in.readLong())));
+        return intervals;
+    }
+
+    /** Writes a nullable string. Unlike writeUTF, it is not limited to 64KB. */
+    private static void writeString(DataOutputStream out, String value) throws IOException
+    {
+        if (value == null)
+        {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException
+    {
+        int length = in.readInt();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    //endregion
+}
@@ -0,0 +1,21 @@
+package Infra;
+
+import java.util.ArrayList;
+
+/**
+ * The edges within the diameter of a center vertex that a joblet, or a job of the QPath runner, is matched on.
+ * The JobletIndex maps the vertices of the edges to the IDs of the neighbourhoods, so a change is routed to the neighbourhoods it touches.
+ */
+public interface Neighbourhood {
+
+    int getId();
+
+    DataVertex getCenterNode();
+
+    int getDiameter();
+
+    ArrayList<RelationshipEdge> getEdges();
+
+    void setEdges(ArrayList<RelationshipEdge> edges);
+
+}
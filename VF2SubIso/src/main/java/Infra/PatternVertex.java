@@ -49,11 +49,14 @@ public class PatternVertex extends Vertex{
             return false;
         if (!v.getTypes().containsAll(super.getTypes()))
             return false;
-        if(!v.getAllAttributesNames().containsAll(super.getAllAttributesNames()))
-            return false;
+        // Look up the literals one by one, so the attributes of the data vertex are not copied from the AttributeStore
         for (Attribute attr:super.getAllAttributesList())
+        {
+            if(!v.hasAttribute(attr.getAttrName()))
+                return false;
             if(!attr.isNULL() && !v.getAttributeValueByName(attr.getAttrName()).equals(attr.getAttrValue()))
                 return false;
+        }
         return true;
     }
 
@@ -1,5 +1,7 @@
 package Infra;
 
+import java.util.Objects;
+
 public class SimpleEdge
 {
     private String src, dst, label;
@@ -28,4 +30,26 @@ public class SimpleEdge
     public String getLabel() {
         return label;
     }
+
+    @Override
+    public boolean equals(Object obj) {
+
+        if (this == obj)
+            return true;
+        if (!(obj instanceof SimpleEdge))
+            return false;
+
+        SimpleEdge edge = (SimpleEdge) obj;
+        return src.equals(edge.src) && dst.equals(edge.dst) && label.equals(edge.label);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(src, dst, label);
+    }
+
+    @Override
+    public String toString() {
+        return src + " -" + label + "-> " + dst;
+    }
 }
\ No newline at end of file
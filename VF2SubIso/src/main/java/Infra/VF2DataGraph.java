@@ -1,5 +1,6 @@
 package Infra;
 
+import Util.Metrics;
 import VF2BasedWorkload.Joblet;
 import org.jgrapht.Graph;
 import org.jgrapht.graph.DefaultDirectedGraph;
@@ -13,19 +14,26 @@ public class VF2DataGraph implements Serializable {
 
     private HashMap<String, Vertex> nodeMap;
 
+    // Vertices of each type, so the centers of the joblets are found without scanning the graph.
+    // The sets keep the order the vertices were added in, and remove a vertex in constant time
+    private HashMap<String, LinkedHashSet<Vertex>> verticesByType;
+
     public VF2DataGraph()
     {
         nodeMap= new HashMap<>();
+        verticesByType= new HashMap<>();
     }
 
     public VF2DataGraph(Graph <Vertex, RelationshipEdge> graph)
     {
         nodeMap= new HashMap<>();
+        verticesByType= new HashMap<>();
         this.graph = graph;
         for (Vertex v:graph.vertexSet()) {
             DataVertex dataV=(DataVertex) v;
             if(!nodeMap.containsKey(dataV.getVertexURI())) {
                 nodeMap.put(dataV.getVertexURI(), dataV);
+                indexTypes(dataV);
             }
         }
     }
@@ -40,9 +48,29 @@ public class VF2DataGraph implements Serializable {
         {
             graph.addVertex(v);
             nodeMap.put(v.getVertexURI(),v);
+            indexTypes(v);
         }
     }
 
+    /**
+     * Adds a type to a vertex of the graph, and to the index of the vertices by type.
+     * The types of a vertex that is in the graph should be added here rather than with Vertex.addType.
+     */
+    public void addType(DataVertex v, String type)
+    {
+        if(v.getTypes().contains(type))
+            return;
+        v.addType(type);
+        if(nodeMap.get(v.getVertexURI())==v)
+            verticesByType.computeIfAbsent(type, t -> new LinkedHashSet<>()).add(v);
+    }
+
+    /** Gets the vertices of the given type, in the order they were added. */
+    public Set<Vertex> getVerticesByType(String type)
+    {
+        return Collections.unmodifiableSet(verticesByType.getOrDefault(type, new LinkedHashSet<>()));
+    }
+
     public Vertex getNode(String vertexURI)
     {
         return nodeMap.getOrDefault(vertexURI, null);
@@ -65,6 +93,26 @@ public class VF2DataGraph implements Serializable {
         }
     }
 
+    /** Removes a vertex of the graph with its edges, and from the index of the vertices by type. */
+    public void removeVertex(DataVertex v)
+    {
+        if(nodeMap.get(v.getVertexURI())!=v)
+            return;
+        graph.removeVertex(v);
+        nodeMap.remove(v.getVertexURI());
+        for (String type:v.getTypes())
+        {
+            if(verticesByType.containsKey(type))
+                verticesByType.get(type).remove(v);
+        }
+    }
+
+    private void indexTypes(DataVertex v)
+    {
+        for (String type:v.getTypes())
+            verticesByType.computeIfAbsent(type, t -> new LinkedHashSet<>()).add(v);
+    }
+
     public int getSize()
     {
         return nodeMap.size();
@@ -76,6 +124,7 @@ public class VF2DataGraph implements Serializable {
 
     public Graph<Vertex, RelationshipEdge> getSubGraphWithinDiameter(DataVertex center, int diameter)
     {
+        long startTime=Metrics.startTimer();
         Graph<Vertex, RelationshipEdge> subgraph = new DefaultDirectedGraph<>(RelationshipEdge.class);
 
         List<Vertex> withinDiameter=new ArrayList<>();
@@ -147,13 +196,25 @@ public class VF2DataGraph implements Serializable {
                     subgraph.addEdge(e.getSource(),e.getTarget(),e);
             }
         }
+        Metrics.stopTimer(Metrics.SUBGRAPH_EXTRACTION, startTime);
+        Metrics.record(Metrics.SUBGRAPH_SIZE, withinDiameter.size());
         return subgraph;
     }
 
     public Graph<Vertex, RelationshipEdge> getSubGraphWithinDiameter(DataVertex center, int diameter, TGFD tgfd)
     {
+        return getSubGraphWithinDiameter(Collections.singletonList(center), diameter, extractValidTypesFromTGFD(tgfd));
+    }
+
+    /**
+     * Extracts the subgraph induced by the vertices within the diameter of any of the centers, with one BFS from all of them.
+     * This is the union of the subgraphs of the centers, so overlapping neighbourhoods are extracted once.
+     * @param validTypes Types of the vertices kept in the subgraph, the centers are always kept
+     */
+    public Graph<Vertex, RelationshipEdge> getSubGraphWithinDiameter(Collection<DataVertex> centers, int diameter, Set<String> validTypes)
+    {
+        long startTime=Metrics.startTimer();
         Graph<Vertex, RelationshipEdge> subgraph = new DefaultDirectedGraph<>(RelationshipEdge.class);
-        Set <String> validTypes= extractValidTypesFromTGFD(tgfd);
 
         List<Vertex> withinDiameter=new ArrayList<>();
         // Define a HashMap to store visited vertices
@@ -162,11 +223,15 @@ public class VF2DataGraph implements Serializable {
         // Create a queue for BFS
         LinkedList<DataVertex> queue = new LinkedList<>();
 
-        // Mark the current node as visited with distance 0 and then enqueue it
-        visited.put(center.getVertexURI(),0);
-        queue.add(center);
-        // Store the center as the node within the diameter
-        withinDiameter.add(center);
+        // Mark the centers as visited with distance 0 and then enqueue them
+        for (DataVertex center:centers) {
+            if(visited.containsKey(center.getVertexURI()))
+                continue;
+            visited.put(center.getVertexURI(),0);
+            queue.add(center);
+            // Store the center as the node within the diameter
+            withinDiameter.add(center);
+        }
         //temp variables
         DataVertex v,w;
 
@@ -213,6 +278,8 @@ public class VF2DataGraph implements Serializable {
                     subgraph.addEdge(e.getSource(),e.getTarget(),e);
             }
         }
+        Metrics.stopTimer(Metrics.SUBGRAPH_EXTRACTION, startTime);
+        Metrics.record(Metrics.SUBGRAPH_SIZE, withinDiameter.size());
         return subgraph;
     }
 
@@ -515,7 +582,7 @@ public class VF2DataGraph implements Serializable {
      * Extracts all the types being used in a TGFD from from X->Y dependency and the graph pattern
      * @param tgfd input TGFD
      */
-    private Set <String> extractValidTypesFromTGFD(TGFD tgfd)
+    public static Set <String> extractValidTypesFromTGFD(TGFD tgfd)
     {
         Set <String> validTypes=new HashSet<>();
         for (Literal x:tgfd.getDependency().getX()) {
@@ -545,7 +612,7 @@ public class VF2DataGraph implements Serializable {
         return validTypes;
     }
 
-    private boolean isValidType(Set<String> validTypes, Set<String> givenTypes)
+    private static boolean isValidType(Set<String> validTypes, Set<String> givenTypes)
     {
         return givenTypes.stream().anyMatch(validTypes::contains);
     }
@@ -1,5 +1,8 @@
 package Infra;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.*;
 
@@ -7,14 +10,15 @@ public abstract class Vertex implements Comparable<Vertex>, Serializable {
 
     private Set<String> types=new HashSet<>();
 
-    private Set<Integer> jobletID=new HashSet<>();
-
     private boolean isMarked = false;
 
     // Map of attributes using attribute name as a key
     //TODO: Check the efficiency if we just store the attributes in a set (the attribute retrieval cannot be done in O(1) and takes O(n))
     private Map<String, Attribute> attributes;
 
+    // Id of the vertex in the AttributeStore, or -1 if the attributes are kept in the attributes map above
+    private transient int attributeStoreId=-1;
+
     // TODO: consider adding an id field (e.g. vertexURI from dataVertex) [2021-02-07]
 
     public Vertex(String type) {
@@ -23,13 +27,34 @@ public abstract class Vertex implements Comparable<Vertex>, Serializable {
     }
 
 
+    // Moves the attributes of this vertex to the shared AttributeStore
+    protected void useAttributeStore()
+    {
+        if(attributeStoreId!=-1)
+            return;
+        attributeStoreId=AttributeStore.getInstance().register(this);
+        for (Attribute attr:attributes.values())
+            AttributeStore.getInstance().setValue(attributeStoreId,attr.getAttrName(),attr.getAttrValue());
+        attributes=null;
+    }
+
     // Getter functions
 
+    // If the attributes are in the AttributeStore, this returns a copy and changing it does not change the vertex
     public Map<String, Attribute> getAllAttributesHashMap() {
+        if(attributeStoreId!=-1)
+        {
+            Map<String, Attribute> copy=new HashMap<>();
+            for (Attribute attr:AttributeStore.getInstance().getAttributes(attributeStoreId))
+                copy.put(attr.getAttrName(),attr);
+            return copy;
+        }
         return attributes;
     }
 
     public Collection<Attribute> getAllAttributesList() {
+        if(attributeStoreId!=-1)
+            return AttributeStore.getInstance().getAttributes(attributeStoreId);
         return attributes.values();
     }
 
@@ -39,10 +64,14 @@ public abstract class Vertex implements Comparable<Vertex>, Serializable {
 
     public String getAttributeValueByName(String name)
     {
+        if(attributeStoreId!=-1)
+            return AttributeStore.getInstance().getValue(attributeStoreId,name);
         return attributes.get(name).getAttrValue();
     }
 
     public Collection<String> getAllAttributesNames() {
+        if(attributeStoreId!=-1)
+            return AttributeStore.getInstance().getNames(attributeStoreId);
         return attributes.keySet();
     }
 
@@ -50,7 +79,7 @@ public abstract class Vertex implements Comparable<Vertex>, Serializable {
 
     public void setAllAttributes(Collection<Attribute> attributes) {
         for (Attribute attr:attributes)
-            this.attributes.put(attr.getAttrName(),attr);
+            addAttribute(attr);
     }
 
     public void addType(String type)
@@ -61,12 +90,17 @@ public abstract class Vertex implements Comparable<Vertex>, Serializable {
 
     public void addAttribute(String name, String value)
     {
-        attributes.put(name.toLowerCase(),new Attribute(name.toLowerCase(),value.toLowerCase()));
+        if(attributeStoreId!=-1)
+            AttributeStore.getInstance().setValue(attributeStoreId,name.toLowerCase(),value.toLowerCase());
+        else
+            attributes.put(name.toLowerCase(),new Attribute(name.toLowerCase(),value.toLowerCase()));
     }
 
     public void setOrAddAttribute(Attribute attr)
     {
-        if(attributes.containsKey(attr.getAttrName()))
+        if(attributeStoreId!=-1)
+            AttributeStore.getInstance().setValue(attributeStoreId,attr.getAttrName(),attr.getAttrValue());
+        else if(attributes.containsKey(attr.getAttrName()))
             attributes.get(attr.getAttrName()).setAttrValue(attr.getAttrValue());
         else
             addAttribute(attr);
@@ -74,38 +108,35 @@ public abstract class Vertex implements Comparable<Vertex>, Serializable {
 
     public void deleteAllAttributes()
     {
-        this.attributes= new HashMap<>();
+        if(attributeStoreId!=-1)
+            AttributeStore.getInstance().removeAll(attributeStoreId);
+        else
+            this.attributes= new HashMap<>();
     }
 
     public void deleteAttribute(Attribute attr)
     {
-        attributes.remove(attr.getAttrName());
+        if(attributeStoreId!=-1)
+            AttributeStore.getInstance().removeValue(attributeStoreId,attr.getAttrName());
+        else
+            attributes.remove(attr.getAttrName());
     }
 
     public void addAttribute(Attribute attr)
     {
-        attributes.put(attr.getAttrName(),attr);
+        if(attributeStoreId!=-1)
+            AttributeStore.getInstance().setValue(attributeStoreId,attr.getAttrName(),attr.getAttrValue());
+        else
+            attributes.put(attr.getAttrName(),attr);
     }
 
     public boolean hasAttribute(String name)
     {
+        if(attributeStoreId!=-1)
+            return AttributeStore.getInstance().hasValue(attributeStoreId,name.toLowerCase());
         return attributes.containsKey(name.toLowerCase());
     }
 
-    public void addJobletID(int jobletID)
-    {
-        this.jobletID.add(jobletID);
-    }
-
-    public void removeJobletID(int jobletID)
-    {
-        this.jobletID.remove(jobletID);
-    }
-
-    public Set<Integer> getJobletID() {
-        return jobletID;
-    }
-
     // The function to check if two vertices can be mapped to each other in subgraph isomorphism
     // This needs to be overridden in DataVertex and PatternVertex
     public boolean isMapped(Vertex v)
@@ -121,6 +152,26 @@ public abstract class Vertex implements Comparable<Vertex>, Serializable {
         this.isMarked = isMarked;
     }
 
+    // The attributes in the AttributeStore are local to this JVM, so they are shipped as a list of attributes
+    private void writeObject(ObjectOutputStream out) throws IOException
+    {
+        out.defaultWriteObject();
+        out.writeObject(attributeStoreId!=-1 ? getAllAttributesList().toArray(new Attribute[0]) : null);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+        attributeStoreId=-1;
+        Attribute[] storedAttributes=(Attribute[]) in.readObject();
+        if(storedAttributes!=null)
+        {
+            attributes=new HashMap<>();
+            for (Attribute attr:storedAttributes)
+                attributes.put(attr.getAttrName(),attr);
+        }
+    }
+
     // TODO: implement hashCode because Match uses vertex's hashcode as the signature [2021-02-07]
     //@Override
     //public int hashCode() {
@@ -1,9 +1,6 @@
 package Loader;
 
-import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
-import com.amazonaws.services.s3.model.GetObjectRequest;
-import com.amazonaws.services.s3.model.S3Object;
+import Storage.ObjectStores;
 import Infra.DataVertex;
 import Infra.RelationshipEdge;
 import Infra.TGFD;
@@ -56,7 +53,6 @@ public class SimpleDBPediaLoader extends GraphLoader {
             System.out.println("No Input Node Types File Path!");
             return;
         }
-        S3Object fullObject = null;
         BufferedReader br=null;
         try
         {
@@ -65,19 +61,11 @@ public class SimpleDBPediaLoader extends GraphLoader {
 
             if(Config.Amazon)
             {
-                AmazonS3 s3Client = AmazonS3ClientBuilder.standard()
-                        .withRegion(Config.region)
-                        //.withCredentials(new ProfileCredentialsProvider())
-                        //.withCredentials(DefaultAWSCredentialsProviderChain.getInstance())
-                        .build();
-
                 //TODO: Need to check if the path is correct (should be in the form of bucketName/Key )
                 String bucketName=nodeTypesPath.substring(0,nodeTypesPath.lastIndexOf("/"));
                 String key=nodeTypesPath.substring(nodeTypesPath.lastIndexOf("/")+1);
                 System.out.println("Downloading the object from Amazon S3 - Bucket name: " + bucketName +" - Key: " + key);
-                fullObject = s3Client.getObject(new GetObjectRequest(bucketName, key));
-
-                br = new BufferedReader(new InputStreamReader(fullObject.getObjectContent()));
+                br = new BufferedReader(new InputStreamReader(ObjectStores.getDefault().open(bucketName, key)));
                 model.read(br,null, Config.language);
             }
             else
@@ -109,13 +97,10 @@ public class SimpleDBPediaLoader extends GraphLoader {
                     graph.addVertex(v);
                 }
                 else {
-                    v.addType(nodeType);
+                    graph.addType(v, nodeType);
                 }
             }
             System.out.println("Done. Number of Types: " + graph.getSize());
-            if (fullObject != null) {
-                fullObject.close();
-            }
             if (br != null) {
                 br.close();
             }
@@ -140,26 +125,17 @@ public class SimpleDBPediaLoader extends GraphLoader {
         System.out.println("Loading DBPedia Graph: "+dataGraphFilePath);
         int numberOfObjectsNotFound=0,numberOfSubjectsNotFound=0;
 
-        S3Object fullObject = null;
         BufferedReader br=null;
         try
         {
             Model model = ModelFactory.createDefaultModel();
             if(Config.Amazon)
             {
-                AmazonS3 s3Client = AmazonS3ClientBuilder.standard()
-                        .withRegion(Config.region)
-                        //.withCredentials(new ProfileCredentialsProvider())
-                        //.withCredentials(DefaultAWSCredentialsProviderChain.getInstance())
-                        .build();
-
                 //TODO: Need to check if the path is correct (should be in the form of bucketName/Key )
                 String bucketName=dataGraphFilePath.substring(0,dataGraphFilePath.lastIndexOf("/"));
                 String key=dataGraphFilePath.substring(dataGraphFilePath.lastIndexOf("/")+1);
                 System.out.println("Downloading the object from Amazon S3 - Bucket name: " + bucketName +" - Key: " + key);
-                fullObject = s3Client.getObject(new GetObjectRequest(bucketName, key));
-
-                br = new BufferedReader(new InputStreamReader(fullObject.getObjectContent()));
+                br = new BufferedReader(new InputStreamReader(ObjectStores.getDefault().open(bucketName, key)));
                 model.read(br,null, Config.language);
             }
             else
@@ -228,9 +204,6 @@ public class SimpleDBPediaLoader extends GraphLoader {
             //System.out.println("Number of subjects not found: " + numberOfSubjectsNotFound);
             //System.out.println("Number of loops found: " + numberOfLoops);
 
-            if (fullObject != null) {
-                fullObject.close();
-            }
             if (br != null) {
                 br.close();
             }
@@ -1,9 +1,6 @@
 package Loader;
 
-import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
-import com.amazonaws.services.s3.model.GetObjectRequest;
-import com.amazonaws.services.s3.model.S3Object;
+import Storage.ObjectStores;
 import Infra.DataVertex;
 import Infra.RelationshipEdge;
 import Infra.TGFD;
@@ -37,7 +34,6 @@ public class SimpleIMDBLoader extends GraphLoader{
         }
         System.out.println("Loading IMDB Graph: "+dataGraphFilePath);
 
-        S3Object fullObject = null;
         BufferedReader br=null;
         try
         {
@@ -46,18 +42,11 @@ public class SimpleIMDBLoader extends GraphLoader{
 
             if(Config.Amazon)
             {
-                AmazonS3 s3Client = AmazonS3ClientBuilder.standard()
-                        .withRegion(Config.region)
-                        //.withCredentials(new ProfileCredentialsProvider())
-                        //.withCredentials(DefaultAWSCredentialsProviderChain.getInstance())
-                        .build();
                 //TODO: Need to check if the path is correct (should be in the form of bucketName/Key )
                 String bucketName=dataGraphFilePath.substring(0,dataGraphFilePath.lastIndexOf("/"));
                 String key=dataGraphFilePath.substring(dataGraphFilePath.lastIndexOf("/")+1);
                 System.out.println("Downloading the object from Amazon S3 - Bucket name: " + bucketName +" - Key: " + key);
-                fullObject = s3Client.getObject(new GetObjectRequest(bucketName, key));
-
-                br = new BufferedReader(new InputStreamReader(fullObject.getObjectContent()));
+                br = new BufferedReader(new InputStreamReader(ObjectStores.getDefault().open(bucketName, key)));
                 model.read(br,null, Config.language);
             }
             else
@@ -98,7 +87,7 @@ public class SimpleIMDBLoader extends GraphLoader{
                     graph.addVertex(subjectVertex);
                 }
                 else {
-                    subjectVertex.addType(subjectType);
+                    graph.addType(subjectVertex, subjectType);
                 }
 
                 String predicate = stmt.getPredicate().getLocalName().toLowerCase();
@@ -143,7 +132,7 @@ public class SimpleIMDBLoader extends GraphLoader{
                         graph.addVertex(objectVertex);
                     }
                     else {
-                        objectVertex.addType(objectType);
+                        graph.addType(objectVertex, objectType);
                     }
                     graph.addEdge(subjectVertex, objectVertex, new RelationshipEdge(predicate));
                     graphSize++;
@@ -152,9 +141,6 @@ public class SimpleIMDBLoader extends GraphLoader{
             System.out.println("Done. Nodes: " + graph.getGraph().vertexSet().size() + ",  Edges: " +graph.getGraph().edgeSet().size());
             System.out.println("Number of types: " + types.size() + "\n");
             types.forEach(type -> System.out.print(type + " - "));
-            if (fullObject != null) {
-                fullObject.close();
-            }
             if (br != null) {
                 br.close();
             }
@@ -1,9 +1,6 @@
 package Loader;
 
-import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
-import com.amazonaws.services.s3.model.GetObjectRequest;
-import com.amazonaws.services.s3.model.S3Object;
+import Storage.ObjectStores;
 import Infra.Attribute;
 import Infra.DataVertex;
 import Infra.RelationshipEdge;
@@ -17,6 +14,7 @@ import java.io.FileReader;
 import java.io.InputStreamReader;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Random;
 
 public class SyntheticLoader extends GraphLoader {
 
@@ -24,6 +22,7 @@ public class SyntheticLoader extends GraphLoader {
 
     private HashMap <String,Integer> typesDistribution =new HashMap <>();
     private HashMap <String, HashMap<String,String>> schema =new HashMap <>();
+    private Random random =new Random();
 
     //endregion
 
@@ -42,6 +41,21 @@ public class SyntheticLoader extends GraphLoader {
         }
     }
 
+    /**
+     * @param alltgfd List of TGFDs
+     * @param dataPath Path to the Synthetic graph file
+     * @param seed Seed of the random names given to the vertices, to load the same graph on every run
+     */
+    public SyntheticLoader(List<TGFD> alltgfd, List<String> dataPath, long seed)
+    {
+        super(alltgfd);
+        random=new Random(seed);
+
+        for (String dataP:dataPath) {
+            loadDataGraph(dataP);
+        }
+    }
+
     //endregion
 
     //region --[Methods: Private]---------------------------------------
@@ -59,24 +73,15 @@ public class SyntheticLoader extends GraphLoader {
         System.out.println("Loading Synthetic Graph: "+dataGraphFilePath);
         BufferedReader br;
         FileReader fr=null;
-        S3Object fullObject=null;
         try
         {
             if(Config.Amazon)
             {
-                AmazonS3 s3Client = AmazonS3ClientBuilder.standard()
-                        .withRegion(Config.region)
-                        //.withCredentials(new ProfileCredentialsProvider())
-                        //.withCredentials(DefaultAWSCredentialsProviderChain.getInstance())
-                        .build();
-
                 //TODO: Need to check if the path is correct (should be in the form of bucketName/Key )
                 String bucketName=dataGraphFilePath.substring(0,dataGraphFilePath.lastIndexOf("/"));
                 String key=dataGraphFilePath.substring(dataGraphFilePath.lastIndexOf("/")+1);
                 System.out.println("Downloading the object from Amazon S3 - Bucket name: " + bucketName +" - Key: " + key);
-                fullObject = s3Client.getObject(new GetObjectRequest(bucketName, key));
-
-                br = new BufferedReader(new InputStreamReader(fullObject.getObjectContent()));
+                br = new BufferedReader(new InputStreamReader(ObjectStores.getDefault().open(bucketName, key)));
             }
             else
             {
@@ -104,7 +109,7 @@ public class SyntheticLoader extends GraphLoader {
                         DataVertex subjectVertex= (DataVertex) graph.getNode(subject[1]);
                         if (subjectVertex==null) {
                             subjectVertex=new DataVertex(subject[1],subject[0]);
-                            subjectVertex.addAttribute(new Attribute("name", RandomStringUtils.randomAlphabetic(10)));
+                            subjectVertex.addAttribute(new Attribute("name", RandomStringUtils.random(10, 0, 0, true, false, null, random)));
                             graph.addVertex(subjectVertex);
                             if(typesDistribution.containsKey(subject[0]))
                                 typesDistribution.put(subject[0], typesDistribution.get(subject[0])+1);
@@ -123,7 +128,7 @@ public class SyntheticLoader extends GraphLoader {
                             DataVertex objectVertex= (DataVertex) graph.getNode(object[1]);
                             if (objectVertex==null) {
                                 objectVertex=new DataVertex(object[1],object[0]);
-                                objectVertex.addAttribute(new Attribute("name", RandomStringUtils.randomAlphabetic(10)));
+                                objectVertex.addAttribute(new Attribute("name", RandomStringUtils.random(10, 0, 0, true, false, null, random)));
                                 graph.addVertex(objectVertex);
                                 if(typesDistribution.containsKey(object[0]))
                                     typesDistribution.put(object[0], typesDistribution.get(object[0])+1);
@@ -144,9 +149,6 @@ public class SyntheticLoader extends GraphLoader {
             if (fr != null) {
                 fr.close();    //close the stream and release the resources
             }
-            if (fullObject != null) {
-                fullObject.close();
-            }
             br.close();
 
             System.out.println("Done. Nodes: " + graph.getGraph().vertexSet().size() + ",  Edges: " +graph.getGraph().edgeSet().size());
@@ -1,9 +1,6 @@
 package Loader;
 
-import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
-import com.amazonaws.services.s3.model.GetObjectRequest;
-import com.amazonaws.services.s3.model.S3Object;
+import Storage.ObjectStores;
 import Infra.*;
 import Util.Config;
 
@@ -39,7 +36,6 @@ public class TGFDGenerator {
         VF2PatternGraph currentPattern=null;
         TGFD currentTGFD=new TGFD();
 
-        S3Object fullObject = null;
         BufferedReader br=null;
 
         String line="";
@@ -47,18 +43,11 @@ public class TGFDGenerator {
         {
             if(Config.Amazon)
             {
-                AmazonS3 s3Client = AmazonS3ClientBuilder.standard()
-                        .withRegion(Config.region)
-                        //.withCredentials(new ProfileCredentialsProvider())
-                        //.withCredentials(DefaultAWSCredentialsProviderChain.getInstance())
-                        .build();
                 //TODO: Need to check if the path is correct (should be in the form of bucketName/Key )
                 String bucketName=path.substring(0,path.lastIndexOf("/"));
                 String key=path.substring(path.lastIndexOf("/")+1);
                 System.out.println("Downloading the object from Amazon S3 - Bucket name: " + bucketName +" - Key: " + key);
-                fullObject = s3Client.getObject(new GetObjectRequest(bucketName, key));
-
-                br = new BufferedReader(new InputStreamReader(fullObject.getObjectContent()));
+                br = new BufferedReader(new InputStreamReader(ObjectStores.getDefault().open(bucketName, key)));
             }
             else
             {
@@ -146,9 +135,6 @@ public class TGFDGenerator {
                 tgfds.add(currentTGFD);
             }
 
-            if (fullObject != null) {
-                fullObject.close();
-            }
             br.close();
             System.out.println("Number of TGFDs loaded: " + tgfds.size());
         }
@@ -0,0 +1,506 @@
+package MPI;
+
+import Infra.Attribute;
+import Infra.DataVertex;
+import Infra.RelationshipEdge;
+import Infra.SimpleEdge;
+import Infra.Vertex;
+import Util.Config;
+import VF2BasedWorkload.JobletIndex;
+import changeExploration.*;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultDirectedGraph;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary format of the data shipped between the coordinator and the workers: edges to be shipped, graph fragments, changes
+ * and the joblet index.
+ *
+ * Integers are written as varints. Labels, types, attribute names and TGFD names are dictionary-coded: a symbol is written
+ * once, and then referred to by its index. Each encoded object starts with a byte telling whether the rest is compressed,
+ * so the receiver does not need to know Config.compression of the sender.
+ */
+public final class BinaryCodec {
+
+    private static final byte UNCOMPRESSED=0;
+    private static final byte DEFLATE=1;
+
+    // Class of a change in an encoded list of changes
+    private static final int EDGE_CHANGE=0;
+    private static final int VERTEX_CHANGE=1;
+    private static final int ATTRIBUTE_CHANGE=2;
+
+    private static final ChangeType[] CHANGE_TYPES=ChangeType.values();
+
+    private BinaryCodec() {}
+
+    //region --[Edges]-----------------------------------------
+
+    /** Encodes the edges to be shipped by a fragment, by ID of the destination fragment. */
+    public static byte[] encodeEdges(Map<Integer, ? extends List<SimpleEdge>> edgesByFragment)
+    {
+        Writer out=new Writer();
+        out.writeVarInt(edgesByFragment.size());
+        for (Map.Entry<Integer, ? extends List<SimpleEdge>> entry:edgesByFragment.entrySet())
+        {
+            out.writeVarInt(entry.getKey());
+            out.writeVarInt(entry.getValue().size());
+            for (SimpleEdge edge:entry.getValue())
+            {
+                // A vertex is usually in many edges, so the URIs are dictionary-coded as well
+                out.writeSymbol(edge.getSrc());
+                out.writeSymbol(edge.getDst());
+                out.writeSymbol(edge.getLabel());
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public static HashMap<Integer, ArrayList<SimpleEdge>> decodeEdges(byte[] bytes)
+    {
+        Reader in=new Reader(bytes);
+        HashMap<Integer, ArrayList<SimpleEdge>> edgesByFragment=new HashMap<>();
+        int numberOfFragments=in.readVarInt();
+        for (int i=0;i<numberOfFragments;i++)
+        {
+            int fragmentID=in.readVarInt();
+            int numberOfEdges=in.readVarInt();
+            ArrayList<SimpleEdge> edges=new ArrayList<>(numberOfEdges);
+            for (int j=0;j<numberOfEdges;j++)
+                edges.add(new SimpleEdge(in.readSymbol(), in.readSymbol(), in.readSymbol()));
+            edgesByFragment.put(fragmentID, edges);
+        }
+        return edgesByFragment;
+    }
+
+    //endregion
+
+    //region --[Graphs]-----------------------------------------
+
+    /** Encodes all the vertices and edges of a graph. */
+    public static byte[] encodeGraph(Graph<Vertex, RelationshipEdge> graph)
+    {
+        List<Vertex> isolatedVertices=new ArrayList<>();
+        for (Vertex v:graph.vertexSet())
+        {
+            if(graph.degreeOf(v)==0)
+                isolatedVertices.add(v);
+        }
+        return encodeGraph(graph, graph.edgeSet(), isolatedVertices);
+    }
+
+    /**
+     * Encodes some edges of a graph, with the vertices they connect, and some other vertices.
+     * The vertices are written with their types and attributes.
+     */
+    public static byte[] encodeGraph(Graph<Vertex, RelationshipEdge> graph, Collection<RelationshipEdge> edges, Collection<Vertex> otherVertices)
+    {
+        LinkedHashMap<Vertex, Integer> index=new LinkedHashMap<>();
+        for (RelationshipEdge edge:edges)
+        {
+            index.putIfAbsent(graph.getEdgeSource(edge), index.size());
+            index.putIfAbsent(graph.getEdgeTarget(edge), index.size());
+        }
+        for (Vertex v:otherVertices)
+            index.putIfAbsent(v, index.size());
+
+        Writer out=new Writer();
+        out.writeVarInt(index.size());
+        for (Vertex v:index.keySet())
+            writeVertex(out, (DataVertex) v);
+        out.writeVarInt(edges.size());
+        for (RelationshipEdge edge:edges)
+        {
+            out.writeVarInt(index.get(graph.getEdgeSource(edge)));
+            out.writeVarInt(index.get(graph.getEdgeTarget(edge)));
+            out.writeSymbol(edge.getLabel());
+        }
+        return out.toByteArray();
+    }
+
+    public static Graph<Vertex, RelationshipEdge> decodeGraph(byte[] bytes)
+    {
+        Reader in=new Reader(bytes);
+        Graph<Vertex, RelationshipEdge> graph = new DefaultDirectedGraph<>(RelationshipEdge.class);
+        DataVertex []vertices=new DataVertex[in.readVarInt()];
+        for (int i=0;i<vertices.length;i++)
+        {
+            vertices[i]=readVertex(in);
+            graph.addVertex(vertices[i]);
+        }
+        int numberOfEdges=in.readVarInt();
+        for (int i=0;i<numberOfEdges;i++)
+        {
+            DataVertex src=vertices[in.readVarInt()];
+            DataVertex dst=vertices[in.readVarInt()];
+            graph.addEdge(src, dst, new RelationshipEdge(in.readSymbol()));
+        }
+        return graph;
+    }
+
+    //endregion
+
+    //region --[Changes]-----------------------------------------
+
+    public static byte[] encodeChanges(List<Change> changes)
+    {
+        Writer out=new Writer();
+        out.writeVarInt(changes.size());
+        for (Change change:changes)
+        {
+            if(change instanceof EdgeChange)
+            {
+                EdgeChange edgeChange=(EdgeChange) change;
+                writeChangeHeader(out, EDGE_CHANGE, change);
+                out.writeSymbol(edgeChange.getSrc());
+                out.writeSymbol(edgeChange.getDst());
+                out.writeSymbol(edgeChange.getLabel());
+            }
+            else if(change instanceof VertexChange)
+            {
+                writeChangeHeader(out, VERTEX_CHANGE, change);
+                writeVertex(out, ((VertexChange) change).getVertex());
+            }
+            else if(change instanceof AttributeChange)
+            {
+                AttributeChange attributeChange=(AttributeChange) change;
+                writeChangeHeader(out, ATTRIBUTE_CHANGE, change);
+                out.writeSymbol(attributeChange.getUri());
+                out.writeSymbol(attributeChange.getAttribute().getAttrName());
+                out.writeNullableString(attributeChange.getAttribute().isNULL() ? null : attributeChange.getAttribute().getAttrValue());
+            }
+            else
+                throw new IllegalArgumentException("Unknown change: " + change.getClass().getName());
+        }
+        return out.toByteArray();
+    }
+
+    public static List<Change> decodeChanges(byte[] bytes)
+    {
+        Reader in=new Reader(bytes);
+        int numberOfChanges=in.readVarInt();
+        List<Change> changes=new ArrayList<>(numberOfChanges);
+        for (int i=0;i<numberOfChanges;i++)
+        {
+            int changeClass=in.readVarInt();
+            ChangeType cType=CHANGE_TYPES[in.readVarInt()];
+            int id=in.readSignedVarInt();
+            Set<String> tgfds=new HashSet<>();
+            int numberOfTGFDs=in.readVarInt();
+            for (int j=0;j<numberOfTGFDs;j++)
+                tgfds.add(in.readSymbol());
+            int[] jobletIDs=readSortedIDs(in);
+
+            Change change;
+            if(changeClass==EDGE_CHANGE)
+                change=new EdgeChange(cType, id, in.readSymbol(), in.readSymbol(), in.readSymbol());
+            else if(changeClass==VERTEX_CHANGE)
+                change=new VertexChange(cType, id, readVertex(in));
+            else
+            {
+                String uri=in.readSymbol();
+                String name=in.readSymbol();
+                String value=in.readNullableString();
+                change=new AttributeChange(cType, id, uri, value==null ? new Attribute(name) : new Attribute(name, value));
+            }
+            change.addTGFD(tgfds);
+            change.addJobletID(jobletIDs);
+            changes.add(change);
+        }
+        return changes;
+    }
+
+    //endregion
+
+    //region --[Joblet Index]-----------------------------------------
+
+    /** Encodes the index of the vertices to the joblets, so the workers route the changes of their joblets themselves. */
+    public static byte[] encodeJobletIndex(JobletIndex index)
+    {
+        Writer out=new Writer();
+        out.writeVarInt(index.size());
+        index.forEach((uri, ids) -> {
+            out.writeString(uri);
+            writeSortedIDs(out, ids);
+        });
+        return out.toByteArray();
+    }
+
+    public static JobletIndex decodeJobletIndex(byte[] bytes)
+    {
+        Reader in=new Reader(bytes);
+        JobletIndex index=new JobletIndex();
+        int numberOfVertices=in.readVarInt();
+        for (int i=0;i<numberOfVertices;i++)
+        {
+            String uri=in.readString();
+            index.put(uri, readSortedIDs(in));
+        }
+        return index;
+    }
+
+    //endregion
+
+    //region --[Private Methods]-----------------------------------------
+
+    // The IDs are sorted, so the gaps between them are written, which are short varints
+    private static void writeSortedIDs(Writer out, int[] ids)
+    {
+        out.writeVarInt(ids.length);
+        int previous=0;
+        for (int id:ids)
+        {
+            out.writeSignedVarInt(id-previous);
+            previous=id;
+        }
+    }
+
+    private static int[] readSortedIDs(Reader in)
+    {
+        int[] ids=new int[in.readVarInt()];
+        int previous=0;
+        for (int i=0;i<ids.length;i++)
+        {
+            ids[i]=previous+in.readSignedVarInt();
+            previous=ids[i];
+        }
+        return ids;
+    }
+
+    private static void writeChangeHeader(Writer out, int changeClass, Change change)
+    {
+        out.writeVarInt(changeClass);
+        out.writeVarInt(change.getTypeOfChange().ordinal());
+        out.writeSignedVarInt(change.getId());
+        out.writeVarInt(change.getTGFDs().size());
+        for (String tgfd:change.getTGFDs())
+            out.writeSymbol(tgfd);
+        writeSortedIDs(out, change.getJobletIDs());
+    }
+
+    private static void writeVertex(Writer out, DataVertex v)
+    {
+        out.writeString(v.getVertexURI());
+        out.writeVarInt(v.getTypes().size());
+        for (String type:v.getTypes())
+            out.writeSymbol(type);
+        // The uri attribute is added back by the constructor of DataVertex
+        Collection<Attribute> attributes=v.getAllAttributesList();
+        int numberOfAttributes=0;
+        for (Attribute attr:attributes)
+        {
+            if(!attr.getAttrName().equals("uri"))
+                numberOfAttributes++;
+        }
+        out.writeVarInt(numberOfAttributes);
+        for (Attribute attr:attributes)
+        {
+            if(attr.getAttrName().equals("uri"))
+                continue;
+            out.writeSymbol(attr.getAttrName());
+            out.writeNullableString(attr.isNULL() ? null : attr.getAttrValue());
+        }
+    }
+
+    private static DataVertex readVertex(Reader in)
+    {
+        String uri=in.readString();
+        int numberOfTypes=in.readVarInt();
+        DataVertex v=new DataVertex(uri, in.readSymbol());
+        for (int i=1;i<numberOfTypes;i++)
+            v.addType(in.readSymbol());
+        int numberOfAttributes=in.readVarInt();
+        for (int i=0;i<numberOfAttributes;i++)
+        {
+            String name=in.readSymbol();
+            String value=in.readNullableString();
+            v.addAttribute(value==null ? new Attribute(name) : new Attribute(name, value));
+        }
+        return v;
+    }
+
+    //endregion
+
+    //region --[Writer and Reader]-----------------------------------------
+
+    private static final class Writer {
+
+        private final ByteArrayOutputStream out=new ByteArrayOutputStream();
+        private final HashMap<String, Integer> symbols=new HashMap<>();
+
+        private void writeVarInt(int value)
+        {
+            while ((value & ~0x7F)!=0)
+            {
+                out.write((value & 0x7F) | 0x80);
+                value>>>=7;
+            }
+            out.write(value);
+        }
+
+        // Zigzag encoding, so small negative values are short as well
+        private void writeSignedVarInt(int value)
+        {
+            writeVarInt((value << 1) ^ (value >> 31));
+        }
+
+        private void writeString(String value)
+        {
+            byte[] bytes=value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        private void writeNullableString(String value)
+        {
+            if(value==null)
+                writeVarInt(0);
+            else
+            {
+                byte[] bytes=value.getBytes(StandardCharsets.UTF_8);
+                writeVarInt(bytes.length+1);
+                out.write(bytes, 0, bytes.length);
+            }
+        }
+
+        // 0 followed by the string the first time, and then the index of the symbol plus one
+        private void writeSymbol(String value)
+        {
+            Integer id=symbols.get(value);
+            if(id!=null)
+                writeVarInt(id+1);
+            else
+            {
+                symbols.put(value, symbols.size());
+                writeVarInt(0);
+                writeString(value);
+            }
+        }
+
+        private byte[] toByteArray()
+        {
+            byte[] bytes=out.toByteArray();
+            if(!Config.compression.equals("deflate"))
+            {
+                byte[] result=new byte[bytes.length+1];
+                result[0]=UNCOMPRESSED;
+                System.arraycopy(bytes, 0, result, 1, bytes.length);
+                return result;
+            }
+            Deflater deflater=new Deflater(Deflater.BEST_SPEED);
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream compressed=new ByteArrayOutputStream(bytes.length/2+16);
+            compressed.write(DEFLATE);
+            // The size of the uncompressed data, to allocate it at once when decoding
+            for (int i=24;i>=0;i-=8)
+                compressed.write(bytes.length>>>i);
+            byte[] buffer=new byte[64*1024];
+            while (!deflater.finished())
+            {
+                int length=deflater.deflate(buffer);
+                compressed.write(buffer, 0, length);
+            }
+            deflater.end();
+            return compressed.toByteArray();
+        }
+    }
+
+    private static final class Reader {
+
+        private final byte[] bytes;
+        private int position;
+        private final ArrayList<String> symbols=new ArrayList<>();
+
+        private Reader(byte[] encoded)
+        {
+            if(encoded[0]==UNCOMPRESSED)
+            {
+                bytes=encoded;
+                position=1;
+                return;
+            }
+            int length=((encoded[1] & 0xFF) << 24) | ((encoded[2] & 0xFF) << 16) | ((encoded[3] & 0xFF) << 8) | (encoded[4] & 0xFF);
+            bytes=new byte[length];
+            Inflater inflater=new Inflater();
+            inflater.setInput(encoded, 5, encoded.length-5);
+            try
+            {
+                int inflated=0;
+                while (inflated<length)
+                {
+                    int n=inflater.inflate(bytes, inflated, length-inflated);
+                    if(n==0 && (inflater.finished() || inflater.needsInput()))
+                        throw new DataFormatException("Truncated data");
+                    inflated+=n;
+                }
+            }
+            catch (DataFormatException e)
+            {
+                throw new UncheckedIOException(new java.io.IOException("Corrupted data", e));
+            }
+            finally
+            {
+                inflater.end();
+            }
+            position=0;
+        }
+
+        private int readVarInt()
+        {
+            int value=0;
+            int shift=0;
+            while (true)
+            {
+                byte b=bytes[position++];
+                value|=(b & 0x7F) << shift;
+                if((b & 0x80)==0)
+                    return value;
+                shift+=7;
+            }
+        }
+
+        private int readSignedVarInt()
+        {
+            int value=readVarInt();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private String readString()
+        {
+            int length=readVarInt();
+            String value=new String(bytes, position, length, StandardCharsets.UTF_8);
+            position+=length;
+            return value;
+        }
+
+        private String readNullableString()
+        {
+            int length=readVarInt();
+            if(length==0)
+                return null;
+            String value=new String(bytes, position, length-1, StandardCharsets.UTF_8);
+            position+=length-1;
+            return value;
+        }
+
+        private String readSymbol()
+        {
+            int id=readVarInt();
+            if(id>0)
+                return symbols.get(id-1);
+            String value=readString();
+            symbols.add(value);
+            return value;
+        }
+    }
+
+    //endregion
+}
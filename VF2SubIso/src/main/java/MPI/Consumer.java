@@ -1,34 +1,22 @@
 package MPI;
 
-import org.apache.activemq.ActiveMQConnectionFactory;
-import Util.Config;
-
-import javax.jms.*;
+import java.nio.charset.StandardCharsets;
 
 public class Consumer {
 
-    private final String url;
-    private Connection connection=null;
-    private Session session=null;
-    private MessageConsumer consumer=null;
+    private Transport transport=null;
+    private String queueName=null;
 
     public Consumer()
     {
-        url= Config.ActiveMQBrokerURL;
     }
 
     public void connect(String queueName)
     {
         try
         {
-            ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory(url);
-            connectionFactory.setUserName(Config.ActiveMQUsername);
-            connectionFactory.setPassword(Config.ActiveMQPassword);
-            connection = connectionFactory.createConnection();
-            connection.start();
-            session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
-            Destination destination = session.createQueue(queueName);
-            consumer = session.createConsumer(destination);
+            transport=Transports.getDefault();
+            this.queueName=queueName;
         }
         catch (Exception e)
         {
@@ -38,42 +26,38 @@ public class Consumer {
 
     public String receive()
     {
-        try
-        {
-            if(connection==null || session ==null) {
-                System.out.println("Connection is not established to the broker...");
-                return null;
-            }
-            Message message = consumer.receive();
-            if (message instanceof TextMessage) {
-                TextMessage textMessage = (TextMessage) message;
-                return textMessage.getText();
-            }
-            else
-            {
-                System.out.println("Message received, but not an instance of text message.");
-                return null;
-            }
-        }
-        catch (Exception e)
-        {
-            e.printStackTrace();
+        byte[] message=receiveBytes();
+        return message==null ? null : new String(message, StandardCharsets.UTF_8);
+    }
+
+    public byte[] receiveBytes()
+    {
+        if(transport==null) {
+            System.out.println("Connection is not established to the broker...");
+            return null;
         }
-        return null;
+        return transport.receive(queueName);
     }
 
+    /**
+     * Waits for a message from the queue.
+     * @return The message, or null if no message is received within the timeout.
+     */
+    public String receive(long timeoutInMS)
+    {
+        if(transport==null) {
+            System.out.println("Connection is not established to the broker...");
+            return null;
+        }
+        byte[] message=transport.receive(queueName, timeoutInMS);
+        return message==null ? null : new String(message, StandardCharsets.UTF_8);
+    }
 
+    /**
+     * The consumer of the queue is kept open by the transport, so messages are not lost between two receives.
+     */
     public void close()
     {
-        try
-        {
-            consumer.close();
-            session.close();
-            connection.close();
-        }
-        catch (Exception e) {
-            e.printStackTrace();
-        }
     }
 
 }
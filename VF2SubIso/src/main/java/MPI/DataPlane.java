@@ -0,0 +1,231 @@
+package MPI;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streams data between the workers over TCP sockets, without going through the broker or the object store.
+ *
+ * A stream is the list of batches that a worker sends to another worker in a superstep.
+ * It starts with a header [sender name] [superstep], followed by frames [length] [batch], and ends with an empty frame.
+ * A stream with a negative length or a length above the maximum frame size is closed as broken, before allocating it.
+ * Each incoming stream is read by its own thread into a bounded queue, so a receiver that does not keep up
+ * stops the reading and TCP flow control slows down the sender.
+ */
+public class DataPlane {
+
+    // Markers of the end of a stream, or of a stream that was closed before its end
+    private static final byte[] END=new byte[0];
+    private static final byte[] BROKEN=new byte[0];
+
+    private final ServerSocketChannel serverChannel;
+    private final int queueSize;
+    private final int maxFrameSize;
+    private final ConcurrentHashMap<String, BlockingQueue<byte[]>> streams=new ConcurrentHashMap<>();
+    private volatile boolean closed=false;
+
+    /**
+     * Starts listening for incoming streams.
+     * @param port Port to listen on, or 0 to use any free port (see getPort)
+     * @param queueSize Number of batches of a stream kept in memory before the sender is slowed down
+     * @param maxFrameSize Largest name or batch in bytes accepted from a sender
+     */
+    public DataPlane(int port, int queueSize, int maxFrameSize) throws IOException
+    {
+        this.queueSize=queueSize;
+        this.maxFrameSize=maxFrameSize;
+        serverChannel=ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        Thread acceptor=new Thread(this::acceptLoop, "data-plane-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort()
+    {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /** Opens a connection to the data plane of another worker. */
+    public static SocketChannel connect(String host, int port) throws IOException
+    {
+        SocketChannel channel=SocketChannel.open(new InetSocketAddress(host, port));
+        channel.socket().setTcpNoDelay(true);
+        return channel;
+    }
+
+    /**
+     * Sends a stream of batches and blocks until all of them are written to the socket.
+     * @param batches The batches, which may still be produced while the first ones are sent
+     */
+    public static void send(SocketChannel channel, String senderName, int superstep, Iterable<byte[]> batches) throws IOException
+    {
+        byte[] name=senderName.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer header=ByteBuffer.allocate(8+name.length);
+        header.putInt(name.length).put(name).putInt(superstep).flip();
+        writeFully(channel, header);
+
+        ByteBuffer length=ByteBuffer.allocate(4);
+        for (byte[] batch:batches)
+        {
+            length.clear();
+            length.putInt(batch.length).flip();
+            // Gathering write of the length and the batch, without copying the batch
+            ByteBuffer[] frame=new ByteBuffer[]{length, ByteBuffer.wrap(batch)};
+            while (frame[1].hasRemaining())
+                channel.write(frame);
+        }
+        length.clear();
+        length.putInt(0).flip();
+        writeFully(channel, length);
+    }
+
+    /**
+     * Blocks until the whole stream sent by a worker in a superstep is received, and gives each batch to the handler
+     * in the calling thread, while the next batches are still being received.
+     * @return true if the stream is complete, false if the connection was closed before its end
+     */
+    public boolean receive(String senderName, int superstep, java.util.function.Consumer<byte[]> handler)
+    {
+        BlockingQueue<byte[]> queue=getStream(senderName, superstep);
+        try
+        {
+            while (true)
+            {
+                byte[] batch=queue.take();
+                if(batch==END)
+                    return true;
+                if(batch==BROKEN)
+                    return false;
+                handler.accept(batch);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        finally
+        {
+            streams.remove(getStreamKey(senderName, superstep));
+        }
+    }
+
+    public void close()
+    {
+        closed=true;
+        try
+        {
+            serverChannel.close();
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    private void acceptLoop()
+    {
+        while (!closed)
+        {
+            try
+            {
+                SocketChannel channel=serverChannel.accept();
+                Thread reader=new Thread(() -> readStream(channel), "data-plane-reader");
+                reader.setDaemon(true);
+                reader.start();
+            }
+            catch (IOException e)
+            {
+                if(!closed)
+                    e.printStackTrace();
+            }
+        }
+    }
+
+    private void readStream(SocketChannel channel)
+    {
+        BlockingQueue<byte[]> queue=null;
+        byte[] marker=END;
+        try (channel)
+        {
+            ByteBuffer header=readFully(channel, ByteBuffer.allocate(4));
+            byte[] name=readFully(channel, ByteBuffer.allocate(checkLength(header.getInt()))).array();
+            int superstep=readFully(channel, ByteBuffer.allocate(4)).getInt();
+            queue=getStream(new String(name, StandardCharsets.UTF_8), superstep);
+
+            ByteBuffer length=ByteBuffer.allocate(4);
+            while (true)
+            {
+                length.clear();
+                int batchLength=checkLength(readFully(channel, length).getInt());
+                if(batchLength==0)
+                    break;
+                queue.put(readFully(channel, ByteBuffer.allocate(batchLength)).array());
+            }
+        }
+        catch (IOException e)
+        {
+            System.out.println("*DATA PLANE*: Stream closed before its end: " + e.getMessage());
+            marker=BROKEN;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if(queue==null)
+            return;
+        try
+        {
+            queue.put(marker);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int checkLength(int length) throws IOException
+    {
+        if(length<0 || length>maxFrameSize)
+            throw new IOException("Invalid frame length: " + length);
+        return length;
+    }
+
+    private BlockingQueue<byte[]> getStream(String senderName, int superstep)
+    {
+        return streams.computeIfAbsent(getStreamKey(senderName, superstep), k -> new ArrayBlockingQueue<>(queueSize));
+    }
+
+    private static String getStreamKey(String senderName, int superstep)
+    {
+        return senderName + "#" + superstep;
+    }
+
+    private static void writeFully(SocketChannel channel, ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    private static ByteBuffer readFully(SocketChannel channel, ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            if(channel.read(buffer)<0)
+                throw new EOFException("Connection closed by the sender");
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,82 @@
+package MPI;
+
+import Infra.RelationshipEdge;
+import Infra.Vertex;
+import org.jgrapht.Graph;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Encodes a graph fragment as a list of self-contained edge batches that can be decoded and merged one by one.
+ *
+ * A batch holds its edges and the vertices they connect, with their types and attributes, in the format of BinaryCodec.
+ * Vertices without any edge are sent in the last batch.
+ */
+public class EdgeBatchCodec {
+
+    public static List<byte[]> encode(Graph<Vertex, RelationshipEdge> graph, int batchSize)
+    {
+        List<byte[]> batches=new ArrayList<>();
+        encode(graph, batchSize, batches::add);
+        return batches;
+    }
+
+    /**
+     * Encodes a graph fragment in batches.
+     * @param consumer Gets each batch as soon as it is encoded, so it can be sent while the next ones are encoded
+     */
+    public static void encode(Graph<Vertex, RelationshipEdge> graph, int batchSize, java.util.function.Consumer<byte[]> consumer)
+    {
+        List<RelationshipEdge> edges=new ArrayList<>(Math.min(batchSize, graph.edgeSet().size()));
+        for (RelationshipEdge edge:graph.edgeSet())
+        {
+            edges.add(edge);
+            if(edges.size()==batchSize)
+            {
+                consumer.accept(BinaryCodec.encodeGraph(graph, edges, Collections.emptyList()));
+                edges.clear();
+            }
+        }
+        List<Vertex> isolatedVertices=new ArrayList<>();
+        for (Vertex v:graph.vertexSet())
+        {
+            if(graph.degreeOf(v)==0)
+                isolatedVertices.add(v);
+        }
+        if(!edges.isEmpty() || !isolatedVertices.isEmpty())
+            consumer.accept(BinaryCodec.encodeGraph(graph, edges, isolatedVertices));
+    }
+
+    public static Graph<Vertex, RelationshipEdge> decode(byte[] batch)
+    {
+        return BinaryCodec.decodeGraph(batch);
+    }
+
+    /** Concatenates the batches, with their lengths, to store them as a single object. */
+    public static byte[] join(List<byte[]> batches)
+    {
+        int length=4;
+        for (byte[] batch:batches)
+            length+=4+batch.length;
+        ByteBuffer buffer=ByteBuffer.allocate(length);
+        buffer.putInt(batches.size());
+        for (byte[] batch:batches)
+            buffer.putInt(batch.length).put(batch);
+        return buffer.array();
+    }
+
+    public static List<byte[]> split(byte[] joinedBatches)
+    {
+        ByteBuffer buffer=ByteBuffer.wrap(joinedBatches);
+        int numberOfBatches=buffer.getInt();
+        List<byte[]> batches=new ArrayList<>(numberOfBatches);
+        for (int i=0;i<numberOfBatches;i++)
+        {
+            byte[] batch=new byte[buffer.getInt()];
+            buffer.get(batch);
+            batches.add(batch);
+        }
+        return batches;
+    }
+}
@@ -0,0 +1,51 @@
+package MPI;
+
+import org.apache.activemq.broker.BrokerService;
+
+/**
+ * JMSTransport over a non-persistent ActiveMQ broker started inside the JVM, to test the workers without an external broker.
+ */
+public class EmbeddedBrokerTransport extends JMSTransport {
+
+    private final BrokerService broker;
+
+    private EmbeddedBrokerTransport(BrokerService broker, String brokerName)
+    {
+        super("vm://" + brokerName + "?create=false", "", "");
+        this.broker=broker;
+    }
+
+    public static EmbeddedBrokerTransport start(String brokerName)
+    {
+        BrokerService broker=new BrokerService();
+        try
+        {
+            broker.setBrokerName(brokerName);
+            broker.setPersistent(false);
+            broker.setUseJmx(false);
+            broker.setUseShutdownHook(false);
+            broker.start();
+            broker.waitUntilStarted();
+        }
+        catch (Exception e)
+        {
+            throw new IllegalStateException("Cannot start the embedded broker: " + brokerName, e);
+        }
+        return new EmbeddedBrokerTransport(broker, brokerName);
+    }
+
+    @Override
+    public void close()
+    {
+        super.close();
+        try
+        {
+            broker.stop();
+            broker.waitUntilStopped();
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package MPI;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transport between threads of the same JVM, to run the coordinator and several workers in a single process.
+ */
+public class InProcessTransport implements Transport {
+
+    private final ConcurrentHashMap<String, LinkedBlockingQueue<byte[]>> queues=new ConcurrentHashMap<>();
+
+    @Override
+    public void send(String queue, byte[] payload)
+    {
+        getQueue(queue).add(payload);
+    }
+
+    @Override
+    public void flush()
+    {
+        // Messages are delivered as soon as they are sent
+    }
+
+    @Override
+    public byte[] receive(String queue)
+    {
+        try
+        {
+            return getQueue(queue).take();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    @Override
+    public byte[] receive(String queue, long timeoutInMS)
+    {
+        try
+        {
+            return getQueue(queue).poll(timeoutInMS, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        queues.clear();
+    }
+
+    private LinkedBlockingQueue<byte[]> getQueue(String queue)
+    {
+        return queues.computeIfAbsent(queue, k -> new LinkedBlockingQueue<>());
+    }
+}
@@ -0,0 +1,311 @@
+package MPI;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+
+import javax.jms.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Transport over an ActiveMQ broker that keeps a single connection open for the lifetime of the JVM.
+ *
+ * Messages are sent as BytesMessages by a background thread, in batches committed by a transacted session,
+ * with one MessageProducer per queue that is reused for every message. A batch that cannot be committed is rolled back
+ * and sent again, and if it still fails, the next flush throws the error instead of returning.
+ * Each queue has one MessageConsumer with its own session, which is kept open between receives.
+ */
+public class JMSTransport implements Transport {
+
+    // Maximum number of messages committed together
+    private static final int BATCH_SIZE=64;
+
+    // Number of times a batch is sent before its messages are dropped
+    private static final int SEND_ATTEMPTS=3;
+
+    // Signals the sender thread to stop
+    private static final Object STOP=new Object();
+
+    private final Connection connection;
+
+    // Used only by the sender thread
+    private final Session sendSession;
+    private final HashMap<String, MessageProducer> producers=new HashMap<>();
+
+    private final ConcurrentHashMap<String, MessageConsumer> consumers=new ConcurrentHashMap<>();
+    private final List<Session> receiveSessions=new ArrayList<>();
+
+    // Messages to send, and the flush requests
+    private final LinkedBlockingQueue<Object> outbox=new LinkedBlockingQueue<>();
+    private final Thread sender;
+
+    private static class OutgoingMessage {
+        private final String queue;
+        private final byte[] payload;
+
+        private OutgoingMessage(String queue, byte[] payload)
+        {
+            this.queue=queue;
+            this.payload=payload;
+        }
+    }
+
+    private static class FlushRequest {
+        private final CountDownLatch done=new CountDownLatch(1);
+        // Error of a batch that was dropped since the previous flush request
+        private volatile JMSException failure;
+    }
+
+    public JMSTransport(String url, String username, String password)
+    {
+        try
+        {
+            ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory(url);
+            connectionFactory.setUserName(username);
+            connectionFactory.setPassword(password);
+            connection = connectionFactory.createConnection();
+            connection.start();
+            sendSession = connection.createSession(true, Session.SESSION_TRANSACTED);
+        }
+        catch (JMSException e)
+        {
+            throw new java.lang.IllegalStateException("Cannot connect to the broker: " + url, e);
+        }
+        sender=new Thread(this::sendLoop, "jms-transport-sender");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    @Override
+    public void send(String queue, byte[] payload)
+    {
+        outbox.add(new OutgoingMessage(queue, payload));
+    }
+
+    /**
+     * Blocks until all the messages queued by send are delivered.
+     * @throws java.lang.IllegalStateException If some of the messages could not be sent
+     */
+    @Override
+    public void flush()
+    {
+        if(!sender.isAlive())
+            return;
+        FlushRequest request=new FlushRequest();
+        outbox.add(request);
+        try
+        {
+            request.done.await();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if(request.failure!=null)
+            throw new java.lang.IllegalStateException("Some messages could not be sent to the broker", request.failure);
+    }
+
+    @Override
+    public byte[] receive(String queue)
+    {
+        return receive(queue, 0);
+    }
+
+    @Override
+    public byte[] receive(String queue, long timeoutInMS)
+    {
+        try
+        {
+            MessageConsumer consumer=getConsumer(queue);
+            // A session must not be used by two threads at the same time
+            synchronized (consumer)
+            {
+                Message message = timeoutInMS > 0 ? consumer.receive(timeoutInMS) : consumer.receive();
+                return getPayload(message);
+            }
+        }
+        catch (JMSException e)
+        {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            flush();
+        }
+        finally
+        {
+            release();
+        }
+    }
+
+    private void release()
+    {
+        outbox.add(STOP);
+        try
+        {
+            sender.join();
+            for (MessageConsumer consumer:consumers.values())
+                consumer.close();
+            synchronized (receiveSessions)
+            {
+                for (Session session:receiveSessions)
+                    session.close();
+            }
+            connection.close();
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    private MessageConsumer getConsumer(String queue) throws JMSException
+    {
+        MessageConsumer consumer=consumers.get(queue);
+        if(consumer!=null)
+            return consumer;
+        synchronized (receiveSessions)
+        {
+            consumer=consumers.get(queue);
+            if(consumer==null)
+            {
+                Session session=connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+                receiveSessions.add(session);
+                consumer=session.createConsumer(session.createQueue(queue));
+                consumers.put(queue, consumer);
+            }
+            return consumer;
+        }
+    }
+
+    private void sendLoop()
+    {
+        List<Object> batch=new ArrayList<>(BATCH_SIZE);
+        List<OutgoingMessage> messages=new ArrayList<>(BATCH_SIZE);
+        List<FlushRequest> flushed=new ArrayList<>();
+        // Error of a batch that was dropped, reported to the next flush request
+        JMSException failure=null;
+        boolean stop=false;
+        while (!stop)
+        {
+            try
+            {
+                batch.add(outbox.take());
+            }
+            catch (InterruptedException e)
+            {
+                break;
+            }
+            outbox.drainTo(batch, BATCH_SIZE-1);
+            for (Object item:batch)
+            {
+                if(item instanceof OutgoingMessage)
+                    messages.add((OutgoingMessage) item);
+                else if(item instanceof FlushRequest)
+                    flushed.add((FlushRequest) item);
+                else if(item==STOP)
+                    stop=true;
+            }
+            if(!messages.isEmpty())
+            {
+                JMSException batchFailure=sendBatch(messages);
+                if(batchFailure!=null)
+                    failure=batchFailure;
+            }
+            if(!flushed.isEmpty())
+            {
+                for (FlushRequest request:flushed)
+                {
+                    request.failure=failure;
+                    request.done.countDown();
+                }
+                failure=null;
+            }
+            messages.clear();
+            flushed.clear();
+            batch.clear();
+        }
+        try
+        {
+            for (MessageProducer producer:producers.values())
+                producer.close();
+            sendSession.close();
+        }
+        catch (JMSException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    // Sends the messages in one transaction, a transaction that fails is rolled back and the messages are sent again
+    private JMSException sendBatch(List<OutgoingMessage> messages)
+    {
+        JMSException failure=null;
+        for (int attempt=0;attempt<SEND_ATTEMPTS;attempt++)
+        {
+            try
+            {
+                for (OutgoingMessage outgoingMessage:messages)
+                {
+                    BytesMessage message=sendSession.createBytesMessage();
+                    message.writeBytes(outgoingMessage.payload);
+                    getProducer(outgoingMessage.queue).send(message);
+                }
+                sendSession.commit();
+                return null;
+            }
+            catch (JMSException e)
+            {
+                e.printStackTrace();
+                failure=e;
+                try
+                {
+                    sendSession.rollback();
+                }
+                catch (JMSException rollbackException)
+                {
+                    rollbackException.printStackTrace();
+                }
+            }
+        }
+        return failure;
+    }
+
+    private MessageProducer getProducer(String queue) throws JMSException
+    {
+        MessageProducer producer=producers.get(queue);
+        if(producer==null)
+        {
+            producer=sendSession.createProducer(sendSession.createQueue(queue));
+            producers.put(queue, producer);
+        }
+        return producer;
+    }
+
+    private static byte[] getPayload(Message message) throws JMSException
+    {
+        if(message instanceof BytesMessage)
+        {
+            BytesMessage bytesMessage=(BytesMessage) message;
+            byte[] payload=new byte[(int) bytesMessage.getBodyLength()];
+            bytesMessage.readBytes(payload);
+            return payload;
+        }
+        else if(message instanceof TextMessage)
+        {
+            // Sent by a Producer that predates this transport
+            return ((TextMessage) message).getText().getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,32 @@
+package MPI;
+
+/**
+ * Moves messages between the coordinator and the workers through named queues.
+ *
+ * A transport is long-lived and shared by all the Producers and Consumers of the JVM (see Transports),
+ * so sending or receiving a message does not open a connection.
+ */
+public interface Transport {
+
+    /**
+     * Queues a message to be sent asynchronously. Messages sent from the same JVM to the same queue are delivered in order.
+     * @param queue Name of the destination queue
+     * @param payload Content of the message
+     */
+    void send(String queue, byte[] payload);
+
+    /** Blocks until all the messages queued by send are delivered. */
+    void flush();
+
+    /** Blocks until a message is received from the queue. */
+    byte[] receive(String queue);
+
+    /**
+     * Waits for a message from the queue.
+     * @return The message, or null if no message is received within the timeout.
+     */
+    byte[] receive(String queue, long timeoutInMS);
+
+    /** Delivers the pending messages and releases the resources of the transport. */
+    void close();
+}
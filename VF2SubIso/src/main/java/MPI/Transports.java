@@ -0,0 +1,37 @@
+package MPI;
+
+import Util.Config;
+
+/**
+ * Holds the transport shared by the Producers and Consumers of the JVM.
+ */
+public final class Transports {
+
+    private static Transport transport=null;
+
+    private Transports() {}
+
+    /** Returns the shared transport, created on first use according to Config.transport. */
+    public static synchronized Transport getDefault()
+    {
+        if(transport==null)
+        {
+            if(Config.transport.equals("inprocess"))
+                transport=new InProcessTransport();
+            else if(Config.transport.equals("embedded"))
+                transport=EmbeddedBrokerTransport.start("tgfd");
+            else // default is activemq
+                transport=new JMSTransport(Config.ActiveMQBrokerURL, Config.ActiveMQUsername, Config.ActiveMQPassword);
+
+            Transport created=transport;
+            Runtime.getRuntime().addShutdownHook(new Thread(created::close));
+        }
+        return transport;
+    }
+
+    /** Replaces the shared transport, e.g., to share one InProcessTransport between the coordinator and the workers in a test. */
+    public static synchronized void setDefault(Transport newTransport)
+    {
+        transport=newTransport;
+    }
+}
@@ -15,14 +15,14 @@ import QPathBasedWorkload.WorkloadEstimatorForJobs;
 import changeExploration.Change;
 import changeExploration.ChangeLoader;
 
-import javax.jms.ExceptionListener;
-import javax.jms.JMSException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class AdvancedCoordinatorWithReBalanceAndQPath {
 
@@ -35,17 +35,14 @@ public class AdvancedCoordinatorWithReBalanceAndQPath {
 
     private WorkloadEstimatorForJobs estimator=null;
 
-    private AtomicBoolean workersStatusChecker=new AtomicBoolean(true);
-    private AtomicBoolean workersResultsChecker =new AtomicBoolean(false);
-    private AtomicBoolean allDone=new AtomicBoolean(false);
+    private CoordinatorCore core;
 
-    private HashMap<Integer, HashMap<Integer, ArrayList<String>>> edgesToBeShippedToOtherWorkers;
-    private HashMap<Integer, HashMap<Integer, String>> changesToBeSentToOtherWorkers;
-
-    private HashMap<String,Boolean> workersStatus=new HashMap <>();
-    private HashMap<String,List<String>> results=new HashMap <>();
-
-    private AtomicInteger superstep=new AtomicInteger(0);
+    private ConcurrentHashMap<Integer, HashMap<Integer, ArrayList<String>>> edgesToBeShippedToOtherWorkers;
+    private ConcurrentHashMap<Integer, HashMap<Integer, String>> changesToBeSentToOtherWorkers;
+    // Completes once the files of the superstep are generated
+    private ConcurrentHashMap<Integer, CompletableFuture<Void>> generatedSupersteps;
+    // Completes once the jobs of the first superstep are not stolen anymore, so the next supersteps are planned after it
+    private CompletableFuture<Void> jobStealingDone;
 
     //endregion
 
@@ -53,11 +50,11 @@ public class AdvancedCoordinatorWithReBalanceAndQPath {
 
     public AdvancedCoordinatorWithReBalanceAndQPath()
     {
-        for (String worker: Config.workers) {
-            workersStatus.put(worker,false);
-        }
-        edgesToBeShippedToOtherWorkers=new HashMap<>();
-        changesToBeSentToOtherWorkers=new HashMap<>();
+        core=new CoordinatorCore(Config.workers, Config.getDiffFilesPath().keySet().size()+1, superstep -> "results"+superstep);
+        edgesToBeShippedToOtherWorkers=new ConcurrentHashMap<>();
+        changesToBeSentToOtherWorkers=new ConcurrentHashMap<>();
+        generatedSupersteps=new ConcurrentHashMap<>();
+        jobStealingDone=new CompletableFuture<>();
     }
 
     //endregion
@@ -68,9 +65,16 @@ public class AdvancedCoordinatorWithReBalanceAndQPath {
     {
         loadTheWorkload();
 
-        Thread setupThread = new Thread(new Setup());
-        setupThread.setDaemon(false);
-        setupThread.start();
+        core.start();
+
+        if(Config.jobStealing)
+        {
+            Thread jobStealingThread = new Thread(new JobStealing(), "job-stealing");
+            jobStealingThread.setDaemon(true);
+            jobStealingThread.start();
+        }
+        else
+            jobStealingDone.complete(null);
 
         Thread dataAndChangeFilesGeneratorThread = new Thread(new ShippedDataGenerator());
         dataAndChangeFilesGeneratorThread.setDaemon(false);
@@ -79,46 +83,33 @@ public class AdvancedCoordinatorWithReBalanceAndQPath {
 
     public void stop()
     {
-        this.workersStatusChecker.set(false);
-        this.workersResultsChecker.set(false);
+        core.stop();
     }
 
+    /**
+     * The jobs are assigned as soon as all the workers are up, then the data of each superstep is shipped
+     * as soon as the workers have sent the results of the previous superstep.
+     */
     public void assignJobs()
     {
-        Thread jobAssignerThread = new Thread(new JobAssigner());
-        jobAssignerThread.setDaemon(false);
-        jobAssignerThread.start();
-
-        Thread dataShipperThread = new Thread(new DataShipper());
-        dataShipperThread.setDaemon(false);
-        dataShipperThread.start();
+        core.assign(new JobPhases());
     }
 
+    /** Waits until the workers have sent the results of all the supersteps. */
     public void waitForResults()
     {
-        Thread ResultsGetterThread = new Thread(new ResultsGetter());
-        ResultsGetterThread.setDaemon(false);
-        ResultsGetterThread.start();
+        System.out.println("*RESULTS GETTER*: Coordinator listens to get the results back from the workers");
+        core.getDone().join();
     }
 
     public HashMap<String,List<String>> getResults()
     {
-        if(getStatus()== Status.Coordinator_Is_Done)
-            return results;
-        else
-            return null;
+        return core.getDone().getNow(null);
     }
 
     public Status getStatus()
     {
-        if(workersStatusChecker.get())
-            return Status.Coordinator_Waits_For_Workers_Status;
-        else if(workersResultsChecker.get())
-            return Status.Coordinator_Waits_For_Workers_Results;
-        else if(allDone.get())
-            return Status.Coordinator_Is_Done;
-        else
-            return Status.Coordinator_Assigns_jobs_To_Workers;
+        return core.getStatus();
     }
 
     //endregion
@@ -148,186 +139,223 @@ public class AdvancedCoordinatorWithReBalanceAndQPath {
         HashMap<Integer, HashMap<Integer, ArrayList<SimpleEdge>>> dataToBeShipped = estimator.dataToBeShipped();
         HashMap<Integer, ArrayList<String>> filesOnS3Storage = estimator.sendEdgesToWorkersForShipment(dataToBeShipped);
         edgesToBeShippedToOtherWorkers.put(1,filesOnS3Storage);
+        generated(1).complete(null);
     }
 
-    private class Setup implements Runnable, ExceptionListener
+    private CompletableFuture<Void> generated(int superstep)
+    {
+        return generatedSupersteps.computeIfAbsent(superstep, key -> new CompletableFuture<>());
+    }
+
+    private class JobPhases implements CoordinatorCore.Phases
     {
         @Override
-        public void run() {
-            try {
-                Consumer consumer=new Consumer();
-                consumer.connect("status");
-
-                while (workersStatusChecker.get()) {
-
-                    System.out.println("*SETUP*: Listening for new messages to get workers' status...");
-                    String msg = consumer.receive();
-                    System.out.println("*SETUP*: Received a new message.");
-                    if (msg!=null) {
-                        if(msg.startsWith("up"))
-                        {
-                            String []temp=msg.split(" ");
-                            if(temp.length==2)
-                            {
-                                String worker_name=temp[1];
-                                if(workersStatus.containsKey(worker_name))
-                                {
-                                    System.out.println("*SETUP*: Status update: '" + worker_name + "' is up");
-                                    workersStatus.put(worker_name,true);
-                                }
-                                else
-                                {
-                                    System.out.println("*SETUP*: Unable to find the worker name: '" + worker_name + "' in workers list. " +
-                                            "Please update the list in the Config file.");
-                                }
-                            }
-                            else
-                                System.out.println("*SETUP*: Message corrupted: " + msg);
-                        }
-                        else
-                            System.out.println("*SETUP*: Message corrupted: " + msg);
-                    } else
-                        System.out.println("*SETUP*: Error happened.");
-
-                    boolean done=true;
-                    for (Boolean worker_status:workersStatus.values()) {
-                        if(!worker_status)
-                        {
-                            done=false;
-                            break;
-                        }
-                    }
-                    if(done)
-                    {
-                        System.out.println("*SETUP*: All workers are up and ready to start.");
-                        workersStatusChecker.set(false);
-                    }
+        public void assign() {
+            System.out.println("*JOB ASSIGNER*: Jobs are received to be assigned to the workers");
+            Producer messageProducer=new Producer();
+            messageProducer.connect();
+            StringBuilder message;
+            for (int workerID:estimator.getJobsByFragmentID().keySet()) {
+                message= new StringBuilder();
+                message.append("#jobs").append("\n");
+                for (Job job:estimator.getJobsByFragmentID().get(workerID)) {
+                    message.append(job.getJobID()).append("#")
+                            .append(job.getCenterNode()).append("#")
+                            .append(job.getQuery().getTGFD().getName())
+                            .append("\n");
                 }
-                consumer.close();
-            }
-            catch (Exception e) {
-                e.printStackTrace();
+                messageProducer.send(Config.workers.get(workerID),message.toString());
+                System.out.println("*JOB ASSIGNER*: jobs assigned to '" + Config.workers.get(workerID) + "' successfully");
             }
+            messageProducer.close();
         }
 
+        // The files of the superstep may still be generated by the ShippedDataGenerator
         @Override
-        public void onException(JMSException e) {
-            System.out.println("JMS Exception occurred.  Shutting down coordinator.");
+        public CompletableFuture<Void> ship(int superstep) {
+            return generated(superstep).thenRunAsync(() -> shipData(superstep));
         }
-    }
 
-    private class JobAssigner implements Runnable, ExceptionListener
-    {
-        @Override
-        public void run() {
-            System.out.println("*JOB ASSIGNER*: Jobs are received to be assigned to the workers");
-            try {
-                while(getStatus()==Status.Coordinator_Waits_For_Workers_Status) {
-                    System.out.println("*JOB ASSIGNER*: Coordinator waits for these workers to be online: ");
-                    for (String worker : workersStatus.keySet()) {
-                        if (!workersStatus.get(worker))
-                            System.out.print(worker + " - ");
-                    }
-                    Thread.sleep(Config.threadsIdleTime);
+        private void shipData(int currentSuperstep) {
+            Producer messageProducer=new Producer();
+            messageProducer.connect();
+            StringBuilder message;
+            for (int workerID:edgesToBeShippedToOtherWorkers.get(currentSuperstep).keySet()) {
+                message= new StringBuilder();
+                message.append("#datashipper").append("\n");
+                for (String path:edgesToBeShippedToOtherWorkers.get(currentSuperstep).get(workerID)) {
+                    message.append(path).append("\n");
                 }
-                Producer messageProducer=new Producer();
-                messageProducer.connect();
-                StringBuilder message;
-                for (int workerID:estimator.getJobsByFragmentID().keySet()) {
+                messageProducer.send(Config.workers.get(workerID),message.toString());
+                System.out.println("*DataShipper*: Shipping files have been shared with '" + Config.workers.get(workerID) + "' successfully");
+            }
+
+            if(changesToBeSentToOtherWorkers.containsKey(currentSuperstep))
+            {
+                for (int workerID:changesToBeSentToOtherWorkers.get(currentSuperstep).keySet()) {
                     message= new StringBuilder();
-                    message.append("#jobs").append("\n");
-                    for (Job job:estimator.getJobsByFragmentID().get(workerID)) {
-                        message.append(job.getJobID()).append("#")
-                                .append(job.getCenterNode()).append("#")
-                                .append(job.getQuery().getTGFD().getName())
-                                .append("\n");
-                    }
+                    message.append("#change").append("\n").append(changesToBeSentToOtherWorkers.get(currentSuperstep).get(workerID));
                     messageProducer.send(Config.workers.get(workerID),message.toString());
-                    System.out.println("*JOB ASSIGNER*: jobs assigned to '" + Config.workers.get(workerID) + "' successfully");
+                    System.out.println("*DataShipper*: Change objects have been shared with '" + Config.workers.get(workerID) + "' successfully");
                 }
-                messageProducer.close();
-                System.out.println("*JOB ASSIGNER*: All jobs are assigned.");
-                superstep.set(1);
-                workersResultsChecker.set(true);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
             }
-        }
-
-        @Override
-        public void onException(JMSException e) {
-            System.out.println("*JOB ASSIGNER*: JMS Exception occurred (JobAssigner).  Shutting down coordinator.");
+            messageProducer.close();
+            System.out.println("*DataShipper*: All files are shared for the superstep: " + currentSuperstep);
+            edgesToBeShippedToOtherWorkers.remove(currentSuperstep);
+            changesToBeSentToOtherWorkers.remove(currentSuperstep);
         }
     }
 
-    private class DataShipper implements Runnable, ExceptionListener
+    /**
+     * Rebalances the jobs of the first superstep at runtime, since the estimated size of the jobs is crude.
+     * A worker that is done with its jobs sends "#idle" to the steal queue. The coordinator then asks the worker with the
+     * largest load that is not started yet to release some of its jobs ("#release"). The worker answers with the released
+     * jobs and their neighbourhood ("#released"), which are sent to the idle worker ("#jobs"). Once no worker has jobs
+     * left to release, the idle workers are told so ("#nojobs"). The changes of the next supersteps are planned once no
+     * job can be stolen anymore, so they are routed to the workers that hold the jobs.
+     */
+    private class JobStealing implements Runnable
     {
+        private final HashMap<String, Integer> workerIDs=new HashMap<>();
+        private final HashMap<Integer, Job> jobsByID=new HashMap<>();
+        // Load that is not started yet, as estimated by the coordinator, then as reported by the workers
+        private final HashMap<String, Double> remainingLoad=new HashMap<>();
+        private final HashSet<String> idleWorkers=new HashSet<>();
+        private final HashSet<String> releasingWorkers=new HashSet<>();
+        private final ArrayDeque<String> waitingWorkers=new ArrayDeque<>();
+
         @Override
         public void run() {
-            System.out.println("*DataShipper*: Jobs are received to be assigned to the workers");
-            try {
-                while (true)
+            try
+            {
+                stealJobs();
+            }
+            finally
+            {
+                jobStealingDone.complete(null);
+            }
+        }
+
+        private void stealJobs()
+        {
+            for (int workerID:estimator.getJobsByFragmentID().keySet()) {
+                String workerName=Config.workers.get(workerID);
+                workerIDs.put(workerName,workerID);
+                remainingLoad.put(workerName,estimator.computeJobsSize(workerID));
+                for (Job job:estimator.getJobsByFragmentID().get(workerID))
+                    jobsByID.put(job.getJobID(),job);
+            }
+
+            Consumer consumer=new Consumer();
+            consumer.connect("steal");
+            while (idleWorkers.size()<workerIDs.size() || !releasingWorkers.isEmpty() || !waitingWorkers.isEmpty())
+            {
+                String msg=consumer.receive();
+                if(msg==null)
                 {
-                    int currentSuperstep=superstep.get();
-                    while(!edgesToBeShippedToOtherWorkers.containsKey(currentSuperstep)) {
-                        System.out.println("*DataShipper*: Wait for the new superstep: ");
-                        Thread.sleep(Config.threadsIdleTime);
-                        currentSuperstep=superstep.get();
-                    }
-                    Producer messageProducer=new Producer();
-                    messageProducer.connect();
-                    StringBuilder message;
-                    for (int workerID:edgesToBeShippedToOtherWorkers.get(currentSuperstep).keySet()) {
-                        message= new StringBuilder();
-                        message.append("#datashipper").append("\n");
-                        for (String path:edgesToBeShippedToOtherWorkers.get(currentSuperstep).get(workerID)) {
-                            message.append(path).append("\n");
-                        }
-                        messageProducer.send(Config.workers.get(workerID),message.toString());
-                        System.out.println("*DataShipper*: Shipping files have been shared with '" + Config.workers.get(workerID) + "' successfully");
-                    }
-
-                    if(changesToBeSentToOtherWorkers.containsKey(currentSuperstep))
-                    {
-                        for (int workerID:changesToBeSentToOtherWorkers.get(currentSuperstep).keySet()) {
-                            message= new StringBuilder();
-                            message.append("#change").append("\n").append(changesToBeSentToOtherWorkers.get(currentSuperstep).get(workerID));
-                            messageProducer.send(Config.workers.get(workerID),message.toString());
-                            System.out.println("*DataShipper*: Change objects have been shared with '" + Config.workers.get(workerID) + "' successfully");
-                        }
-                    }
-                    messageProducer.close();
-                    System.out.println("*DataShipper*: All files are shared for the superstep: " + currentSuperstep);
-                    edgesToBeShippedToOtherWorkers.remove(currentSuperstep);
-                    changesToBeSentToOtherWorkers.remove(currentSuperstep);
-                    if(currentSuperstep==Config.getAllDataPaths().keySet().size()+1)
-                        return;
+                    System.out.println("*JOB STEALING*: Error happened - message is null");
+                    break;
                 }
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+                String []temp=msg.split("\n");
+                if(msg.startsWith("#idle") && workerIDs.containsKey(temp[1]))
+                {
+                    idleWorkers.add(temp[1]);
+                    remainingLoad.put(temp[1],0.0);
+                    waitingWorkers.add(temp[1]);
+                }
+                else if(msg.startsWith("#released") && temp.length>=5)
+                    onReleased(temp);
+                else
+                    System.out.println("*JOB STEALING*: Message corrupted: " + msg);
+                assignJobsToIdleWorkers();
             }
+            consumer.close();
+            System.out.println("*JOB STEALING*: All workers are done with their jobs");
         }
 
-        @Override
-        public void onException(JMSException e) {
-            System.out.println("*DataShipper: JMS Exception occurred (DataShipper).  Shutting down coordinator.");
+        private void assignJobsToIdleWorkers()
+        {
+            while (!waitingWorkers.isEmpty())
+            {
+                String victim=null;
+                for (String worker:remainingLoad.keySet()) {
+                    if(!idleWorkers.contains(worker) && !releasingWorkers.contains(worker) && remainingLoad.get(worker)>0
+                            && (victim==null || remainingLoad.get(worker)>remainingLoad.get(victim)))
+                        victim=worker;
+                }
+                if(victim==null)
+                    break;
+                String thief=waitingWorkers.poll();
+                releasingWorkers.add(victim);
+                send(victim+"_steal","#release\n"+thief);
+                System.out.println("*JOB STEALING*: '" + victim + "' is asked to release jobs for '" + thief + "'");
+            }
+            // The workers that are releasing jobs may still have some, otherwise there is nothing left to steal
+            if(releasingWorkers.isEmpty())
+            {
+                for (String thief:waitingWorkers)
+                    send(thief+"_steal","#nojobs");
+                waitingWorkers.clear();
+            }
+        }
+
+        private void onReleased(String []temp)
+        {
+            String victim=temp[1], thief=temp[2], key=temp[4];
+            releasingWorkers.remove(victim);
+            if(!idleWorkers.contains(victim))
+                remainingLoad.put(victim,Double.parseDouble(temp[3]));
+            if(temp.length==5)
+            {
+                waitingWorkers.addFirst(thief);
+                return;
+            }
+            StringBuilder message=new StringBuilder();
+            message.append("#jobs").append("\n").append(key);
+            double size=0;
+            for (int i=5;i<temp.length;i++)
+            {
+                message.append("\n").append(temp[i]);
+                Job job=jobsByID.get(Integer.parseInt(temp[i].split("#")[0]));
+                if(job!=null)
+                {
+                    // The jobs of the next supersteps are on the idle worker from now on
+                    estimator.reassignJob(job,workerIDs.get(victim),workerIDs.get(thief));
+                    size+=job.getSize();
+                }
+            }
+            idleWorkers.remove(thief);
+            remainingLoad.put(thief,size);
+            send(thief+"_steal",message.toString());
+            System.out.println("*JOB STEALING*: " + (temp.length-5) + " jobs of '" + victim + "' are sent to '" + thief + "'");
+        }
+
+        private void send(String queueName, String message)
+        {
+            Producer messageProducer=new Producer();
+            messageProducer.connect();
+            messageProducer.send(queueName,message);
+            messageProducer.close();
         }
     }
 
-    private class ShippedDataGenerator implements Runnable, ExceptionListener
+    private class ShippedDataGenerator implements Runnable
     {
         @Override
         public void run() {
             System.out.println("*DATA NEEDS TO BE SHIPPED*: Generating files to upload to S3 to send to workers later");
+            Object[] ids= Config.getDiffFilesPath().keySet().toArray();
+            Arrays.sort(ids);
             try {
-                Object[] ids= Config.getDiffFilesPath().keySet().toArray();
-                Arrays.sort(ids);
                 for (int i=0;i<ids.length;i++) {
                     System.out.println("*DATA NEEDS TO BE SHIPPED*: Generating files for snapshot (" + ids[i] + ")");
 
                     ChangeLoader changeLoader = new ChangeLoader(Config.getDiffFilesPath().get(ids[i]));
                     List<Change> changes = changeLoader.getAllChanges();
 
+                    // The changes of the stolen jobs are sent to the workers that stole them
+                    jobStealingDone.join();
+
                     HashMap<Integer,HashMap<Integer,ArrayList<SimpleEdge>>> dataToBeShipped=estimator.dataToBeShipped(changes);
                     HashMap<Integer, ArrayList<String>> filesOnS3Storage = estimator.sendEdgesToWorkersForShipment(dataToBeShipped);
 
@@ -336,86 +364,14 @@ public class AdvancedCoordinatorWithReBalanceAndQPath {
 
                     changesToBeSentToOtherWorkers.put(i+2,changesOnS3Storage);
                     edgesToBeShippedToOtherWorkers.put(i+2,filesOnS3Storage);
-
+                    generated(i+2).complete(null);
                 }
             } catch (Exception e) {
                 e.printStackTrace();
+                for (int i=0;i<ids.length;i++)
+                    generated(i+2).completeExceptionally(e);
             }
         }
-
-        @Override
-        public void onException(JMSException e) {
-            System.out.println("*DataShipper: JMS Exception occurred (DataShipper).  Shutting down coordinator.");
-        }
-    }
-
-    private class ResultsGetter implements Runnable, ExceptionListener
-    {
-        @Override
-        public void run() {
-            System.out.println("*RESULTS GETTER*: Coordinator listens to get the results back from the workers");
-            for (String worker_name : workersStatus.keySet()) {
-                if (!results.containsKey(worker_name))
-                    results.put(worker_name, new ArrayList<>());
-            }
-            try {
-                while (true) {
-                    Consumer consumer = new Consumer();
-                    consumer.connect("results"+superstep.get());
-
-                    System.out.println("*RESULTS GETTER*: Listening for new messages to get the results...");
-                    String msg = consumer.receive();
-                    System.out.println("*RESULTS GETTER*: Received a new message.");
-                    if (msg != null) {
-                        String[] temp = msg.split("@");
-                        if (temp.length == 2) {
-                            String worker_name = temp[0].toLowerCase();
-                            if (workersStatus.containsKey(worker_name)) {
-                                System.out.println("*RESULTS GETTER*: Results received from: '" + worker_name + "'");
-                                results.get(worker_name).add(temp[1]);
-                            } else {
-                                System.out.println("*RESULTS GETTER*: Unable to find the worker name: '" + worker_name + "' in workers list. " +
-                                        "Please update the list in the Config file.");
-                            }
-                        } else {
-                            System.out.println("*RESULTS GETTER*: Message corrupted: " + msg);
-                        }
-                    } else
-                        System.out.println("*RESULTS GETTER*: Error happened. message is null");
-
-                    boolean done = true;
-                    for (String worker_name : workersStatus.keySet()) {
-                        if (results.get(worker_name).size() != superstep.get()) {
-                            done = false;
-                            break;
-                        }
-                    }
-                    if (done) {
-                        System.out.println("*RESULTS GETTER*: All workers have sent the results for superstep: " + superstep.get());
-                        if(superstep.get() > Config.getDiffFilesPath().keySet().size())
-                        {
-                            System.out.println("*RESULTS GETTER*: All done! No superstep remained.");
-                            superstep.set(superstep.get() + 1);
-                            allDone.set(true);
-                            break;
-                        }
-                        else
-                        {
-                            superstep.set(superstep.get() + 1);
-                            System.out.println("*RESULTS GETTER*: Starting the new superstep! -> " + superstep.get() );
-                        }
-                    }
-                    consumer.close();
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
-
-        @Override
-        public void onException(JMSException e) {
-            System.out.println("*RESULTS GETTER*: JMS Exception occurred. Shutting down coordinator.");
-        }
     }
 
     //endregion
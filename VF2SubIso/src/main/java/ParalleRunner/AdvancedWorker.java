@@ -2,16 +2,15 @@ package ParalleRunner;
 
 import AmazonStorage.S3Storage;
 import Infra.*;
+import MPI.BinaryCodec;
 import MPI.Consumer;
 import MPI.Producer;
-import Partitioner.Util;
 import Util.Config;
 import VF2BasedWorkload.JobletRunner;
 import changeExploration.Change;
 import org.jgrapht.Graph;
 import org.jgrapht.graph.DefaultDirectedGraph;
 
-import java.time.LocalDateTime;
 import java.util.*;
 
 import static java.lang.Thread.sleep;
@@ -24,6 +23,7 @@ public class AdvancedWorker {
     private JobletRunner runner;
     private String workingBucketName="";
     private HashMap<Integer, ArrayList<SimpleEdge>> dataToBeShipped;
+    private GraphShipper shipper;
 
     //endregion
 
@@ -43,6 +43,7 @@ public class AdvancedWorker {
 
     public void start()
     {
+        shipper=new GraphShipper(nodeName);
         sendStatusToCoordinator();
 
         runner=new JobletRunner();
@@ -55,6 +56,7 @@ public class AdvancedWorker {
             runNextSuperstep(superstep);
         }
 
+        shipper.close();
         System.out.println("All Done!");
     }
 
@@ -90,46 +92,11 @@ public class AdvancedWorker {
         }
         consumer.close();
 
-        for (int workerID:dataToBeShipped.keySet()) {
-
-            Graph<Vertex, RelationshipEdge> graphToBeSent = extractGraphToBeSent(workerID);
-
-            LocalDateTime now = LocalDateTime.now();
-            String date=now.getHour() + "_" + now.getMinute() + "_" + now.getSecond();
-            String key=date + "_G_" + nodeName + "_to_" +Config.workers.get(workerID) + ".ser";
-            S3Storage.upload(Config.S3BucketName,key,graphToBeSent);
-
-            Producer messageProducer=new Producer();
-            messageProducer.connect();
-            messageProducer.send(Config.workers.get(workerID)+"_data",key);
-            System.out.println("*DATA SENDER*: Graph object has been sent to '" + Config.workers.get(workerID) + "' successfully");
-            messageProducer.close();
-        }
-
-        int receivedData=0;
-
-        consumer=new Consumer();
-        consumer.connect(nodeName+"_data");
-
-        while (receivedData<Config.workers.size()-1)
-        {
-            System.out.println("*WORKER*: Start reading data from other workers...");
-            String msg = consumer.receive();
-            System.out.println("*WORKER*: Received a new message.");
-            if (msg!=null) {
-                Object obj=S3Storage.downloadObject(Config.S3BucketName,msg);
-                if(obj!=null)
-                {
-                    Graph<Vertex, RelationshipEdge> receivedGraph =(Graph<Vertex, RelationshipEdge>) obj;
-                    Util.mergeGraphs(runner.getLoader().getGraph(),receivedGraph);
-                }
-                else
-                    System.out.println("*WORKER*: Object was null!");
-            } else
-                System.out.println("*WORKER*: Error happened - msg is null");
-            receivedData++;
-        }
-        consumer.close();
+        HashMap<Integer, Graph<Vertex, RelationshipEdge>> graphsToBeSent=new HashMap<>();
+        for (int workerID:dataToBeShipped.keySet())
+            graphsToBeSent.put(workerID, extractGraphToBeSent(workerID));
+        shipper.ship(1, graphsToBeSent);
+        shipper.receive(1, runner.getLoader().getGraph());
 
         runner.generateJoblets();
         runner.runTheFirstSnapshot();
@@ -156,7 +123,7 @@ public class AdvancedWorker {
             String msg=consumer.receive();
             if (msg !=null) {
                 if(msg.startsWith("#change")) {
-                    changes= (List<Change>) S3Storage.downloadObject(Config.S3BucketName,msg.split("\n")[1]);
+                    changes= BinaryCodec.decodeChanges(S3Storage.downloadBytes(Config.S3BucketName,msg.split("\n")[1]));
                     System.out.println("List of changes have been received.");
                     changesReceived=true;
                 }
@@ -171,46 +138,11 @@ public class AdvancedWorker {
 
         consumer.close();
 
-        for (int workerID:dataToBeShipped.keySet()) {
-
-            Graph<Vertex, RelationshipEdge> graphToBeSent = extractGraphToBeSent(workerID);
-
-            LocalDateTime now = LocalDateTime.now();
-            String date=now.getHour() + "_" + now.getMinute() + "_" + now.getSecond();
-            String key=date + "_G_" + nodeName + "_to_" +Config.workers.get(workerID) + ".ser";
-            S3Storage.upload(Config.S3BucketName,key,graphToBeSent);
-
-            Producer messageProducer=new Producer();
-            messageProducer.connect();
-            messageProducer.send(Config.workers.get(workerID)+"_data",key);
-            System.out.println("*DATA SENDER*: Graph object has been sent to '" + Config.workers.get(workerID) + "' successfully");
-            messageProducer.close();
-        }
-
-        int receivedData=0;
-
-        consumer=new Consumer();
-        consumer.connect(nodeName+"_data");
-
-        while (receivedData<Config.workers.size()-1)
-        {
-            System.out.println("*WORKER*: Start reading data from other workers...");
-            String msg = consumer.receive();
-            System.out.println("*WORKER*: Received a new message.");
-            if (msg!=null) {
-                Object obj=S3Storage.downloadObject(Config.S3BucketName,msg);
-                if(obj!=null)
-                {
-                    Graph<Vertex, RelationshipEdge> receivedGraph =(Graph<Vertex, RelationshipEdge>) obj;
-                    Util.mergeGraphs(runner.getLoader().getGraph(),receivedGraph);
-                }
-                else
-                    System.out.println("*WORKER*: Object was null!");
-            } else
-                System.out.println("*WORKER*: Error happened - msg is null");
-            receivedData++;
-        }
-        consumer.close();
+        HashMap<Integer, Graph<Vertex, RelationshipEdge>> graphsToBeSent=new HashMap<>();
+        for (int workerID:dataToBeShipped.keySet())
+            graphsToBeSent.put(workerID, extractGraphToBeSent(workerID));
+        shipper.ship(superstepNumber, graphsToBeSent);
+        shipper.receive(superstepNumber, runner.getLoader().getGraph());
 
         runner.runTheNextTimestamp(changes, superstepNumber);
 
@@ -226,15 +158,12 @@ public class AdvancedWorker {
         String []temp=msg.split("\n");
         for (int i=1;i<temp.length;i++)
         {
-            StringBuilder sb = S3Storage.downloadWholeTextFile(Config.S3BucketName,temp[i]);
-            String []arr = sb.toString().split("\n");
-            int workerID=Integer.parseInt(arr[0]);
-            if(!dataToBeShipped.containsKey(workerID))
-                dataToBeShipped.put(workerID,new ArrayList<>());
-            for (int j=1;j<arr.length;j++)
+            HashMap<Integer, ArrayList<SimpleEdge>> edgesByWorker = BinaryCodec.decodeEdges(S3Storage.downloadBytes(Config.S3BucketName,temp[i]));
+            for (int workerID:edgesByWorker.keySet())
             {
-                String []arr2=arr[j].split("\t");
-                dataToBeShipped.get(workerID).add(new SimpleEdge(arr2[0],arr2[1],arr2[2]));
+                if(!dataToBeShipped.containsKey(workerID))
+                    dataToBeShipped.put(workerID,new ArrayList<>());
+                dataToBeShipped.get(workerID).addAll(edgesByWorker.get(workerID));
             }
         }
     }
@@ -4,10 +4,11 @@ import AmazonStorage.S3Storage;
 import Infra.RelationshipEdge;
 import Infra.SimpleEdge;
 import Infra.Vertex;
+import MPI.BinaryCodec;
 import MPI.Consumer;
 import MPI.Producer;
-import Partitioner.Util;
 import Util.Config;
+import QPathBasedWorkload.Job;
 import QPathBasedWorkload.JobRunner;
 import changeExploration.Change;
 import org.jgrapht.Graph;
@@ -15,9 +16,11 @@ import org.jgrapht.graph.DefaultDirectedGraph;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
 
 public class AdvancedWorkerWithRebalanceAndQPath {
 
@@ -27,6 +30,9 @@ public class AdvancedWorkerWithRebalanceAndQPath {
     private JobRunner runner;
     private String workingBucketName="";
     private HashMap<Integer, ArrayList<SimpleEdge>> dataToBeShipped;
+    private GraphShipper shipper;
+    // Answers of the coordinator to the requests of this worker for more jobs
+    private LinkedBlockingQueue<String> stolenJobs;
 
     //endregion
 
@@ -46,6 +52,7 @@ public class AdvancedWorkerWithRebalanceAndQPath {
 
     public void start()
     {
+        shipper=new GraphShipper(nodeName);
         sendStatusToCoordinator();
 
         runner=new JobRunner();
@@ -58,6 +65,7 @@ public class AdvancedWorkerWithRebalanceAndQPath {
             runNextSuperstep(superstep);
         }
 
+        shipper.close();
         System.out.println("All Done!");
     }
 
@@ -93,49 +101,20 @@ public class AdvancedWorkerWithRebalanceAndQPath {
         }
         consumer.close();
 
-        for (int workerID:dataToBeShipped.keySet()) {
+        HashMap<Integer, Graph<Vertex, RelationshipEdge>> graphsToBeSent=new HashMap<>();
+        for (int workerID:dataToBeShipped.keySet())
+            graphsToBeSent.put(workerID, extractGraphToBeSent(workerID));
+        shipper.ship(1, graphsToBeSent);
+        shipper.receive(1, runner.getLoader().getGraph());
 
-            Graph<Vertex, RelationshipEdge> graphToBeSent = extractGraphToBeSent(workerID);
-
-            LocalDateTime now = LocalDateTime.now();
-            String date=now.getHour() + "_" + now.getMinute() + "_" + now.getSecond();
-            String key=date + "_G_" + nodeName + "_to_" +Config.workers.get(workerID) + ".ser";
-            S3Storage.upload(Config.S3BucketName,key,graphToBeSent);
-
-            Producer messageProducer=new Producer();
-            messageProducer.connect();
-            messageProducer.send(Config.workers.get(workerID)+"_data",key);
-            System.out.println("*DATA SENDER*: Graph object has been sent to '" + Config.workers.get(workerID) + "' successfully");
-            messageProducer.close();
-        }
-
-        int receivedData=0;
-
-        consumer=new Consumer();
-        consumer.connect(nodeName+"_data");
-
-        while (receivedData<Config.workers.size()-1)
+        runner.generateJobs();
+        if(Config.jobStealing)
         {
-            System.out.println("*WORKER*: Start reading data from other workers...");
-            String msg = consumer.receive();
-            System.out.println("*WORKER*: Received a new message.");
-            if (msg!=null) {
-                Object obj=S3Storage.downloadObject(Config.S3BucketName,msg);
-                if(obj!=null)
-                {
-                    Graph<Vertex, RelationshipEdge> receivedGraph =(Graph<Vertex, RelationshipEdge>) obj;
-                    Util.mergeGraphs(runner.getLoader().getGraph(),receivedGraph);
-                }
-                else
-                    System.out.println("*WORKER*: Object was null!");
-            } else
-                System.out.println("*WORKER*: Error happened - msg is null");
-            receivedData++;
+            listenForJobStealing();
+            runner.runTheFirstSnapshot(this::stealJobs);
         }
-        consumer.close();
-
-        runner.generateJobs();
-        runner.runTheFirstSnapshot();
+        else
+            runner.runTheFirstSnapshot();
 
         Producer messageProducer=new Producer();
         messageProducer.connect();
@@ -159,7 +138,7 @@ public class AdvancedWorkerWithRebalanceAndQPath {
             String msg=consumer.receive();
             if (msg !=null) {
                 if(msg.startsWith("#change")) {
-                    changes= (List<Change>) S3Storage.downloadObject(Config.S3BucketName,msg.split("\n")[1]);
+                    changes= BinaryCodec.decodeChanges(S3Storage.downloadBytes(Config.S3BucketName,msg.split("\n")[1]));
                     System.out.println("List of changes have been received.");
                     changesReceived=true;
                 }
@@ -174,46 +153,11 @@ public class AdvancedWorkerWithRebalanceAndQPath {
 
         consumer.close();
 
-        for (int workerID:dataToBeShipped.keySet()) {
-
-            Graph<Vertex, RelationshipEdge> graphToBeSent = extractGraphToBeSent(workerID);
-
-            LocalDateTime now = LocalDateTime.now();
-            String date=now.getHour() + "_" + now.getMinute() + "_" + now.getSecond();
-            String key=date + "_G_" + nodeName + "_to_" +Config.workers.get(workerID) + ".ser";
-            S3Storage.upload(Config.S3BucketName,key,graphToBeSent);
-
-            Producer messageProducer=new Producer();
-            messageProducer.connect();
-            messageProducer.send(Config.workers.get(workerID)+"_data",key);
-            System.out.println("*DATA SENDER*: Graph object has been sent to '" + Config.workers.get(workerID) + "' successfully");
-            messageProducer.close();
-        }
-
-        int receivedData=0;
-
-        consumer=new Consumer();
-        consumer.connect(nodeName+"_data");
-
-        while (receivedData<Config.workers.size()-1)
-        {
-            System.out.println("*WORKER*: Start reading data from other workers...");
-            String msg = consumer.receive();
-            System.out.println("*WORKER*: Received a new message.");
-            if (msg!=null) {
-                Object obj=S3Storage.downloadObject(Config.S3BucketName,msg);
-                if(obj!=null)
-                {
-                    Graph<Vertex, RelationshipEdge> receivedGraph =(Graph<Vertex, RelationshipEdge>) obj;
-                    Util.mergeGraphs(runner.getLoader().getGraph(),receivedGraph);
-                }
-                else
-                    System.out.println("*WORKER*: Object was null!");
-            } else
-                System.out.println("*WORKER*: Error happened - msg is null");
-            receivedData++;
-        }
-        consumer.close();
+        HashMap<Integer, Graph<Vertex, RelationshipEdge>> graphsToBeSent=new HashMap<>();
+        for (int workerID:dataToBeShipped.keySet())
+            graphsToBeSent.put(workerID, extractGraphToBeSent(workerID));
+        shipper.ship(superstepNumber, graphsToBeSent);
+        shipper.receive(superstepNumber, runner.getLoader().getGraph());
 
         runner.runTheNextTimestamp(changes, superstepNumber);
 
@@ -229,15 +173,12 @@ public class AdvancedWorkerWithRebalanceAndQPath {
         String []temp=msg.split("\n");
         for (int i=1;i<temp.length;i++)
         {
-            StringBuilder sb = S3Storage.downloadWholeTextFile(Config.S3BucketName,temp[i]);
-            String []arr = sb.toString().split("\n");
-            int workerID=Integer.parseInt(arr[0]);
-            if(!dataToBeShipped.containsKey(workerID))
-                dataToBeShipped.put(workerID,new ArrayList<>());
-            for (int j=1;j<arr.length;j++)
+            HashMap<Integer, ArrayList<SimpleEdge>> edgesByWorker = BinaryCodec.decodeEdges(S3Storage.downloadBytes(Config.S3BucketName,temp[i]));
+            for (int workerID:edgesByWorker.keySet())
             {
-                String []arr2=arr[j].split("\t");
-                dataToBeShipped.get(workerID).add(new SimpleEdge(arr2[0],arr2[1],arr2[2]));
+                if(!dataToBeShipped.containsKey(workerID))
+                    dataToBeShipped.put(workerID,new ArrayList<>());
+                dataToBeShipped.get(workerID).addAll(edgesByWorker.get(workerID));
             }
         }
     }
@@ -274,6 +215,98 @@ public class AdvancedWorkerWithRebalanceAndQPath {
         return graphToBeSent;
     }
 
+    /**
+     * Listens to the coordinator during the first superstep. The coordinator asks this worker to release the jobs
+     * that are not started yet for an idle worker, or answers the requests of this worker for more jobs.
+     */
+    private void listenForJobStealing()
+    {
+        stolenJobs=new LinkedBlockingQueue<>();
+        Thread listener=new Thread(() -> {
+            Consumer consumer=new Consumer();
+            consumer.connect(nodeName+"_steal");
+            while (true)
+            {
+                String msg=consumer.receive();
+                if(msg==null)
+                {
+                    System.out.println("*JOB STEALING*: Error happened - message is null");
+                    stolenJobs.add("#nojobs");
+                    break;
+                }
+                else if(msg.startsWith("#release"))
+                    releaseJobs(msg.split("\n")[1]);
+                else
+                {
+                    stolenJobs.add(msg);
+                    // The coordinator does not ask an idle worker to release its jobs
+                    if(msg.startsWith("#nojobs"))
+                        break;
+                }
+            }
+            consumer.close();
+        }, "job-stealing");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    // Sends the jobs that are not started yet to the coordinator, with the neighbourhood they need, for the idle worker
+    private void releaseJobs(String thief)
+    {
+        List<Job> released=runner.releaseJobs();
+        StringBuilder message=new StringBuilder();
+        message.append("#released").append("\n")
+                .append(nodeName).append("\n")
+                .append(thief).append("\n")
+                .append(runner.getPendingJobsSize()).append("\n");
+        if(released.isEmpty())
+            message.append("-");
+        else
+        {
+            LocalDateTime now = LocalDateTime.now();
+            String key=now.getHour() + "_" + now.getMinute() + "_" + now.getSecond() + "_Jobs_" + nodeName + "_to_" + thief + ".bin";
+            S3Storage.upload(Config.S3BucketName,key,BinaryCodec.encodeGraph(runner.getNeighbourhood(released)));
+            message.append(key);
+        }
+        for (Job job:released) {
+            message.append("\n").append(job.getJobID()).append("#")
+                    .append(job.getCenterNode().getVertexURI()).append("#")
+                    .append(job.getQuery().getTGFD().getName());
+        }
+        Producer messageProducer=new Producer();
+        messageProducer.connect();
+        messageProducer.send("steal",message.toString());
+        messageProducer.close();
+        System.out.println("*JOB STEALING*: " + released.size() + " jobs are released for '" + thief + "'");
+    }
+
+    // Asks the coordinator for the jobs of the most loaded worker, returns false if there is none left
+    private boolean stealJobs()
+    {
+        Producer messageProducer=new Producer();
+        messageProducer.connect();
+        messageProducer.send("steal","#idle\n"+nodeName);
+        messageProducer.close();
+        System.out.println("*JOB STEALING*: All jobs are done, asking for more jobs");
+
+        String msg;
+        try
+        {
+            msg=stolenJobs.take();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        if(!msg.startsWith("#jobs"))
+            return false;
+        String []temp=msg.split("\n");
+        Graph<Vertex, RelationshipEdge> neighbourhood=BinaryCodec.decodeGraph(S3Storage.downloadBytes(Config.S3BucketName,temp[1]));
+        runner.addStolenJobs(Arrays.asList(temp).subList(2,temp.length), neighbourhood);
+        return true;
+    }
+
     private void sendStatusToCoordinator()
     {
         System.out.println("Worker '"+nodeName+"' is up and send status to the Coordinator");
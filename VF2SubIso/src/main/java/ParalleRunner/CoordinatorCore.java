@@ -0,0 +1,266 @@
+package ParalleRunner;
+
+import MPI.Consumer;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntFunction;
+
+/**
+ * Event-driven core shared by the coordinators.
+ *
+ * The messages of the workers are received by listener threads and handed to a single dispatcher thread as events,
+ * so the state of the coordinator is only changed by the dispatcher and needs no locking.
+ * The coordinator moves through these states:
+ *   Coordinator_Waits_For_Workers_Status: until every worker has sent "up <worker>" to the status queue
+ *   Coordinator_Assigns_jobs_To_Workers: the jobs are assigned once all the workers are up and the jobs are given
+ *   Coordinator_Ships_Data: the data of a superstep is shipped as soon as it is ready
+ *   Coordinator_Waits_For_Workers_Results: until every worker has sent "<worker>@<result>" for the superstep
+ *   Coordinator_Is_Done: after the results of the last superstep
+ * A superstep starts as soon as the last worker reports the results of the previous one.
+ */
+public class CoordinatorCore {
+
+    //region --[Nested Interfaces]---------------------------------------
+
+    /** What the coordinator does on each transition. */
+    public interface Phases
+    {
+        /** Sends the jobs to the workers, once all of them are up. */
+        void assign();
+
+        /**
+         * Ships the data of the superstep to the workers.
+         * @return Completes once the data is shipped, the superstep then waits for the results of the workers
+         */
+        default CompletableFuture<Void> ship(int superstep)
+        {
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    //endregion
+
+    //region --[Fields: Private]---------------------------------------
+
+    // Only bounds how long a listener takes to notice that it is no longer needed, messages are handled as soon as they arrive
+    private static final long LISTENER_TIMEOUT_IN_MS=1000;
+
+    private final List<String> workers;
+    private final int lastSuperstep;
+    private final IntFunction<String> resultsQueue;
+
+    private final LinkedBlockingQueue<Runnable> events=new LinkedBlockingQueue<>();
+    private final CompletableFuture<HashMap<String,List<String>>> done=new CompletableFuture<>();
+
+    // State of the coordinator, only changed by the dispatcher
+    private volatile Status status=Status.Coordinator_Waits_For_Workers_Status;
+    private volatile int superstep=0;
+    private volatile boolean stopped=false;
+    private final HashSet<String> workersUp=new HashSet<>();
+    private final HashMap<String,List<String>> results=new HashMap<>();
+    private Phases phases=null;
+
+    //endregion
+
+    //region --[Constructor]-----------------------------------------
+
+    /**
+     * @param workers Names of the workers
+     * @param lastSuperstep Number of supersteps, the first one is 1
+     * @param resultsQueue Name of the queue of the results of a superstep
+     */
+    public CoordinatorCore(List<String> workers, int lastSuperstep, IntFunction<String> resultsQueue)
+    {
+        this.workers=new ArrayList<>(workers);
+        this.lastSuperstep=lastSuperstep;
+        this.resultsQueue=resultsQueue;
+        for (String worker:workers)
+            results.put(worker,new ArrayList<>());
+    }
+
+    //endregion
+
+    //region --[Public Methods]-----------------------------------------
+
+    /** Starts the dispatcher and listens for the status of the workers. */
+    public void start()
+    {
+        Thread dispatcher=new Thread(this::dispatch, "coordinator");
+        dispatcher.setDaemon(false);
+        dispatcher.start();
+        listen("status", this::onStatus, () -> status!=Status.Coordinator_Waits_For_Workers_Status);
+    }
+
+    /** Gives the jobs to the coordinator, they are assigned once all the workers are up. */
+    public void assign(Phases phases)
+    {
+        post(() -> {
+            this.phases=phases;
+            if(workersUp.size()==workers.size())
+                onAllWorkersUp();
+        });
+    }
+
+    public void stop()
+    {
+        stopped=true;
+        post(() -> done.cancel(false));
+    }
+
+    /** Completes with the results of all the supersteps of each worker, once the last superstep is done. */
+    public CompletableFuture<HashMap<String,List<String>>> getDone()
+    {
+        return done;
+    }
+
+    public Status getStatus()
+    {
+        return status;
+    }
+
+    public int getSuperstep()
+    {
+        return superstep;
+    }
+
+    //endregion
+
+    //region --[Private Methods]-----------------------------------------
+
+    private void dispatch()
+    {
+        while (!done.isDone())
+        {
+            try
+            {
+                events.take().run();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void post(Runnable event)
+    {
+        events.add(event);
+    }
+
+    // Hands the messages of the queue to the dispatcher until the condition holds
+    private void listen(String queueName, java.util.function.Consumer<String> handler, BooleanSupplier finished)
+    {
+        Thread listener=new Thread(() -> {
+            Consumer consumer=new Consumer();
+            consumer.connect(queueName);
+            while (!stopped && !finished.getAsBoolean())
+            {
+                String msg=consumer.receive(LISTENER_TIMEOUT_IN_MS);
+                if(msg!=null)
+                    post(() -> handler.accept(msg));
+            }
+            consumer.close();
+        }, "coordinator-" + queueName);
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    private void onStatus(String msg)
+    {
+        String []temp=msg.split(" ");
+        if(!msg.startsWith("up") || temp.length!=2)
+        {
+            System.out.println("*SETUP*: Message corrupted: " + msg);
+            return;
+        }
+        String worker_name=temp[1];
+        if(!results.containsKey(worker_name))
+        {
+            System.out.println("*SETUP*: Unable to find the worker name: '" + worker_name + "' in workers list. " +
+                    "Please update the list in the Config file.");
+            return;
+        }
+        System.out.println("*SETUP*: Status update: '" + worker_name + "' is up");
+        workersUp.add(worker_name);
+        if(workersUp.size()==workers.size() && status==Status.Coordinator_Waits_For_Workers_Status)
+        {
+            System.out.println("*SETUP*: All workers are up and ready to start.");
+            status=Status.Coordinator_Assigns_jobs_To_Workers;
+            if(phases!=null)
+                onAllWorkersUp();
+        }
+    }
+
+    private void onAllWorkersUp()
+    {
+        if(superstep!=0)
+            return;
+        phases.assign();
+        System.out.println("*JOB ASSIGNER*: All jobs are assigned.");
+        startSuperstep(1);
+    }
+
+    private void startSuperstep(int newSuperstep)
+    {
+        superstep=newSuperstep;
+        status=Status.Coordinator_Ships_Data;
+        listen(resultsQueue.apply(newSuperstep), msg -> onResult(newSuperstep, msg), () -> superstep!=newSuperstep || done.isDone());
+        phases.ship(newSuperstep).whenComplete((ignored, e) -> post(() -> {
+            if(e!=null)
+            {
+                System.out.println("*DataShipper*: Couldn't ship the data of superstep " + newSuperstep);
+                e.printStackTrace();
+            }
+            if(superstep==newSuperstep && status==Status.Coordinator_Ships_Data)
+                status=Status.Coordinator_Waits_For_Workers_Results;
+        }));
+    }
+
+    private void onResult(int resultSuperstep, String msg)
+    {
+        String []temp=msg.split("@");
+        if(temp.length!=2)
+        {
+            System.out.println("*RESULTS GETTER*: Message corrupted: " + msg);
+            return;
+        }
+        String worker_name=temp[0].toLowerCase();
+        if(!results.containsKey(worker_name))
+        {
+            System.out.println("*RESULTS GETTER*: Unable to find the worker name: '" + worker_name + "' in workers list. " +
+                    "Please update the list in the Config file.");
+            return;
+        }
+        System.out.println("*RESULTS GETTER*: Results received from: '" + worker_name + "'");
+        results.get(worker_name).add(temp[1]);
+
+        for (List<String> workerResults:results.values())
+        {
+            if(workerResults.size()<resultSuperstep)
+                return;
+        }
+        System.out.println("*RESULTS GETTER*: All workers have sent the results for superstep: " + resultSuperstep);
+        if(resultSuperstep>=lastSuperstep)
+        {
+            System.out.println("*RESULTS GETTER*: All done! No superstep remained.");
+            superstep=resultSuperstep+1;
+            status=Status.Coordinator_Is_Done;
+            done.complete(results);
+        }
+        else
+        {
+            startSuperstep(resultSuperstep+1);
+            System.out.println("*RESULTS GETTER*: Starting the new superstep! -> " + superstep);
+        }
+    }
+
+    //endregion
+}
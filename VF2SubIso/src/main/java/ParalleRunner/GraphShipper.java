@@ -0,0 +1,318 @@
+package ParalleRunner;
+
+import AmazonStorage.S3Storage;
+import Infra.RelationshipEdge;
+import Infra.VF2DataGraph;
+import Infra.Vertex;
+import MPI.Consumer;
+import MPI.DataPlane;
+import MPI.EdgeBatchCodec;
+import MPI.Producer;
+import Partitioner.Util;
+import Util.Config;
+import org.jgrapht.Graph;
+
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Ships the graph fragments between the workers at each superstep.
+ *
+ * A fragment is encoded as batches of edges (see EdgeBatchCodec).
+ * With Config.dataPlane=s3, the batches are uploaded to S3 and their key is sent to the receiver over the broker.
+ * With Config.dataPlane=socket, a fragment is streamed in batches directly to the DataPlane of the receiver,
+ * each batch as soon as it is encoded, while the fragments of the other workers are received and merged. The sender announces the stream over the broker,
+ * so a receiver knows which streams to wait for, and falls back to S3 if the receiver is not reachable.
+ */
+public class GraphShipper {
+
+    //region --[Fields: Private]---------------------------------------
+
+    private final String nodeName;
+    private DataPlane dataPlane=null;
+    private ExecutorService senders=null;
+    private final List<Future<?>> pendingSends=new ArrayList<>();
+
+    //endregion
+
+    //region --[Classes: Private]----------------------------------------
+
+    /** Batches of a fragment, which the sender iterates over while they are encoded. */
+    private static class EncodedBatches implements Iterable<byte[]>
+    {
+        private final List<byte[]> batches=new ArrayList<>();
+        private boolean complete=false;
+
+        private synchronized void add(byte[] batch)
+        {
+            batches.add(batch);
+            notifyAll();
+        }
+
+        private synchronized void complete()
+        {
+            complete=true;
+            notifyAll();
+        }
+
+        /** Waits for the batch, or returns null if the fragment has fewer batches. */
+        private synchronized byte[] get(int index)
+        {
+            boolean interrupted=false;
+            while (index>=batches.size() && !complete)
+            {
+                try
+                {
+                    wait();
+                }
+                catch (InterruptedException e)
+                {
+                    interrupted=true;
+                }
+            }
+            if(interrupted)
+                Thread.currentThread().interrupt();
+            return index<batches.size() ? batches.get(index) : null;
+        }
+
+        /** Waits for all the batches to be encoded. */
+        private List<byte[]> getAll()
+        {
+            get(Integer.MAX_VALUE);
+            return batches;
+        }
+
+        @Override
+        public Iterator<byte[]> iterator()
+        {
+            return new Iterator<>() {
+                private int index=0;
+
+                @Override
+                public boolean hasNext()
+                {
+                    return get(index)!=null;
+                }
+
+                @Override
+                public byte[] next()
+                {
+                    byte[] batch=get(index);
+                    if(batch==null)
+                        throw new NoSuchElementException();
+                    index++;
+                    return batch;
+                }
+            };
+        }
+    }
+
+    //endregion
+
+    //region --[Constructor]-----------------------------------------
+
+    public GraphShipper(String nodeName)
+    {
+        this.nodeName=nodeName;
+        if(Config.dataPlane.equals("socket"))
+        {
+            senders=Executors.newCachedThreadPool(runnable -> {
+                Thread thread=new Thread(runnable, "graph-shipper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            String address=Config.dataPlaneAddresses.get(nodeName);
+            if(address==null)
+                System.out.println("*DATA PLANE*: No address for '" + nodeName + "', the fragments are received through S3.");
+            else
+            {
+                try
+                {
+                    dataPlane=new DataPlane(getPort(address), Config.dataPlaneQueueSize, Config.dataPlaneMaxFrameSize);
+                    System.out.println("*DATA PLANE*: Listening on port " + dataPlane.getPort());
+                }
+                catch (IOException e)
+                {
+                    System.out.println("*DATA PLANE*: Cannot listen on " + address + ", the fragments are received through S3.");
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    //endregion
+
+    //region --[Public Methods]-----------------------------------------
+
+    /**
+     * Starts sending the fragments, by ID of the receiving worker. With the socket data plane, this returns before the
+     * fragments are delivered, so they are sent while receive merges the fragments of the other workers.
+     */
+    public void ship(int superstep, HashMap<Integer, Graph<Vertex, RelationshipEdge>> graphsToBeSent)
+    {
+        for (int workerID:graphsToBeSent.keySet())
+        {
+            String workerName=Config.workers.get(workerID);
+            if(senders==null)
+            {
+                uploadToS3(workerName, EdgeBatchCodec.encode(graphsToBeSent.get(workerID), Config.dataPlaneBatchSize));
+                continue;
+            }
+            // The batches are sent as they are encoded, and all of them are encoded before returning,
+            // so the vertices are not read while receive updates them
+            EncodedBatches batches=new EncodedBatches();
+            pendingSends.add(senders.submit(() -> stream(superstep, workerName, batches)));
+            try
+            {
+                EdgeBatchCodec.encode(graphsToBeSent.get(workerID), Config.dataPlaneBatchSize, batches::add);
+            }
+            finally
+            {
+                batches.complete();
+            }
+        }
+    }
+
+    /**
+     * Receives the fragments of all the other workers, merges them into the graph,
+     * and waits for the fragments of this worker to be delivered.
+     */
+    public void receive(int superstep, VF2DataGraph graph)
+    {
+        int receivedData=0;
+        Consumer consumer=new Consumer();
+        consumer.connect(nodeName+"_data");
+
+        while (receivedData<Config.workers.size()-1)
+        {
+            System.out.println("*WORKER*: Start reading data from other workers...");
+            String msg = consumer.receive();
+            System.out.println("*WORKER*: Received a new message.");
+            if (msg==null) {
+                System.out.println("*WORKER*: Error happened - msg is null");
+                receivedData++;
+            }
+            else if(msg.startsWith("#dataplane"))
+            {
+                String senderName=msg.split("\n")[1];
+                boolean complete = dataPlane!=null &&
+                        dataPlane.receive(senderName, superstep, batch -> Util.mergeGraphs(graph, EdgeBatchCodec.decode(batch)));
+                // Otherwise, the sender falls back to S3 and sends the key
+                if(complete)
+                    receivedData++;
+                else
+                    System.out.println("*WORKER*: The stream from '" + senderName + "' is incomplete, waiting for S3.");
+            }
+            else
+            {
+                byte[] bytes=S3Storage.downloadBytes(Config.S3BucketName,msg);
+                if(bytes!=null)
+                {
+                    for (byte[] batch:EdgeBatchCodec.split(bytes))
+                        Util.mergeGraphs(graph, EdgeBatchCodec.decode(batch));
+                }
+                else
+                    System.out.println("*WORKER*: Object was null!");
+                receivedData++;
+            }
+        }
+        consumer.close();
+
+        for (Future<?> send:pendingSends)
+        {
+            try
+            {
+                send.get();
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+            }
+        }
+        pendingSends.clear();
+    }
+
+    public void close()
+    {
+        if(senders!=null)
+            senders.shutdown();
+        if(dataPlane!=null)
+            dataPlane.close();
+    }
+
+    //endregion
+
+    //region --[Private Methods]-----------------------------------------
+
+    private void stream(int superstep, String workerName, EncodedBatches batches)
+    {
+        String address=Config.dataPlaneAddresses.get(workerName);
+        if(address!=null)
+        {
+            SocketChannel channel=null;
+            try
+            {
+                channel=DataPlane.connect(getHost(address), getPort(address));
+            }
+            catch (IOException e)
+            {
+                System.out.println("*DATA SENDER*: Cannot connect to '" + workerName + "': " + e.getMessage());
+            }
+            if(channel!=null)
+            {
+                try (SocketChannel connectedChannel=channel)
+                {
+                    sendMessage(workerName, "#dataplane\n" + nodeName);
+                    DataPlane.send(connectedChannel, nodeName, superstep, batches);
+                    System.out.println("*DATA SENDER*: " + batches.getAll().size() + " batches have been streamed to '" + workerName + "' successfully");
+                    return;
+                }
+                catch (IOException e)
+                {
+                    System.out.println("*DATA SENDER*: Stream to '" + workerName + "' failed: " + e.getMessage());
+                }
+            }
+        }
+        System.out.println("*DATA SENDER*: Falling back to S3 for '" + workerName + "'");
+        uploadToS3(workerName, batches.getAll());
+    }
+
+    private void uploadToS3(String workerName, List<byte[]> batches)
+    {
+        LocalDateTime now = LocalDateTime.now();
+        String date=now.getHour() + "_" + now.getMinute() + "_" + now.getSecond();
+        String key=date + "_G_" + nodeName + "_to_" + workerName + ".bin";
+        S3Storage.upload(Config.S3BucketName,key,EdgeBatchCodec.join(batches));
+        sendMessage(workerName, key);
+        System.out.println("*DATA SENDER*: Graph object has been sent to '" + workerName + "' successfully");
+    }
+
+    private void sendMessage(String workerName, String msg)
+    {
+        Producer messageProducer=new Producer();
+        messageProducer.connect();
+        messageProducer.send(workerName+"_data",msg);
+        messageProducer.close();
+    }
+
+    private static String getHost(String address)
+    {
+        return address.substring(0, address.lastIndexOf(':'));
+    }
+
+    private static int getPort(String address)
+    {
+        return Integer.parseInt(address.substring(address.lastIndexOf(':')+1));
+    }
+
+    //endregion
+}
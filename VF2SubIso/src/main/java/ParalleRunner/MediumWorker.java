@@ -1,6 +1,7 @@
 package ParalleRunner;
 
 import AmazonStorage.S3Storage;
+import MPI.BinaryCodec;
 import MPI.Consumer;
 import MPI.Producer;
 import Loader.TGFDGenerator;
@@ -161,8 +162,8 @@ public class MediumWorker {
                     TGFDGenerator generator = new TGFDGenerator(allJobs.get(workerName));
                     otherWorkersJobs.put(workerName,generator.getTGFDs());
                     VF2DataGraph graphToBeShipped=Partitioner.Util.getSubgraphToSendToOtherNodes(runner.getLoader().getGraph(), otherWorkersJobs.get(workerName));
-                    String key = workerName + "_" + RandomStringUtils.randomAlphabetic(5) + ".ser";
-                    boolean result = S3Storage.upload(workingBucketName,key,graphToBeShipped);
+                    String key = workerName + "_" + RandomStringUtils.randomAlphabetic(5) + ".bin";
+                    boolean result = S3Storage.upload(workingBucketName,key,BinaryCodec.encodeGraph(graphToBeShipped.getGraph()));
                     if(!result)
                         System.out.println("*DATA SHIPPER*: Error to upload the data for: " + workerName);
                     else
@@ -210,12 +211,9 @@ public class MediumWorker {
                         String bucketName=msg.substring(0,msg.lastIndexOf("/"));
                         String key=msg.substring(msg.lastIndexOf("/")+1);
 
-                        Object obj=S3Storage.downloadObject(bucketName,key);
-                        if(obj!=null)
-                        {
-                            VF2DataGraph ShippedData=(VF2DataGraph) obj;
-                            Partitioner.Util.mergeGraphs(runner.getLoader().getGraph(),ShippedData);
-                        }
+                        byte[] bytes=S3Storage.downloadBytes(bucketName,key);
+                        if(bytes!=null)
+                            Partitioner.Util.mergeGraphs(runner.getLoader().getGraph(),BinaryCodec.decodeGraph(bytes));
                         System.out.println("*DATA RECEIVER*: Data '" + numberOfFilesReceived +"' has been received");
                     }
                     else
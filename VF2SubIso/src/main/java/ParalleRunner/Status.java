@@ -4,6 +4,7 @@ public enum Status {
     Coordinator_Waits_For_Workers_Status,
     Coordinator_Waits_For_Workers_Results,
     Coordinator_Assigns_jobs_To_Workers,
+    Coordinator_Ships_Data,
     Coordinator_Is_Done,
     Worker_waits_For_Job,
     Worker_Received_Job,
@@ -7,10 +7,7 @@ import Loader.DBPediaLoader;
 import Loader.GraphLoader;
 import Loader.IMDBLoader;
 import Util.Config;
-import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
-import com.amazonaws.services.s3.model.GetObjectRequest;
-import com.amazonaws.services.s3.model.S3Object;
+import Storage.ObjectStores;
 import org.apache.jena.rdf.model.*;
 
 import java.io.BufferedReader;
@@ -37,8 +34,7 @@ public class DBPediaPartitioner {
     public void partition(String savingDirectory)
     {
         System.out.println("Start partitioning...");
-        RangeBasedPartitioner partitioner=new RangeBasedPartitioner(dbpedia.getGraph());
-        HashMap<DataVertex,Integer> partitionMapping=partitioner.fragment(numberOfPartitions);
+        HashMap<DataVertex,Integer> partitionMapping=GraphPartitioners.fragment(dbpedia.getGraph(),numberOfPartitions);
         System.out.println("Partitioning done.");
 
         StringBuilder []types=new StringBuilder[numberOfPartitions];
@@ -98,25 +94,17 @@ public class DBPediaPartitioner {
             System.out.println("No Input Node Types File Path!");
             return;
         }
-        S3Object fullObject = null;
         BufferedReader br;
         try
         {
             System.out.println("Loading File: " + filePath);
             if(Config.Amazon)
             {
-                AmazonS3 s3Client = AmazonS3ClientBuilder.standard()
-                        .withRegion(Config.region)
-                        //.withCredentials(new ProfileCredentialsProvider())
-                        //.withCredentials(DefaultAWSCredentialsProviderChain.getInstance())
-                        .build();
                 //TODO: Need to check if the path is correct (should be in the form of bucketName/Key )
                 String bucketName=filePath.substring(0,filePath.lastIndexOf("/"));
                 String key=filePath.substring(filePath.lastIndexOf("/")+1);
                 System.out.println("Downloading the object from Amazon S3 - Bucket name: " + bucketName +" - Key: " + key);
-                fullObject = s3Client.getObject(new GetObjectRequest(bucketName, key));
-
-                br = new BufferedReader(new InputStreamReader(fullObject.getObjectContent()));
+                br = new BufferedReader(new InputStreamReader(ObjectStores.getDefault().open(bucketName, key)));
             }
             else
             {
@@ -140,9 +128,6 @@ public class DBPediaPartitioner {
                     System.out.println("***ERROR*** ->" + line);
                 line= br.readLine();
             }
-            if (fullObject != null) {
-                fullObject.close();
-            }
             br.close();
         }
         catch (Exception e)
@@ -0,0 +1,167 @@
+package Partitioner;
+
+import Infra.DataVertex;
+import Infra.RelationshipEdge;
+import Infra.VF2DataGraph;
+import Infra.Vertex;
+import org.jgrapht.Graph;
+
+import java.util.*;
+
+/**
+ * Streaming graph partitioner (Fennel, Tsourakakis et al., WSDM 2014), followed by a few passes of label propagation.
+ *
+ * The vertices are streamed in breadth-first order, so the neighbours of a vertex are usually placed before it.
+ * A vertex goes to the fragment that holds most of its neighbours, minus a penalty that grows with the load of the fragment:
+ *   score(i) = |N(v) in fragment i| - alpha * gamma * load(i)^(gamma-1)
+ * The load of a vertex is 1 + its degree, so the fragments get about the same number of edges, and the joblets within the
+ * diameter of a pattern are about the same size on each fragment. No fragment gets more than (1+slack) times the average load.
+ * The label propagation then moves a vertex to the fragment that holds most of its neighbours if the load allows it.
+ */
+public class FennelPartitioner implements GraphPartitioner {
+
+    private static final double GAMMA=1.5;
+
+    private VF2DataGraph graph;
+    private double slack;
+    private int refinements;
+
+    public FennelPartitioner(VF2DataGraph graph)
+    {
+        this(graph, 0.1, 3);
+    }
+
+    /**
+     * @param slack How much more than the average load a fragment may get, e.g. 0.1 for 10%
+     * @param refinements Number of passes of label propagation after the streaming pass
+     */
+    public FennelPartitioner(VF2DataGraph graph, double slack, int refinements)
+    {
+        this.graph=graph;
+        this.slack=slack;
+        this.refinements=refinements;
+    }
+
+    @Override
+    public HashMap<DataVertex,Integer> fragment(int numberOfPartitions)
+    {
+        if(numberOfPartitions<1)
+            return null;
+        Graph<Vertex, RelationshipEdge> g=graph.getGraph();
+        HashMap<DataVertex,Integer> mapping=new HashMap<>();
+        double totalLoad=0;
+        for (Vertex v:g.vertexSet())
+            totalLoad+=load(g, v);
+        double capacity=(1+slack)*totalLoad/numberOfPartitions;
+        double alpha=g.edgeSet().size()*Math.pow(numberOfPartitions, GAMMA-1)/Math.pow(Math.max(totalLoad, 1), GAMMA);
+
+        double []loads=new double[numberOfPartitions];
+        int []neighbours=new int[numberOfPartitions];
+        for (Vertex v:streamingOrder(g))
+        {
+            countNeighbours(g, v, mapping, neighbours);
+            double vertexLoad=load(g, v);
+            int selectedFragment=-1;
+            double maxScore=Double.NEGATIVE_INFINITY;
+            for (int i=0;i<numberOfPartitions;i++)
+            {
+                if(loads[i]+vertexLoad>capacity && loads[i]>0)
+                    continue;
+                double score=neighbours[i]-alpha*GAMMA*Math.pow(loads[i], GAMMA-1);
+                if(score>maxScore || (score==maxScore && loads[i]<loads[selectedFragment]))
+                {
+                    maxScore=score;
+                    selectedFragment=i;
+                }
+            }
+            // Only when every fragment is full, which the slack normally avoids
+            if(selectedFragment==-1)
+                selectedFragment=leastLoaded(loads);
+            mapping.put((DataVertex) v, selectedFragment);
+            loads[selectedFragment]+=vertexLoad;
+        }
+
+        for (int pass=0;pass<refinements;pass++)
+        {
+            int moved=0;
+            for (Vertex v:g.vertexSet())
+            {
+                countNeighbours(g, v, mapping, neighbours);
+                int current=mapping.get((DataVertex) v);
+                double vertexLoad=load(g, v);
+                int selectedFragment=current;
+                for (int i=0;i<numberOfPartitions;i++)
+                {
+                    if(neighbours[i]>neighbours[selectedFragment] && loads[i]+vertexLoad<=capacity)
+                        selectedFragment=i;
+                }
+                if(selectedFragment!=current)
+                {
+                    mapping.put((DataVertex) v, selectedFragment);
+                    loads[current]-=vertexLoad;
+                    loads[selectedFragment]+=vertexLoad;
+                    moved++;
+                }
+            }
+            if(moved==0)
+                break;
+        }
+        return mapping;
+    }
+
+    private static double load(Graph<Vertex, RelationshipEdge> g, Vertex v)
+    {
+        return 1+g.degreeOf(v);
+    }
+
+    // Number of neighbours of the vertex in each fragment, the vertices that are not placed yet are not counted
+    private static void countNeighbours(Graph<Vertex, RelationshipEdge> g, Vertex v, HashMap<DataVertex,Integer> mapping, int []neighbours)
+    {
+        Arrays.fill(neighbours, 0);
+        for (RelationshipEdge edge:g.edgesOf(v))
+        {
+            Vertex neighbour=edge.getSource()==v ? edge.getTarget() : edge.getSource();
+            Integer fragment=mapping.get((DataVertex) neighbour);
+            if(fragment!=null)
+                neighbours[fragment]++;
+        }
+    }
+
+    private static int leastLoaded(double []loads)
+    {
+        int selected=0;
+        for (int i=1;i<loads.length;i++)
+        {
+            if(loads[i]<loads[selected])
+                selected=i;
+        }
+        return selected;
+    }
+
+    // Breadth-first order over the edges in both directions, starting again from the next unvisited vertex
+    private static List<Vertex> streamingOrder(Graph<Vertex, RelationshipEdge> g)
+    {
+        List<Vertex> order=new ArrayList<>(g.vertexSet().size());
+        HashSet<Vertex> visited=new HashSet<>();
+        ArrayDeque<Vertex> queue=new ArrayDeque<>();
+        for (Vertex start:g.vertexSet())
+        {
+            if(!visited.add(start))
+                continue;
+            queue.add(start);
+            while (!queue.isEmpty())
+            {
+                Vertex v=queue.poll();
+                order.add(v);
+                for (RelationshipEdge edge:g.edgesOf(v))
+                {
+                    Vertex neighbour=edge.getSource()==v ? edge.getTarget() : edge.getSource();
+                    if(visited.add(neighbour))
+                        queue.add(neighbour);
+                }
+            }
+        }
+        return order;
+    }
+
+}
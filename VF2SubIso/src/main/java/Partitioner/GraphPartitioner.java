@@ -0,0 +1,18 @@
+package Partitioner;
+
+import Infra.DataVertex;
+
+import java.util.HashMap;
+
+/**
+ * Assigns the vertices of a data graph to fragments, one fragment per worker.
+ */
+public interface GraphPartitioner {
+
+    /**
+     * @param numberOfPartitions Number of fragments
+     * @return Fragment of each vertex, from 0 to numberOfPartitions-1
+     */
+    HashMap<DataVertex,Integer> fragment(int numberOfPartitions);
+
+}
@@ -0,0 +1,73 @@
+package Partitioner;
+
+import Infra.DataVertex;
+import Infra.RelationshipEdge;
+import Infra.VF2DataGraph;
+import Util.Config;
+
+import java.util.HashMap;
+
+/**
+ * Chooses the graph partitioner given by Config.graphPartitioner, and measures the quality of a partition.
+ * The same partitioner must be used to split the data files of the workers and by the coordinator.
+ */
+public final class GraphPartitioners {
+
+    private GraphPartitioners() {}
+
+    public static GraphPartitioner create(VF2DataGraph graph)
+    {
+        if(Config.graphPartitioner.equals("fennel"))
+            return new FennelPartitioner(graph);
+        else // default is range
+            return new RangeBasedPartitioner(graph);
+    }
+
+    /**
+     * Fragments the graph with the partitioner given by Config.graphPartitioner,
+     * and prints its cut size and balance, next to the ones of the range partitioner if Config.comparePartitioners is set.
+     */
+    public static HashMap<DataVertex,Integer> fragment(VF2DataGraph graph, int numberOfPartitions)
+    {
+        HashMap<DataVertex,Integer> fragments=create(graph).fragment(numberOfPartitions);
+        if(fragments==null)
+            return null;
+        System.out.println("*PARTITIONER*: " + Config.graphPartitioner + " - cut edges: " + getCutSize(graph, fragments) +
+                " - balance: " + getBalance(graph, fragments, numberOfPartitions));
+        if(Config.comparePartitioners && !Config.graphPartitioner.equals("range"))
+        {
+            HashMap<DataVertex,Integer> rangeFragments=new RangeBasedPartitioner(graph).fragment(numberOfPartitions);
+            System.out.println("*PARTITIONER*: range - cut edges: " + getCutSize(graph, rangeFragments) +
+                    " - balance: " + getBalance(graph, rangeFragments, numberOfPartitions));
+        }
+        return fragments;
+    }
+
+    /** Gets the number of edges whose endpoints are in different fragments. */
+    public static int getCutSize(VF2DataGraph graph, HashMap<DataVertex,Integer> fragments)
+    {
+        int cut=0;
+        for (RelationshipEdge edge:graph.getGraph().edgeSet())
+        {
+            if(!fragments.get((DataVertex) edge.getSource()).equals(fragments.get((DataVertex) edge.getTarget())))
+                cut++;
+        }
+        return cut;
+    }
+
+    /** Gets the largest number of edges of a fragment over the average, 1 is a perfect balance. */
+    public static double getBalance(VF2DataGraph graph, HashMap<DataVertex,Integer> fragments, int numberOfPartitions)
+    {
+        double []edges=new double[numberOfPartitions];
+        for (RelationshipEdge edge:graph.getGraph().edgeSet())
+            edges[fragments.get((DataVertex) edge.getSource())]++;
+        double max=0, total=0;
+        for (double fragmentEdges:edges)
+        {
+            max=Math.max(max, fragmentEdges);
+            total+=fragmentEdges;
+        }
+        return total==0 ? 1 : max*numberOfPartitions/total;
+    }
+
+}
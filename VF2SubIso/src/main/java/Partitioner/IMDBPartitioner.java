@@ -1,9 +1,6 @@
 package Partitioner;
 
-import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
-import com.amazonaws.services.s3.model.GetObjectRequest;
-import com.amazonaws.services.s3.model.S3Object;
+import Storage.ObjectStores;
 import Loader.GraphLoader;
 import Loader.IMDBLoader;
 import Infra.DataVertex;
@@ -26,8 +23,7 @@ public class IMDBPartitioner {
     public void partition(String dataGraphFilePath, String savingDirectory)
     {
         System.out.println("Start partitioning...");
-        RangeBasedPartitioner partitioner=new RangeBasedPartitioner(imdb.getGraph());
-        HashMap<DataVertex,Integer> partitionMapping=partitioner.fragment(numberOfPartitions);
+        HashMap<DataVertex,Integer> partitionMapping=GraphPartitioners.fragment(imdb.getGraph(),numberOfPartitions);
         System.out.println("Partitioning done.");
         try
         {
@@ -41,21 +37,15 @@ public class IMDBPartitioner {
             }
             System.out.println("Reading IMDB Graph: "+dataGraphFilePath);
 
-            S3Object fullObject = null;
             BufferedReader br;
 
             if(Config.Amazon)
             {
-                AmazonS3 s3Client = AmazonS3ClientBuilder.standard()
-                        .withRegion(Config.region)
-                        .build();
                 //TODO: Need to check if the path is correct (should be in the form of bucketName/Key )
                 String bucketName=dataGraphFilePath.substring(0,dataGraphFilePath.lastIndexOf("/"));
                 String key=dataGraphFilePath.substring(dataGraphFilePath.lastIndexOf("/")+1);
                 System.out.println("Downloading the object from Amazon S3 - Bucket name: " + bucketName +" - Key: " + key);
-                fullObject = s3Client.getObject(new GetObjectRequest(bucketName, key));
-
-                br = new BufferedReader(new InputStreamReader(fullObject.getObjectContent()));
+                br = new BufferedReader(new InputStreamReader(ObjectStores.getDefault().open(bucketName, key)));
             }
             else
             {
@@ -101,9 +91,6 @@ public class IMDBPartitioner {
                 }
             }
             System.out.println("Done.");
-            if (fullObject != null) {
-                fullObject.close();
-            }
             br.close();
 
             for (FileWriter writer:writers) {
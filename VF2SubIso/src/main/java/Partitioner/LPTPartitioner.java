@@ -0,0 +1,127 @@
+package Partitioner;
+
+import Infra.DataVertex;
+import Infra.RelationshipEdge;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Assigns the joblets (or jobs) to the fragments with the Longest Processing Time first rule:
+ * the joblets are sorted once from the largest to the smallest, and each one goes to the least loaded fragment,
+ * which is kept on top of a min-heap of the loads of the fragments. This is O(n log n + n log k) for n joblets and k fragments.
+ *
+ * With the locality-aware variant, a joblet goes to the fragment that already owns most of the endpoints of its edges,
+ * unless that fragment would be loaded more than (1+imbalance) times the average load, so fewer edges are shipped.
+ */
+public class LPTPartitioner<T> {
+
+    private final ToDoubleFunction<T> size;
+    private final Function<T, ? extends Collection<RelationshipEdge>> edges;
+    private final HashMap<DataVertex,Integer> fragments;
+    private final double imbalance;
+
+    private HashMap<Integer, Double> loads;
+
+    /** Creates an LPT partitioner that only balances the load. */
+    public LPTPartitioner(ToDoubleFunction<T> size)
+    {
+        this(size, null, null, 0);
+    }
+
+    /**
+     * Creates a locality-aware LPT partitioner.
+     * @param size Estimated cost of a joblet
+     * @param edges Edges a joblet needs
+     * @param fragments Fragment that owns each vertex
+     * @param imbalance How much more than the average load a fragment may get to keep a joblet local, e.g. 0.1 for 10%
+     */
+    public LPTPartitioner(ToDoubleFunction<T> size, Function<T, ? extends Collection<RelationshipEdge>> edges,
+                          HashMap<DataVertex,Integer> fragments, double imbalance)
+    {
+        this.size=size;
+        this.edges=edges;
+        this.fragments=fragments;
+        this.imbalance=imbalance;
+    }
+
+    public HashMap<Integer, ArrayList<T>> partition(List<T> tasks, Collection<Integer> fragmentIDs)
+    {
+        HashMap<Integer, ArrayList<T>> tasksByFragmentID=new HashMap<>();
+        loads=new HashMap<>();
+        for (int fragmentID:fragmentIDs)
+        {
+            tasksByFragmentID.put(fragmentID,new ArrayList<>());
+            loads.put(fragmentID,0.0);
+        }
+        if(fragmentIDs.isEmpty())
+            return tasksByFragmentID;
+
+        // The sizes are computed once, not at each comparison
+        double []sizes=new double[tasks.size()];
+        Integer []order=new Integer[tasks.size()];
+        double totalSize=0;
+        for (int i=0;i<sizes.length;i++)
+        {
+            sizes[i]=size.applyAsDouble(tasks.get(i));
+            order[i]=i;
+            totalSize+=sizes[i];
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(sizes[b], sizes[a]));
+        double capacity=(1+imbalance)*totalSize/fragmentIDs.size();
+
+        PriorityQueue<Integer> leastLoaded=new PriorityQueue<>(
+                Comparator.<Integer>comparingDouble(loads::get).thenComparingInt(fragmentID -> fragmentID));
+        leastLoaded.addAll(fragmentIDs);
+        for (int i:order)
+        {
+            T task=tasks.get(i);
+            Integer selectedFragment=null;
+            if(edges!=null)
+            {
+                Integer localFragment=getLocalFragment(task);
+                if(localFragment!=null && loads.containsKey(localFragment) && loads.get(localFragment)+sizes[i]<=capacity)
+                {
+                    selectedFragment=localFragment;
+                    leastLoaded.remove(selectedFragment);
+                }
+            }
+            if(selectedFragment==null)
+                selectedFragment=leastLoaded.poll();
+            loads.put(selectedFragment,loads.get(selectedFragment)+sizes[i]);
+            leastLoaded.add(selectedFragment);
+            tasksByFragmentID.get(selectedFragment).add(task);
+        }
+        return tasksByFragmentID;
+    }
+
+    /** Gets the load of each fragment after the last partition. */
+    public HashMap<Integer, Double> getLoads()
+    {
+        return loads;
+    }
+
+    // Fragment that owns most of the endpoints of the edges of the task
+    private Integer getLocalFragment(T task)
+    {
+        Collection<RelationshipEdge> taskEdges=edges.apply(task);
+        if(taskEdges==null)
+            return null;
+        HashMap<Integer, Integer> endpoints=new HashMap<>();
+        for (RelationshipEdge edge:taskEdges)
+        {
+            endpoints.merge(fragments.get((DataVertex) edge.getSource()),1,Integer::sum);
+            endpoints.merge(fragments.get((DataVertex) edge.getTarget()),1,Integer::sum);
+        }
+        endpoints.remove(null);
+        Integer localFragment=null;
+        for (Map.Entry<Integer, Integer> entry:endpoints.entrySet())
+        {
+            if(localFragment==null || entry.getValue()>endpoints.get(localFragment))
+                localFragment=entry.getKey();
+        }
+        return localFragment;
+    }
+
+}
@@ -6,7 +6,7 @@ import Infra.Vertex;
 
 import java.util.HashMap;
 
-public class RangeBasedPartitioner {
+public class RangeBasedPartitioner implements GraphPartitioner {
 
     private VF2DataGraph graph;
 
@@ -15,6 +15,7 @@ public class RangeBasedPartitioner {
         this.graph=graph;
     }
 
+    @Override
     public HashMap<DataVertex,Integer> fragment(int numberOfPartitions)
     {
         if(numberOfPartitions<1)
@@ -0,0 +1,326 @@
+package Partitioner;
+
+import Infra.*;
+import VF2BasedWorkload.JobletIndex;
+import changeExploration.*;
+
+import java.util.*;
+
+/**
+ * Plans the edges shipped between the fragments and the changes sent to each fragment, superstep after superstep.
+ *
+ * The neighbourhoods (joblets or jobs) are kept up to date under the changes of each snapshot: the changes are applied to the
+ * data graph of the coordinator, and only the neighbourhoods that hold an endpoint of a changed edge or a deleted vertex are
+ * extracted again. The JobletIndex of the vertices is updated with them.
+ * A fragment is then shipped only the edges of its neighbourhoods that it does not own and has not been shipped before.
+ * A change is sent to the fragments that own its vertices, to the fragments of the neighbourhoods it touches, before or after
+ * the change, and to the fragments that hold a copy of its vertices.
+ * A new vertex is placed on a fragment by the hash of its URI. A new vertex of a center type does not get a neighbourhood.
+ */
+public class ShippingPlanner<T extends Neighbourhood> {
+
+    private VF2DataGraph graph;
+    private HashMap<DataVertex,Integer> fragments;
+    private List<Integer> fragmentIDs;
+    private JobletIndex index;
+
+    // Edges that have been shipped to each fragment, and the fragments that hold a copy of each vertex
+    private HashMap<Integer, HashSet<SimpleEdge>> shippedEdges=new HashMap<>();
+    private HashMap<String, HashSet<Integer>> copiedVertices=new HashMap<>();
+
+    // The plan of the last list of changes, so the edges and the changes of a snapshot are planned once
+    private List<Change> plannedChanges;
+    private HashMap<Integer,HashMap<Integer,ArrayList<SimpleEdge>>> plannedEdges;
+    private HashMap<Integer,List<Change>> plannedChangesByFragmentID;
+
+    /**
+     * @param neighbourhoodsByFragmentID The neighbourhoods assigned to each fragment, whose edges have been shipped by dataToBeShipped
+     */
+    public ShippingPlanner(VF2DataGraph graph, HashMap<DataVertex,Integer> fragments, HashMap<Integer, ArrayList<T>> neighbourhoodsByFragmentID)
+    {
+        this.graph=graph;
+        this.fragments=fragments;
+        this.fragmentIDs=new ArrayList<>(new TreeSet<>(neighbourhoodsByFragmentID.keySet()));
+        for (int fragmentID:fragmentIDs)
+            shippedEdges.put(fragmentID, new HashSet<>());
+        HashMap<Integer,HashMap<Integer,ArrayList<SimpleEdge>>> shipped=dataToBeShipped(fragments, neighbourhoodsByFragmentID);
+        for (int sender:shipped.keySet())
+        {
+            for (int fragmentID:shipped.get(sender).keySet())
+            {
+                for (SimpleEdge edge:shipped.get(sender).get(fragmentID))
+                    addShippedEdge(fragmentID, edge);
+            }
+        }
+        List<T> neighbourhoods=new ArrayList<>();
+        neighbourhoodsByFragmentID.values().forEach(neighbourhoods::addAll);
+        index=JobletIndex.build(neighbourhoods);
+    }
+
+    /**
+     * Edges to be shipped for the neighbourhoods, from scratch
+     * @return Edges by the fragment that ships them, then by the fragment they are shipped to
+     */
+    public static <T extends Neighbourhood> HashMap<Integer,HashMap<Integer,ArrayList<SimpleEdge>>> dataToBeShipped(
+            HashMap<DataVertex,Integer> fragments, HashMap<Integer, ArrayList<T>> neighbourhoodsByFragmentID)
+    {
+        HashMap<Integer,HashMap<Integer,ArrayList<SimpleEdge>>> dataToBeShipped=emptyPlan(neighbourhoodsByFragmentID.keySet());
+        for (int fragmentID:neighbourhoodsByFragmentID.keySet()) {
+            // An edge shared by several neighbourhoods of the fragment is shipped once
+            HashSet<SimpleEdge> shipped=new HashSet<>();
+            for (T neighbourhood:neighbourhoodsByFragmentID.get(fragmentID)) {
+                for (RelationshipEdge edge:neighbourhood.getEdges()) {
+                    int sender=sender(fragments, edge, fragmentID);
+                    SimpleEdge simpleEdge=new SimpleEdge(edge);
+                    if(sender!=-1 && shipped.add(simpleEdge))
+                        dataToBeShipped.get(sender).get(fragmentID).add(simpleEdge);
+                }
+            }
+        }
+        return dataToBeShipped;
+    }
+
+    /**
+     * Applies the changes of a snapshot, updates the neighbourhoods and gets the edges that the fragments do not hold yet
+     * @return Edges by the fragment that ships them, then by the fragment they are shipped to
+     */
+    public HashMap<Integer,HashMap<Integer,ArrayList<SimpleEdge>>> dataToBeShipped(List<Change> changes, HashMap<Integer, ArrayList<T>> neighbourhoodsByFragmentID)
+    {
+        if(plannedChanges!=changes)
+            plan(changes, neighbourhoodsByFragmentID);
+        return plannedEdges;
+    }
+
+    /**
+     * Gets the changes of a snapshot to be sent to each fragment, with the IDs of the neighbourhoods they touch
+     */
+    public HashMap<Integer,List<Change>> changesToBeSent(List<Change> changes, HashMap<Integer, ArrayList<T>> neighbourhoodsByFragmentID)
+    {
+        if(plannedChanges!=changes)
+            plan(changes, neighbourhoodsByFragmentID);
+        return plannedChangesByFragmentID;
+    }
+
+    /** Gets the index of the vertices to the neighbourhoods that hold them, after the changes planned so far. */
+    public JobletIndex getJobletIndex()
+    {
+        return index;
+    }
+
+    /**
+     * Records that a fragment holds the edges of a neighbourhood, e.g., a job stolen by its worker with the neighbourhood.
+     * The neighbourhood is planned on the fragment it is assigned to in the next snapshots.
+     */
+    public void addNeighbourhood(int fragmentID, T neighbourhood)
+    {
+        for (RelationshipEdge edge:neighbourhood.getEdges())
+        {
+            if(sender(fragments, edge, fragmentID)!=-1)
+                addShippedEdge(fragmentID, new SimpleEdge(edge));
+        }
+    }
+
+    public Set<SimpleEdge> getShippedEdges(int fragmentID)
+    {
+        return Collections.unmodifiableSet(shippedEdges.get(fragmentID));
+    }
+
+    private void plan(List<Change> changes, HashMap<Integer, ArrayList<T>> neighbourhoodsByFragmentID)
+    {
+        HashMap<Integer, T> neighbourhoodsByID=new HashMap<>();
+        HashMap<Integer, Integer> fragmentByID=new HashMap<>();
+        for (int fragmentID:neighbourhoodsByFragmentID.keySet())
+        {
+            for (T neighbourhood:neighbourhoodsByFragmentID.get(fragmentID))
+            {
+                neighbourhoodsByID.put(neighbourhood.getId(), neighbourhood);
+                fragmentByID.put(neighbourhood.getId(), fragmentID);
+            }
+        }
+
+        // The changes are applied to the graph. Each change is sent to the owners of its vertices, and to the holders of
+        // the data it deletes. The neighbourhoods it touches before the change are kept for the routing.
+        IdentityHashMap<Change, TreeSet<Integer>> routes=new IdentityHashMap<>();
+        IdentityHashMap<Change, int[]> touchedBefore=new IdentityHashMap<>();
+        TreeSet<Integer> touched=new TreeSet<>();
+        List<String> deletedVertices=new ArrayList<>();
+        for (Change change:changes)
+        {
+            TreeSet<Integer> route=new TreeSet<>();
+            routes.put(change, route);
+            if(change instanceof EdgeChange)
+            {
+                EdgeChange edgeChange=(EdgeChange) change;
+                DataVertex src=(DataVertex) graph.getNode(edgeChange.getSrc());
+                DataVertex dst=(DataVertex) graph.getNode(edgeChange.getDst());
+                if(src==null || dst==null)
+                    continue;
+                addOwner(route, src);
+                addOwner(route, dst);
+                int[] before=JobletIndex.union(index.get(src.getVertexURI()), index.get(dst.getVertexURI()));
+                touchedBefore.put(change, before);
+                for (int id:before)
+                    touched.add(id);
+                if(edgeChange.getTypeOfChange()==ChangeType.insertEdge)
+                    graph.addEdge(src, dst, new RelationshipEdge(edgeChange.getLabel()));
+                else if(edgeChange.getTypeOfChange()==ChangeType.deleteEdge)
+                {
+                    graph.removeEdge(src, dst, new RelationshipEdge(edgeChange.getLabel()));
+                    SimpleEdge edge=new SimpleEdge(src.getVertexURI(), dst.getVertexURI(), edgeChange.getLabel().toLowerCase());
+                    for (int fragmentID:fragmentIDs)
+                    {
+                        if(shippedEdges.get(fragmentID).remove(edge))
+                            route.add(fragmentID);
+                    }
+                }
+            }
+            else if(change instanceof VertexChange)
+            {
+                DataVertex vertex=((VertexChange) change).getVertex();
+                if(change.getTypeOfChange()==ChangeType.insertVertex && graph.getNode(vertex.getVertexURI())==null)
+                {
+                    graph.addVertex(vertex);
+                    fragments.put(vertex, fragmentIDs.get(Math.floorMod(vertex.getVertexURI().hashCode(), fragmentIDs.size())));
+                    addOwner(route, vertex);
+                }
+                else if(change.getTypeOfChange()==ChangeType.deleteVertex && graph.getNode(vertex.getVertexURI())!=null)
+                {
+                    vertex=(DataVertex) graph.getNode(vertex.getVertexURI());
+                    addOwner(route, vertex);
+                    int[] before=index.get(vertex.getVertexURI());
+                    touchedBefore.put(change, before);
+                    for (int id:before)
+                        touched.add(id);
+                    HashSet<Integer> holders=copiedVertices.remove(vertex.getVertexURI());
+                    if(holders!=null)
+                    {
+                        String uri=vertex.getVertexURI();
+                        route.addAll(holders);
+                        for (int fragmentID:holders)
+                            shippedEdges.get(fragmentID).removeIf(edge -> edge.getSrc().equals(uri) || edge.getDst().equals(uri));
+                    }
+                    graph.removeVertex(vertex);
+                    deletedVertices.add(vertex.getVertexURI());
+                }
+            }
+            else if(change instanceof AttributeChange)
+            {
+                DataVertex vertex=(DataVertex) graph.getNode(((AttributeChange) change).getUri());
+                if(vertex!=null)
+                    addOwner(route, vertex);
+            }
+        }
+
+        // The neighbourhoods touched by the changes are extracted again, and the fragments get the edges they do not hold
+        plannedEdges=emptyPlan(fragmentIDs);
+        for (int id:touched)
+        {
+            T neighbourhood=neighbourhoodsByID.get(id);
+            if(neighbourhood==null)
+                continue;
+            int fragmentID=fragmentByID.get(id);
+            updateNeighbourhood(neighbourhood);
+            for (RelationshipEdge edge:neighbourhood.getEdges())
+            {
+                int sender=sender(fragments, edge, fragmentID);
+                SimpleEdge simpleEdge=new SimpleEdge(edge);
+                if(sender!=-1 && !shippedEdges.get(fragmentID).contains(simpleEdge))
+                {
+                    addShippedEdge(fragmentID, simpleEdge);
+                    plannedEdges.get(sender).get(fragmentID).add(simpleEdge);
+                }
+            }
+        }
+
+        // A deleted center stays in its empty neighbourhood, but not in the index
+        for (String uri:deletedVertices)
+            index.put(uri, new int[0]);
+
+        // Each change is also sent to the neighbourhoods it touches after the changes, and to the copies of its vertices
+        plannedChangesByFragmentID=new HashMap<>();
+        for (int fragmentID:fragmentIDs)
+            plannedChangesByFragmentID.put(fragmentID, new ArrayList<>());
+        for (Change change:changes)
+        {
+            int[] ids=touchedBefore.getOrDefault(change, new int[0]);
+            TreeSet<Integer> route=routes.get(change);
+            List<DataVertex> vertices=new ArrayList<>();
+            if(change instanceof EdgeChange)
+            {
+                vertices.add((DataVertex) graph.getNode(((EdgeChange) change).getSrc()));
+                vertices.add((DataVertex) graph.getNode(((EdgeChange) change).getDst()));
+            }
+            else if(change instanceof AttributeChange)
+                vertices.add((DataVertex) graph.getNode(((AttributeChange) change).getUri()));
+            else if(change instanceof VertexChange && change.getTypeOfChange()==ChangeType.insertVertex)
+                vertices.add((DataVertex) graph.getNode(((VertexChange) change).getVertex().getVertexURI()));
+            for (DataVertex vertex:vertices)
+            {
+                if(vertex==null)
+                    continue;
+                ids=JobletIndex.union(ids, index.get(vertex.getVertexURI()));
+                if(change instanceof AttributeChange && copiedVertices.containsKey(vertex.getVertexURI()))
+                    route.addAll(copiedVertices.get(vertex.getVertexURI()));
+            }
+            for (int id:ids)
+            {
+                if(fragmentByID.containsKey(id))
+                    route.add(fragmentByID.get(id));
+            }
+            change.addJobletID(ids);
+            for (int fragmentID:route)
+                plannedChangesByFragmentID.get(fragmentID).add(change);
+        }
+        plannedChanges=changes;
+    }
+
+    // Extracts the edges within the diameter again, and updates the index
+    private void updateNeighbourhood(T neighbourhood)
+    {
+        DataVertex center=neighbourhood.getCenterNode();
+        ArrayList<RelationshipEdge> oldEdges=neighbourhood.getEdges();
+        neighbourhood.setEdges(graph.getNode(center.getVertexURI())==center
+                ? graph.getEdgesWithinDiameter(center, neighbourhood.getDiameter())
+                : new ArrayList<>());
+        index.update(neighbourhood, oldEdges);
+    }
+
+    private void addOwner(TreeSet<Integer> route, DataVertex vertex)
+    {
+        if(fragments.containsKey(vertex))
+            route.add(fragments.get(vertex));
+    }
+
+    private void addShippedEdge(int fragmentID, SimpleEdge edge)
+    {
+        shippedEdges.get(fragmentID).add(edge);
+        copiedVertices.computeIfAbsent(edge.getSrc(), uri -> new HashSet<>()).add(fragmentID);
+        copiedVertices.computeIfAbsent(edge.getDst(), uri -> new HashSet<>()).add(fragmentID);
+    }
+
+    // The fragment that ships an edge to the given fragment: the fragment of the source, which stores the edge, unless the
+    // source is local. Then the fragment of the target. -1 if both vertices are local.
+    private static int sender(HashMap<DataVertex,Integer> fragments, RelationshipEdge edge, int fragmentID)
+    {
+        Integer src=fragments.get((DataVertex) edge.getSource());
+        Integer dst=fragments.get((DataVertex) edge.getTarget());
+        if(src!=null && src!=fragmentID)
+            return src;
+        else if(dst!=null && dst!=fragmentID)
+            return dst;
+        return -1;
+    }
+
+    private static HashMap<Integer,HashMap<Integer,ArrayList<SimpleEdge>>> emptyPlan(Collection<Integer> fragmentIDs)
+    {
+        HashMap<Integer,HashMap<Integer,ArrayList<SimpleEdge>>> plan=new HashMap<>();
+        for(int i:fragmentIDs)
+        {
+            plan.put(i,new HashMap<>());
+            for(int j:fragmentIDs)
+                plan.get(i).put(j,new ArrayList<>());
+        }
+        return plan;
+    }
+
+}
@@ -1,10 +1,7 @@
 package Partitioner;
 
 import AmazonStorage.S3Storage;
-import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
-import com.amazonaws.services.s3.model.GetObjectRequest;
-import com.amazonaws.services.s3.model.S3Object;
+import Storage.ObjectStores;
 import Infra.*;
 import org.jgrapht.Graph;
 import org.jgrapht.graph.DefaultDirectedGraph;
@@ -50,22 +47,16 @@ public class Util {
     public static HashMap<String,Integer> loadPartitionMapping(String path)
     {
         HashMap<String,Integer> mapping=new HashMap<>();
-        S3Object fullObject = null;
         BufferedReader br;
         try
         {
             if(Config.Amazon)
             {
-                AmazonS3 s3Client = AmazonS3ClientBuilder.standard()
-                        .withRegion(Config.region)
-                        .build();
                 //TODO: Need to check if the path is correct (should be in the form of bucketName/Key )
                 String bucketName=path.substring(0,path.lastIndexOf("/"));
                 String key=path.substring(path.lastIndexOf("/")+1);
                 System.out.println("Downloading the object from Amazon S3 - Bucket name: " + bucketName +" - Key: " + key);
-                fullObject = s3Client.getObject(new GetObjectRequest(bucketName, key));
-
-                br = new BufferedReader(new InputStreamReader(fullObject.getObjectContent()));
+                br = new BufferedReader(new InputStreamReader(ObjectStores.getDefault().open(bucketName, key)));
             }
             else
             {
@@ -80,8 +71,6 @@ public class Util {
                 line=br.readLine();
             }
 
-            if(fullObject!=null)
-                fullObject.close();
             br.close();
         }
         catch (Exception e)
@@ -128,21 +117,22 @@ public class Util {
                     } else {
                         currentVertex.deleteAllAttributes();
                         currentVertex.setAllAttributes(v.getAllAttributesList());
-                        v.getTypes().forEach(currentVertex::addType);
+                        v.getTypes().forEach(type -> base.addType(currentVertex, type));
                     }
                 });
         inputGraph.getGraph()
                 .edgeSet()
                 .forEach(e -> {
-                    DataVertex src = (DataVertex) e.getSource();
-                    DataVertex dst = (DataVertex) e.getTarget();
+                    // The vertices of the edge may be the ones that were already in the base graph
+                    DataVertex src = (DataVertex) base.getNode(((DataVertex) e.getSource()).getVertexURI());
+                    DataVertex dst = (DataVertex) base.getNode(((DataVertex) e.getTarget()).getVertexURI());
                     boolean exist = base.getGraph()
-                        .outgoingEdgesOf(e.getSource())
+                        .outgoingEdgesOf(src)
                         .stream()
                         .anyMatch(edge -> edge.getLabel().equals(e.getLabel()) &&
                             ((DataVertex) edge.getTarget()).getVertexURI().equals(dst.getVertexURI()));
                 if (!exist)
-                    base.addEdge(src, dst, e);
+                    base.addEdge(src, dst, new RelationshipEdge(e.getLabel()));
                 });
     }
 
@@ -158,20 +148,21 @@ public class Util {
                     } else {
                         currentVertex.deleteAllAttributes();
                         currentVertex.setAllAttributes(v.getAllAttributesList());
-                        v.getTypes().forEach(currentVertex::addType);
+                        v.getTypes().forEach(type -> base.addType(currentVertex, type));
                     }
                 });
         inputGraph.edgeSet()
                 .forEach(e -> {
-                    DataVertex src = (DataVertex) e.getSource();
-                    DataVertex dst = (DataVertex) e.getTarget();
+                    // The vertices of the edge may be the ones that were already in the base graph
+                    DataVertex src = (DataVertex) base.getNode(((DataVertex) e.getSource()).getVertexURI());
+                    DataVertex dst = (DataVertex) base.getNode(((DataVertex) e.getTarget()).getVertexURI());
                     boolean exist = base.getGraph()
-                            .outgoingEdgesOf(e.getSource())
+                            .outgoingEdgesOf(src)
                             .stream()
                             .anyMatch(edge -> edge.getLabel().equals(e.getLabel()) &&
                                     ((DataVertex) edge.getTarget()).getVertexURI().equals(dst.getVertexURI()));
                     if (!exist)
-                        base.addEdge(src, dst, e);
+                        base.addEdge(src, dst, new RelationshipEdge(e.getLabel()));
                 });
     }
 
@@ -228,12 +219,9 @@ public class Util {
                 .forEach(types::addAll);
 
         String type = tgfd.getPattern().getCenterVertexType();
-        for (Vertex v:graph.getGraph().vertexSet()) {
-            if(v.getTypes().contains(type))
-            {
-                int graphSize=graph.getSubGraphSize((DataVertex) v,tgfd.getPattern().getDiameter());
-                cost += Math.pow(graphSize, tgfd.getPattern().getSize());
-            }
+        for (Vertex v:graph.getVerticesByType(type)) {
+            int graphSize=graph.getSubGraphSize((DataVertex) v,tgfd.getPattern().getDiameter());
+            cost += Math.pow(graphSize, tgfd.getPattern().getSize());
         }
         return cost;
     }
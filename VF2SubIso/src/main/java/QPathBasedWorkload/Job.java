@@ -8,10 +8,12 @@ import changeExploration.EdgeChange;
 import org.jgrapht.Graph;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 
-public class Job {
+public class Job implements Neighbourhood {
 
     private int jobID;
     private int diameter;
@@ -20,13 +22,25 @@ public class Job {
     private int fragmentID;
     private ArrayList<RelationshipEdge> edges;
     private VF2DataGraph subgraph;
+    private QPathExecutor executor;
     private int matchID=0;
     private int tripleIDCount=0;
 
+    private QPathJoin join;
+    private boolean mappingsFound=false;
+
     private HashMap<String, VertexMapping> latestMappingSignatures=new HashMap<>();
+    // Matches of the paths in each mapping, and the mappings of each match
+    private HashMap<String, int[]> matchIDsBySignature=new HashMap<>();
+    private HashMap<Integer, HashSet<String>> signaturesByMatch=new HashMap<>();
+    // Mappings added and removed by the last change
+    private HashMap<String, VertexMapping> newMappings=new HashMap<>();
+    private HashSet<String> removedSignatures=new HashSet<>();
     
     private HashMap<Integer,HashMap<Integer,QPathMatch>> localMatches;
     private HashMap<Integer,QPathMatch> localQueryPathMatches;
+    // Matches of each edge, by the URIs of its vertices and its label
+    private HashMap<String,HashSet<Integer>> matchIDsByEdge=new HashMap<>();
 
     public Job(int jobID, DataVertex centerNode, Query query, int diameter, int fragmentID)
     {
@@ -39,17 +53,14 @@ public class Job {
         this.localQueryPathMatches=new HashMap<>();
     }
 
+    @Override
     public void setEdges(ArrayList<RelationshipEdge> edges) {
         this.edges = edges;
-        edges.forEach(edge -> {
-            edge.getSource().addJobletID(jobID);
-            edge.getTarget().addJobletID(jobID);
-        });
     }
 
     public void setSubgraph(Graph<Vertex, RelationshipEdge> inducedGraph) {
         this.subgraph=new VF2DataGraph(inducedGraph);
-        this.subgraph.getGraph().vertexSet().forEach(vertex -> vertex.addJobletID(jobID));
+        this.executor=null;
     }
 
     public void runTheFirstSnapshot()
@@ -61,103 +72,131 @@ public class Job {
 
     private void findMatchForAQPath(int qPathID)
     {
-        HashMap<Integer, HashSet<Triple>> matchedTriples=new HashMap<>();
         QueryPath path=query.getQueryPaths().get(qPathID);
-        for (int j=0;j<path.getTriples().size();j++) {
-            matchedTriples.put(j, new HashSet<>());
-            Triple patternTriple = path.getTriples().get(j);
-            if (j == 0) {
-                for (Vertex v : subgraph.getGraph().vertexSet()) {
-                    if (v.getTypes().containsAll(patternTriple.getSrc().getTypes())) {
-                        for (RelationshipEdge edge : subgraph.getGraph().outgoingEdgesOf(v)) {
-                            if (edge.getLabel().equals(patternTriple.getEdge()) && edge.getTarget().getTypes().containsAll(patternTriple.getDst().getTypes())) {
-                                Triple newMatchedTriple = new Triple(edge.getSource(), edge.getTarget(), edge.getLabel()
-                                        , -1, tripleIDCount++);
-                                newMatchedTriple.getUnSatSRC(edge.getSource());
-                                newMatchedTriple.getUnSatDST(edge.getTarget());
-                                matchedTriples.get(j).add(newMatchedTriple);
-                            }
-                        }
-                    }
-                }
-            }
-            else
+        // The previous matches of the path are replaced
+        if(localMatches.containsKey(qPathID))
+            new ArrayList<>(localMatches.get(qPathID).keySet()).forEach(this::removeMatch);
+        localMatches.put(qPathID,new HashMap<>());
+        for (ArrayList<Triple> triples:getExecutor().findMatches(path, () -> tripleIDCount++))
+            addMatch(qPathID, triples);
+    }
+
+    // Adds the matches of the relevant paths that use the inserted edge, then the mappings that use them
+    private void insertMatchesByInsertingAnEdge(DataVertex v1, DataVertex v2, String edgeLabel)
+    {
+        HashMap<Integer, List<QPathMatch>> insertedMatches=new HashMap<>();
+        for (int qPathID:findRelevantQPath(v1,v2,edgeLabel))
+        {
+            if(!localMatches.containsKey(qPathID))
             {
-                for (Triple dataTriple : matchedTriples.get(j - 1)) {
-                    if (dataTriple.getDst().getTypes().containsAll(patternTriple.getSrc().getTypes())) {
-                        for (RelationshipEdge edge : subgraph.getGraph().outgoingEdgesOf(dataTriple.getDst())) {
-                            if (edge.getLabel().equals(patternTriple.getEdge()) && edge.getTarget().getTypes().containsAll(patternTriple.getDst().getTypes())) {
-                                Triple newMatchedTriple = new Triple(edge.getSource(), edge.getTarget(), edge.getLabel()
-                                        , dataTriple.getTripleID(), tripleIDCount++);
-                                newMatchedTriple.getUnSatSRC(edge.getSource());
-                                newMatchedTriple.getUnSatDST(edge.getTarget());
-                                matchedTriples.get(j).add(newMatchedTriple);
-                            }
-                        }
-                    }
-                }
+                findMatchForAQPath(qPathID);
+                continue;
             }
+            List<QPathMatch> inserted=new ArrayList<>();
+            for (ArrayList<Triple> triples:getExecutor().findMatchesWithEdge(query.getQueryPaths().get(qPathID), v1, v2, edgeLabel, () -> tripleIDCount++))
+                inserted.add(addMatch(qPathID, triples));
+            if(!inserted.isEmpty())
+                insertedMatches.put(qPathID, inserted);
         }
-
-        HashMap<Integer, ArrayList<ArrayList<Triple>>> tempIndexedTriples;
-        tempIndexedTriples=new HashMap<>();
-        localMatches.put(qPathID,new HashMap<>());
-        for (Triple firstTriple: matchedTriples.get(0)) {
-            ArrayList<Triple> tempArr=new ArrayList<>();
-            tempArr.add(firstTriple);
-            tempIndexedTriples.put(firstTriple.getTripleID(),new ArrayList<>());
-            tempIndexedTriples.get(firstTriple.getTripleID()).add(tempArr);
-        }
-        for (int j=1;j<path.getTriples().size();j++)
+        if(!mappingsFound)
+            return;
+        // A new mapping uses at least one new match, so the new matches of each path are joined with the matches of the other paths
+        for (int qPathID:insertedMatches.keySet())
         {
-            for (Triple nextTriple: matchedTriples.get(j)) {
-                if(tempIndexedTriples.containsKey(nextTriple.getPrecTripleID()))
+            List<Collection<QPathMatch>> matchesByPath=new ArrayList<>();
+            for (int i=0;i<query.getQueryPaths().size();i++)
+                matchesByPath.add(i==qPathID ? insertedMatches.get(i) : localMatches.get(i).values());
+            getJoin().findMappings(matchesByPath, (mapping, matchIDs) -> {
+                String signature=Match.signatureFromPattern(getQuery().getTGFD().getPattern(),mapping);
+                if(!latestMappingSignatures.containsKey(signature))
                 {
-                    tempIndexedTriples.put(nextTriple.getTripleID(),new ArrayList<>());
-                    for (ArrayList<Triple> prevArrayList:tempIndexedTriples.get(nextTriple.getPrecTripleID())) {
-                        ArrayList<Triple> tempArr=new ArrayList<>();
-                        for (int count=0;count<j;count++)
-                        {
-                            tempArr.add(prevArrayList.get(count));
-                        }
-                        tempIndexedTriples.get(nextTriple.getTripleID()).add(tempArr);
-                    }
+                    addMapping(signature, mapping, matchIDs);
+                    newMappings.put(signature, mapping);
                 }
-            }
-        }
-        for (Triple lastTriple: matchedTriples.get(path.getTriples().size()-1)) {
-            if (tempIndexedTriples.containsKey(lastTriple.getTripleID())) {
-                for (ArrayList<Triple> arr : tempIndexedTriples.get(lastTriple.getTripleID())) {
-                    QPathMatch match = new QPathMatch(++matchID, arr,qPathID);
-                    localMatches.get(qPathID).put(matchID, match);
-                    localQueryPathMatches.put(matchID,match);
-                }
-            }
+            });
         }
     }
 
-    private void deleteMatchesForAQPathByDeletingAnEdge(int qPathID, DataVertex v1, DataVertex v2, String edgeLabel)
+    // Removes the matches that use the deleted edge, and the mappings that use them
+    private void deleteMatchesByDeletingAnEdge(DataVertex v1, DataVertex v2, String edgeLabel)
     {
-        HashSet<Integer> toBeDeleted=new HashSet<>();
-        for (QPathMatch qPathMatch:localMatches.get(qPathID).values()) {
-            for (Triple triple:qPathMatch.getMatchesInTriple()) {
-                if(
-                        ((DataVertex)triple.getSrc()).getVertexURI().equals(v1.getVertexURI())
-                        && ((DataVertex)triple.getDst()).getVertexURI().equals(v2.getVertexURI())
-                        && triple.getEdge().equals(edgeLabel)
-                )
-                {
-                    toBeDeleted.add(qPathMatch.getMatchID());
-                    break;
-                }
-            }
+        HashSet<Integer> toBeDeleted=matchIDsByEdge.remove(edgeKey(v1, v2, edgeLabel));
+        if(toBeDeleted==null)
+            return;
+        for (int qPathMatchID:toBeDeleted)
+            removeMatch(qPathMatchID);
+    }
+
+    private QPathMatch addMatch(int qPathID, ArrayList<Triple> triples)
+    {
+        QPathMatch match = new QPathMatch(++matchID, triples,qPathID);
+        localMatches.get(qPathID).put(matchID, match);
+        localQueryPathMatches.put(matchID,match);
+        for (Triple triple:triples)
+            matchIDsByEdge.computeIfAbsent(edgeKey(triple.getSrc(), triple.getDst(), triple.getEdge()), key -> new HashSet<>()).add(matchID);
+        return match;
+    }
+
+    private void removeMatch(int qPathMatchID)
+    {
+        QPathMatch match=localQueryPathMatches.remove(qPathMatchID);
+        if(match==null)
+            return;
+        localMatches.get(match.getqPathID()).remove(qPathMatchID);
+        for (Triple triple:match.getMatchesInTriple())
+        {
+            HashSet<Integer> matchIDs=matchIDsByEdge.get(edgeKey(triple.getSrc(), triple.getDst(), triple.getEdge()));
+            if(matchIDs!=null)
+                matchIDs.remove(qPathMatchID);
         }
-        for (int qPathMatchID: toBeDeleted) {
-            localMatches.get(qPathID).remove(qPathMatchID);
-            localQueryPathMatches.remove(qPathMatchID);
+        HashSet<String> signatures=signaturesByMatch.remove(qPathMatchID);
+        if(signatures!=null)
+        {
+            for (String signature:signatures)
+                removeMapping(signature);
         }
     }
 
+    private void addMapping(String signature, VertexMapping mapping, int[] matchIDs)
+    {
+        latestMappingSignatures.put(signature, mapping);
+        matchIDsBySignature.put(signature, matchIDs);
+        for (int id:matchIDs)
+            signaturesByMatch.computeIfAbsent(id, key -> new HashSet<>()).add(signature);
+    }
+
+    private void removeMapping(String signature)
+    {
+        if(latestMappingSignatures.remove(signature)==null)
+            return;
+        removedSignatures.add(signature);
+        for (int id:matchIDsBySignature.remove(signature))
+        {
+            HashSet<String> signatures=signaturesByMatch.get(id);
+            if(signatures!=null)
+                signatures.remove(signature);
+        }
+    }
+
+    private QPathExecutor getExecutor()
+    {
+        if(executor==null)
+            executor=new QPathExecutor(subgraph);
+        return executor;
+    }
+
+    private QPathJoin getJoin()
+    {
+        if(join==null)
+            join=new QPathJoin(query.getQueryPaths());
+        return join;
+    }
+
+    private static String edgeKey(Vertex src, Vertex dst, String label)
+    {
+        return ((DataVertex)src).getVertexURI() + '\t' + ((DataVertex)dst).getVertexURI() + '\t' + label;
+    }
+
     private void updateOrDeleteAttributeForAQPath(int qPathID,DataVertex v1)
     {
         for (QPathMatch qPathMatch:localMatches.get(qPathID).values()) {
@@ -172,6 +211,8 @@ public class Job {
 
     public void applyChangeForTheNextSnapshot(Change change)
     {
+        newMappings.clear();
+        removedSignatures.clear();
         if(change instanceof EdgeChange)
         {
             EdgeChange edgeChange=(EdgeChange) change;
@@ -184,10 +225,13 @@ public class Job {
             {
                 if(!subgraph.getGraph().containsVertex(v2))
                     subgraph.getGraph().addVertex(v2);
-                subgraph.getGraph().addEdge(v1,v2,new RelationshipEdge(edgeChange.getLabel()));
-                ArrayList<Integer> qPathIDs=findRelevantQPath(v1,v2,edgeChange.getLabel());
-                for (int qPathID:qPathIDs)
-                    findMatchForAQPath(qPathID);
+                // Only the matches that use the new edge are added
+                if(subgraph.getGraph().addEdge(v1,v2,new RelationshipEdge(edgeChange.getLabel())))
+                {
+                    if(executor!=null)
+                        executor.addEdge(v1,v2,edgeChange.getLabel());
+                    insertMatchesByInsertingAnEdge(v1,v2,edgeChange.getLabel());
+                }
             }
             else if(edgeChange.getTypeOfChange()== ChangeType.deleteEdge)
             {
@@ -197,12 +241,12 @@ public class Job {
                     if(target.getVertexURI().equals(v2.getVertexURI()) && edgeChange.getLabel().equals(e.getLabel()))
                     {
                         subgraph.getGraph().removeEdge(e);
+                        if(executor!=null)
+                            executor.removeEdge(v1,v2,e.getLabel());
                         break;
                     }
                 }
-                ArrayList<Integer> qPathIDs=findRelevantQPath(v1,v2,edgeChange.getLabel());
-                for (int qPathID:qPathIDs)
-                    deleteMatchesForAQPathByDeletingAnEdge(qPathID,v1,v2,edgeChange.getLabel());
+                deleteMatchesByDeletingAnEdge(v1,v2,edgeChange.getLabel());
             }
             else
                 throw new IllegalArgumentException("The change is instance of EdgeChange, but type of change is: " + edgeChange.getTypeOfChange());
@@ -234,43 +278,19 @@ public class Job {
 
     public HashSet<VertexMapping> findMatchMapping()
     {
+        // The matches of the paths are joined on the pattern vertices they share, instead of combining all of them
+        List<Collection<QPathMatch>> matchesByPath=new ArrayList<>();
+        for (int qPathID=0;qPathID<query.getQueryPaths().size();qPathID++)
+            matchesByPath.add(localMatches.get(qPathID).values());
         HashSet<VertexMapping> mappings=new HashSet<>();
-        HashMap<Integer,HashSet<ArrayList<Integer>>> mappingIndices=new HashMap<>();
-        mappingIndices.put(0,new HashSet<>());
-        for (QPathMatch match:localMatches.get(0).values()) {
-            ArrayList<Integer> temp=new ArrayList<>();
-            temp.add(match.getMatchID());
-            mappingIndices.get(0).add(temp);
-        }
-        for (int qPathID=1;qPathID<query.getQueryPaths().size();qPathID++) {
-            mappingIndices.put(qPathID,new HashSet<>());
-            for (ArrayList<Integer> prevMatches:mappingIndices.get(qPathID-1)) {
-                for (QPathMatch match:localMatches.get(qPathID).values()) {
-                    ArrayList<Integer> temp = new ArrayList<>(prevMatches);
-                    temp.add(match.getMatchID());
-                    mappingIndices.get(qPathID).add(temp);
-                }
-            }
-        }
-
-        for (ArrayList<Integer> matches:mappingIndices.get(query.getQueryPaths().size()-1))
-        {
-            VertexMapping mapping = new VertexMapping();
-            for (int qPathMatchID:matches) {
-                QPathMatch qPathMatch=localQueryPathMatches.get(qPathMatchID);
-                for (int i=0;i<qPathMatch.getMatchesInTriple().size();i++)
-                {
-                    Triple dataTriple=qPathMatch.getMatchesInTriple().get(i);
-                    PatternVertex correspondingPatternVertex =(PatternVertex) query.getQueryPaths().get(qPathMatch.getqPathID()).getTriples().get(i).getSrc();
-                    mapping.addMapping(dataTriple.getSrc(),correspondingPatternVertex);
-                }
-            }
-            mappings.add(mapping);
-        }
         latestMappingSignatures.clear();
-        for (VertexMapping vertexMapping:mappings) {
-            latestMappingSignatures.put(Match.signatureFromPattern(getQuery().getTGFD().getPattern(),vertexMapping),vertexMapping);
-        }
+        matchIDsBySignature.clear();
+        signaturesByMatch.clear();
+        getJoin().findMappings(matchesByPath, (mapping, matchIDs) -> {
+            mappings.add(mapping);
+            addMapping(Match.signatureFromPattern(getQuery().getTGFD().getPattern(),mapping), mapping, matchIDs);
+        });
+        mappingsFound=true;
         return mappings;
     }
 
@@ -278,14 +298,17 @@ public class Job {
         return subgraph;
     }
 
+    @Override
     public ArrayList<RelationshipEdge> getEdges() {
         return edges;
     }
 
+    @Override
     public int getDiameter() {
         return diameter;
     }
 
+    @Override
     public DataVertex getCenterNode() {
         return centerNode;
     }
@@ -298,6 +321,11 @@ public class Job {
         return jobID;
     }
 
+    @Override
+    public int getId() {
+        return jobID;
+    }
+
     public int getFragmentID() {
         return fragmentID;
     }
@@ -306,6 +334,8 @@ public class Job {
     {
         if(edges!=null)
             return Math.pow(edges.size(),query.getTGFD().getPattern().getSize());
+        else if(subgraph!=null) // On the workers, only the subgraph is known
+            return Math.pow(subgraph.getGraph().edgeSet().size(),query.getTGFD().getPattern().getSize());
         else
             return 0;
     }
@@ -314,6 +344,16 @@ public class Job {
         return latestMappingSignatures;
     }
 
+    /** Mappings added by the last change, by signature. */
+    public HashMap<String, VertexMapping> getNewMappings() {
+        return newMappings;
+    }
+
+    /** Signatures of the mappings removed by the last change. */
+    public HashSet<String> getRemovedSignatures() {
+        return removedSignatures;
+    }
+
     private ArrayList<Integer> findRelevantQPath(DataVertex v1, DataVertex v2, String edgeLabel)
     {
         ArrayList<Integer> qPathIndices=new ArrayList<>();
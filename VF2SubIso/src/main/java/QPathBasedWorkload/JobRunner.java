@@ -7,16 +7,16 @@ import Loader.IMDBLoader;
 import Loader.SyntheticLoader;
 import Loader.TGFDGenerator;
 import Util.Config;
-import VF2Runner.VF2SubgraphIsomorphism;
+import Util.Metrics;
+import Util.WorkStealingPool;
+import changeExploration.AttributeChange;
 import changeExploration.Change;
 import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultDirectedGraph;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.*;
+import java.util.function.BooleanSupplier;
 
 public class JobRunner {
 
@@ -24,9 +24,10 @@ public class JobRunner {
     private List<TGFD> tgfds;
     //private HashMap<String, TGFD> tgfdByName=new HashMap<>();
     private HashMap<String, Query> queriesByName=new HashMap<>();
-    private long wallClockTime=0;
     private HashMap<Integer, Job> assignedJobs;
     private String jobsInRawString;
+    // Jobs of the first snapshot that are not started yet, from the largest to the smallest
+    private final LinkedList<Job> pendingJobs=new LinkedList<>();
 
     private HashMap <String, MatchCollection> matchCollectionHashMap;
 
@@ -38,7 +39,7 @@ public class JobRunner {
 
     public void load()
     {
-        long startTime=System.currentTimeMillis();
+        long startTime=Metrics.startTimer();
 
         TGFDGenerator generator = new TGFDGenerator(Config.patternPath);
         tgfds=generator.getTGFDs();
@@ -54,8 +55,8 @@ public class JobRunner {
         else // default is imdb
             loader = new IMDBLoader(tgfds, Config.getFirstDataFilePath());
 
-        printWithTime("Load graph 1 (" + Config.getTimestamps().get(1) + ")", System.currentTimeMillis()-startTime);
-        wallClockTime+=System.currentTimeMillis()-startTime;
+        Metrics.stopTimer(Metrics.LOAD_GRAPH, startTime);
+        Metrics.add(Metrics.GRAPH_SIZE, loader.getGraphSize());
     }
 
     public void setJobsInRawString(String jobsInRawString) {
@@ -80,15 +81,24 @@ public class JobRunner {
     }
 
     public void runTheFirstSnapshot()
+    {
+        runTheFirstSnapshot(() -> false);
+    }
+
+    /**
+     * Finds the matches of the jobs in the first snapshot.
+     * @param stealJobs Called once the jobs are done, it adds the jobs stolen from other workers with addStolenJobs,
+     *                  and returns false when there is no job left to steal
+     */
+    public void runTheFirstSnapshot(BooleanSupplier stealJobs)
     {
         if(loader==null)
         {
             System.out.println("Graph is not loaded yet");
             return;
         }
-        StringBuilder msg=new StringBuilder();
 
-        long startTime, functionWallClockTime=System.currentTimeMillis();
+        long startTime;
         LocalDate currentSnapshotDate= Config.getTimestamps().get(1);
 
         //Create the match collection for all the TGFDs in the list
@@ -99,17 +109,107 @@ public class JobRunner {
 
         // Now, we need to find the matches for the first snapshot.
         System.out.println("Retrieving matches for all the joblets.");
-        VF2SubgraphIsomorphism VF2 = new VF2SubgraphIsomorphism();
-
-        startTime=System.currentTimeMillis();
-        for (Job job:assignedJobs.values()) {
-            Graph<Vertex, RelationshipEdge> subgraph = loader.getGraph().getSubGraphWithinDiameter(job.getCenterNode(), job.getDiameter(),job.getQuery().getTGFD());
-            job.setSubgraph(subgraph);
-            job.runTheFirstSnapshot();
-            var results= job.findMatchMapping();
-            matchCollectionHashMap.get(job.getQuery().getTGFD().getName()).addMatches(currentSnapshotDate,results);
+
+        startTime=Metrics.startTimer();
+        // The subgraphs are extracted first, so the size of the jobs is known and the largest ones start first
+        extractSubgraphs(assignedJobs.values());
+        do {
+            WorkStealingPool.drain(this::nextPendingJob, job -> {
+                job.runTheFirstSnapshot();
+                var results= job.findMatchMapping();
+                matchCollectionHashMap.get(job.getQuery().getTGFD().getName()).addMatches(currentSnapshotDate,results);
+            });
+        } while (stealJobs.getAsBoolean());
+        Metrics.stopTimer(Metrics.FIRST_SNAPSHOT_MATCHING, startTime);
+        Metrics.save();
+    }
+
+    /**
+     * Gives up the jobs that are not started yet, from the smallest one, up to half of the load that is not started.
+     * @return The released jobs, they are no longer assigned to this worker
+     */
+    public List<Job> releaseJobs()
+    {
+        List<Job> released=new ArrayList<>();
+        synchronized (pendingJobs)
+        {
+            double pendingSize=getPendingJobsSize();
+            double releasedSize=0;
+            while (!pendingJobs.isEmpty() && releasedSize<pendingSize/2)
+            {
+                Job job=pendingJobs.removeLast();
+                releasedSize+=job.getSize();
+                released.add(job);
+                assignedJobs.remove(job.getJobID());
+            }
+        }
+        return released;
+    }
+
+    /** Gets the size of the jobs that are not started yet. */
+    public double getPendingJobsSize()
+    {
+        synchronized (pendingJobs)
+        {
+            return pendingJobs.stream().mapToDouble(Job::getSize).sum();
+        }
+    }
+
+    /** Gets the neighbourhood the jobs need, i.e., the union of their subgraphs. */
+    public Graph<Vertex, RelationshipEdge> getNeighbourhood(List<Job> jobs)
+    {
+        Graph<Vertex, RelationshipEdge> neighbourhood = new DefaultDirectedGraph<>(RelationshipEdge.class);
+        for (Job job:jobs) {
+            Graph<Vertex, RelationshipEdge> subgraph=job.getSubgraph().getGraph();
+            subgraph.vertexSet().forEach(neighbourhood::addVertex);
+            subgraph.edgeSet().forEach(edge -> neighbourhood.addEdge(edge.getSource(), edge.getTarget(), edge));
+        }
+        return neighbourhood;
+    }
+
+    /**
+     * Adds the jobs stolen from another worker, once the jobs of this worker are done.
+     * @param jobsInRawString Jobs in the same format as the assigned jobs, one per line
+     * @param neighbourhood Neighbourhood of the stolen jobs, with the types and attributes of the vertices
+     */
+    public void addStolenJobs(List<String> jobsInRawString, Graph<Vertex, RelationshipEdge> neighbourhood)
+    {
+        Partitioner.Util.mergeGraphs(loader.getGraph(), neighbourhood);
+        List<Job> stolenJobs=new ArrayList<>();
+        for (String line:jobsInRawString) {
+            String []arr=line.split("#");
+            if(arr.length==3)
+            {
+                Job job=new Job(Integer.parseInt(arr[0]),(DataVertex) loader.getGraph().getNode(arr[1]),queriesByName.get(arr[2]),queriesByName.get(arr[2]).getTGFD().getPattern().getDiameter(),0);
+                // releaseJobs may be called at the same time by another thread
+                synchronized (pendingJobs)
+                {
+                    assignedJobs.put(job.getJobID(), job);
+                }
+                stolenJobs.add(job);
+            }
+        }
+        System.out.println("Stolen jobs: " + stolenJobs.size());
+        extractSubgraphs(stolenJobs);
+    }
+
+    private void extractSubgraphs(Collection<Job> jobs)
+    {
+        WorkStealingPool.forEachLargestFirst(jobs, job -> 0, job ->
+                job.setSubgraph(loader.getGraph().getSubGraphWithinDiameter(job.getCenterNode(), job.getDiameter(),job.getQuery().getTGFD())));
+        synchronized (pendingJobs)
+        {
+            pendingJobs.addAll(jobs);
+            pendingJobs.sort(Comparator.comparingDouble(Job::getSize).reversed());
+        }
+    }
+
+    private Job nextPendingJob()
+    {
+        synchronized (pendingJobs)
+        {
+            return pendingJobs.pollFirst();
         }
-        printWithTime("Match retrieval", System.currentTimeMillis()-startTime);
     }
 
     public void runTheNextTimestamp(List<Change> changes, int superstep)
@@ -117,9 +217,10 @@ public class JobRunner {
         //Load the change files
         System.out.println("===========Snapshot "+superstep+" (" + Config.getTimestamps().get(superstep) + ")===========");
 
-        long startTime=System.currentTimeMillis();
+        long startTime=Metrics.startTimer();
         LocalDate currentSnapshotDate= Config.getTimestamps().get(superstep);
         System.out.println("Total number of changes: " + changes.size());
+        Metrics.add(Metrics.CHANGES, changes.size());
 
         // Now, we need to find the matches for each snapshot.
         // Finding the matches...
@@ -137,38 +238,36 @@ public class JobRunner {
             tgfdsByName.put(tgfd.getName(),tgfd);
         }
 
+        // The changes of a job are applied in order, and the jobs are updated in parallel.
+        // A job with an attribute change is updated after the others, one at a time,
+        // because the attribute is changed on a vertex that is shared with the other jobs.
+        LinkedHashMap<Integer, List<Change>> changesByJob=new LinkedHashMap<>();
+        HashSet<Integer> jobsWithAttributeChanges=new HashSet<>();
         for (Change change:changes) {
             for (int jobID:change.getJobletIDs()) {
                 if(assignedJobs.containsKey(jobID))
                 {
-                    // Previous Matches
-                    HashSet<String> prevMatches = new HashSet<>(assignedJobs.get(jobID).getLatestMappingSignatures().keySet());
-
-                    // Apply the change
-                    assignedJobs.get(jobID).applyChangeForTheNextSnapshot(change);
-
-                    //Removed matches signature
-                    HashSet<String> removedMatchesSignature=new HashSet<>();
-
-                    //New matches to be stored in the match collection
-                    HashMap <String,VertexMapping> newMatches=new HashMap<>();
-
-                    for (String signature:assignedJobs.get(jobID).getLatestMappingSignatures().keySet()) {
-                        if(!prevMatches.contains(signature))
-                            newMatches.put(signature,assignedJobs.get(jobID).getLatestMappingSignatures().get(signature));
-                    }
-                    for (String key:prevMatches) {
-                        if(!assignedJobs.get(jobID).getLatestMappingSignatures().containsKey(key))
-                            removedMatchesSignature.add(key);
-                    }
-
-                    String tgfdName=assignedJobs.get(jobID).getQuery().getTGFD().getName();
-                    newMatchesSignaturesByTGFD.get(tgfdName).addAll(newMatches.keySet());
-                    removedMatchesSignaturesByTGFD.get(tgfdName).addAll(removedMatchesSignature);
-                    matchCollectionHashMap.get(tgfdName).addMatches(currentSnapshotDate,newMatches.values());
+                    changesByJob.computeIfAbsent(jobID, id -> new ArrayList<>()).add(change);
+                    if(change instanceof AttributeChange)
+                        jobsWithAttributeChanges.add(jobID);
                 }
             }
         }
+        List<Integer> independentJobs=new ArrayList<>();
+        for (int jobID:changesByJob.keySet()) {
+            if(!jobsWithAttributeChanges.contains(jobID))
+                independentJobs.add(jobID);
+        }
+        WorkStealingPool.forEachLargestFirst(independentJobs, jobID -> changesByJob.get(jobID).size(), jobID -> {
+            for (Change change:changesByJob.get(jobID))
+                applyChange(assignedJobs.get(jobID), change, currentSnapshotDate, newMatchesSignaturesByTGFD, removedMatchesSignaturesByTGFD);
+        });
+        for (Change change:changes) {
+            for (int jobID:change.getJobletIDs()) {
+                if(jobsWithAttributeChanges.contains(jobID))
+                    applyChange(assignedJobs.get(jobID), change, currentSnapshotDate, newMatchesSignaturesByTGFD, removedMatchesSignaturesByTGFD);
+            }
+        }
         for (TGFD tgfd:tgfds) {
             matchCollectionHashMap.get(tgfd.getName())
                     .addTimestamp(currentSnapshotDate, newMatchesSignaturesByTGFD.get(tgfd.getName()),removedMatchesSignaturesByTGFD.get(tgfd.getName()));
@@ -176,19 +275,33 @@ public class JobRunner {
             System.out.println("New matches ("+tgfd.getName()+"): " +
                     newMatchesSignaturesByTGFD.get(tgfd.getName()).size() + " ** " + removedMatchesSignaturesByTGFD.get(tgfd.getName()).size());
         }
-        printWithTime("Update and retrieve matches ", System.currentTimeMillis()-startTime);
+        Metrics.stopTimer(Metrics.SNAPSHOT_UPDATE, startTime);
+        Metrics.save();
     }
 
-    public GraphLoader getLoader() {
-        return loader;
-    }
+    private void applyChange(Job job, Change change, LocalDate currentSnapshotDate,
+                             HashMap<String, ArrayList <String>> newMatchesSignaturesByTGFD, HashMap<String,ArrayList<String>> removedMatchesSignaturesByTGFD)
+    {
+        // Apply the change, the job keeps track of the mappings it adds and removes
+        long changeStartTime=Metrics.startTimer();
+        job.applyChangeForTheNextSnapshot(change);
+        Metrics.stopTimer(Metrics.CHANGE_APPLICATION, changeStartTime);
 
+        //New matches to be stored in the match collection, and the removed matches signature
+        HashMap <String,VertexMapping> newMatches=job.getNewMappings();
+        HashSet<String> removedMatchesSignature=job.getRemovedSignatures();
 
-    private void printWithTime(String message, long runTimeInMS)
-    {
-        System.out.println(message + " time: " + runTimeInMS + "(ms) ** " +
-                TimeUnit.MILLISECONDS.toSeconds(runTimeInMS) + "(sec) ** " +
-                TimeUnit.MILLISECONDS.toMinutes(runTimeInMS) +  "(min)");
+        String tgfdName=job.getQuery().getTGFD().getName();
+        synchronized (newMatchesSignaturesByTGFD)
+        {
+            newMatchesSignaturesByTGFD.get(tgfdName).addAll(newMatches.keySet());
+            removedMatchesSignaturesByTGFD.get(tgfdName).addAll(removedMatchesSignature);
+        }
+        matchCollectionHashMap.get(tgfdName).addMatches(currentSnapshotDate,newMatches.values());
+    }
+
+    public GraphLoader getLoader() {
+        return loader;
     }
 
 }
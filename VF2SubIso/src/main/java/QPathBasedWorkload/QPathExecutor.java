@@ -0,0 +1,300 @@
+package QPathBasedWorkload;
+
+import Infra.RelationshipEdge;
+import Infra.VF2DataGraph;
+import Infra.Vertex;
+import org.jgrapht.Graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+/**
+ * Finds the matches of the query paths of a job in its subgraph.
+ *
+ * The edges of the subgraph are indexed by label and the types of their source and target, so the edges of a triple
+ * are looked up instead of scanning the vertices. The vertices get dense int IDs, and each triple of a path is joined
+ * to the partial paths before it on the ID of the vertex they share. The partial paths of a level are rows of
+ * vertex IDs in one flat int array, so a path is only turned into Triples once it is complete.
+ * The index is kept up to date with the edges inserted and deleted in the subgraph of the job, and the matches that
+ * use an inserted edge are found from the edge, by following the edges of the subgraph before and after it.
+ */
+public class QPathExecutor {
+
+    // Pairs of source and target IDs
+    private static class EdgeList {
+
+        private int[] pairs=new int[8];
+        private int size=0;
+
+        private void add(int src, int dst)
+        {
+            if(2*size+2>pairs.length)
+                pairs=Arrays.copyOf(pairs, 2*pairs.length);
+            pairs[2*size]=src;
+            pairs[2*size+1]=dst;
+            size++;
+        }
+
+        private void remove(int src, int dst)
+        {
+            for (int i=0;i<size;i++)
+            {
+                if(pairs[2*i]==src && pairs[2*i+1]==dst)
+                {
+                    size--;
+                    pairs[2*i]=pairs[2*size];
+                    pairs[2*i+1]=pairs[2*size+1];
+                    return;
+                }
+            }
+        }
+    }
+
+    private static final EdgeList EMPTY=new EdgeList();
+
+    private HashMap<Vertex, Integer> ids=new HashMap<>();
+    private ArrayList<Vertex> vertices=new ArrayList<>();
+    // Edges by label, and by label, type of the source and type of the target
+    private HashMap<String, EdgeList> edgesByLabel=new HashMap<>();
+    private HashMap<String, EdgeList> edgesByTypes=new HashMap<>();
+    private Graph<Vertex, RelationshipEdge> graph;
+
+    public QPathExecutor(VF2DataGraph subgraph)
+    {
+        this.graph=subgraph.getGraph();
+        for (Vertex v:subgraph.getGraph().vertexSet())
+            getId(v);
+        for (RelationshipEdge edge:subgraph.getGraph().edgeSet())
+            addEdge(edge.getSource(), edge.getTarget(), edge.getLabel());
+    }
+
+    public void addEdge(Vertex src, Vertex dst, String label)
+    {
+        int srcID=getId(src), dstID=getId(dst);
+        edgesByLabel.computeIfAbsent(label, key -> new EdgeList()).add(srcID, dstID);
+        for (String srcType:src.getTypes())
+            for (String dstType:dst.getTypes())
+                edgesByTypes.computeIfAbsent(key(label, srcType, dstType), key -> new EdgeList()).add(srcID, dstID);
+    }
+
+    public void removeEdge(Vertex src, Vertex dst, String label)
+    {
+        if(!ids.containsKey(src) || !ids.containsKey(dst))
+            return;
+        int srcID=ids.get(src), dstID=ids.get(dst);
+        edgesByLabel.getOrDefault(label, EMPTY).remove(srcID, dstID);
+        for (String srcType:src.getTypes())
+            for (String dstType:dst.getTypes())
+                edgesByTypes.getOrDefault(key(label, srcType, dstType), EMPTY).remove(srcID, dstID);
+    }
+
+    /**
+     * Finds the matches of a query path: the chains of edges whose i-th edge is mapped to the i-th triple of the path,
+     * and starts at the target of the edge before it.
+     * @param tripleIDs Gives the ID of each Triple of the matches
+     * @return The triples of each match, in the order of the path
+     */
+    public List<ArrayList<Triple>> findMatches(QueryPath path, IntSupplier tripleIDs)
+    {
+        List<Triple> patternTriples=path.getTriples();
+
+        // Rows of the vertex IDs of the partial paths, the first level is the edges of the first triple
+        int width=2;
+        EdgeList first=getEdges(patternTriples.get(0));
+        int[] rows=new int[2*first.size];
+        int count=0;
+        for (int i=0;i<first.size;i++)
+        {
+            if(isMapped(patternTriples.get(0), first.pairs[2*i], first.pairs[2*i+1]))
+            {
+                rows[2*count]=first.pairs[2*i];
+                rows[2*count+1]=first.pairs[2*i+1];
+                count++;
+            }
+        }
+
+        for (int j=1;j<patternTriples.size() && count>0;j++)
+        {
+            // The edges of the triple by source ID, then each partial path is extended with the edges from its last vertex
+            Triple patternTriple=patternTriples.get(j);
+            EdgeList edges=getEdges(patternTriple);
+            int[] offsets=new int[vertices.size()+1];
+            for (int i=0;i<edges.size;i++)
+                if(isMapped(patternTriple, edges.pairs[2*i], edges.pairs[2*i+1]))
+                    offsets[edges.pairs[2*i]+1]++;
+            for (int v=0;v<vertices.size();v++)
+                offsets[v+1]+=offsets[v];
+            int[] targets=new int[offsets[vertices.size()]];
+            int[] next=offsets.clone();
+            for (int i=0;i<edges.size;i++)
+                if(isMapped(patternTriple, edges.pairs[2*i], edges.pairs[2*i+1]))
+                    targets[next[edges.pairs[2*i]]++]=edges.pairs[2*i+1];
+
+            int newCount=0;
+            for (int r=0;r<count;r++)
+            {
+                int last=rows[r*width+width-1];
+                newCount+=offsets[last+1]-offsets[last];
+            }
+            int[] newRows=new int[newCount*(width+1)];
+            int k=0;
+            for (int r=0;r<count;r++)
+            {
+                int last=rows[r*width+width-1];
+                for (int t=offsets[last];t<offsets[last+1];t++)
+                {
+                    System.arraycopy(rows, r*width, newRows, k, width);
+                    newRows[k+width]=targets[t];
+                    k+=width+1;
+                }
+            }
+            rows=newRows;
+            count=newCount;
+            width++;
+        }
+        if(width<patternTriples.size()+1)
+            return new ArrayList<>();
+
+        return toTriples(path, rows, count, tripleIDs);
+    }
+
+    /**
+     * Finds the matches of a query path that use an edge, after it is inserted in the subgraph.
+     * A match is found once, from the first triple of the path that is mapped to the edge.
+     * @param tripleIDs Gives the ID of each Triple of the matches
+     * @return The triples of each match, in the order of the path
+     */
+    public List<ArrayList<Triple>> findMatchesWithEdge(QueryPath path, Vertex src, Vertex dst, String label, IntSupplier tripleIDs)
+    {
+        List<Triple> patternTriples=path.getTriples();
+        int width=patternTriples.size()+1;
+        int srcID=getId(src), dstID=getId(dst);
+        int[] row=new int[width];
+        List<int[]> rows=new ArrayList<>();
+        for (int j=0;j<patternTriples.size();j++)
+        {
+            if(!patternTriples.get(j).getEdge().equals(label) || !hasTypes(patternTriples.get(j), srcID, dstID))
+                continue;
+            row[j]=srcID;
+            row[j+1]=dstID;
+            extendBackward(patternTriples, j, j, srcID, dstID, label, row, rows);
+        }
+        int[] flat=new int[rows.size()*width];
+        for (int r=0;r<rows.size();r++)
+            System.arraycopy(rows.get(r), 0, flat, r*width, width);
+        return toTriples(path, flat, rows.size(), tripleIDs);
+    }
+
+    // Fills the vertices before the one at the position, without the inserted edge, then the ones after the edge
+    private void extendBackward(List<Triple> patternTriples, int position, int edgePosition, int srcID, int dstID, String label, int[] row, List<int[]> rows)
+    {
+        if(position==0)
+        {
+            extendForward(patternTriples, edgePosition+1, row, rows);
+            return;
+        }
+        Triple patternTriple=patternTriples.get(position-1);
+        for (RelationshipEdge edge:graph.incomingEdgesOf(vertices.get(row[position])))
+        {
+            if(!edge.getLabel().equals(patternTriple.getEdge()))
+                continue;
+            int source=getId(edge.getSource());
+            if((source==srcID && row[position]==dstID && edge.getLabel().equals(label)) || !hasTypes(patternTriple, source, row[position]))
+                continue;
+            row[position-1]=source;
+            extendBackward(patternTriples, position-1, edgePosition, srcID, dstID, label, row, rows);
+        }
+    }
+
+    private void extendForward(List<Triple> patternTriples, int position, int[] row, List<int[]> rows)
+    {
+        if(position==patternTriples.size())
+        {
+            rows.add(row.clone());
+            return;
+        }
+        Triple patternTriple=patternTriples.get(position);
+        for (RelationshipEdge edge:graph.outgoingEdgesOf(vertices.get(row[position])))
+        {
+            if(!edge.getLabel().equals(patternTriple.getEdge()))
+                continue;
+            int target=getId(edge.getTarget());
+            if(!hasTypes(patternTriple, row[position], target))
+                continue;
+            row[position+1]=target;
+            extendForward(patternTriples, position+1, row, rows);
+        }
+    }
+
+    private List<ArrayList<Triple>> toTriples(QueryPath path, int[] rows, int count, IntSupplier tripleIDs)
+    {
+        List<Triple> patternTriples=path.getTriples();
+        int width=patternTriples.size()+1;
+        List<ArrayList<Triple>> matches=new ArrayList<>(count);
+        for (int r=0;r<count;r++)
+        {
+            ArrayList<Triple> triples=new ArrayList<>(patternTriples.size());
+            int precTripleID=-1;
+            for (int i=0;i<patternTriples.size();i++)
+            {
+                Vertex src=vertices.get(rows[r*width+i]), dst=vertices.get(rows[r*width+i+1]);
+                Triple triple=new Triple(src, dst, patternTriples.get(i).getEdge(), precTripleID, tripleIDs.getAsInt());
+                triple.getUnSatSRC(src);
+                triple.getUnSatDST(dst);
+                triples.add(triple);
+                precTripleID=triple.getTripleID();
+            }
+            matches.add(triples);
+        }
+        return matches;
+    }
+
+    private int getId(Vertex v)
+    {
+        Integer id=ids.get(v);
+        if(id==null)
+        {
+            id=vertices.size();
+            ids.put(v, id);
+            vertices.add(v);
+        }
+        return id;
+    }
+
+    // The edges of the label, between vertices of the first types of the triple
+    private EdgeList getEdges(Triple patternTriple)
+    {
+        if(!isIndexedByTypes(patternTriple))
+            return edgesByLabel.getOrDefault(patternTriple.getEdge(), EMPTY);
+        return edgesByTypes.getOrDefault(key(patternTriple.getEdge(),
+                patternTriple.getSrc().getTypes().iterator().next(), patternTriple.getDst().getTypes().iterator().next()), EMPTY);
+    }
+
+    // The types of an edge from the index are only checked if the index does not check all of them
+    private boolean isMapped(Triple patternTriple, int src, int dst)
+    {
+        if(isIndexedByTypes(patternTriple) && patternTriple.getSrc().getTypes().size()==1 && patternTriple.getDst().getTypes().size()==1)
+            return true;
+        return hasTypes(patternTriple, src, dst);
+    }
+
+    private boolean hasTypes(Triple patternTriple, int src, int dst)
+    {
+        return vertices.get(src).getTypes().containsAll(patternTriple.getSrc().getTypes())
+                && vertices.get(dst).getTypes().containsAll(patternTriple.getDst().getTypes());
+    }
+
+    private static boolean isIndexedByTypes(Triple patternTriple)
+    {
+        return !patternTriple.getSrc().getTypes().isEmpty() && !patternTriple.getDst().getTypes().isEmpty();
+    }
+
+    private static String key(String label, String srcType, String dstType)
+    {
+        return label + '\t' + srcType + '\t' + dstType;
+    }
+
+}
@@ -0,0 +1,233 @@
+package QPathBasedWorkload;
+
+import Infra.PatternVertex;
+import Infra.Vertex;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Combines the matches of the query paths of a query into the matches of its pattern.
+ *
+ * The pattern vertices of the paths are the variables of a join, the center first. Each path is a relation whose
+ * tuples are the data vertices of its matches, sorted in the order of the variables, so the matches that agree on
+ * the variables bound so far are a range of the sorted tuples. The variables are bound one at a time, like in
+ * leapfrog triejoin: the values of the variable in the smallest range are looked up by binary search in the ranges
+ * of the other paths of the variable, and only the values found in all of them are extended.
+ * Only the consistent mappings are built, and the partial ones are kept on the stack of the search.
+ */
+public class QPathJoin {
+
+    private List<QueryPath> paths;
+    private List<PatternVertex> variables=new ArrayList<>();
+
+    // Variable of each vertex of each path, src of the first triple then dst of each triple
+    private int[][] vertexVariables;
+    // Sorted distinct variables of each path, and the paths of each variable with the column of the variable
+    private int[][] pathVariables;
+    private int[][] pathsOfVariable;
+    private int[][] columnsOfVariable;
+
+    public QPathJoin(List<QueryPath> paths)
+    {
+        this.paths=paths;
+        HashMap<Vertex, Integer> ids=new HashMap<>();
+        vertexVariables=new int[paths.size()][];
+        pathVariables=new int[paths.size()][];
+        for (int p=0;p<paths.size();p++)
+        {
+            List<Triple> triples=paths.get(p).getTriples();
+            vertexVariables[p]=new int[triples.size()+1];
+            for (int i=0;i<=triples.size();i++)
+            {
+                PatternVertex v=(PatternVertex) (i==0 ? triples.get(0).getSrc() : triples.get(i-1).getDst());
+                Integer id=ids.get(v);
+                if(id==null)
+                {
+                    id=variables.size();
+                    ids.put(v, id);
+                    variables.add(v);
+                }
+                vertexVariables[p][i]=id;
+            }
+            pathVariables[p]=Arrays.stream(vertexVariables[p]).distinct().sorted().toArray();
+        }
+        pathsOfVariable=new int[variables.size()][];
+        columnsOfVariable=new int[variables.size()][];
+        for (int var=0;var<variables.size();var++)
+        {
+            List<int[]> found=new ArrayList<>();
+            for (int p=0;p<paths.size();p++)
+            {
+                int column=Arrays.binarySearch(pathVariables[p], var);
+                if(column>=0)
+                    found.add(new int[]{p, column});
+            }
+            pathsOfVariable[var]=found.stream().mapToInt(pair -> pair[0]).toArray();
+            columnsOfVariable[var]=found.stream().mapToInt(pair -> pair[1]).toArray();
+        }
+    }
+
+    /**
+     * Joins the matches of the paths on their common pattern vertices.
+     * @param matchesByPath The matches of each path, in the order of the paths
+     * @return A mapping of every pattern vertex of the paths for each combination of matches that agree on them
+     */
+    public HashSet<VertexMapping> findMappings(List<? extends Collection<QPathMatch>> matchesByPath)
+    {
+        HashSet<VertexMapping> mappings=new HashSet<>();
+        findMappings(matchesByPath, (mapping, matchIDs) -> mappings.add(mapping));
+        return mappings;
+    }
+
+    /**
+     * Joins the matches of the paths on their common pattern vertices.
+     * @param consumer Gets each mapping with the IDs of its matches, in the order of the paths
+     */
+    public void findMappings(List<? extends Collection<QPathMatch>> matchesByPath, BiConsumer<VertexMapping, int[]> consumer)
+    {
+        if(variables.isEmpty())
+            return;
+
+        HashMap<Vertex, Integer> ids=new HashMap<>();
+        List<Vertex> dataVertices=new ArrayList<>();
+        int[][][] tuples=new int[paths.size()][][];
+        for (int p=0;p<paths.size();p++)
+        {
+            tuples[p]=toTuples(p, matchesByPath.get(p), ids, dataVertices);
+            if(tuples[p].length==0)
+                return;
+        }
+
+        int[] lo=new int[paths.size()], hi=new int[paths.size()];
+        for (int p=0;p<paths.size();p++)
+            hi[p]=tuples[p].length;
+        int[] binding=new int[variables.size()];
+        join(0, tuples, lo, hi, binding, dataVertices, consumer);
+    }
+
+    private void join(int var, int[][][] tuples, int[] lo, int[] hi, int[] binding, List<Vertex> dataVertices, BiConsumer<VertexMapping, int[]> consumer)
+    {
+        if(var==variables.size())
+        {
+            VertexMapping mapping=new VertexMapping();
+            for (int i=0;i<variables.size();i++)
+                mapping.addMapping(dataVertices.get(binding[i]), variables.get(i));
+            // All the variables are bound, so the range of each path is the tuple of one match
+            int[] matchIDs=new int[paths.size()];
+            for (int p=0;p<paths.size();p++)
+                matchIDs[p]=tuples[p][lo[p]][pathVariables[p].length];
+            consumer.accept(mapping, matchIDs);
+            return;
+        }
+        int[] pathsOfVar=pathsOfVariable[var], columns=columnsOfVariable[var];
+        int driver=0;
+        for (int i=1;i<pathsOfVar.length;i++)
+            if(hi[pathsOfVar[i]]-lo[pathsOfVar[i]]<hi[pathsOfVar[driver]]-lo[pathsOfVar[driver]])
+                driver=i;
+
+        int[] savedLo=new int[pathsOfVar.length], savedHi=new int[pathsOfVar.length];
+        for (int i=0;i<pathsOfVar.length;i++)
+        {
+            savedLo[i]=lo[pathsOfVar[i]];
+            savedHi[i]=hi[pathsOfVar[i]];
+        }
+        int[][] driverTuples=tuples[pathsOfVar[driver]];
+        int driverColumn=columns[driver];
+        int start=savedLo[driver];
+        while (start<savedHi[driver])
+        {
+            int value=driverTuples[start][driverColumn];
+            int end=upperBound(driverTuples, driverColumn, value, start, savedHi[driver]);
+            boolean found=true;
+            for (int i=0;i<pathsOfVar.length && found;i++)
+            {
+                int p=pathsOfVar[i];
+                if(i==driver)
+                {
+                    lo[p]=start;
+                    hi[p]=end;
+                    continue;
+                }
+                lo[p]=lowerBound(tuples[p], columns[i], value, savedLo[i], savedHi[i]);
+                hi[p]=upperBound(tuples[p], columns[i], value, lo[p], savedHi[i]);
+                found=lo[p]<hi[p];
+            }
+            if(found)
+            {
+                binding[var]=value;
+                join(var+1, tuples, lo, hi, binding, dataVertices, consumer);
+            }
+            start=end;
+        }
+        for (int i=0;i<pathsOfVar.length;i++)
+        {
+            lo[pathsOfVar[i]]=savedLo[i];
+            hi[pathsOfVar[i]]=savedHi[i];
+        }
+    }
+
+    // The data vertices of the matches in the order of the variables of the path then the ID of the match, without the
+    // matches that map a pattern vertex visited twice by the path to two data vertices
+    private int[][] toTuples(int p, Collection<QPathMatch> matches, HashMap<Vertex, Integer> ids, List<Vertex> dataVertices)
+    {
+        int[] vars=vertexVariables[p];
+        int[] columns=pathVariables[p];
+        List<int[]> tuples=new ArrayList<>(matches.size());
+        for (QPathMatch match:matches)
+        {
+            List<Triple> triples=match.getMatchesInTriple();
+            int[] tuple=new int[columns.length+1];
+            Arrays.fill(tuple, -1);
+            tuple[columns.length]=match.getMatchID();
+            boolean consistent=true;
+            for (int i=0;i<vars.length && consistent;i++)
+            {
+                Vertex v=i==0 ? triples.get(0).getSrc() : triples.get(i-1).getDst();
+                Integer id=ids.get(v);
+                if(id==null)
+                {
+                    id=dataVertices.size();
+                    ids.put(v, id);
+                    dataVertices.add(v);
+                }
+                int column=Arrays.binarySearch(columns, vars[i]);
+                consistent=tuple[column]==-1 || tuple[column]==id;
+                tuple[column]=id;
+            }
+            if(consistent)
+                tuples.add(tuple);
+        }
+        int[][] sorted=tuples.toArray(new int[0][]);
+        Arrays.sort(sorted, Arrays::compare);
+        return sorted;
+    }
+
+    // First tuple in [from, to) whose column is at least the value, the tuples are sorted on the column in the range
+    private static int lowerBound(int[][] tuples, int column, int value, int from, int to)
+    {
+        while (from<to)
+        {
+            int mid=(from+to)>>>1;
+            if(tuples[mid][column]<value)
+                from=mid+1;
+            else
+                to=mid;
+        }
+        return from;
+    }
+
+    private static int upperBound(int[][] tuples, int column, int value, int from, int to)
+    {
+        while (from<to)
+        {
+            int mid=(from+to)>>>1;
+            if(tuples[mid][column]<=value)
+                from=mid+1;
+            else
+                to=mid;
+        }
+        return from;
+    }
+
+}
@@ -1,8 +1,11 @@
 package QPathBasedWorkload;
 
+import Partitioner.LPTPartitioner;
+import Util.Config;
+
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 
 public class WorkloadPartitionerForJobs {
 
@@ -14,68 +17,28 @@ public class WorkloadPartitionerForJobs {
         this.estimator=estimator;
     }
 
+    /**
+     * Assigns the jobs to the fragments, from the largest to the smallest, each one to the least loaded fragment.
+     * With Config.workloadPartitioner=locality, a job stays on the fragment that owns most of its edges if that
+     * fragment is not loaded more than Config.localityImbalance above the average.
+     */
     public HashMap<Integer, ArrayList<Job>> partition()
     {
-        int numberOfJobs= estimator
-                .getJobsByFragmentID()
-                .keySet()
-                .stream()
-                .mapToInt(id -> id)
-                .map(id -> estimator.getJobsByFragmentID().get(id).size())
-                .sum();
-        Job [] allJobs=new Job[numberOfJobs];
-        int i=0;
-        for (int id:estimator.getJobsByFragmentID().keySet()) {
-            for (Job job:estimator.getJobsByFragmentID().get(id)) {
-                allJobs[i]=job;
-                i++;
-            }
-        }
-        int []fragmentSize=new int[estimator.getNumberOfProcessors()];
-        jobsByFragmentID=new HashMap<>();
-        for (i=0;i< estimator.getNumberOfProcessors();i++)
-        {
-            jobsByFragmentID.put(i+1,new ArrayList<>());
-        }
-        HashSet<Integer> visited=new HashSet<>();
-        while (true)
-        {
-            int id=-1;
-            double min=Double.MAX_VALUE;
-            for (i=0;i<allJobs.length;i++) {
-                if(!visited.contains(i) && allJobs[i].getSize()<min)
-                {
-                    id=i;
-                    min=allJobs[i].getSize();
-                }
-            }
-            if(id!=-1)
-            {
-                visited.add(id);
-                int minLoad=Integer.MAX_VALUE;
-                int selectedFragment=-1;
-                for (i=0;i<fragmentSize.length;i++)
-                {
-                    if(fragmentSize[i]<minLoad)
-                    {
-                        minLoad=fragmentSize[i];
-                        selectedFragment=i;
-                    }
-                }
-                //for (i=0;i<fragmentSize.length;i++)
-                //{
-                //    System.out.print("F"+(i+1) + ": " + fragmentSize[i] + "  **  ");
-                //}
-                //System.out.println("\nNew load: " + allJobs[id].getSize() + " -> " + allJobs[id].getCenterNode().getVertexURI());
-                fragmentSize[selectedFragment]+=allJobs[id].getSize();
-                jobsByFragmentID.get(selectedFragment+1).add(allJobs[id]);
-            }
-            else
-                break;
-        }
-        for (i=0;i<fragmentSize.length;i++)
-            System.out.print("F"+(i+1) + ": " + fragmentSize[i] + "  **  ");
-        System.out.println("\nPartitioner is Done. Number of jobs: " + allJobs.length);
+        List<Job> allJobs=new ArrayList<>();
+        for (int id:estimator.getJobsByFragmentID().keySet())
+            allJobs.addAll(estimator.getJobsByFragmentID().get(id));
+
+        LPTPartitioner<Job> partitioner;
+        if(Config.workloadPartitioner.equals("locality"))
+            partitioner=new LPTPartitioner<>(Job::getSize, Job::getEdges, estimator.getFragments(), Config.localityImbalance);
+        else
+            partitioner=new LPTPartitioner<>(Job::getSize);
+        // The fragments keep their IDs, so they still match the fragments of the vertices
+        jobsByFragmentID=partitioner.partition(allJobs, estimator.getJobsByFragmentID().keySet());
+
+        for (int id:partitioner.getLoads().keySet())
+            System.out.print("F"+id + ": " + partitioner.getLoads().get(id) + "  **  ");
+        System.out.println("\nPartitioner is Done. Number of jobs: " + allJobs.size());
         return jobsByFragmentID;
     }
 
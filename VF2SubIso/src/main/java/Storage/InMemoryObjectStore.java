@@ -0,0 +1,63 @@
+package Storage;
+
+import java.io.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the objects in memory, to run the coordinator and the workers in a single JVM in tests.
+ */
+public class InMemoryObjectStore implements ObjectStore {
+
+    private final ConcurrentHashMap<String, byte[]> objects=new ConcurrentHashMap<>();
+
+    @Override
+    public InputStream open(String bucketName, String key) throws IOException
+    {
+        return new ByteArrayInputStream(get(bucketName, key));
+    }
+
+    @Override
+    public InputStream open(String bucketName, String key, long offset, long length) throws IOException
+    {
+        byte[] bytes=get(bucketName, key);
+        int start=(int) Math.min(offset, bytes.length);
+        return new ByteArrayInputStream(bytes, start, (int) Math.min(length, bytes.length-start));
+    }
+
+    @Override
+    public long getSize(String bucketName, String key) throws IOException
+    {
+        return get(bucketName, key).length;
+    }
+
+    @Override
+    public boolean exists(String bucketName, String key)
+    {
+        return objects.containsKey(getPath(bucketName, key));
+    }
+
+    @Override
+    public OutputStream create(String bucketName, String key)
+    {
+        return new ByteArrayOutputStream() {
+            @Override
+            public void close()
+            {
+                objects.put(getPath(bucketName, key), toByteArray());
+            }
+        };
+    }
+
+    private byte[] get(String bucketName, String key) throws IOException
+    {
+        byte[] bytes=objects.get(getPath(bucketName, key));
+        if(bytes==null)
+            throw new FileNotFoundException(getPath(bucketName, key));
+        return bytes;
+    }
+
+    private static String getPath(String bucketName, String key)
+    {
+        return bucketName + "/" + key;
+    }
+}
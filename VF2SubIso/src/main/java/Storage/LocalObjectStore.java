@@ -0,0 +1,98 @@
+package Storage;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+/**
+ * Stores the objects as files in a local directory, as root/bucketName/key, to run the pipeline without S3.
+ */
+public class LocalObjectStore implements ObjectStore {
+
+    private final Path root;
+
+    public LocalObjectStore(String root)
+    {
+        this.root=Paths.get(root);
+    }
+
+    @Override
+    public InputStream open(String bucketName, String key) throws IOException
+    {
+        return new BufferedInputStream(Files.newInputStream(getPath(bucketName, key)));
+    }
+
+    @Override
+    public InputStream open(String bucketName, String key, long offset, long length) throws IOException
+    {
+        FileChannel channel=FileChannel.open(getPath(bucketName, key), StandardOpenOption.READ);
+        channel.position(offset);
+        InputStream in=Channels.newInputStream(channel);
+        return new FilterInputStream(in) {
+            private long remaining=length;
+
+            @Override
+            public int read() throws IOException
+            {
+                if(remaining<=0)
+                    return -1;
+                int b=super.read();
+                if(b>=0)
+                    remaining--;
+                return b;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException
+            {
+                if(remaining<=0)
+                    return -1;
+                int n=super.read(bytes, offset, (int) Math.min(length, remaining));
+                if(n>0)
+                    remaining-=n;
+                return n;
+            }
+        };
+    }
+
+    @Override
+    public long getSize(String bucketName, String key) throws IOException
+    {
+        return Files.size(getPath(bucketName, key));
+    }
+
+    @Override
+    public boolean exists(String bucketName, String key)
+    {
+        return Files.exists(getPath(bucketName, key));
+    }
+
+    /** The data is written to a hidden file next to the object, which replaces the object when the stream is closed. */
+    @Override
+    public OutputStream create(String bucketName, String key) throws IOException
+    {
+        Path path=getPath(bucketName, key);
+        Files.createDirectories(path.getParent());
+        Path partialPath=path.resolveSibling("." + path.getFileName() + ".partial");
+        OutputStream out=Files.newOutputStream(partialPath);
+        return new BufferedOutputStream(out, 64*1024) {
+            private boolean closed=false;
+
+            @Override
+            public void close() throws IOException
+            {
+                if(closed)
+                    return;
+                closed=true;
+                super.close();
+                Files.move(partialPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        };
+    }
+
+    private Path getPath(String bucketName, String key)
+    {
+        return root.resolve(bucketName).resolve(key);
+    }
+}
@@ -0,0 +1,102 @@
+package Storage;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Stores objects by bucket and key, like Amazon S3.
+ *
+ * The pipeline reads its inputs and ships its intermediate data through the store of ObjectStores.getDefault(),
+ * so it can run on S3, on a local directory, or in memory for tests.
+ */
+public interface ObjectStore {
+
+    /** Opens the object for reading. */
+    InputStream open(String bucketName, String key) throws IOException;
+
+    /** Opens a range of the object for reading. */
+    InputStream open(String bucketName, String key, long offset, long length) throws IOException;
+
+    long getSize(String bucketName, String key) throws IOException;
+
+    boolean exists(String bucketName, String key);
+
+    /**
+     * Creates or replaces an object with the data written to the stream.
+     * The data is uploaded while it is written, and the object is visible once the stream is closed.
+     */
+    OutputStream create(String bucketName, String key) throws IOException;
+
+    default void write(String bucketName, String key, byte[] bytes) throws IOException
+    {
+        try (OutputStream out=create(bucketName, key))
+        {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Reads the whole object. Large objects are read as parts of Config.objectStorePartSize bytes in parallel.
+     */
+    default byte[] readAll(String bucketName, String key) throws IOException
+    {
+        long size=getSize(bucketName, key);
+        if(size>Integer.MAX_VALUE-8)
+            throw new IOException("The object is too large to be read at once: " + bucketName + "/" + key);
+        byte[] bytes=new byte[(int) size];
+        long partSize=ObjectStores.getPartSize();
+        if(size<=partSize)
+        {
+            try (InputStream in=open(bucketName, key))
+            {
+                readFully(in, bytes, 0, bytes.length);
+            }
+            return bytes;
+        }
+
+        List<Future<?>> parts=new ArrayList<>();
+        for (long offset=0;offset<size;offset+=partSize)
+        {
+            long partOffset=offset;
+            int length=(int) Math.min(partSize, size-offset);
+            parts.add(ObjectStores.getExecutor().submit(() -> {
+                try (InputStream in=open(bucketName, key, partOffset, length))
+                {
+                    readFully(in, bytes, (int) partOffset, length);
+                }
+                return null;
+            }));
+        }
+        try
+        {
+            for (Future<?> part:parts)
+                part.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading " + bucketName + "/" + key);
+        }
+        catch (ExecutionException e)
+        {
+            parts.forEach(part -> part.cancel(true));
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+        return bytes;
+    }
+
+    private static void readFully(InputStream in, byte[] bytes, int offset, int length) throws IOException
+    {
+        while (length>0)
+        {
+            int n=in.read(bytes, offset, length);
+            if(n<0)
+                throw new EOFException("The object is shorter than expected");
+            offset+=n;
+            length-=n;
+        }
+    }
+}
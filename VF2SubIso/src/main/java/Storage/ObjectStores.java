@@ -0,0 +1,56 @@
+package Storage;
+
+import Util.Config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Holds the object store shared by the JVM, and the threads used for parallel transfers.
+ */
+public final class ObjectStores {
+
+    private static ObjectStore store=null;
+    private static ExecutorService executor=null;
+
+    private ObjectStores() {}
+
+    /** Returns the shared object store, created on first use according to Config.objectStore. */
+    public static synchronized ObjectStore getDefault()
+    {
+        if(store==null)
+        {
+            if(Config.objectStore.equals("local"))
+                store=new LocalObjectStore(Config.objectStoreRoot);
+            else if(Config.objectStore.equals("memory"))
+                store=new InMemoryObjectStore();
+            else // default is s3
+                store=new S3ObjectStore(Config.region);
+        }
+        return store;
+    }
+
+    /** Replaces the shared object store, e.g., with an InMemoryObjectStore in a test. */
+    public static synchronized void setDefault(ObjectStore newStore)
+    {
+        store=newStore;
+    }
+
+    static long getPartSize()
+    {
+        return Config.objectStorePartSize;
+    }
+
+    static synchronized ExecutorService getExecutor()
+    {
+        if(executor==null)
+        {
+            executor=Executors.newFixedThreadPool(Config.objectStoreThreads, runnable -> {
+                Thread thread=new Thread(runnable, "object-store");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+}
@@ -0,0 +1,264 @@
+package Storage;
+
+import com.amazonaws.regions.Regions;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.*;
+import Util.Config;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Stores the objects in Amazon S3. A single client, and its pool of connections, is shared by all the transfers.
+ */
+public class S3ObjectStore implements ObjectStore {
+
+    // Every part of a multipart upload except the last one must have at least 5MB
+    private static final long MIN_PART_SIZE=5L*1024*1024;
+
+    private final AmazonS3 s3Client;
+
+    public S3ObjectStore(Regions region)
+    {
+        this(AmazonS3ClientBuilder.standard().withRegion(region).build());
+    }
+
+    public S3ObjectStore(AmazonS3 s3Client)
+    {
+        this.s3Client=s3Client;
+    }
+
+    @Override
+    public InputStream open(String bucketName, String key)
+    {
+        return s3Client.getObject(new GetObjectRequest(bucketName, key)).getObjectContent();
+    }
+
+    @Override
+    public InputStream open(String bucketName, String key, long offset, long length)
+    {
+        return s3Client.getObject(new GetObjectRequest(bucketName, key).withRange(offset, offset+length-1)).getObjectContent();
+    }
+
+    @Override
+    public long getSize(String bucketName, String key)
+    {
+        return s3Client.getObjectMetadata(bucketName, key).getContentLength();
+    }
+
+    @Override
+    public boolean exists(String bucketName, String key)
+    {
+        return s3Client.doesObjectExist(bucketName, key);
+    }
+
+    @Override
+    public OutputStream create(String bucketName, String key)
+    {
+        return new MultipartOutputStream(bucketName, key, Math.max(MIN_PART_SIZE, ObjectStores.getPartSize()), Config.objectStoreUploadBuffers);
+    }
+
+    /**
+     * Uploads the data in parts while it is written, so no temporary file is needed.
+     * A full part is uploaded by the threads of ObjectStores and the writer continues in another buffer.
+     * The writer waits when all the buffers are in flight, so the memory in use is bounded by buffers*partSize.
+     * An object smaller than one part is uploaded with a single request when the stream is closed.
+     */
+    private class MultipartOutputStream extends OutputStream {
+
+        private final String bucketName;
+        private final String key;
+        private final int partSize;
+
+        // Buffers that are not being uploaded, the writer takes one of them when its buffer is full
+        private final ArrayBlockingQueue<byte[]> freeBuffers;
+        private final int numberOfBuffers;
+        private int allocatedBuffers=0;
+
+        private byte[] buffer;
+        private int count=0;
+        private String uploadId=null;
+        private final List<Future<PartETag>> parts=new ArrayList<>();
+        private long size=0;
+        private boolean closed=false;
+
+        MultipartOutputStream(String bucketName, String key, long partSize, int numberOfBuffers)
+        {
+            this.bucketName=bucketName;
+            this.key=key;
+            this.partSize=(int) partSize;
+            this.numberOfBuffers=Math.max(2, numberOfBuffers);
+            this.freeBuffers=new ArrayBlockingQueue<>(this.numberOfBuffers);
+            this.buffer=new byte[this.partSize];
+            allocatedBuffers++;
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            if(count==buffer.length)
+                uploadPart(false);
+            buffer[count++]=(byte) b;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException
+        {
+            while (length>0)
+            {
+                if(count==buffer.length)
+                    uploadPart(false);
+                int n=Math.min(length, buffer.length-count);
+                System.arraycopy(bytes, offset, buffer, count, n);
+                count+=n;
+                offset+=n;
+                length-=n;
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            if(closed)
+                return;
+            closed=true;
+            try
+            {
+                if(uploadId==null)
+                {
+                    ObjectMetadata metadata=new ObjectMetadata();
+                    metadata.setContentLength(count);
+                    s3Client.putObject(new PutObjectRequest(bucketName, key, new ByteArrayInputStream(buffer, 0, count), metadata)
+                            .withCannedAcl(CannedAccessControlList.PublicRead));
+                    size=count;
+                }
+                else
+                {
+                    uploadPart(true);
+                    List<PartETag> partETags=new ArrayList<>();
+                    for (Future<PartETag> part:parts)
+                        partETags.add(part.get());
+                    s3Client.completeMultipartUpload(new CompleteMultipartUploadRequest(bucketName, key, uploadId, partETags));
+                }
+                System.out.println("Uploading Done. [Bucket name: " + bucketName + "] [Key: " + key + "] [Size: " + size + " bytes]");
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                abort();
+                throw new InterruptedIOException("Interrupted while uploading " + bucketName + "/" + key);
+            }
+            catch (ExecutionException | RuntimeException e)
+            {
+                abort();
+                throw new IOException("Couldn't upload " + bucketName + "/" + key, e instanceof ExecutionException ? e.getCause() : e);
+            }
+            finally
+            {
+                buffer=null;
+                freeBuffers.clear();
+            }
+        }
+
+        // Hands the current buffer to the upload threads and continues in a free buffer
+        private void uploadPart(boolean lastPart) throws IOException
+        {
+            try
+            {
+                if(uploadId==null)
+                {
+                    uploadId=s3Client.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucketName, key)
+                            .withCannedACL(CannedAccessControlList.PublicRead)).getUploadId();
+                }
+                byte[] partBuffer=buffer;
+                int partLength=count;
+                UploadPartRequest request=new UploadPartRequest()
+                        .withBucketName(bucketName)
+                        .withKey(key)
+                        .withUploadId(uploadId)
+                        .withPartNumber(parts.size()+1)
+                        .withInputStream(new ByteArrayInputStream(partBuffer, 0, partLength))
+                        .withPartSize(partLength)
+                        .withLastPart(lastPart);
+                parts.add(ObjectStores.getExecutor().submit(() -> {
+                    try
+                    {
+                        return s3Client.uploadPart(request).getPartETag();
+                    }
+                    finally
+                    {
+                        freeBuffers.offer(partBuffer);
+                    }
+                }));
+                size+=partLength;
+                count=0;
+                if(!lastPart)
+                    buffer=nextBuffer();
+            }
+            catch (RuntimeException e)
+            {
+                closed=true;
+                abort();
+                throw new IOException("Couldn't upload " + bucketName + "/" + key, e);
+            }
+        }
+
+        private byte[] nextBuffer() throws IOException
+        {
+            byte[] next=freeBuffers.poll();
+            if(next!=null)
+                return next;
+            if(allocatedBuffers<numberOfBuffers)
+            {
+                allocatedBuffers++;
+                return new byte[partSize];
+            }
+            try
+            {
+                // Wait for an upload to finish, and fail fast if one of them failed
+                while (true)
+                {
+                    next=freeBuffers.poll(100, TimeUnit.MILLISECONDS);
+                    if(next!=null)
+                        return next;
+                    for (Future<PartETag> part:parts)
+                    {
+                        if(part.isDone())
+                            part.get();
+                    }
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                closed=true;
+                abort();
+                throw new InterruptedIOException("Interrupted while uploading " + bucketName + "/" + key);
+            }
+            catch (ExecutionException e)
+            {
+                closed=true;
+                abort();
+                throw new IOException("Couldn't upload " + bucketName + "/" + key, e.getCause());
+            }
+        }
+
+        private void abort()
+        {
+            parts.forEach(part -> part.cancel(true));
+            if(uploadId==null)
+                return;
+            try
+            {
+                s3Client.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, key, uploadId));
+            }
+            catch (RuntimeException e)
+            {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -13,9 +13,22 @@ public class SyntheticGenerator {
 
     private SyntheticLoader graph;
     private int changeID=1;
+    private Random random;
+
     public SyntheticGenerator(SyntheticLoader graph)
     {
         this.graph=graph;
+        this.random=new Random();
+    }
+
+    /**
+     * @param graph Graph to generate the changes for
+     * @param seed Seed of the generator, to generate the same changes on every run
+     */
+    public SyntheticGenerator(SyntheticLoader graph, long seed)
+    {
+        this.graph=graph;
+        this.random=new Random(seed);
     }
 
     public HashMap<Integer, List<Change>> generateSnapshot(int numberOfSnapshots,double changeRate)
@@ -37,9 +50,6 @@ public class SyntheticGenerator {
         HashMap <String, HashMap<String,String>> schema= graph.getSchema();
 
 
-
-        Random random = new Random();
-
         // Random edges are picked to be deleted!
         RelationshipEdge[] arrayEdges = graph.getGraph().getGraph().edgeSet().
                 toArray(new RelationshipEdge[graph.getGraph().getGraph().edgeSet().size()]);
@@ -63,9 +73,9 @@ public class SyntheticGenerator {
             rndmNumber = random.nextInt(destinationTypes.length);
             String dstType=destinationTypes[rndmNumber];
 
-            DataVertex srcVertex=new DataVertex(RandomStringUtils.randomAlphabetic(10),srcType);
+            DataVertex srcVertex=new DataVertex(RandomStringUtils.random(10, 0, 0, true, false, null, random),srcType);
 
-            DataVertex dstVertex=new DataVertex(RandomStringUtils.randomAlphabetic(10),dstType);
+            DataVertex dstVertex=new DataVertex(RandomStringUtils.random(10, 0, 0, true, false, null, random),dstType);
 
             Change c1=new VertexChange(ChangeType.insertVertex,changeID++,srcVertex);
             Change c2=new VertexChange(ChangeType.insertVertex,changeID++,dstVertex);
@@ -87,7 +97,7 @@ public class SyntheticGenerator {
             while (alreadyPicked.contains(rndmNumber))
                 rndmNumber = random.nextInt(vertices.length);
             changes.add(new AttributeChange(ChangeType.changeAttr,changeID++,
-                    vertices[rndmNumber].getVertexURI(),new Attribute("name",RandomStringUtils.randomAlphabetic(10))));
+                    vertices[rndmNumber].getVertexURI(),new Attribute("name",RandomStringUtils.random(10, 0, 0, true, false, null, random))));
             alreadyPicked.add(rndmNumber);
         }
         return changes;
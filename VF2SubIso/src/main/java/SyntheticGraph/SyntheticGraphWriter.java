@@ -0,0 +1,222 @@
+package SyntheticGraph;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Writes a random graph in the gMark format read by SyntheticLoader, following the social network schema
+ * of samplePatterns/synthetic. The same seed always gives the same graph, so it can be used as a fixture
+ * for benchmarks without downloading a dataset.
+ */
+public class SyntheticGraphWriter {
+
+    // Edges of the schema as {source type, edge type, destination type}
+    private static final String[][] EDGES = {
+            {"person", "knows", "person"},
+            {"person", "isLocatedIn", "city"},
+            {"person", "studyAt", "university"},
+            {"person", "worksAt", "company"},
+            {"person", "hasInterest", "tag"},
+            {"person", "likes", "message"},
+            {"university", "isLocatedIn", "city"},
+            {"company", "isLocatedIn", "country"},
+            {"city", "isPartOf", "country"},
+            {"country", "isPartOf", "continent"},
+            {"forum", "hasModerator", "person"},
+            {"forum", "hasMember", "person"},
+            {"forum", "containerOf", "post"},
+            {"forum", "hasTag", "tag"},
+            {"tag", "hasType", "tagClass"},
+            {"tagClass", "isSubclassOf", "tagClass"},
+            {"post", "isSubclassOf", "message"},
+            {"comment", "replyOf", "message"},
+            {"comment", "isSubclassOf", "message"},
+            {"message", "isLocatedIn", "country"},
+            {"message", "hasCreator", "person"},
+            {"message", "hasTag", "tag"}
+    };
+
+    // Attributes of each type of the schema
+    private static final LinkedHashMap<String, String[]> ATTRIBUTES = new LinkedHashMap<>();
+    static {
+        ATTRIBUTES.put("person", new String[]{"name", "birthday", "browserUsed", "creationDate", "email", "gender", "locationIP", "speaks"});
+        ATTRIBUTES.put("university", new String[]{"name"});
+        ATTRIBUTES.put("company", new String[]{"name"});
+        ATTRIBUTES.put("city", new String[]{"name"});
+        ATTRIBUTES.put("country", new String[]{"name"});
+        ATTRIBUTES.put("continent", new String[]{"name"});
+        ATTRIBUTES.put("forum", new String[]{"creationDate", "length"});
+        ATTRIBUTES.put("tag", new String[]{"name"});
+        ATTRIBUTES.put("tagClass", new String[]{"name"});
+        ATTRIBUTES.put("post", new String[]{"content", "language", "imageFile"});
+        ATTRIBUTES.put("comment", new String[]{"content", "language"});
+        ATTRIBUTES.put("message", new String[]{"creationDate", "browserUsed", "locationIP"});
+    }
+
+    private static final LocalDate FIRST_DATE = LocalDate.parse("2010-01-01");
+
+    private int numberOfVertices;
+    private double averageDegree;
+    private int numberOfValues=50;
+    private Random random;
+    private LinkedHashMap<String, Double> typesDistribution=new LinkedHashMap<>();
+
+    /**
+     * @param numberOfVertices Number of vertices of the graph
+     * @param averageDegree Average number of outgoing edges per vertex
+     * @param seed Seed of the generator, to write the same graph on every run
+     */
+    public SyntheticGraphWriter(int numberOfVertices, double averageDegree, long seed)
+    {
+        this.numberOfVertices=numberOfVertices;
+        this.averageDegree=averageDegree;
+        this.random=new Random(seed);
+
+        // By default, the graph is dominated by persons and messages, as in the social network benchmark
+        typesDistribution.put("person", 20.0);
+        typesDistribution.put("university", 2.0);
+        typesDistribution.put("company", 3.0);
+        typesDistribution.put("city", 3.0);
+        typesDistribution.put("country", 1.0);
+        typesDistribution.put("continent", 0.1);
+        typesDistribution.put("forum", 5.0);
+        typesDistribution.put("tag", 5.0);
+        typesDistribution.put("tagClass", 1.0);
+        typesDistribution.put("post", 20.0);
+        typesDistribution.put("comment", 20.0);
+        typesDistribution.put("message", 20.0);
+    }
+
+    /**
+     * Sets the relative number of vertices of a type. A weight of zero removes the type from the graph.
+     * @param type Vertex type of the schema
+     * @param weight Weight of the type, relative to the weights of the other types
+     */
+    public void setTypeWeight(String type, double weight)
+    {
+        if(!ATTRIBUTES.containsKey(type))
+            throw new IllegalArgumentException("Unknown vertex type: " + type);
+        typesDistribution.put(type, weight);
+    }
+
+    /**
+     * Sets how many distinct values each attribute can take. Fewer values give more matches sharing the same X,
+     * hence more candidate violations.
+     */
+    public void setNumberOfValues(int numberOfValues)
+    {
+        this.numberOfValues=numberOfValues;
+    }
+
+    /**
+     * Writes the graph to a file.
+     * @param path Path of the graph file
+     * @return Number of lines written (edges and attributes)
+     */
+    public long write(String path) throws IOException
+    {
+        HashMap<String, List<String>> verticesByType=new HashMap<>();
+        double totalWeight=typesDistribution.values().stream().mapToDouble(Double::doubleValue).sum();
+        int id=0;
+        for (String type:typesDistribution.keySet())
+        {
+            double weight=typesDistribution.get(type);
+            if(weight<=0)
+                continue;
+            int count=Math.max(1, (int)Math.round(numberOfVertices*weight/totalWeight));
+            List<String> vertices=new ArrayList<>(count);
+            for (int i=0;i<count;i++)
+                vertices.add(type + "_v" + (id++));
+            verticesByType.put(type, vertices);
+        }
+
+        List<String[]> edgeTypes=new ArrayList<>();
+        for (String[] edge:EDGES)
+        {
+            if(verticesByType.containsKey(edge[0]) && verticesByType.containsKey(edge[2]))
+                edgeTypes.add(edge);
+        }
+
+        long lines=0;
+        try (BufferedWriter writer=new BufferedWriter(new FileWriter(path)))
+        {
+            for (String type:verticesByType.keySet())
+            {
+                for (String vertex:verticesByType.get(type))
+                {
+                    for (String attribute:ATTRIBUTES.get(type))
+                    {
+                        writer.write(vertex + " " + attribute + " " + randomValue(attribute) + "\n");
+                        lines++;
+                    }
+                }
+            }
+
+            long numberOfEdges=edgeTypes.isEmpty() ? 0 : (long)(id*averageDegree);
+            for (long i=0;i<numberOfEdges;i++)
+            {
+                String[] edge=edgeTypes.get(random.nextInt(edgeTypes.size()));
+                List<String> sources=verticesByType.get(edge[0]);
+                List<String> destinations=verticesByType.get(edge[2]);
+                writer.write(sources.get(random.nextInt(sources.size())) + " " + edge[1] + " "
+                        + destinations.get(random.nextInt(destinations.size())) + "\n");
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Writes TGFDs matching the graph, in the format read by TGFDGenerator. Each TGFD has a single edge of the schema
+     * between two types that are in the graph: the first attribute of the source vertex (and its uri) determines the
+     * first attribute of the destination vertex.
+     * @param path Path of the pattern file
+     * @param numberOfTGFDs Maximum number of TGFDs, one per edge of the schema
+     * @param deltaMax Maximum number of days between the matches of a violation
+     * @return Number of TGFDs written
+     */
+    public int writePatterns(String path, int numberOfTGFDs, int deltaMax) throws IOException
+    {
+        int count=0;
+        try (BufferedWriter writer=new BufferedWriter(new FileWriter(path)))
+        {
+            for (String[] edge:EDGES)
+            {
+                if(count==numberOfTGFDs)
+                    break;
+                if(typesDistribution.get(edge[0])<=0 || typesDistribution.get(edge[2])<=0)
+                    continue;
+                String srcAttribute=ATTRIBUTES.get(edge[0])[0];
+                String dstAttribute=ATTRIBUTES.get(edge[2])[0];
+                count++;
+                writer.write("tgfd#synthetic" + count + "\n");
+                writer.write("vertex#v1#" + edge[0] + "#" + srcAttribute + "\n");
+                writer.write("vertex#v2#" + edge[2] + "#" + dstAttribute + "\n");
+                writer.write("edge#v1#v2#" + edge[1] + "\n");
+                writer.write("diameter#1\n");
+                writer.write("literal#x#" + edge[0] + "$" + srcAttribute + "$" + edge[0] + "$" + srcAttribute + "\n");
+                writer.write("literal#x#" + edge[0] + "$uri$" + edge[0] + "$uri\n");
+                writer.write("literal#y#" + edge[2] + "$" + dstAttribute + "$" + edge[2] + "$" + dstAttribute + "\n");
+                writer.write("delta#0#" + deltaMax + "#1\n");
+            }
+        }
+        return count;
+    }
+
+    private String randomValue(String attribute)
+    {
+        switch (attribute)
+        {
+            case "birthday":
+            case "creationDate":
+                return "datetime_" + FIRST_DATE.plusDays(random.nextInt(numberOfValues));
+            case "length":
+                return "integer_" + random.nextInt(numberOfValues);
+            default:
+                return "string_" + attribute + random.nextInt(numberOfValues);
+        }
+    }
+}
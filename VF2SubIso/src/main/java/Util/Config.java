@@ -35,6 +35,36 @@ public class Config {
     public static int supersteps=0;
     public static double zeta=-1;
     public static boolean gfd=false;
+    public static int matchCacheSize=0;// 0 keeps all the matches in memory
+    public static String matchSpillDirectory=System.getProperty("java.io.tmpdir");
+    public static long matchSegmentSize=64L*1024*1024;// in bytes
+    public static boolean columnarAttributes=false;
+    public static boolean metrics=false;
+    public static String metricsFile="";
+    public static String metricsFormat="json";// json or prometheus
+    public static long seed=-1;// seed of the random values of the synthetic loader, -1 for a random seed
+    public static String transport="activemq";// activemq, inprocess or embedded
+    public static String dataPlane="s3";// s3 or socket
+    public static HashMap<String, String> dataPlaneAddresses=new HashMap<>();// host:port of each worker
+    public static int dataPlaneBatchSize=10000;// in edges
+    public static int dataPlaneQueueSize=16;// in batches
+    public static int dataPlaneMaxFrameSize=256*1024*1024;// in bytes, larger frames received by the data plane are rejected
+    public static String compression="none";// none or deflate, compression of the data shipped between the coordinator and the workers
+    public static String objectStore="s3";// s3, local or memory
+    public static String objectStoreRoot="./objectstore";// directory of the local object store
+    public static long objectStorePartSize=8L*1024*1024;// in bytes
+    public static int objectStoreThreads=8;
+    public static int objectStoreUploadBuffers=4;// parts of an upload held in memory while they are uploaded
+    public static int workerThreads=Runtime.getRuntime().availableProcessors();// threads of a worker that run the joblets in parallel
+    public static String graphPartitioner="range";// range or fennel, how the vertices are assigned to the fragments
+    public static boolean comparePartitioners=false;// the graph is fragmented with the range partitioner too, to print its cut size and balance
+    public static double costSampleRate=0;// fraction of the joblets of a TGFD matched to fit the cost model, 0 estimates the cost with |edges|^|pattern|
+    public static long costSampleBudget=10000;// in ms, time spent matching the samples of a TGFD
+    public static boolean multiPatternMatching=false;// the patterns of all the TGFDs are matched at once, sharing their common sub-patterns, instead of one VF2 search per TGFD
+    public static int jobletGroupSize=16;// centers whose joblets are matched over one merged region in the first snapshot, 1 groups only the joblets of the same center
+    public static String workloadPartitioner="lpt";// lpt or locality, how the joblets are assigned to the workers
+    public static double localityImbalance=0.1;// load above the average a worker may get to keep a joblet on the worker that owns its edges
+    public static boolean jobStealing=true;// idle workers steal the jobs that are not started yet from the most loaded workers in the first superstep
 
     public static boolean optimizedLoadingBasedOnTGFD=false;
     public static boolean saveViolations=false;
@@ -66,6 +96,35 @@ public class Config {
                      -superstep <integer> // number of supersteps
                      -zeta <double> // value of zeta
                      -gfd <true-false> // run GFD error detection
+                     -matchcache <integer> // number of matches per TGFD kept in memory, the rest are spilled to disk
+                     -spilldir <path> // directory to spill the matches
+                     -columnar <true-false> // store the attributes of data vertices in the off-heap AttributeStore
+                     -metrics <true-false> // record the runtime of each phase, the number of matches, changes and violations
+                     -metricsfile <path> // file to save the metrics to
+                     -metricsformat <json-prometheus> // format of the metrics file
+                     -transport <activemq-inprocess-embedded> // transport of the messages between the coordinator and the workers
+                     -dataplane <s3-socket> // how the workers ship graph fragments to each other, socket falls back to s3 if a worker is not reachable
+                     -dataplaneaddresses List<worker@host:port> // addresses of the data plane of the workers. example: worker1@10.0.0.1:9500,worker2@10.0.0.2:9500
+                     -dataplanebatch <size> // number of edges in a batch of the data plane
+                     -dataplanequeue <size> // number of batches received by the data plane before slowing down the sender
+                     -dataplanemaxframe <size> // largest batch in bytes accepted by the data plane, a stream with a larger frame is closed as broken
+                     -compression <none-deflate> // compression of the graph fragments, edges and changes shipped between the coordinator and the workers
+                     -objectstore <s3-local-memory> // where the inputs and the data shipped between the coordinator and the workers are stored
+                     -objectstoreroot <path> // directory of the local object store, a bucket is a subdirectory
+                     -objectstorepartsize <size> // size in bytes of the parts of the parallel downloads and the multipart uploads
+                     -objectstorethreads <count> // number of threads of the parallel downloads
+                     -objectstoreuploadbuffers <count> // number of parts of an upload held in memory, the writer waits when all of them are being uploaded
+                     -workerthreads <count> // number of threads of a worker that run its joblets or jobs in parallel, default is the number of cores
+                     -graphpartitioner <range-fennel> // range splits the vertices in the order they are loaded, fennel keeps the neighbourhoods in the same fragment. default is range
+                     -comparepartitioners <true-false> // also fragments the graph with the range partitioner to print its cut size and balance next to the ones of the chosen partitioner
+                     -costsamplerate <ratio> // fraction of the joblets of each TGFD matched to fit the cost model of the joblets, default is 0, which uses |edges|^|pattern|
+                     -costsamplebudget <ms> // time spent matching the samples of each TGFD, default is 10000
+                     -multipattern <true-false> // matches the TGFDs together with a trie of their common sub-patterns, false runs VF2 for each TGFD. default is false
+                     -jobletgroupsize <count> // nearby centers whose joblets are extracted and matched together in the first snapshot, default is 16
+                     -workloadpartitioner <lpt-locality> // assigns the largest joblets first to the least loaded worker, locality prefers the worker that owns the edges of a joblet
+                     -localityimbalance <ratio> // load above the average a worker may get with the locality partitioner, default is 0.1
+                     -jobstealing <true-false> // idle workers steal jobs from the most loaded workers in the first superstep (AdvancedCoordinatorWithReBalanceAndQPath)
+                     -seed <long> // seed of the random values given by the synthetic loader, for reproducible runs
                     """.indent(5));
         } else
             parseInputParams(input);
@@ -120,6 +179,67 @@ public class Config {
                     if(temp.length !=2)
                         continue;
                     jobs.put(temp[0],temp[1]);
+                }else if(conf[0].equals("-matchcache")) {
+                    matchCacheSize=Integer.parseInt(conf[1]);
+                }else if(conf[0].equals("-spilldir")) {
+                    matchSpillDirectory=conf[1];
+                }else if(conf[0].equals("-columnar")) {
+                    columnarAttributes=Boolean.parseBoolean(conf[1]);
+                }else if(conf[0].equals("-metrics")) {
+                    metrics=Boolean.parseBoolean(conf[1]);
+                }else if(conf[0].equals("-metricsfile")) {
+                    metricsFile=conf[1];
+                }else if(conf[0].equals("-metricsformat")) {
+                    metricsFormat=conf[1];
+                }else if(conf[0].equals("-transport")) {
+                    transport=conf[1];
+                }else if(conf[0].equals("-dataplane")) {
+                    dataPlane=conf[1];
+                }else if(conf[0].equals("-dataplaneaddresses")) {
+                    for (String address:conf[1].split(",")) {
+                        String[] temp = address.split("@");
+                        dataPlaneAddresses.put(temp[0], temp[1]);
+                    }
+                }else if(conf[0].equals("-dataplanebatch")) {
+                    dataPlaneBatchSize=Integer.parseInt(conf[1]);
+                }else if(conf[0].equals("-dataplanequeue")) {
+                    dataPlaneQueueSize=Integer.parseInt(conf[1]);
+                }else if(conf[0].equals("-dataplanemaxframe")) {
+                    dataPlaneMaxFrameSize=Integer.parseInt(conf[1]);
+                }else if(conf[0].equals("-compression")) {
+                    compression=conf[1];
+                }else if(conf[0].equals("-objectstore")) {
+                    objectStore=conf[1];
+                }else if(conf[0].equals("-objectstoreroot")) {
+                    objectStoreRoot=conf[1];
+                }else if(conf[0].equals("-objectstorepartsize")) {
+                    objectStorePartSize=Long.parseLong(conf[1]);
+                }else if(conf[0].equals("-objectstorethreads")) {
+                    objectStoreThreads=Integer.parseInt(conf[1]);
+                }else if(conf[0].equals("-objectstoreuploadbuffers")) {
+                    objectStoreUploadBuffers=Integer.parseInt(conf[1]);
+                }else if(conf[0].equals("-workerthreads")) {
+                    workerThreads=Integer.parseInt(conf[1]);
+                }else if(conf[0].equals("-graphpartitioner")) {
+                    graphPartitioner=conf[1];
+                }else if(conf[0].equals("-comparepartitioners")) {
+                    comparePartitioners=Boolean.parseBoolean(conf[1]);
+                }else if(conf[0].equals("-costsamplerate")) {
+                    costSampleRate=Double.parseDouble(conf[1]);
+                }else if(conf[0].equals("-costsamplebudget")) {
+                    costSampleBudget=Long.parseLong(conf[1]);
+                }else if(conf[0].equals("-multipattern")) {
+                    multiPatternMatching=Boolean.parseBoolean(conf[1]);
+                }else if(conf[0].equals("-jobletgroupsize")) {
+                    jobletGroupSize=Integer.parseInt(conf[1]);
+                }else if(conf[0].equals("-workloadpartitioner")) {
+                    workloadPartitioner=conf[1];
+                }else if(conf[0].equals("-localityimbalance")) {
+                    localityImbalance=Double.parseDouble(conf[1]);
+                }else if(conf[0].equals("-jobstealing")) {
+                    jobStealing=Boolean.parseBoolean(conf[1]);
+                }else if(conf[0].equals("-seed")) {
+                    seed=Long.parseLong(conf[1]);
                 }else if(conf[0].equals("-idletime")) {
                     threadsIdleTime=Long.parseLong(conf[1]);
                 }else if (conf[0].startsWith("-t")) {
@@ -23,11 +23,7 @@ public class CostEstimator {
         String centerNodeType=tgfd.getPattern().getCenterVertexType();
         int patternSize=tgfd.getPattern().getSize();
         int cost=0;
-        for (Vertex v:graph.getNodeMap().values()) {
-            if(v.getTypes().contains(centerNodeType))
-                cost+=patternSize;
-        }
-        return cost;
+        return graph.getVerticesByType(centerNodeType).size()*patternSize;
     }
 
     public HashMap<TGFD,Integer> computeSubgraphIsomorphismCost(List<TGFD> tgfds)
@@ -43,15 +39,12 @@ public class CostEstimator {
     {
         String centerNodeType=tgfd.getPattern().getCenterVertexType();
         HashSet<String> nodesToRetrieve=new HashSet<>();
-        for (String vertexURI:graph.getNodeMap().keySet()) {
-            DataVertex data_v=(DataVertex) graph.getNode(vertexURI);
-            if(data_v.getTypes().contains(centerNodeType)) {
-                List<Vertex> withinDiameter=graph.getVerticesWithinDiameter(data_v,tgfd.getPattern().getDiameter());
-                for (Vertex w:withinDiameter) {
-                    String uri=((DataVertex) w).getVertexURI();
-                    if(partitionMapping.containsKey(uri) && partitionMapping.get(uri)!=assignedPartition)
-                        nodesToRetrieve.add(uri);
-                }
+        for (Vertex v:graph.getVerticesByType(centerNodeType)) {
+            List<Vertex> withinDiameter=graph.getVerticesWithinDiameter((DataVertex) v,tgfd.getPattern().getDiameter());
+            for (Vertex w:withinDiameter) {
+                String uri=((DataVertex) w).getVertexURI();
+                if(partitionMapping.containsKey(uri) && partitionMapping.get(uri)!=assignedPartition)
+                    nodesToRetrieve.add(uri);
             }
         }
         return nodesToRetrieve.size();
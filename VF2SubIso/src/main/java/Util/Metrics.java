@@ -0,0 +1,218 @@
+package Util;
+
+import org.json.simple.JSONValue;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters, timers and histograms of the phases of the pipeline.
+ *
+ * Metrics are only recorded if Config.metrics is true, otherwise every call returns after reading that flag.
+ * They can be saved as JSON or in the Prometheus text format to Config.metricsFile.
+ * All the methods can be called concurrently.
+ */
+public final class Metrics {
+
+    // Timers (seconds)
+    public static final String LOAD_GRAPH = "tgfd_load_graph_seconds";
+    public static final String LOAD_CHANGES = "tgfd_load_changes_seconds";
+    public static final String SUBGRAPH_EXTRACTION = "tgfd_subgraph_extraction_seconds";
+    public static final String VF2_SEARCH = "tgfd_vf2_search_seconds";
+    public static final String MULTI_PATTERN_SEARCH = "tgfd_multi_pattern_search_seconds";
+    public static final String SIGNATURE = "tgfd_signature_seconds";
+    public static final String MATCH_INGEST = "tgfd_match_ingest_seconds";
+    public static final String MATCH_TIMESTAMP = "tgfd_match_timestamp_seconds";
+    public static final String FIRST_SNAPSHOT_MATCHING = "tgfd_first_snapshot_matching_seconds";
+    public static final String CHANGE_APPLICATION = "tgfd_change_application_seconds";
+    public static final String SNAPSHOT_UPDATE = "tgfd_snapshot_update_seconds";
+    public static final String VIOLATION_DETECTION = "tgfd_violation_detection_seconds";
+    public static final String TOTAL = "tgfd_total_seconds";
+
+    // Counters
+    public static final String GRAPH_SIZE = "tgfd_graph_size_total";
+    public static final String CHANGES = "tgfd_changes_total";
+    public static final String MATCHES = "tgfd_matches_total";
+    public static final String VIOLATIONS = "tgfd_violations_total";
+
+    // Histograms
+    public static final String SUBGRAPH_SIZE = "tgfd_subgraph_vertices";
+
+    private static final ConcurrentHashMap<String, LongAdder> counters=new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Histogram> histograms=new ConcurrentHashMap<>();
+
+    private Metrics() {}
+
+    /**
+     * Histogram with exponential buckets. Timers are histograms of seconds, with buckets from 1 microsecond to about 18 minutes.
+     */
+    private static class Histogram {
+
+        private final double[] bounds;
+        private final AtomicLongArray buckets;
+        private final LongAdder count=new LongAdder();
+        private final DoubleAdder sum=new DoubleAdder();
+
+        private Histogram(double firstBound, double factor, int numberOfBuckets)
+        {
+            bounds=new double[numberOfBuckets];
+            bounds[0]=firstBound;
+            for (int i=1;i<numberOfBuckets;i++)
+                bounds[i]=bounds[i-1]*factor;
+            // The last bucket counts the values above all the bounds
+            buckets=new AtomicLongArray(numberOfBuckets+1);
+        }
+
+        private void record(double value)
+        {
+            int i=0;
+            while (i<bounds.length && value>bounds[i])
+                i++;
+            buckets.incrementAndGet(i);
+            count.increment();
+            sum.add(value);
+        }
+    }
+
+    // Recording
+    /** Returns the start time to give to stopTimer, or 0 if metrics are disabled. */
+    public static long startTimer()
+    {
+        return Config.metrics ? System.nanoTime() : 0;
+    }
+
+    /** Records the time since startTimer. */
+    public static void stopTimer(String name, long startTime)
+    {
+        if(!Config.metrics || startTime==0)
+            return;
+        histograms.computeIfAbsent(name, k -> new Histogram(1e-6, 4, 15))
+                .record((System.nanoTime()-startTime)/1e9);
+    }
+
+    public static void increment(String name)
+    {
+        add(name, 1);
+    }
+
+    public static void add(String name, long delta)
+    {
+        if(!Config.metrics)
+            return;
+        counters.computeIfAbsent(name, k -> new LongAdder()).add(delta);
+    }
+
+    /** Records a value in a histogram with buckets of powers of 2. */
+    public static void record(String name, long value)
+    {
+        if(!Config.metrics)
+            return;
+        histograms.computeIfAbsent(name, k -> new Histogram(1, 2, 24)).record(value);
+    }
+
+    /** Clears all the metrics. */
+    public static void reset()
+    {
+        counters.clear();
+        histograms.clear();
+    }
+
+    // Reading
+    /** Returns the value of a counter, 0 if nothing was counted. */
+    public static long getCount(String name)
+    {
+        var counter=counters.get(name);
+        return counter==null ? 0 : counter.sum();
+    }
+
+    /** Returns the sum of the values recorded in a timer or a histogram, 0 if nothing was recorded. */
+    public static double getSum(String name)
+    {
+        var histogram=histograms.get(name);
+        return histogram==null ? 0 : histogram.sum.sum();
+    }
+
+    /** Returns the number of values recorded in a timer or a histogram. */
+    public static long getNumberOfRecords(String name)
+    {
+        var histogram=histograms.get(name);
+        return histogram==null ? 0 : histogram.count.sum();
+    }
+
+    // Export
+    /** Saves the metrics to Config.metricsFile, in the format of Config.metricsFormat (json or prometheus). */
+    public static void save()
+    {
+        if(!Config.metrics || Config.metricsFile.isEmpty())
+            return;
+        try (FileWriter writer=new FileWriter(Config.metricsFile))
+        {
+            writer.write(Config.metricsFormat.equals("prometheus") ? toPrometheus() : toJson());
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    public static String toJson()
+    {
+        var counterValues=new TreeMap<String, Object>();
+        new TreeMap<>(counters).forEach((name, counter) -> counterValues.put(name, counter.sum()));
+
+        var histogramValues=new TreeMap<String, Object>();
+        new TreeMap<>(histograms).forEach((name, histogram) -> {
+            var value=new LinkedHashMap<String, Object>();
+            value.put("count", histogram.count.sum());
+            value.put("sum", histogram.sum.sum());
+            var buckets=new LinkedHashMap<String, Object>();
+            for (int i=0;i<=histogram.bounds.length;i++)
+            {
+                long bucket=histogram.buckets.get(i);
+                if(bucket>0)
+                    buckets.put(i<histogram.bounds.length ? Double.toString(histogram.bounds[i]) : "+Inf", bucket);
+            }
+            value.put("buckets", buckets);
+            histogramValues.put(name, value);
+        });
+
+        var json=new LinkedHashMap<String, Object>();
+        json.put("counters", counterValues);
+        json.put("histograms", histogramValues);
+        return JSONValue.toJSONString(json);
+    }
+
+    public static String toPrometheus()
+    {
+        var builder=new StringBuilder();
+        for (Map.Entry<String, LongAdder> entry:new TreeMap<>(counters).entrySet())
+        {
+            builder.append("# TYPE ").append(entry.getKey()).append(" counter\n");
+            builder.append(entry.getKey()).append(" ").append(entry.getValue().sum()).append("\n");
+        }
+        for (Map.Entry<String, Histogram> entry:new TreeMap<>(histograms).entrySet())
+        {
+            var name=entry.getKey();
+            var histogram=entry.getValue();
+            builder.append("# TYPE ").append(name).append(" histogram\n");
+            long cumulative=0;
+            for (int i=0;i<histogram.bounds.length;i++)
+            {
+                cumulative+=histogram.buckets.get(i);
+                builder.append(name).append("_bucket{le=\"").append(histogram.bounds[i]).append("\"} ").append(cumulative).append("\n");
+            }
+            cumulative+=histogram.buckets.get(histogram.bounds.length);
+            builder.append(name).append("_bucket{le=\"+Inf\"} ").append(cumulative).append("\n");
+            builder.append(name).append("_sum ").append(histogram.sum.sum()).append("\n");
+            builder.append(name).append("_count ").append(histogram.count.sum()).append("\n");
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,88 @@
+package Util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Runs the joblets or jobs of a worker on Config.workerThreads threads.
+ *
+ * The tasks are started from the largest to the smallest, so a large task does not end up alone at the end,
+ * and an idle thread steals the next task from the others.
+ */
+public final class WorkStealingPool {
+
+    private static ForkJoinPool pool=null;
+
+    private WorkStealingPool() {}
+
+    /**
+     * Runs the action for every task and waits until all of them are done.
+     * @param tasks Tasks to be run, they must not depend on each other
+     * @param size Estimated cost of a task
+     * @param action Action to run for each task, it may be called concurrently
+     */
+    public static <T> void forEachLargestFirst(Collection<T> tasks, ToDoubleFunction<T> size, Consumer<T> action)
+    {
+        List<T> sortedTasks=new ArrayList<>(tasks);
+        sortedTasks.sort(Comparator.comparingDouble(size).reversed());
+        if(Config.workerThreads<=1 || sortedTasks.size()<=1)
+        {
+            sortedTasks.forEach(action);
+            return;
+        }
+
+        ForkJoinPool pool=getPool();
+        List<ForkJoinTask<?>> submitted=new ArrayList<>(sortedTasks.size());
+        for (T task:sortedTasks)
+            submitted.add(pool.submit(() -> action.accept(task)));
+        RuntimeException failure=null;
+        for (ForkJoinTask<?> task:submitted)
+        {
+            try
+            {
+                task.join();
+            }
+            catch (RuntimeException e)
+            {
+                if(failure==null)
+                    failure=e;
+            }
+        }
+        if(failure!=null)
+            throw failure;
+    }
+
+    /**
+     * Runs the action on Config.workerThreads threads, each of them taking the next task until there is none left.
+     * @param nextTask Gives the next task, or null if there is none left, it is called concurrently
+     * @param action Action to run for each task, it may be called concurrently
+     */
+    public static <T> void drain(Supplier<T> nextTask, Consumer<T> action)
+    {
+        List<Integer> threads=new ArrayList<>();
+        for (int i=0;i<Math.max(1, Config.workerThreads);i++)
+            threads.add(i);
+        forEachLargestFirst(threads, thread -> 0, thread -> {
+            for (T task=nextTask.get();task!=null;task=nextTask.get())
+                action.accept(task);
+        });
+    }
+
+    private static synchronized ForkJoinPool getPool()
+    {
+        if(pool==null || pool.getParallelism()!=Config.workerThreads)
+        {
+            if(pool!=null)
+                pool.shutdown();
+            pool=new ForkJoinPool(Config.workerThreads);
+        }
+        return pool;
+    }
+}
@@ -4,6 +4,7 @@ import BatchViolation.OptBatchTED;
 import IncrementalRunner.IncUpdates;
 import IncrementalRunner.IncrementalChange;
 import Loader.TGFDGenerator;
+import VF2Runner.MultiPatternMatcher;
 import VF2Runner.VF2SubgraphIsomorphism;
 import changeExploration.Change;
 import changeExploration.ChangeLoader;
@@ -16,13 +17,17 @@ import org.jgrapht.GraphMapping;
 
 import java.time.LocalDate;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 
 public class testRunner {
 
     private GraphLoader loader=null;
     private List<TGFD> tgfds;
-    private long wallClockTime=0;
+
+    // Timers and counters of the phases, in the order the phases run, reported by getRuntimes and getCounts
+    private static final String[] PHASES={Metrics.LOAD_GRAPH, Metrics.FIRST_SNAPSHOT_MATCHING, Metrics.LOAD_CHANGES,
+            Metrics.SNAPSHOT_UPDATE, Metrics.SUBGRAPH_EXTRACTION, Metrics.VF2_SEARCH, Metrics.SIGNATURE,
+            Metrics.MATCH_INGEST, Metrics.MATCH_TIMESTAMP, Metrics.CHANGE_APPLICATION, Metrics.VIOLATION_DETECTION};
+    private static final String[] COUNTERS={Metrics.GRAPH_SIZE, Metrics.CHANGES, Metrics.MATCHES, Metrics.VIOLATIONS};
 
     public testRunner()
     {
@@ -31,7 +36,7 @@ public class testRunner {
 
     public void load()
     {
-        long startTime=System.currentTimeMillis();
+        long startTime=Metrics.startTimer();
 
         // Test whether we loaded all the files correctly
         System.out.println(Arrays.toString(Config.getFirstDataFilePath().toArray()));
@@ -49,15 +54,18 @@ public class testRunner {
         }
         else if(Config.dataset.equals("synthetic"))
         {
-            loader = new SyntheticLoader(tgfds, Config.getFirstDataFilePath());
+            if(Config.seed>=0)
+                loader = new SyntheticLoader(tgfds, Config.getFirstDataFilePath(), Config.seed);
+            else
+                loader = new SyntheticLoader(tgfds, Config.getFirstDataFilePath());
         }
         else // default is imdb
         {
             loader = new IMDBLoader(tgfds, Config.getFirstDataFilePath());
         }
-        printWithTime("Load graph 1 (" + Config.getTimestamps().get(1) + ")", System.currentTimeMillis()-startTime);
-
-        wallClockTime+=System.currentTimeMillis()-startTime;
+        Metrics.stopTimer(Metrics.LOAD_GRAPH, startTime);
+        Metrics.stopTimer(Metrics.TOTAL, startTime);
+        Metrics.add(Metrics.GRAPH_SIZE, loader.getGraphSize());
 
     }
 
@@ -70,7 +78,7 @@ public class testRunner {
         }
         StringBuilder msg=new StringBuilder();
 
-        long startTime, functionWallClockTime=System.currentTimeMillis();
+        long startTime, functionStartTime=Metrics.startTimer();
         LocalDate currentSnapshotDate= Config.getTimestamps().get(1);
 
         //Create the match collection for all the TGFDs in the list
@@ -81,17 +89,32 @@ public class testRunner {
 
 
         // Now, we need to find the matches for the first snapshot.
-        for (TGFD tgfd:tgfds) {
-            VF2SubgraphIsomorphism VF2 = new VF2SubgraphIsomorphism();
-            System.out.println("\n###########"+tgfd.getName()+"###########");
-            Iterator <GraphMapping <Vertex, RelationshipEdge>> results= VF2.execute(loader.getGraph(), tgfd.getPattern(),false);
-
-            //Retrieving and storing the matches of each timestamp.
-            System.out.println("Retrieving the matches");
-            startTime=System.currentTimeMillis();
-            matchCollectionHashMap.get(tgfd.getName()).addMatches(currentSnapshotDate,results);
-            printWithTime("Match retrieval", System.currentTimeMillis()-startTime);
+        long matchingStartTime=Metrics.startTimer();
+        if(Config.multiPatternMatching)
+        {
+            // The TGFDs are matched together, their common sub-patterns are matched once.
+            // The matches are added to the match collections as they are found, which may spill them to disk
+            System.out.println("Retrieving the matches of all the TGFDs together");
+            LocalDate firstSnapshotDate=currentSnapshotDate;
+            // The snapshot is recorded for the TGFDs without matches too
+            for (TGFD tgfd:tgfds)
+                matchCollectionHashMap.get(tgfd.getName()).addTimestamp(firstSnapshotDate);
+            new MultiPatternMatcher(tgfds).execute(loader.getGraph(),
+                    (tgfd, mapping) -> matchCollectionHashMap.get(tgfd.getName()).addMatches(firstSnapshotDate, mapping));
+        }
+        else
+        {
+            for (TGFD tgfd:tgfds) {
+                VF2SubgraphIsomorphism VF2 = new VF2SubgraphIsomorphism();
+                System.out.println("\n###########"+tgfd.getName()+"###########");
+                Iterator <GraphMapping <Vertex, RelationshipEdge>> results= VF2.execute(loader.getGraph(), tgfd.getPattern(),false);
+
+                //Retrieving and storing the matches of each timestamp.
+                System.out.println("Retrieving the matches");
+                matchCollectionHashMap.get(tgfd.getName()).addMatches(currentSnapshotDate,results);
+            }
         }
+        Metrics.stopTimer(Metrics.FIRST_SNAPSHOT_MATCHING, matchingStartTime);
 
         //Load the change files
         Object[] ids= Config.getDiffFilesPath().keySet().toArray();
@@ -100,18 +123,19 @@ public class testRunner {
         {
             System.out.println("===========Snapshot "+ids[i]+" (" + Config.getTimestamps().get(ids[i]) + ")===========");
 
-            startTime=System.currentTimeMillis();
+            startTime=Metrics.startTimer();
             currentSnapshotDate= Config.getTimestamps().get((int)ids[i]);
             ChangeLoader changeLoader=new ChangeLoader(Config.getDiffFilesPath().get(ids[i]));
             List<Change> changes=changeLoader.getAllChanges();
 
-            printWithTime("Load changes "+ids[i]+" (" + Config.getTimestamps().get(ids[i]) + ")", System.currentTimeMillis()-startTime);
+            Metrics.stopTimer(Metrics.LOAD_CHANGES, startTime);
+            Metrics.add(Metrics.CHANGES, changes.size());
             System.out.println("Total number of changes: " + changes.size());
 
             // Now, we need to find the matches for each snapshot.
             // Finding the matches...
 
-            startTime=System.currentTimeMillis();
+            startTime=Metrics.startTimer();
             System.out.println("Updating the graph");
             IncUpdates incUpdatesOnDBpedia=new IncUpdates(loader.getGraph(),tgfds);
             incUpdatesOnDBpedia.AddNewVertices(changes);
@@ -142,7 +166,7 @@ public class testRunner {
                 System.out.println("New matches ("+tgfd.getName()+"): " +
                         newMatchesSignaturesByTGFD.get(tgfd.getName()).size() + " ** " + removedMatchesSignaturesByTGFD.get(tgfd.getName()).size());
             }
-            printWithTime("Update and retrieve matches ", System.currentTimeMillis()-startTime);
+            Metrics.stopTimer(Metrics.SNAPSHOT_UPDATE, startTime);
             //myConsole.print("#new matches: " + newMatchesSignatures.size()  + " - #removed matches: " + removedMatchesSignatures.size());
         }
 
@@ -152,15 +176,13 @@ public class testRunner {
 
             System.out.println("Running the optimized TED");
 
-            startTime=System.currentTimeMillis();
             OptBatchTED optimize=new OptBatchTED(matchCollectionHashMap.get(tgfd.getName()),tgfd);
             Set<Violation> allViolationsOptBatchTED=optimize.findViolations();
             System.out.println("Number of violations (Optimized method): " + allViolationsOptBatchTED.size());
-            printWithTime("Optimized Batch TED", System.currentTimeMillis()-startTime);
             msg.append(getViolationsMessage(allViolationsOptBatchTED,tgfd));
         }
-        wallClockTime+=System.currentTimeMillis()-functionWallClockTime;
-        printWithTime("Total wall clock time: ", wallClockTime);
+        Metrics.stopTimer(Metrics.TOTAL, functionStartTime);
+        Metrics.save();
         return msg.toString();
     }
 
@@ -168,6 +190,24 @@ public class testRunner {
         return loader;
     }
 
+    /** Total runtime (ms) of each phase recorded in the Metrics since they were reset, in the order the phases run. */
+    public LinkedHashMap<String, Long> getRuntimes()
+    {
+        LinkedHashMap<String, Long> runtimes=new LinkedHashMap<>();
+        for (String phase:PHASES)
+            runtimes.put(phase.replace("_seconds", ""), Math.round(Metrics.getSum(phase)*1000));
+        return runtimes;
+    }
+
+    /** Size of the first snapshot and number of changes, matches and violations recorded in the Metrics since they were reset. */
+    public LinkedHashMap<String, Long> getCounts()
+    {
+        LinkedHashMap<String, Long> counts=new LinkedHashMap<>();
+        for (String counter:COUNTERS)
+            counts.put(counter, Metrics.getCount(counter));
+        return counts;
+    }
+
     private String getViolationsMessage(Set<Violation> violations, TGFD tgfd)
     {
         StringBuilder msg=new StringBuilder();
@@ -181,11 +221,4 @@ public class testRunner {
         return msg.toString();
     }
 
-    private void printWithTime(String message, long runTimeInMS)
-    {
-        System.out.println(message + " time: " + runTimeInMS + "(ms) ** " +
-                TimeUnit.MILLISECONDS.toSeconds(runTimeInMS) + "(sec) ** " +
-                TimeUnit.MILLISECONDS.toMinutes(runTimeInMS) +  "(min)");
-    }
-
 }
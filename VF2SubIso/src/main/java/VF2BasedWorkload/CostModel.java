@@ -0,0 +1,276 @@
+package VF2BasedWorkload;
+
+import Infra.*;
+import Util.Config;
+import VF2Runner.VF2SubgraphIsomorphism;
+import org.jgrapht.GraphMapping;
+
+import java.util.*;
+
+/**
+ * Estimates the cost of the joblets from a sample, instead of |edges|^|pattern|.
+ *
+ * For each TGFD, a fraction of its joblets (Config.costSampleRate) is matched for real, within a time budget
+ * (Config.costSampleBudget). The matching time is then fitted with a least-squares model on the logs of these features:
+ *   - the number of edges within the diameter of the center
+ *   - the degree of the center
+ *   - the number of those edges whose label is in the pattern (the part of the label histogram that can match)
+ *   - the number of vertices within the diameter whose type is in the pattern
+ * The model predicts the cost of all the joblets of the TGFD, and its error is measured on the samples left out of the fit,
+ * next to the error of the default estimate scaled to the matching time.
+ * For a TGFD with too few samples, the default estimate is scaled by the matching time of its samples, or of the samples
+ * of all the TGFDs if it has none. The costs are in microseconds of matching, or all of them are left to the default
+ * estimate if nothing could be sampled. The budget is checked after each match, so a sample is cut short when it runs out.
+ */
+public class CostModel {
+
+    private static final int MIN_SAMPLES=8;
+    private static final int WARM_UP=3;
+    private static final int NUMBER_OF_FEATURES=5;
+    // Keeps the fit stable with few samples
+    private static final double RIDGE=1e-3;
+
+    private final VF2DataGraph graph;
+    private final Random random;
+    private final HashMap<String, double[]> weightsByTGFD=new HashMap<>();
+    private final HashMap<String, Double> errorsByTGFD=new HashMap<>();
+    // Matching time and default estimate of the samples of all the TGFDs
+    private double totalSampledTime, totalSampledSize;
+
+    public CostModel(VF2DataGraph graph)
+    {
+        this.graph=graph;
+        this.random=Config.seed>=0 ? new Random(Config.seed) : new Random();
+    }
+
+    /** Samples the joblets of each TGFD, fits the models and sets the estimated cost of all the joblets. */
+    public void estimate(Collection<Joblet> joblets)
+    {
+        LinkedHashMap<String, List<Joblet>> jobletsByTGFD=new LinkedHashMap<>();
+        for (Joblet joblet:joblets)
+            jobletsByTGFD.computeIfAbsent(joblet.getTGFD().getName(), name -> new ArrayList<>()).add(joblet);
+        totalSampledTime=0;
+        totalSampledSize=0;
+        List<Joblet> unscaled=new ArrayList<>();
+        for (List<Joblet> tgfdJoblets:jobletsByTGFD.values())
+        {
+            if(!estimate(tgfdJoblets.get(0).getTGFD(), tgfdJoblets))
+                unscaled.addAll(tgfdJoblets);
+        }
+        if(unscaled.isEmpty())
+            return;
+        // The TGFDs without samples are scaled like the others, so the costs of all the joblets are in the same unit
+        if(totalSampledSize>0)
+        {
+            double scale=totalSampledTime/totalSampledSize;
+            for (Joblet joblet:unscaled)
+                joblet.setEstimatedCost(joblet.getSize()*scale);
+        }
+        else
+        {
+            for (Joblet joblet:joblets)
+                joblet.setEstimatedCost(-1);
+            System.out.println("*COST MODEL*: No samples to scale the default estimate, it is used for all the joblets");
+        }
+    }
+
+    /** Gets the mean relative error of the predicted cost of the samples left out of the fit, by TGFD name. */
+    public HashMap<String, Double> getErrors()
+    {
+        return errorsByTGFD;
+    }
+
+    public double[] getWeights(String tgfdName)
+    {
+        return weightsByTGFD.get(tgfdName);
+    }
+
+    // Sets the cost of the joblets in microseconds, returns false if there is no sample to do so
+    private boolean estimate(TGFD tgfd, List<Joblet> joblets)
+    {
+        Set<String> labels=new HashSet<>();
+        Set<String> types=new HashSet<>();
+        for (RelationshipEdge edge:tgfd.getPattern().getPattern().edgeSet())
+            labels.add(edge.getLabel());
+        for (Vertex v:tgfd.getPattern().getPattern().vertexSet())
+            types.addAll(v.getTypes());
+
+        // Samples
+        List<Joblet> shuffled=new ArrayList<>(joblets);
+        Collections.shuffle(shuffled, random);
+        int numberOfSamples=Math.max(MIN_SAMPLES, (int) Math.ceil(joblets.size()*Config.costSampleRate));
+        List<double[]> sampleFeatures=new ArrayList<>();
+        List<Double> sampleCosts=new ArrayList<>();
+        List<Double> sampleSizes=new ArrayList<>();
+        double sampledTime=0, sampledSize=0;
+        VF2SubgraphIsomorphism VF2=new VF2SubgraphIsomorphism();
+        long deadline=System.currentTimeMillis()+Config.costSampleBudget;
+        // The first matches are slower until the matcher is compiled, so they are not measured
+        for (int i=0;i<Math.min(WARM_UP, shuffled.size());i++)
+            matchingTime(shuffled.get(i), tgfd, VF2, deadline);
+        for (int i=0;i<shuffled.size() && sampleCosts.size()<numberOfSamples;i++)
+        {
+            Joblet joblet=shuffled.get(i);
+            // The faster of two runs, so a pause of the JVM is not taken as the cost of the joblet
+            double first=matchingTime(joblet, tgfd, VF2, deadline);
+            double second=first>=0 ? matchingTime(joblet, tgfd, VF2, deadline) : -1;
+            // A sample cut short by the budget is not measured
+            if(second<0)
+                break;
+            double time=Math.min(first, second);
+            sampleFeatures.add(features(joblet, labels, types));
+            sampleCosts.add(Math.log1p(time));
+            sampledTime+=time;
+            sampleSizes.add(joblet.getSize());
+            sampledSize+=joblet.getSize();
+        }
+        totalSampledTime+=sampledTime;
+        totalSampledSize+=sampledSize;
+        if(sampleCosts.size()<MIN_SAMPLES)
+        {
+            // Too few samples for a model, the default estimate is only scaled to the same unit as the other TGFDs
+            if(sampledSize==0)
+            {
+                System.out.println("*COST MODEL*: " + tgfd.getName() + " - no samples, the default estimate is scaled with the other TGFDs");
+                return false;
+            }
+            System.out.println("*COST MODEL*: " + tgfd.getName() + " - only " + sampleCosts.size() + " samples, the default estimate is scaled");
+            double scale=sampledTime/sampledSize;
+            for (Joblet joblet:joblets)
+                joblet.setEstimatedCost(joblet.getSize()*scale);
+            return true;
+        }
+
+        // Fit on most of the samples, and measure the error on the others, next to the one of the default estimate
+        int numberOfTrainingSamples=sampleCosts.size()-Math.max(2, sampleCosts.size()/5);
+        double []weights=fit(sampleFeatures.subList(0, numberOfTrainingSamples), sampleCosts.subList(0, numberOfTrainingSamples));
+        double trainingTime=0, trainingSize=0;
+        for (int i=0;i<numberOfTrainingSamples;i++)
+        {
+            trainingTime+=Math.expm1(sampleCosts.get(i));
+            trainingSize+=sampleSizes.get(i);
+        }
+        double error=0, defaultError=0;
+        for (int i=numberOfTrainingSamples;i<sampleCosts.size();i++)
+        {
+            double actual=Math.expm1(sampleCosts.get(i));
+            double predicted=Math.expm1(predict(weights, sampleFeatures.get(i)));
+            error+=Math.abs(predicted-actual)/Math.max(actual, 1);
+            double defaultEstimate=trainingSize>0 ? sampleSizes.get(i)*trainingTime/trainingSize : 0;
+            defaultError+=Math.abs(defaultEstimate-actual)/Math.max(actual, 1);
+        }
+        error/=sampleCosts.size()-numberOfTrainingSamples;
+        defaultError/=sampleCosts.size()-numberOfTrainingSamples;
+        // All the samples are used for the predictions
+        weights=fit(sampleFeatures, sampleCosts);
+        weightsByTGFD.put(tgfd.getName(), weights);
+        errorsByTGFD.put(tgfd.getName(), error);
+
+        for (Joblet joblet:joblets)
+            joblet.setEstimatedCost(Math.expm1(predict(weights, features(joblet, labels, types))));
+        System.out.println("*COST MODEL*: " + tgfd.getName() + " - samples: " + sampleCosts.size() + "/" + joblets.size() +
+                " - mean relative error: " + String.format("%.3f", error) +
+                " (default estimate: " + String.format("%.3f", defaultError) + ")");
+        return true;
+    }
+
+    private double[] features(Joblet joblet, Set<String> labels, Set<String> types)
+    {
+        List<RelationshipEdge> edges=joblet.getEdges()!=null ? joblet.getEdges() : new ArrayList<>();
+        int matchingLabels=0;
+        HashSet<Vertex> matchingVertices=new HashSet<>();
+        for (RelationshipEdge edge:edges)
+        {
+            if(labels.contains(edge.getLabel()))
+                matchingLabels++;
+            for (Vertex v:Arrays.asList(edge.getSource(), edge.getTarget()))
+            {
+                if(!Collections.disjoint(v.getTypes(), types))
+                    matchingVertices.add(v);
+            }
+        }
+        return new double[]{
+                1,
+                Math.log1p(edges.size()),
+                Math.log1p(graph.getGraph().degreeOf(joblet.getCenterNode())),
+                Math.log1p(matchingLabels),
+                Math.log1p(matchingVertices.size())};
+    }
+
+    // Time to extract the subgraph and enumerate its matches, in microseconds, or -1 if the deadline is reached first
+    private double matchingTime(Joblet joblet, TGFD tgfd, VF2SubgraphIsomorphism VF2, long deadline)
+    {
+        if(System.currentTimeMillis()>=deadline)
+            return -1;
+        long startTime=System.nanoTime();
+        VF2DataGraph subgraph=new VF2DataGraph(graph.getSubGraphWithinDiameter(joblet.getCenterNode(), joblet.getDiameter(), tgfd));
+        Iterator<GraphMapping<Vertex, RelationshipEdge>> results=VF2.execute(subgraph, tgfd.getPattern(), false);
+        if(results!=null)
+        {
+            while (results.hasNext())
+            {
+                results.next();
+                if(System.currentTimeMillis()>=deadline)
+                    return -1;
+            }
+        }
+        if(System.currentTimeMillis()>=deadline)
+            return -1;
+        return (System.nanoTime()-startTime)/1000.0;
+    }
+
+    private static double predict(double []weights, double []features)
+    {
+        double value=0;
+        for (int i=0;i<weights.length;i++)
+            value+=weights[i]*features[i];
+        return Math.max(value, 0);
+    }
+
+    // Ridge least squares: solves (X'X + ridge*I) w = X'y
+    private static double[] fit(List<double[]> features, List<Double> costs)
+    {
+        int n=NUMBER_OF_FEATURES;
+        double [][]a=new double[n][n+1];
+        for (int s=0;s<costs.size();s++)
+        {
+            double []x=features.get(s);
+            for (int i=0;i<n;i++)
+            {
+                for (int j=0;j<n;j++)
+                    a[i][j]+=x[i]*x[j];
+                a[i][n]+=x[i]*costs.get(s);
+            }
+        }
+        for (int i=1;i<n;i++)
+            a[i][i]+=RIDGE*costs.size();
+        // Gaussian elimination with partial pivoting
+        for (int col=0;col<n;col++)
+        {
+            int pivot=col;
+            for (int row=col+1;row<n;row++)
+            {
+                if(Math.abs(a[row][col])>Math.abs(a[pivot][col]))
+                    pivot=row;
+            }
+            double []temp=a[col];
+            a[col]=a[pivot];
+            a[pivot]=temp;
+            if(Math.abs(a[col][col])<1e-12)
+                continue;
+            for (int row=0;row<n;row++)
+            {
+                if(row==col)
+                    continue;
+                double factor=a[row][col]/a[col][col];
+                for (int k=col;k<=n;k++)
+                    a[row][k]-=factor*a[col][k];
+            }
+        }
+        double []weights=new double[n];
+        for (int i=0;i<n;i++)
+            weights[i]=Math.abs(a[i][i])<1e-12 ? 0 : a[i][n]/a[i][i];
+        return weights;
+    }
+
+}
@@ -5,7 +5,7 @@ import org.jgrapht.Graph;
 
 import java.util.ArrayList;
 
-public class Joblet {
+public class Joblet implements Neighbourhood {
 
     private int id;
     private int diameter;
@@ -14,6 +14,8 @@ public class Joblet {
     private int fragmentID;        //a->b and b->c -> start off with 50 joblets, then extract the subgraph within diameter 2 and then do the matching
     private ArrayList<RelationshipEdge> edges;
     private VF2DataGraph subgraph;
+    private VF2DataGraph region;   // merged region of the JobletGroup of the joblet, its subgraph is extracted from it when needed
+    private double estimatedCost=-1;
 
     public Joblet(int id, DataVertex centerNode, TGFD tgfd, int diameter, int fragmentID)
     {
@@ -24,31 +26,43 @@ public class Joblet {
         this.fragmentID=fragmentID;
     }
 
+    @Override
     public void setEdges(ArrayList<RelationshipEdge> edges) {
         this.edges = edges;
-        edges.forEach(edge -> {
-            edge.getSource().addJobletID(id);
-            edge.getTarget().addJobletID(id);
-        });
     }
 
     public void setSubgraph(Graph<Vertex, RelationshipEdge> inducedGraph) {
         this.subgraph=new VF2DataGraph(inducedGraph);
-        this.subgraph.getGraph().vertexSet().forEach(vertex -> vertex.addJobletID(id));
+    }
+
+    /**
+     * Sets the merged region the joblet was matched on in the first snapshot.
+     * The region holds the subgraph of the joblet, which is only extracted if a change reaches the joblet.
+     */
+    public void setRegion(VF2DataGraph region) {
+        this.region=region;
     }
 
     public VF2DataGraph getSubgraph() {
+        if(subgraph==null && region!=null)
+        {
+            setSubgraph(region.getSubGraphWithinDiameter(centerNode, diameter, tgfd));
+            region=null;
+        }
         return subgraph;
     }
 
+    @Override
     public ArrayList<RelationshipEdge> getEdges() {
         return edges;
     }
 
+    @Override
     public int getDiameter() {
         return diameter;
     }
 
+    @Override
     public DataVertex getCenterNode() {
         return centerNode;
     }
@@ -57,6 +71,7 @@ public class Joblet {
         return tgfd;
     }
 
+    @Override
     public int getId() {
         return id;
     }
@@ -65,10 +80,19 @@ public class Joblet {
         return fragmentID;
     }
 
+    /** Sets the cost predicted by the CostModel, it is then given by getSize. */
+    public void setEstimatedCost(double estimatedCost) {
+        this.estimatedCost = estimatedCost;
+    }
+
     public double getSize()
     {
-        if(edges!=null)
+        if(estimatedCost>=0)
+            return estimatedCost;
+        else if(edges!=null)
             return Math.pow(edges.size(),tgfd.getPattern().getSize());
+        else if(subgraph!=null) // On the workers, only the subgraph is known
+            return Math.pow(subgraph.getGraph().edgeSet().size(),tgfd.getPattern().getSize());
         else
             return 0;
     }
@@ -0,0 +1,191 @@
+package VF2BasedWorkload;
+
+import Infra.*;
+import VF2Runner.MultiPatternMatcher;
+import VF2Runner.VF2SubgraphIsomorphism;
+import org.jgrapht.Graph;
+import org.jgrapht.GraphMapping;
+
+import java.util.*;
+
+/**
+ * Joblets of nearby centers that are extracted and matched together in the first snapshot.
+ *
+ * The joblets of the TGFDs that share a center, and the joblets of the centers within the diameter of each other,
+ * have overlapping neighbourhoods. The group extracts the union of them, the region, once, and each TGFD is matched once over it.
+ * Only the matches anchored at a center of a joblet of the TGFD are kept: this assumes the diameter of a TGFD covers
+ * its pattern from the center vertex, so such a match is within the neighbourhood of the joblet of that center.
+ */
+public class JobletGroup {
+
+    private List<Joblet> joblets=new ArrayList<>();
+    private int diameter=0;
+    private Set<String> validTypes=new HashSet<>();
+    private VF2DataGraph region;
+
+    // Centers of the joblets of each TGFD in the group
+    private LinkedHashMap<TGFD, Set<DataVertex>> centersByTGFD=new LinkedHashMap<>();
+
+    private void add(Joblet joblet)
+    {
+        joblets.add(joblet);
+        diameter=Math.max(diameter, joblet.getDiameter());
+        validTypes.addAll(VF2DataGraph.extractValidTypesFromTGFD(joblet.getTGFD()));
+        centersByTGFD.computeIfAbsent(joblet.getTGFD(), tgfd -> Collections.newSetFromMap(new IdentityHashMap<>())).add(joblet.getCenterNode());
+    }
+
+    /**
+     * Groups the joblets by center, then greedily adds to the group of a center the ungrouped centers within its diameter.
+     * @param maxCenters Maximum number of centers in a group, 1 only groups the joblets of the same center
+     */
+    public static List<JobletGroup> group(Collection<Joblet> joblets, VF2DataGraph graph, int maxCenters)
+    {
+        LinkedHashMap<DataVertex, List<Joblet>> jobletsByCenter=new LinkedHashMap<>();
+        for (Joblet joblet:joblets)
+            jobletsByCenter.computeIfAbsent(joblet.getCenterNode(), center -> new ArrayList<>()).add(joblet);
+
+        List<JobletGroup> groups=new ArrayList<>();
+        Set<DataVertex> grouped=Collections.newSetFromMap(new IdentityHashMap<>());
+        for (DataVertex seed:jobletsByCenter.keySet())
+        {
+            if(grouped.contains(seed))
+                continue;
+            JobletGroup group=new JobletGroup();
+            int diameter=0;
+            for (Joblet joblet:jobletsByCenter.get(seed))
+            {
+                group.add(joblet);
+                diameter=Math.max(diameter, joblet.getDiameter());
+            }
+            grouped.add(seed);
+            if(maxCenters>1)
+            {
+                for (DataVertex center:centersWithinDiameter(graph, seed, diameter, jobletsByCenter.keySet(), maxCenters-1, grouped))
+                {
+                    jobletsByCenter.get(center).forEach(group::add);
+                    grouped.add(center);
+                }
+            }
+            groups.add(group);
+        }
+        return groups;
+    }
+
+    /** Extracts the union of the neighbourhoods of the joblets from the graph. */
+    public void extractRegion(VF2DataGraph graph)
+    {
+        Set<DataVertex> centers=Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Joblet joblet:joblets)
+            centers.add(joblet.getCenterNode());
+        Graph<Vertex, RelationshipEdge> subgraph=graph.getSubGraphWithinDiameter(centers, diameter, validTypes);
+        region=new VF2DataGraph(subgraph);
+        for (Joblet joblet:joblets)
+            joblet.setRegion(region);
+    }
+
+    /**
+     * Matches each TGFD of the group over the region.
+     * @return The matches of each TGFD that are anchored at the center of one of its joblets
+     */
+    public LinkedHashMap<TGFD, List<GraphMapping<Vertex, RelationshipEdge>>> findAnchoredMatches(VF2SubgraphIsomorphism VF2)
+    {
+        LinkedHashMap<TGFD, List<GraphMapping<Vertex, RelationshipEdge>>> matches=new LinkedHashMap<>();
+        for (TGFD tgfd:centersByTGFD.keySet())
+        {
+            List<GraphMapping<Vertex, RelationshipEdge>> anchored=new ArrayList<>();
+            matches.put(tgfd, anchored);
+            Iterator<GraphMapping<Vertex, RelationshipEdge>> results=VF2.execute(region, tgfd.getPattern(), false);
+            if(results==null)
+                continue;
+            String centerType=tgfd.getPattern().getCenterVertexType();
+            Set<DataVertex> centers=centersByTGFD.get(tgfd);
+            results.forEachRemaining(mapping -> {
+                for (Vertex patternVertex:tgfd.getPattern().getPattern().vertexSet())
+                {
+                    if(!patternVertex.getTypes().contains(centerType))
+                        continue;
+                    Vertex matched=mapping.getVertexCorrespondence(patternVertex, false);
+                    if(matched!=null && centers.contains(matched))
+                    {
+                        anchored.add(mapping);
+                        return;
+                    }
+                }
+            });
+        }
+        return matches;
+    }
+
+    /**
+     * Matches the TGFDs of the group over the region at once, from each center of the group, sharing their common sub-patterns.
+     * A match is anchored at the center its center pattern vertex is mapped to.
+     * @return The matches of each TGFD that are anchored at the center of one of its joblets
+     */
+    public LinkedHashMap<TGFD, List<GraphMapping<Vertex, RelationshipEdge>>> findAnchoredMatches(MultiPatternMatcher matcher)
+    {
+        LinkedHashMap<TGFD, List<GraphMapping<Vertex, RelationshipEdge>>> matches=new LinkedHashMap<>();
+        Set<DataVertex> centers=Collections.newSetFromMap(new IdentityHashMap<>());
+        for (TGFD tgfd:centersByTGFD.keySet())
+        {
+            matches.put(tgfd, new ArrayList<>());
+            centers.addAll(centersByTGFD.get(tgfd));
+        }
+        for (DataVertex center:centers)
+            matcher.execute(region.getGraph(), center, tgfd -> centersByTGFD.containsKey(tgfd) && centersByTGFD.get(tgfd).contains(center),
+                    (tgfd, mapping) -> matches.get(tgfd).add(mapping));
+        return matches;
+    }
+
+    public List<Joblet> getJoblets() {
+        return joblets;
+    }
+
+    public VF2DataGraph getRegion() {
+        return region;
+    }
+
+    /** Estimated cost of matching the TGFDs over the region, like Joblet.getSize. */
+    public double getSize()
+    {
+        if(region==null)
+            return 0;
+        double size=0;
+        for (TGFD tgfd:centersByTGFD.keySet())
+            size+=Math.pow(region.getGraph().edgeSet().size(), tgfd.getPattern().getSize());
+        return size;
+    }
+
+    // Ungrouped centers within the diameter of the seed, in the order they are reached
+    private static List<DataVertex> centersWithinDiameter(VF2DataGraph graph, DataVertex seed, int diameter,
+                                                          Set<DataVertex> centers, int maxCenters, Set<DataVertex> grouped)
+    {
+        List<DataVertex> found=new ArrayList<>();
+        HashMap<DataVertex, Integer> visited=new HashMap<>();
+        LinkedList<DataVertex> queue=new LinkedList<>();
+        visited.put(seed, 0);
+        queue.add(seed);
+        while (!queue.isEmpty() && found.size()<maxCenters)
+        {
+            DataVertex v=queue.poll();
+            int distance=visited.get(v);
+            if(distance==diameter)
+                continue;
+            List<DataVertex> neighbours=new ArrayList<>();
+            for (RelationshipEdge edge:graph.getGraph().outgoingEdgesOf(v))
+                neighbours.add((DataVertex) edge.getTarget());
+            for (RelationshipEdge edge:graph.getGraph().incomingEdgesOf(v))
+                neighbours.add((DataVertex) edge.getSource());
+            for (DataVertex w:neighbours)
+            {
+                if(visited.containsKey(w))
+                    continue;
+                visited.put(w, distance+1);
+                queue.add(w);
+                if(centers.contains(w) && !grouped.contains(w) && found.size()<maxCenters)
+                    found.add(w);
+            }
+        }
+        return found;
+    }
+
+}
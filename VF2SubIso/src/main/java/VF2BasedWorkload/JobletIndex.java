@@ -0,0 +1,185 @@
+package VF2BasedWorkload;
+
+import Infra.DataVertex;
+import Infra.Neighbourhood;
+import Infra.RelationshipEdge;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Routing index from the vertices to the joblets (or jobs) whose neighbourhood holds them, so a change is routed to the joblets it touches.
+ *
+ * The IDs of a vertex are kept sorted in an int array of the exact size, by URI of the vertex, outside the vertex objects.
+ * This replaces a HashSet of boxed Integers in each vertex, which took about 50 bytes per ID instead of 4.
+ * The index is built in bulk from all the neighbourhoods, then updated as the neighbourhoods change.
+ */
+public class JobletIndex {
+
+    private static final int[] EMPTY=new int[0];
+
+    private HashMap<String, int[]> idsByVertex;
+
+    public JobletIndex()
+    {
+        idsByVertex=new HashMap<>();
+    }
+
+    /**
+     * Builds the index of the center and the vertices of the edges of each neighbourhood.
+     * The IDs of each vertex are counted first, so each array is allocated once, and then sorted.
+     */
+    public static JobletIndex build(Collection<? extends Neighbourhood> neighbourhoods)
+    {
+        HashMap<String, int[]> counts=new HashMap<>();
+        for (Neighbourhood neighbourhood:neighbourhoods)
+        {
+            forEachVertex(neighbourhood, uri -> counts.computeIfAbsent(uri, u -> new int[1])[0]++);
+        }
+        JobletIndex index=new JobletIndex();
+        for (Map.Entry<String, int[]> entry:counts.entrySet())
+        {
+            index.idsByVertex.put(entry.getKey(), new int[entry.getValue()[0]]);
+            entry.getValue()[0]=0;
+        }
+        for (Neighbourhood neighbourhood:neighbourhoods)
+        {
+            int id=neighbourhood.getId();
+            forEachVertex(neighbourhood, uri -> index.idsByVertex.get(uri)[counts.get(uri)[0]++]=id);
+        }
+        // A vertex is in several edges of a neighbourhood, so the duplicates are removed
+        index.idsByVertex.replaceAll((uri, ids) -> sortedAndDistinct(ids));
+        return index;
+    }
+
+    /** Gets the sorted IDs of the neighbourhoods that hold the vertex. The array must not be modified. */
+    public int[] get(String vertexURI)
+    {
+        return idsByVertex.getOrDefault(vertexURI, EMPTY);
+    }
+
+    public boolean contains(String vertexURI, int id)
+    {
+        return Arrays.binarySearch(get(vertexURI), id)>=0;
+    }
+
+    public void add(String vertexURI, int id)
+    {
+        int[] ids=get(vertexURI);
+        int position=Arrays.binarySearch(ids, id);
+        if(position>=0)
+            return;
+        position=-position-1;
+        int[] newIDs=new int[ids.length+1];
+        System.arraycopy(ids, 0, newIDs, 0, position);
+        newIDs[position]=id;
+        System.arraycopy(ids, position, newIDs, position+1, ids.length-position);
+        idsByVertex.put(vertexURI, newIDs);
+    }
+
+    public void remove(String vertexURI, int id)
+    {
+        int[] ids=get(vertexURI);
+        int position=Arrays.binarySearch(ids, id);
+        if(position<0)
+            return;
+        if(ids.length==1)
+        {
+            idsByVertex.remove(vertexURI);
+            return;
+        }
+        int[] newIDs=new int[ids.length-1];
+        System.arraycopy(ids, 0, newIDs, 0, position);
+        System.arraycopy(ids, position+1, newIDs, position, ids.length-position-1);
+        idsByVertex.put(vertexURI, newIDs);
+    }
+
+    /** Sets the sorted IDs of a vertex, e.g. when the index is decoded. */
+    public void put(String vertexURI, int[] ids)
+    {
+        if(ids.length==0)
+            idsByVertex.remove(vertexURI);
+        else
+            idsByVertex.put(vertexURI, ids);
+    }
+
+    /**
+     * Updates the index for a neighbourhood whose edges have changed
+     * @param oldEdges The edges of the neighbourhood before the change
+     */
+    public void update(Neighbourhood neighbourhood, Collection<RelationshipEdge> oldEdges)
+    {
+        HashSet<String> vertices=new HashSet<>();
+        forEachVertex(neighbourhood, vertices::add);
+        int id=neighbourhood.getId();
+        for (RelationshipEdge edge:oldEdges)
+        {
+            for (String uri:Arrays.asList(((DataVertex) edge.getSource()).getVertexURI(), ((DataVertex) edge.getTarget()).getVertexURI()))
+            {
+                if(!vertices.contains(uri))
+                    remove(uri, id);
+            }
+        }
+        for (String uri:vertices)
+            add(uri, id);
+    }
+
+    public void forEach(BiConsumer<String, int[]> action)
+    {
+        idsByVertex.forEach(action);
+    }
+
+    /** Number of vertices in the index. */
+    public int size()
+    {
+        return idsByVertex.size();
+    }
+
+    /** Merges two sorted arrays of IDs, without duplicates. */
+    public static int[] union(int[] a, int[] b)
+    {
+        int[] union=new int[a.length+b.length];
+        int i=0, j=0, k=0;
+        while (i<a.length || j<b.length)
+        {
+            int next;
+            if(j==b.length || (i<a.length && a[i]<b[j]))
+                next=a[i++];
+            else if(i==a.length || b[j]<a[i])
+                next=b[j++];
+            else
+            {
+                next=a[i++];
+                j++;
+            }
+            union[k++]=next;
+        }
+        return k==union.length ? union : Arrays.copyOf(union, k);
+    }
+
+    private static void forEachVertex(Neighbourhood neighbourhood, Consumer<String> action)
+    {
+        action.accept(neighbourhood.getCenterNode().getVertexURI());
+        if(neighbourhood.getEdges()==null)
+            return;
+        for (RelationshipEdge edge:neighbourhood.getEdges())
+        {
+            action.accept(((DataVertex) edge.getSource()).getVertexURI());
+            action.accept(((DataVertex) edge.getTarget()).getVertexURI());
+        }
+    }
+
+    private static int[] sortedAndDistinct(int[] ids)
+    {
+        Arrays.sort(ids);
+        int k=0;
+        for (int i=0;i<ids.length;i++)
+        {
+            if(k==0 || ids[i]!=ids[k-1])
+                ids[k++]=ids[i];
+        }
+        return k==ids.length ? ids : Arrays.copyOf(ids, k);
+    }
+
+}
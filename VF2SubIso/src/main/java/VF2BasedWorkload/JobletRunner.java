@@ -9,26 +9,32 @@ import Loader.IMDBLoader;
 import Loader.SyntheticLoader;
 import Loader.TGFDGenerator;
 import Util.Config;
+import Util.Metrics;
+import Util.WorkStealingPool;
+import VF2Runner.MultiPatternMatcher;
 import VF2Runner.VF2SubgraphIsomorphism;
+import changeExploration.AttributeChange;
 import changeExploration.Change;
 import org.jgrapht.Graph;
 import org.jgrapht.GraphMapping;
 
 import java.time.LocalDate;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class JobletRunner {
 
     private GraphLoader loader=null;
     private List<TGFD> tgfds;
     private HashMap<String, TGFD> tgfdByName=new HashMap<>();
-    private long wallClockTime=0;
     private HashMap<Integer, Joblet> assignedJoblets;
     private String jobletsInRawString;
 
     private HashMap <String, MatchCollection> matchCollectionHashMap;
 
+    // Matches the TGFDs together in the first snapshot and in the changes, or null to run VF2 for each TGFD
+    private MultiPatternMatcher matcher;
+
     public JobletRunner()
     {
         System.out.println("Test Incremental algorithm for the "+ Config.dataset+" dataset from testRunner");
@@ -37,11 +43,13 @@ public class JobletRunner {
 
     public void load()
     {
-        long startTime=System.currentTimeMillis();
+        long startTime=Metrics.startTimer();
 
         TGFDGenerator generator = new TGFDGenerator(Config.patternPath);
         tgfds=generator.getTGFDs();
         tgfds.forEach(tgfd -> tgfdByName.put(tgfd.getName(), tgfd));
+        if(Config.multiPatternMatching)
+            matcher=new MultiPatternMatcher(tgfds);
 
         //Load the first timestamp
         System.out.println("===========Snapshot 1 (" + Config.getTimestamps().get(1) + ")===========");
@@ -53,8 +61,8 @@ public class JobletRunner {
         else // default is imdb
             loader = new IMDBLoader(tgfds, Config.getFirstDataFilePath());
 
-        printWithTime("Load graph 1 (" + Config.getTimestamps().get(1) + ")", System.currentTimeMillis()-startTime);
-        wallClockTime+=System.currentTimeMillis()-startTime;
+        Metrics.stopTimer(Metrics.LOAD_GRAPH, startTime);
+        Metrics.add(Metrics.GRAPH_SIZE, loader.getGraphSize());
     }
 
     public void setJobletsInRawString(String jobletsInRawString) {
@@ -87,7 +95,7 @@ public class JobletRunner {
         }
         StringBuilder msg=new StringBuilder();
 
-        long startTime, functionWallClockTime=System.currentTimeMillis();
+        long startTime;
         LocalDate currentSnapshotDate= Config.getTimestamps().get(1);
 
         //Create the match collection for all the TGFDs in the list
@@ -98,16 +106,36 @@ public class JobletRunner {
 
         // Now, we need to find the matches for the first snapshot.
         System.out.println("Retrieving matches for all the joblets.");
-        VF2SubgraphIsomorphism VF2 = new VF2SubgraphIsomorphism();
-
-        startTime=System.currentTimeMillis();
-        for (Joblet joblet:assignedJoblets.values()) {
-            Graph<Vertex, RelationshipEdge> subgraph = loader.getGraph().getSubGraphWithinDiameter(joblet.getCenterNode(), joblet.getDiameter(),joblet.getTGFD());
-            joblet.setSubgraph(subgraph);
-            Iterator <GraphMapping <Vertex, RelationshipEdge>> results= VF2.execute(subgraph, joblet.getTGFD().getPattern(),false);
-            matchCollectionHashMap.get(joblet.getTGFD().getName()).addMatches(currentSnapshotDate,results);
-        }
-        printWithTime("Match retrieval", System.currentTimeMillis()-startTime);
+        // VF2 keeps the state of its last search, so each thread has its own instance
+        ThreadLocal<VF2SubgraphIsomorphism> VF2 = ThreadLocal.withInitial(VF2SubgraphIsomorphism::new);
+
+        startTime=Metrics.startTimer();
+        // The joblets of nearby centers are grouped, so their overlapping neighbourhoods are extracted once as the region of the group.
+        // The regions are extracted first, so the size of the groups is known and the largest ones start first
+        List<JobletGroup> groups=JobletGroup.group(assignedJoblets.values(), loader.getGraph(), Config.jobletGroupSize);
+        System.out.println("Joblets: " + assignedJoblets.size() + " in " + groups.size() + " groups");
+        WorkStealingPool.forEachLargestFirst(groups, group -> 0, group -> group.extractRegion(loader.getGraph()));
+        // A match anchored at the centers of two groups is found by both, so it is only added once
+        HashMap<String, Set<String>> signaturesByTGFD=new HashMap<>();
+        for (TGFD tgfd:tgfds)
+            signaturesByTGFD.put(tgfd.getName(), ConcurrentHashMap.newKeySet());
+        WorkStealingPool.forEachLargestFirst(groups, JobletGroup::getSize, group -> {
+            // The matches are found by this thread before the match collection is locked to add them
+            LinkedHashMap<TGFD, List<GraphMapping <Vertex, RelationshipEdge>>> matches=matcher!=null
+                    ? group.findAnchoredMatches(matcher)
+                    : group.findAnchoredMatches(VF2.get());
+            matches.forEach((tgfd, mappings) -> {
+                Set<String> signatures=signaturesByTGFD.get(tgfd.getName());
+                List<GraphMapping <Vertex, RelationshipEdge>> newMappings=new ArrayList<>();
+                for (GraphMapping <Vertex, RelationshipEdge> mapping:mappings) {
+                    if(signatures.add(Match.signatureFromPattern(tgfd.getPattern(), mapping)))
+                        newMappings.add(mapping);
+                }
+                matchCollectionHashMap.get(tgfd.getName()).addMatches(currentSnapshotDate,newMappings.iterator());
+            });
+        });
+        Metrics.stopTimer(Metrics.FIRST_SNAPSHOT_MATCHING, startTime);
+        Metrics.save();
     }
 
     public void runTheNextTimestamp(List<Change> changes, int superstep)
@@ -115,9 +143,10 @@ public class JobletRunner {
         //Load the change files
         System.out.println("===========Snapshot "+superstep+" (" + Config.getTimestamps().get(superstep) + ")===========");
 
-        long startTime=System.currentTimeMillis();
+        long startTime=Metrics.startTimer();
         LocalDate currentSnapshotDate= Config.getTimestamps().get(superstep);
         System.out.println("Total number of changes: " + changes.size());
+        Metrics.add(Metrics.CHANGES, changes.size());
 
         // Now, we need to find the matches for each snapshot.
         // Finding the matches...
@@ -135,19 +164,35 @@ public class JobletRunner {
             tgfdsByName.put(tgfd.getName(),tgfd);
         }
 
+        // The changes of a joblet are applied in order, and the joblets are updated in parallel.
+        // A joblet with an attribute change is updated after the others, one at a time,
+        // because the attribute is changed on a vertex that is shared with the other joblets.
+        LinkedHashMap<Integer, List<Change>> changesByJoblet=new LinkedHashMap<>();
+        HashSet<Integer> jobletsWithAttributeChanges=new HashSet<>();
         for (Change change:changes) {
             for (int jobletID:change.getJobletIDs()) {
                 if(assignedJoblets.containsKey(jobletID))
                 {
-                    IncUpdates incUpdatesOnDBpedia=new IncUpdates(assignedJoblets.get(jobletID).getSubgraph(),tgfds);
-                    HashMap<String, IncrementalChange> incrementalChangeHashMap=incUpdatesOnDBpedia.updateGraph(change,tgfdsByName);
-                    if(incrementalChangeHashMap==null)
-                        continue;
-                    for (String tgfdName:incrementalChangeHashMap.keySet()) {
-                        newMatchesSignaturesByTGFD.get(tgfdName).addAll(incrementalChangeHashMap.get(tgfdName).getNewMatches().keySet());
-                        removedMatchesSignaturesByTGFD.get(tgfdName).addAll(incrementalChangeHashMap.get(tgfdName).getRemovedMatchesSignatures());
-                        matchCollectionHashMap.get(tgfdName).addMatches(currentSnapshotDate,incrementalChangeHashMap.get(tgfdName).getNewMatches());
-                    }
+                    changesByJoblet.computeIfAbsent(jobletID, id -> new ArrayList<>()).add(change);
+                    if(change instanceof AttributeChange)
+                        jobletsWithAttributeChanges.add(jobletID);
+                }
+            }
+        }
+        List<Integer> independentJoblets=new ArrayList<>();
+        for (int jobletID:changesByJoblet.keySet()) {
+            if(!jobletsWithAttributeChanges.contains(jobletID))
+                independentJoblets.add(jobletID);
+        }
+        WorkStealingPool.forEachLargestFirst(independentJoblets, jobletID -> changesByJoblet.get(jobletID).size(), jobletID ->
+                applyChanges(assignedJoblets.get(jobletID), changesByJoblet.get(jobletID), currentSnapshotDate, tgfdsByName,
+                        newMatchesSignaturesByTGFD, removedMatchesSignaturesByTGFD));
+        for (Change change:changes) {
+            for (int jobletID:change.getJobletIDs()) {
+                if(jobletsWithAttributeChanges.contains(jobletID))
+                {
+                    applyChanges(assignedJoblets.get(jobletID), Collections.singletonList(change), currentSnapshotDate, tgfdsByName,
+                            newMatchesSignaturesByTGFD, removedMatchesSignaturesByTGFD);
                 }
             }
         }
@@ -158,19 +203,31 @@ public class JobletRunner {
             System.out.println("New matches ("+tgfd.getName()+"): " +
                     newMatchesSignaturesByTGFD.get(tgfd.getName()).size() + " ** " + removedMatchesSignaturesByTGFD.get(tgfd.getName()).size());
         }
-        printWithTime("Update and retrieve matches ", System.currentTimeMillis()-startTime);
+        Metrics.stopTimer(Metrics.SNAPSHOT_UPDATE, startTime);
+        Metrics.save();
     }
 
-    public GraphLoader getLoader() {
-        return loader;
+    private void applyChanges(Joblet joblet, List<Change> changes, LocalDate currentSnapshotDate, HashMap<String,TGFD> tgfdsByName,
+                              HashMap<String, ArrayList <String>> newMatchesSignaturesByTGFD, HashMap<String,ArrayList<String>> removedMatchesSignaturesByTGFD)
+    {
+        for (Change change:changes) {
+            IncUpdates incUpdatesOnDBpedia=new IncUpdates(joblet.getSubgraph(),tgfds,matcher);
+            HashMap<String, IncrementalChange> incrementalChangeHashMap=incUpdatesOnDBpedia.updateGraph(change,tgfdsByName);
+            if(incrementalChangeHashMap==null)
+                continue;
+            for (String tgfdName:incrementalChangeHashMap.keySet()) {
+                synchronized (newMatchesSignaturesByTGFD)
+                {
+                    newMatchesSignaturesByTGFD.get(tgfdName).addAll(incrementalChangeHashMap.get(tgfdName).getNewMatches().keySet());
+                    removedMatchesSignaturesByTGFD.get(tgfdName).addAll(incrementalChangeHashMap.get(tgfdName).getRemovedMatchesSignatures());
+                }
+                matchCollectionHashMap.get(tgfdName).addMatches(currentSnapshotDate,incrementalChangeHashMap.get(tgfdName).getNewMatches());
+            }
+        }
     }
 
-
-    private void printWithTime(String message, long runTimeInMS)
-    {
-        System.out.println(message + " time: " + runTimeInMS + "(ms) ** " +
-                TimeUnit.MILLISECONDS.toSeconds(runTimeInMS) + "(sec) ** " +
-                TimeUnit.MILLISECONDS.toMinutes(runTimeInMS) +  "(min)");
+    public GraphLoader getLoader() {
+        return loader;
     }
 
 }
@@ -2,17 +2,19 @@ package VF2BasedWorkload;
 
 import AmazonStorage.S3Storage;
 import Infra.*;
-import Partitioner.RangeBasedPartitioner;
+import Partitioner.GraphPartitioners;
+import Partitioner.ShippingPlanner;
 import changeExploration.*;
 import Loader.GraphLoader;
+import MPI.BinaryCodec;
 import Util.Config;
+import Util.WorkStealingPool;
 
 import java.io.FileWriter;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.function.Function;
 import java.util.stream.IntStream;
@@ -21,7 +23,7 @@ public class WorkloadEstimator {
 
     private GraphLoader loader;
     private HashMap<DataVertex,Integer> fragments;
-    private HashMap<DataVertex, HashSet<Integer>> copiedVertices;
+    private ShippingPlanner<Joblet> shippingPlanner;
     //private HashMap<String,ArrayList<Joblet>> jobletsByTGFD;
     private HashMap<Integer, ArrayList<Joblet>> jobletsByFragmentID;
     private HashMap<Integer, Joblet> jobletsByID;
@@ -32,17 +34,13 @@ public class WorkloadEstimator {
         this.loader = loader;
         this.fragments=fragments;
         this.numberOfProcessors=numberOfProcessors;
-        copiedVertices=new HashMap<>();
     }
 
     public WorkloadEstimator(GraphLoader loader, int numberOfProcessors)
     {
         this.loader = loader;
         this.numberOfProcessors=numberOfProcessors;
-        RangeBasedPartitioner partitioner=new RangeBasedPartitioner(loader.getGraph());
-        this.fragments=partitioner.fragment(numberOfProcessors);
-        copiedVertices=new HashMap<>();
-
+        this.fragments=GraphPartitioners.fragment(loader.getGraph(),numberOfProcessors);
     }
 
     public void defineJoblets(List<TGFD> tgfds)
@@ -58,26 +56,31 @@ public class WorkloadEstimator {
             System.out.println("TGFD: " + tgfd.getName() + " with the center type: " + tgfd.getPattern().getCenterVertexType());
             //jobletsByTGFD.put(tgfd.getName(),new ArrayList <>());
             String centerNodeType=tgfd.getPattern().getCenterVertexType();
-            for (Vertex v: loader.getGraph().getGraph().vertexSet()) {
-                if(v.getTypes().contains(centerNodeType))
-                {
-                    jobletID++;
-                    DataVertex dataVertex=(DataVertex) v;
-                    Joblet joblet=new Joblet(jobletID,dataVertex,tgfd,tgfd.getPattern().getDiameter(),fragments.get(dataVertex));
-                    ArrayList<RelationshipEdge> edges = loader.getGraph().getEdgesWithinDiameter(dataVertex, tgfd.getPattern().getDiameter());
-                    joblet.setEdges(edges);
-                    jobletsByID.put(jobletID,joblet);
-                    //jobletsByTGFD.get(tgfd.getName()).add(joblet);
-                    jobletsByFragmentID.get(fragments.get(dataVertex)).add(joblet);
-                    if(jobletID%100==0)
-                        System.out.println("Joblets so far: " + jobletID + "  **  " + LocalDateTime.now());
-                }
+            List<Joblet> newJoblets=new ArrayList<>();
+            for (Vertex v: loader.getGraph().getVerticesByType(centerNodeType)) {
+                jobletID++;
+                DataVertex dataVertex=(DataVertex) v;
+                newJoblets.add(new Joblet(jobletID,dataVertex,tgfd,tgfd.getPattern().getDiameter(),fragments.get(dataVertex)));
+            }
+            // The edges within the diameter of the centers are extracted in parallel
+            WorkStealingPool.forEachLargestFirst(newJoblets, joblet -> 0, joblet ->
+                    joblet.setEdges(loader.getGraph().getEdgesWithinDiameter(joblet.getCenterNode(), joblet.getDiameter())));
+            for (Joblet joblet:newJoblets) {
+                jobletsByID.put(joblet.getId(),joblet);
+                //jobletsByTGFD.get(tgfd.getName()).add(joblet);
+                jobletsByFragmentID.get(fragments.get(joblet.getCenterNode())).add(joblet);
             }
+            System.out.println("Joblets so far: " + jobletID + "  **  " + LocalDateTime.now());
         }
     }
 
     public void partitionWorkload()
     {
+        if(Config.costSampleRate>0)
+        {
+            CostModel costModel=new CostModel(loader.getGraph());
+            costModel.estimate(jobletsByID.values());
+        }
         WorkloadPartitioner partitioner=new WorkloadPartitioner(this);
         this.jobletsByFragmentID =  partitioner.partition();
     }
@@ -101,182 +104,27 @@ public class WorkloadEstimator {
 
     public HashMap<Integer,HashMap<Integer,ArrayList<SimpleEdge>>> dataToBeShipped()
     {
-        HashMap<Integer,HashMap<Integer,ArrayList<SimpleEdge>>> dataToBeShipped=new HashMap<>();
-        for(int i:jobletsByFragmentID.keySet())
-        {
-            dataToBeShipped.put(i,new HashMap<>());
-            for(int j:jobletsByFragmentID.keySet())
-                dataToBeShipped.get(i).put(j,new ArrayList<>());
-        }
-        for (int fragmentID:jobletsByFragmentID.keySet()) {
-            for (Joblet joblet :jobletsByFragmentID.get(fragmentID)) {
-                for (RelationshipEdge edge:joblet.getEdges()) {
-                    DataVertex srcVertex=(DataVertex) edge.getSource();
-                    DataVertex dstVertex=(DataVertex) edge.getTarget();
-                    if(fragments.get(srcVertex)!=fragmentID)
-                    {
-                        if(fragments.get(srcVertex).equals(fragments.get(dstVertex)))
-                        {
-                            dataToBeShipped.get(fragments.get(srcVertex))
-                                    .get(fragmentID)
-                                    .add(new SimpleEdge(edge));
-                        }
-                        else if(fragments.get(dstVertex)!=fragmentID)
-                        {
-                            dataToBeShipped.get(fragments.get(dstVertex))
-                                    .get(fragmentID)
-                                    .add(new SimpleEdge(edge));
-                        }
-                    }
-                    else if(fragments.get(dstVertex)!=fragmentID)
-                    {
-                        dataToBeShipped.get(fragments.get(dstVertex))
-                                .get(fragmentID)
-                                .add(new SimpleEdge(edge));
-                    }
-                }
-            }
-        }
-        return dataToBeShipped;
+        return ShippingPlanner.dataToBeShipped(fragments, jobletsByFragmentID);
     }
 
+    /**
+     * Applies the changes of a snapshot to the graph and the neighbourhoods, and gets the edges that each fragment needs
+     * for the next superstep and does not hold yet. The edges of dataToBeShipped() are taken as shipped.
+     */
     public HashMap<Integer,HashMap<Integer,ArrayList<SimpleEdge>>> dataToBeShipped(List<Change> changes)
     {
-        HashMap<Integer,HashMap<Integer,ArrayList<SimpleEdge>>> dataToBeShipped=new HashMap<>();
-        for(int i:jobletsByFragmentID.keySet())
-        {
-            dataToBeShipped.put(i,new HashMap<>());
-            for(int j:jobletsByFragmentID.keySet())
-                dataToBeShipped.get(i).put(j,new ArrayList<>());
-        }
-        for (Change change:changes) {
-            if(change instanceof EdgeChange)
-            {
-                EdgeChange edgeChange=(EdgeChange) change;
-                if(edgeChange.getTypeOfChange()== ChangeType.insertEdge)
-                {
-                    DataVertex src= (DataVertex) loader.getGraph().getNode(edgeChange.getSrc());
-                    DataVertex dst= (DataVertex) loader.getGraph().getNode(edgeChange.getSrc());
-                    if(!fragments.get(src).equals(fragments.get(dst)))
-                    {
-                        if(!src.getJobletID().isEmpty())
-                        {
-                            dataToBeShipped.get(fragments.get(dst))
-                                    .get(fragments.get(src))
-                                    .add(new SimpleEdge(src.getVertexURI(),dst.getVertexURI(),edgeChange.getLabel()));
-                            if(!dst.getJobletID().isEmpty())
-                            {
-                                if(!copiedVertices.containsKey(dst))
-                                    copiedVertices.put(dst,new HashSet<>());
-                                copiedVertices.get(dst).add(fragments.get(src));
-                                change.addJobletID(dst.getJobletID());
-                            }
-                        }
-                        if(!dst.getJobletID().isEmpty())
-                        {
-                            dataToBeShipped.get(fragments.get(src))
-                                    .get(fragments.get(dst))
-                                    .add(new SimpleEdge(src.getVertexURI(),dst.getVertexURI(),edgeChange.getLabel()));
-                            if(!src.getJobletID().isEmpty())
-                            {
-                                if(!copiedVertices.containsKey(src))
-                                    copiedVertices.put(src,new HashSet<>());
-                                copiedVertices.get(src).add(fragments.get(dst));
-                                change.addJobletID(src.getJobletID());
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return dataToBeShipped;
+        return getShippingPlanner().dataToBeShipped(changes, jobletsByFragmentID);
     }
 
     public HashMap<Integer,List<Change>> changesToBeSent(List<Change> changes)
     {
-        HashMap<Integer,List<Change>> changesByFragmentID=new HashMap<>();
-
-        for(int i:jobletsByFragmentID.keySet())
-            changesByFragmentID.put(i,new ArrayList<>());
-
-        for (Change change:changes) {
-            if (change instanceof EdgeChange) {
-                EdgeChange edgeChange = (EdgeChange) change;
-                DataVertex src = (DataVertex) loader.getGraph().getNode(edgeChange.getSrc());
-                DataVertex dst = (DataVertex) loader.getGraph().getNode(edgeChange.getSrc());
-                if (!src.getJobletID().isEmpty())
-                {
-                    change.addJobletID(src.getJobletID());
-                    changesByFragmentID.get(fragments.get(src)).add(change);
-                }
-                if (!dst.getJobletID().isEmpty())
-                {
-                    change.addJobletID(dst.getJobletID());
-                    changesByFragmentID.get(fragments.get(dst)).add(change);
-                }
-                if(copiedVertices.containsKey(src))
-                {
-                    copiedVertices
-                            .get(src)
-                            .stream()
-                            .mapToInt(f -> f)
-                            .filter(f -> fragments.get(src) != f)
-                            .forEach(f -> changesByFragmentID.get(f).add(change));
-                }
-                if(copiedVertices.containsKey(dst))
-                {
-                    copiedVertices
-                            .get(dst)
-                            .stream()
-                            .mapToInt(f -> f)
-                            .filter(f -> fragments.get(dst) != f)
-                            .forEach(f -> changesByFragmentID.get(f).add(change));
-                }
-            }
-            else if(change instanceof AttributeChange)
-            {
-                AttributeChange attributeChange = (AttributeChange) change;
-                DataVertex vertex = (DataVertex) loader.getGraph().getNode(attributeChange.getUri());
-                if (!vertex.getJobletID().isEmpty())
-                {
-                    change.addJobletID(vertex.getJobletID());
-                    changesByFragmentID.get(fragments.get(vertex)).add(change);
-                }
-                if(copiedVertices.containsKey(vertex))
-                {
-                    copiedVertices
-                            .get(vertex)
-                            .stream()
-                            .mapToInt(f -> f)
-                            .filter(f -> fragments.get(vertex) != f)
-                            .forEach(f -> {
-                                changesByFragmentID.get(f).add(change);
-                            } );
-                }
-            }
-            else if(change instanceof VertexChange)
-            {
-                VertexChange vertexChange = (VertexChange) change;
-                if(vertexChange.getTypeOfChange()==ChangeType.deleteVertex) {
-                    if (!vertexChange.getVertex().getJobletID().isEmpty())
-                    {
-                        change.addJobletID(vertexChange.getVertex().getJobletID());
-                        changesByFragmentID.get(fragments.get(vertexChange.getVertex())).add(change);
-                    }
-                    if(copiedVertices.containsKey(vertexChange.getVertex()))
-                    {
-                        copiedVertices
-                                .get(vertexChange.getVertex())
-                                .stream()
-                                .mapToInt(f -> f)
-                                .filter(f -> fragments.get(vertexChange.getVertex()) != f)
-                                .forEach(f -> changesByFragmentID.get(f).add(change));
-                    }
-                }
+        return getShippingPlanner().changesToBeSent(changes, jobletsByFragmentID);
+    }
 
-            }
-        }
-        return changesByFragmentID;
+    /** Gets the index of the vertices to the joblets that hold them, as of the last snapshot planned. */
+    public JobletIndex getJobletIndex()
+    {
+        return getShippingPlanner().getJobletIndex();
     }
 
     public HashMap<Integer, String> sendChangesToWorkers(HashMap<Integer,List<Change>> changes, int snapshotID)
@@ -286,8 +134,8 @@ public class WorkloadEstimator {
         String date=now.getHour() + "_" + now.getMinute() + "_" + now.getSecond();
 
         for (int id:changes.keySet()) {
-            S3Storage.upload(Config.S3BucketName, date + "_Change[" + snapshotID + "]_" + id + ".ser", changes.get(id));
-            listOfFiles.put(id, date + "_Change[" + snapshotID + "]_" + id + ".ser");
+            S3Storage.upload(Config.S3BucketName, date + "_Change[" + snapshotID + "]_" + id + ".bin", BinaryCodec.encodeChanges(changes.get(id)));
+            listOfFiles.put(id, date + "_Change[" + snapshotID + "]_" + id + ".bin");
         }
         return listOfFiles;
     }
@@ -298,18 +146,14 @@ public class WorkloadEstimator {
         LocalDateTime now = LocalDateTime.now();
         String date=now.getHour() + "_" + now.getMinute() + "_" + now.getSecond();
 
+        // One file per fragment, with the edges to be shipped to each of the other fragments
         for (int id:dataToBeShipped.keySet()) {
-            StringBuilder sb = new StringBuilder();
+            HashMap<Integer, ArrayList<SimpleEdge>> edgesByFragment = new HashMap<>(dataToBeShipped.get(id));
+            edgesByFragment.remove(id);
             listOfFiles.put(id,new ArrayList<>());
-            for (int key : dataToBeShipped.get(id).keySet()) {
-                if (key != id) {
-                    sb.append(key).append("\n");
-                    for (SimpleEdge edge : dataToBeShipped.get(id).get(key))
-                        sb.append(edge.getSrc()).append("\t").append(edge.getDst()).append("\n");
-                    S3Storage.upload(Config.S3BucketName,date + "_F" + id + "_to_" +key + ".txt",sb.toString());
-                    listOfFiles.get(id).add(date + "_F" + id + "_to_" +key + ".txt");
-                    //saveEdges("./Fragment" + id + "_to_" +key + ".txt", sb);
-                }
+            if (!edgesByFragment.isEmpty()) {
+                S3Storage.upload(Config.S3BucketName,date + "_F" + id + ".bin",BinaryCodec.encodeEdges(edgesByFragment));
+                listOfFiles.get(id).add(date + "_F" + id + ".bin");
             }
         }
         return listOfFiles;
@@ -358,6 +202,13 @@ public class WorkloadEstimator {
         this.jobletsByFragmentID = jobletsByFragmentID;
     }
 
+    private ShippingPlanner<Joblet> getShippingPlanner()
+    {
+        if(shippingPlanner==null)
+            shippingPlanner=new ShippingPlanner<>(loader.getGraph(), fragments, jobletsByFragmentID);
+        return shippingPlanner;
+    }
+
     private void saveEdges(String path, StringBuilder stringBuilder)
     {
         try {
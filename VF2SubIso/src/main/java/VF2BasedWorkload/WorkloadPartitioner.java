@@ -1,8 +1,11 @@
 package VF2BasedWorkload;
 
+import Partitioner.LPTPartitioner;
+import Util.Config;
+
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 
 public class WorkloadPartitioner {
 
@@ -14,68 +17,28 @@ public class WorkloadPartitioner {
         this.estimator=estimator;
     }
 
+    /**
+     * Assigns the joblets to the fragments, from the largest to the smallest, each one to the least loaded fragment.
+     * With Config.workloadPartitioner=locality, a joblet stays on the fragment that owns most of its edges if that
+     * fragment is not loaded more than Config.localityImbalance above the average.
+     */
     public HashMap<Integer, ArrayList<Joblet>> partition()
     {
-        int numberOfJoblets= estimator
-                .getJobletsByFragmentID()
-                .keySet()
-                .stream()
-                .mapToInt(id -> id)
-                .map(id -> estimator.getJobletsByFragmentID().get(id).size())
-                .sum();
-        Joblet [] allJoblets=new Joblet[numberOfJoblets];
-        int i=0;
-        for (int id:estimator.getJobletsByFragmentID().keySet()) {
-            for (Joblet job:estimator.getJobletsByFragmentID().get(id)) {
-                allJoblets[i]=job;
-                i++;
-            }
-        }
-        int []fragmentSize=new int[estimator.getNumberOfProcessors()];
-        jobletsByFragmentID=new HashMap<>();
-        for (i=0;i< estimator.getNumberOfProcessors();i++)
-        {
-            jobletsByFragmentID.put(i+1,new ArrayList<>());
-        }
-        HashSet<Integer> visited=new HashSet<>();
-        while (true)
-        {
-            int id=-1;
-            double min=Double.MAX_VALUE;
-            for (i=0;i<allJoblets.length;i++) {
-                if(!visited.contains(i) && allJoblets[i].getSize()<min)
-                {
-                    id=i;
-                    min=allJoblets[i].getSize();
-                }
-            }
-            if(id!=-1)
-            {
-                visited.add(id);
-                int minLoad=Integer.MAX_VALUE;
-                int selectedFragment=-1;
-                for (i=0;i<fragmentSize.length;i++)
-                {
-                    if(fragmentSize[i]<minLoad)
-                    {
-                        minLoad=fragmentSize[i];
-                        selectedFragment=i;
-                    }
-                }
-                //for (i=0;i<fragmentSize.length;i++)
-                //{
-                //    System.out.print("F"+(i+1) + ": " + fragmentSize[i] + "  **  ");
-                //}
-                //System.out.println("\nNew load: " + allJoblets[id].getSize() + " -> " + allJoblets[id].getCenterNode().getVertexURI());
-                fragmentSize[selectedFragment]+=allJoblets[id].getSize();
-                jobletsByFragmentID.get(selectedFragment+1).add(allJoblets[id]);
-            }
-            else
-                break;
-        }
-        for (i=0;i<fragmentSize.length;i++)
-            System.out.print("F"+(i+1) + ": " + fragmentSize[i] + "  **  ");
-        System.out.println("\nPartitioner is Done. Number of joblets: " + allJoblets.length);
+        List<Joblet> allJoblets=new ArrayList<>();
+        for (int id:estimator.getJobletsByFragmentID().keySet())
+            allJoblets.addAll(estimator.getJobletsByFragmentID().get(id));
+
+        LPTPartitioner<Joblet> partitioner;
+        if(Config.workloadPartitioner.equals("locality"))
+            partitioner=new LPTPartitioner<>(Joblet::getSize, Joblet::getEdges, estimator.getFragments(), Config.localityImbalance);
+        else
+            partitioner=new LPTPartitioner<>(Joblet::getSize);
+        // The fragments keep their IDs, so they still match the fragments of the vertices
+        jobletsByFragmentID=partitioner.partition(allJoblets, estimator.getJobletsByFragmentID().keySet());
+
+        for (int id:partitioner.getLoads().keySet())
+            System.out.print("F"+id + ": " + partitioner.getLoads().get(id) + "  **  ");
+        System.out.println("\nPartitioner is Done. Number of joblets: " + allJoblets.size());
         return jobletsByFragmentID;
     }
 
@@ -0,0 +1,357 @@
+package VF2Runner;
+
+import Infra.*;
+import Util.Metrics;
+import org.jgrapht.Graph;
+import org.jgrapht.GraphMapping;
+import org.jgrapht.alg.isomorphism.IsomorphicGraphMapping;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Matches the patterns of several TGFDs at once, sharing the work on their common sub-patterns.
+ *
+ * Each pattern is compiled into a sequence of steps from its center vertex, each step adding one pattern vertex
+ * through an edge to a vertex added before it. The steps are ordered canonically, the smallest step first,
+ * so patterns with the same center type and first edges get the same first steps. The sequences are merged in a trie:
+ * the partial matches of a common prefix are found once per candidate center, then extended for each pattern below it.
+ *
+ * A step also checks the edges between the new vertex and all the vertices added before it, in both directions,
+ * so the matches are the ones of VF2SubgraphIsomorphism, i.e. induced subgraphs, with the same mappings.
+ * The matcher holds no state of a search, so it can be used by several threads at the same time.
+ */
+public class MultiPatternMatcher {
+
+    private static class Step {
+        private int anchor=-1;         // slot of the vertex the new vertex is reached from, -1 if it is not connected to them
+        private boolean outgoing;      // direction of the edge from the anchor
+        private String anchorLabel;
+        private PatternVertex vertex;  // types and literals of the new vertex
+        private String[] labelsTo;     // label of the edge from the new vertex to each slot before it, or null
+        private String[] labelsFrom;   // label of the edge from each slot before it to the new vertex, or null
+        private String loop;
+        private String key;
+    }
+
+    private static class Node {
+        private Step step;
+        private LinkedHashMap<String, Node> children=new LinkedHashMap<>();
+        // Patterns that end at this node, with the pattern vertex of each slot
+        private List<Map.Entry<TGFD, PatternVertex[]>> patterns=new ArrayList<>();
+        // TGFDs of the patterns in the subtree, to prune the branches of the TGFDs that are not searched
+        private Set<TGFD> tgfds=new HashSet<>();
+        private int height=0;
+    }
+
+    private LinkedHashMap<String, Node> roots=new LinkedHashMap<>();
+    private int numberOfNodes=0;
+    private int numberOfSteps=0;
+
+    public MultiPatternMatcher(Collection<TGFD> tgfds)
+    {
+        for (TGFD tgfd:tgfds)
+            compile(tgfd);
+    }
+
+    //region --[Matching]---------------------------------------------
+
+    /**
+     * Finds the matches of all the TGFDs in the graph, the candidate centers are found with the index of the vertices by type.
+     * @return The matches of each TGFD by name
+     */
+    public HashMap<String, List<GraphMapping<Vertex, RelationshipEdge>>> execute(VF2DataGraph dataGraph)
+    {
+        HashMap<String, List<GraphMapping<Vertex, RelationshipEdge>>> matches=newMatches();
+        execute(dataGraph, (tgfd, mapping) -> matches.get(tgfd.getName()).add(mapping));
+        return matches;
+    }
+
+    /**
+     * Finds the matches of all the TGFDs in the graph, the candidate centers are found with the index of the vertices by type.
+     * @param consumer Called for each match as soon as it is found, with its TGFD, so the matches are not held here
+     */
+    public void execute(VF2DataGraph dataGraph, BiConsumer<TGFD, GraphMapping<Vertex, RelationshipEdge>> consumer)
+    {
+        long startTime=Metrics.startTimer();
+        for (Node root:roots.values())
+        {
+            Set<String> types=root.step.vertex.getTypes();
+            Collection<Vertex> candidates=types.isEmpty()
+                    ? dataGraph.getGraph().vertexSet()
+                    : dataGraph.getVerticesByType(types.iterator().next());
+            for (Vertex center:candidates)
+                search(dataGraph.getGraph(), root, center, tgfd -> true, consumer);
+        }
+        Metrics.stopTimer(Metrics.MULTI_PATTERN_SEARCH, startTime);
+    }
+
+    /**
+     * Finds the matches of the accepted TGFDs in the graph, every vertex of the graph is a candidate center.
+     * @return The matches of each TGFD by name
+     */
+    public HashMap<String, List<GraphMapping<Vertex, RelationshipEdge>>> execute(Graph<Vertex, RelationshipEdge> dataGraph, Predicate<TGFD> accepted)
+    {
+        HashMap<String, List<GraphMapping<Vertex, RelationshipEdge>>> matches=newMatches();
+        long startTime=Metrics.startTimer();
+        for (Vertex center:dataGraph.vertexSet())
+            execute(dataGraph, center, accepted, (tgfd, mapping) -> matches.get(tgfd.getName()).add(mapping));
+        Metrics.stopTimer(Metrics.MULTI_PATTERN_SEARCH, startTime);
+        return matches;
+    }
+
+    /**
+     * Finds the matches of the accepted TGFDs whose center vertex is mapped to the given vertex.
+     * @param consumer Called for each match, with its TGFD
+     */
+    public void execute(Graph<Vertex, RelationshipEdge> dataGraph, Vertex center, Predicate<TGFD> accepted,
+                        BiConsumer<TGFD, GraphMapping<Vertex, RelationshipEdge>> consumer)
+    {
+        for (Node root:roots.values())
+            search(dataGraph, root, center, accepted, consumer);
+    }
+
+    private void search(Graph<Vertex, RelationshipEdge> dataGraph, Node root, Vertex center, Predicate<TGFD> accepted,
+                        BiConsumer<TGFD, GraphMapping<Vertex, RelationshipEdge>> consumer)
+    {
+        if(!isAccepted(root, accepted) || !center.isMapped(root.step.vertex) || !hasLoop(dataGraph, center, root.step.loop))
+            return;
+        Vertex[] slots=new Vertex[root.height+1];
+        slots[0]=center;
+        extend(dataGraph, root, slots, 1, accepted, consumer);
+    }
+
+    private void extend(Graph<Vertex, RelationshipEdge> dataGraph, Node node, Vertex[] slots, int depth, Predicate<TGFD> accepted,
+                        BiConsumer<TGFD, GraphMapping<Vertex, RelationshipEdge>> consumer)
+    {
+        for (Map.Entry<TGFD, PatternVertex[]> pattern:node.patterns)
+        {
+            if(accepted.test(pattern.getKey()))
+                consumer.accept(pattern.getKey(), mapping(dataGraph, pattern.getKey(), pattern.getValue(), slots));
+        }
+        for (Node child:node.children.values())
+        {
+            if(!isAccepted(child, accepted))
+                continue;
+            Step step=child.step;
+            for (Vertex candidate:candidates(dataGraph, step, slots))
+            {
+                if(!isFeasible(dataGraph, step, slots, depth, candidate))
+                    continue;
+                slots[depth]=candidate;
+                extend(dataGraph, child, slots, depth+1, accepted, consumer);
+                slots[depth]=null;
+            }
+        }
+    }
+
+    private Collection<Vertex> candidates(Graph<Vertex, RelationshipEdge> dataGraph, Step step, Vertex[] slots)
+    {
+        if(step.anchor<0)
+            return dataGraph.vertexSet();
+        List<Vertex> candidates=new ArrayList<>();
+        Vertex anchor=slots[step.anchor];
+        if(step.outgoing)
+        {
+            for (RelationshipEdge edge:dataGraph.outgoingEdgesOf(anchor))
+                if(isLabelMapped(step.anchorLabel, edge))
+                    candidates.add(edge.getTarget());
+        }
+        else
+        {
+            for (RelationshipEdge edge:dataGraph.incomingEdgesOf(anchor))
+                if(isLabelMapped(step.anchorLabel, edge))
+                    candidates.add(edge.getSource());
+        }
+        return candidates;
+    }
+
+    private boolean isFeasible(Graph<Vertex, RelationshipEdge> dataGraph, Step step, Vertex[] slots, int depth, Vertex candidate)
+    {
+        for (int i=0;i<depth;i++)
+            if(slots[i]==candidate)
+                return false;
+        if(!candidate.isMapped(step.vertex) || !hasLoop(dataGraph, candidate, step.loop))
+            return false;
+        // The edges between the new vertex and the vertices before it are the ones of the pattern, and no other
+        for (int i=0;i<depth;i++)
+        {
+            if(!isEdgeMapped(step.labelsTo[i], dataGraph.getEdge(candidate, slots[i]))
+                    || !isEdgeMapped(step.labelsFrom[i], dataGraph.getEdge(slots[i], candidate)))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean hasLoop(Graph<Vertex, RelationshipEdge> dataGraph, Vertex v, String loop)
+    {
+        return isEdgeMapped(loop, dataGraph.getEdge(v, v));
+    }
+
+    private static boolean isEdgeMapped(String label, RelationshipEdge edge)
+    {
+        if(label==null)
+            return edge==null;
+        return edge!=null && isLabelMapped(label, edge);
+    }
+
+    // Same as the edge comparator of VF2SubgraphIsomorphism
+    private static boolean isLabelMapped(String label, RelationshipEdge edge)
+    {
+        return label.equals("*") || edge.getLabel().equals("*") || edge.getLabel().equals(label);
+    }
+
+    private static boolean isAccepted(Node node, Predicate<TGFD> accepted)
+    {
+        for (TGFD tgfd:node.tgfds)
+            if(accepted.test(tgfd))
+                return true;
+        return false;
+    }
+
+    private static GraphMapping<Vertex, RelationshipEdge> mapping(Graph<Vertex, RelationshipEdge> dataGraph, TGFD tgfd, PatternVertex[] patternVertices, Vertex[] slots)
+    {
+        Map<Vertex, Vertex> forward=new HashMap<>();
+        Map<Vertex, Vertex> backward=new HashMap<>();
+        for (int i=0;i<patternVertices.length;i++)
+        {
+            forward.put(slots[i], patternVertices[i]);
+            backward.put(patternVertices[i], slots[i]);
+        }
+        return new IsomorphicGraphMapping<>(forward, backward, dataGraph, tgfd.getPattern().getPattern());
+    }
+
+    private HashMap<String, List<GraphMapping<Vertex, RelationshipEdge>>> newMatches()
+    {
+        HashMap<String, List<GraphMapping<Vertex, RelationshipEdge>>> matches=new HashMap<>();
+        for (Node root:roots.values())
+            for (TGFD tgfd:root.tgfds)
+                matches.put(tgfd.getName(), new ArrayList<>());
+        return matches;
+    }
+
+    //endregion
+
+    //region --[Compilation]------------------------------------------
+
+    private void compile(TGFD tgfd)
+    {
+        Graph<Vertex, RelationshipEdge> pattern=tgfd.getPattern().getPattern();
+        if(pattern.vertexSet().isEmpty())
+            return;
+        List<PatternVertex> order=new ArrayList<>();
+        order.add(center(tgfd));
+        List<Step> steps=new ArrayList<>();
+        steps.add(step(pattern, order, order.get(0)));
+        while (order.size()<pattern.vertexSet().size())
+        {
+            // The smallest step among the vertices that are not added yet
+            Step next=null;
+            PatternVertex nextVertex=null;
+            for (Vertex v:pattern.vertexSet())
+            {
+                if(order.contains(v))
+                    continue;
+                Step step=step(pattern, order, (PatternVertex) v);
+                if(next==null || step.key.compareTo(next.key)<0)
+                {
+                    next=step;
+                    nextVertex=(PatternVertex) v;
+                }
+            }
+            order.add(nextVertex);
+            steps.add(next);
+        }
+
+        Node node=roots.computeIfAbsent(steps.get(0).key, key -> newNode(steps.get(0)));
+        node.tgfds.add(tgfd);
+        node.height=Math.max(node.height, steps.size()-1);
+        for (int i=1;i<steps.size();i++)
+        {
+            Step step=steps.get(i);
+            node=node.children.computeIfAbsent(step.key, key -> newNode(step));
+            node.tgfds.add(tgfd);
+        }
+        node.patterns.add(new AbstractMap.SimpleEntry<>(tgfd, order.toArray(new PatternVertex[0])));
+        numberOfSteps+=steps.size();
+    }
+
+    private Node newNode(Step step)
+    {
+        Node node=new Node();
+        node.step=step;
+        numberOfNodes++;
+        return node;
+    }
+
+    // The pattern vertex of the center type, the smallest one if there are several
+    private static PatternVertex center(TGFD tgfd)
+    {
+        String centerType=tgfd.getPattern().getCenterVertexType();
+        PatternVertex center=null;
+        for (Vertex v:tgfd.getPattern().getPattern().vertexSet())
+        {
+            boolean isCenter=v.getTypes().contains(centerType);
+            boolean isCurrentCenter=center!=null && center.getTypes().contains(centerType);
+            if(center==null || (isCenter && !isCurrentCenter)
+                    || (isCenter==isCurrentCenter && vertexKey((PatternVertex) v).compareTo(vertexKey(center))<0))
+                center=(PatternVertex) v;
+        }
+        return center;
+    }
+
+    // The step that adds the vertex after the vertices in order
+    private static Step step(Graph<Vertex, RelationshipEdge> pattern, List<PatternVertex> order, PatternVertex v)
+    {
+        Step step=new Step();
+        step.vertex=v;
+        step.labelsTo=new String[order.size()];
+        step.labelsFrom=new String[order.size()];
+        RelationshipEdge loop=pattern.getEdge(v, v);
+        step.loop=loop==null ? null : loop.getLabel();
+        StringBuilder adjacency=new StringBuilder();
+        for (int i=0;i<order.size() && order.get(i)!=v;i++)
+        {
+            RelationshipEdge to=pattern.getEdge(v, order.get(i));
+            RelationshipEdge from=pattern.getEdge(order.get(i), v);
+            step.labelsTo[i]=to==null ? null : to.getLabel();
+            step.labelsFrom[i]=from==null ? null : from.getLabel();
+            if(step.anchor<0 && (to!=null || from!=null))
+            {
+                step.anchor=i;
+                step.outgoing=from!=null;
+                step.anchorLabel=from!=null ? from.getLabel() : to.getLabel();
+            }
+            adjacency.append('|').append(step.labelsTo[i]).append(',').append(step.labelsFrom[i]);
+        }
+        // The step of a vertex that is not connected to the vertices before it sorts last
+        step.key=(step.anchor<0 ? "~" : String.format("%04d", step.anchor)) + (step.outgoing ? ">" : "<") + step.anchorLabel
+                + "#" + vertexKey(v) + "#" + step.loop + adjacency;
+        return step;
+    }
+
+    private static String vertexKey(PatternVertex v)
+    {
+        List<String> key=new ArrayList<>(v.getTypes());
+        Collections.sort(key);
+        List<String> literals=new ArrayList<>();
+        for (Attribute attr:v.getAllAttributesList())
+            literals.add(attr.isNULL() ? attr.getAttrName() : attr.getAttrName() + "=" + attr.getAttrValue());
+        Collections.sort(literals);
+        return key + "" + literals;
+    }
+
+    //endregion
+
+    /** Number of nodes of the trie, i.e. steps that are evaluated once for all the patterns that share them. */
+    public int getNumberOfNodes() {
+        return numberOfNodes;
+    }
+
+    /** Number of steps of the patterns, i.e. the nodes without sharing. */
+    public int getNumberOfSteps() {
+        return numberOfSteps;
+    }
+
+}
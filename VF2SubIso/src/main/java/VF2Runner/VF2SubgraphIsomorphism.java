@@ -9,6 +9,7 @@ import org.jgrapht.GraphMapping;
 import org.jgrapht.alg.isomorphism.VF2AbstractIsomorphismInspector;
 import org.jgrapht.alg.isomorphism.VF2SubgraphIsomorphismInspector;
 import Util.Config;
+import Util.Metrics;
 
 import java.util.Comparator;
 import java.util.Iterator;
@@ -42,15 +43,15 @@ public class VF2SubgraphIsomorphism {
     {
         //System.out.println("Graph Size :" + dataGraph.getGraph().vertexSet().size());
 
-        long startTime = System.currentTimeMillis();
+        long startTime = Metrics.startTimer();
         inspector = new VF2SubgraphIsomorphismInspector<>(
                 dataGraph.getGraph(), pattern.getPattern(),
                 myVertexComparator, myEdgeComparator, cacheEdges);
 
-        System.out.println("Search Cost: " + (System.currentTimeMillis() - startTime));
         int size=0;
-        if (inspector.isomorphismExists()) {
-            Iterator<GraphMapping<Vertex, RelationshipEdge>> iterator = inspector.getMappings();
+        boolean isomorphismExists = inspector.isomorphismExists();
+        if (isomorphismExists) {
+            Iterator<GraphMapping<Vertex, RelationshipEdge>> iterator = timed(inspector.getMappings(), startTime);
             if(Config.printDetailedMatchingResults)
             {
                 while (iterator.hasNext()) {
@@ -73,18 +74,20 @@ public class VF2SubgraphIsomorphism {
         }
         else
         {
-            System.out.println("No Matches for the query!");
+            Metrics.stopTimer(Metrics.VF2_SEARCH, startTime);
+            if(Config.printDetailedMatchingResults)
+                System.out.println("No Matches for the query!");
             return null;
         }
     }
 
     public VF2AbstractIsomorphismInspector<Vertex, RelationshipEdge> execute2(VF2DataGraph dataGraph, VF2PatternGraph pattern, boolean cacheEdges) {
-        System.out.println("Graph Size :" + dataGraph.getGraph().vertexSet().size());
-        long startTime = System.currentTimeMillis();
+        if(Config.printDetailedMatchingResults)
+            System.out.println("Graph Size :" + dataGraph.getGraph().vertexSet().size());
+        // The search is done by the caller, with the inspector
         inspector = new VF2SubgraphIsomorphismInspector<>(
                 dataGraph.getGraph(), pattern.getPattern(),
                 myVertexComparator, myEdgeComparator, cacheEdges);
-        System.out.println("Search Cost: " + (System.currentTimeMillis() - startTime));
         return inspector;
     }
 
@@ -92,16 +95,15 @@ public class VF2SubgraphIsomorphism {
     {
         //System.out.println("Graph Size :" + dataGraph.getGraph().vertexSet().size());
 
-        long startTime = System.currentTimeMillis();
+        long startTime = Metrics.startTimer();
         inspector = new VF2SubgraphIsomorphismInspector<>(
                 dataGraph, pattern.getPattern(),
                 myVertexComparator, myEdgeComparator, cacheEdges);
 
-        if(Config.printDetailedMatchingResults)
-            System.out.println("Search Cost: "+ (System.currentTimeMillis() - startTime));
         int size=0;
-        if (inspector.isomorphismExists()) {
-            Iterator<GraphMapping<Vertex, RelationshipEdge>> iterator = inspector.getMappings();
+        boolean isomorphismExists = inspector.isomorphismExists();
+        if (isomorphismExists) {
+            Iterator<GraphMapping<Vertex, RelationshipEdge>> iterator = timed(inspector.getMappings(), startTime);
             if(Config.printDetailedMatchingResults)
             {
                 while (iterator.hasNext()) {
@@ -122,9 +124,46 @@ public class VF2SubgraphIsomorphism {
         }
         else
         {
+            Metrics.stopTimer(Metrics.VF2_SEARCH, startTime);
             if(Config.printDetailedMatchingResults)
                 System.out.println("No Matches for the query!");
             return null;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * The matches are found lazily while the caller iterates over them, so the time spent in the iterator is added to the
+     * time of the search since startTime, and recorded in VF2_SEARCH once the iterator is consumed.
+     */
+    private static Iterator<GraphMapping<Vertex, RelationshipEdge>> timed(Iterator<GraphMapping<Vertex, RelationshipEdge>> iterator, long startTime)
+    {
+        if(startTime==0)
+            return iterator;
+        long searchTime=System.nanoTime()-startTime;
+        return new Iterator<>() {
+            private long elapsed=searchTime;
+            private boolean recorded=false;
+
+            @Override
+            public boolean hasNext() {
+                long start=System.nanoTime();
+                boolean hasNext=iterator.hasNext();
+                elapsed+=System.nanoTime()-start;
+                if(!hasNext && !recorded)
+                {
+                    recorded=true;
+                    Metrics.stopTimer(Metrics.VF2_SEARCH, System.nanoTime()-elapsed);
+                }
+                return hasNext;
+            }
+
+            @Override
+            public GraphMapping<Vertex, RelationshipEdge> next() {
+                long start=System.nanoTime();
+                GraphMapping<Vertex, RelationshipEdge> mapping=iterator.next();
+                elapsed+=System.nanoTime()-start;
+                return mapping;
+            }
+        };
+    }
+}
@@ -1,5 +1,6 @@
 package changeExploration;
 
+import VF2BasedWorkload.JobletIndex;
 
 import java.io.Serializable;
 import java.util.Collection;
@@ -22,8 +23,8 @@ public class Change implements Serializable {
     /** Unique id of a change log. */
     private int id;
 
-    /** Set of joblets that are affected by this change. */
-    private Set<Integer> jobletIDs=new HashSet<>();
+    /** Sorted IDs of the joblets that are affected by this change. */
+    private int[] jobletIDs=new int[0];
     //endregion
 
     /**
@@ -84,15 +85,19 @@ public class Change implements Serializable {
 
     public void addJobletID(int jobletID)
     {
-        this.jobletIDs.add(jobletID);
+        addJobletID(new int[]{jobletID});
     }
 
-    public void addJobletID(Set<Integer> jobletIDs)
+    /**
+     * @param jobletIDs Sorted IDs of joblets affected by the change
+     */
+    public void addJobletID(int[] jobletIDs)
     {
-        this.jobletIDs.addAll(jobletIDs);
+        this.jobletIDs=JobletIndex.union(this.jobletIDs, jobletIDs);
     }
 
-    public Set<Integer> getJobletIDs() {
+    /** Gets the sorted IDs of the joblets affected by the change. */
+    public int[] getJobletIDs() {
         return jobletIDs;
     }
 
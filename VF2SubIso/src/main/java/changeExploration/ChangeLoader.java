@@ -1,9 +1,6 @@
 package changeExploration;
 
-import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
-import com.amazonaws.services.s3.model.GetObjectRequest;
-import com.amazonaws.services.s3.model.S3Object;
+import Storage.ObjectStores;
 import Infra.Attribute;
 import Infra.DataVertex;
 import org.json.simple.JSONObject;
@@ -35,24 +32,17 @@ public class ChangeLoader {
     private void loadChanges(String path) {
 
         JSONParser parser = new JSONParser();
-        S3Object fullObject = null;
         BufferedReader br=null;
         Object json;
         try
         {
             if(Config.Amazon)
             {
-                AmazonS3 s3Client = AmazonS3ClientBuilder.standard()
-                        .withRegion(Config.region)
-                        //.withCredentials(new ProfileCredentialsProvider())
-                        //.withCredentials(DefaultAWSCredentialsProviderChain.getInstance())
-                        .build();
                 //TODO: Need to check if the path is correct (should be in the form of bucketName/Key )
                 String bucketName=path.substring(0,path.lastIndexOf("/"));
                 String key=path.substring(path.lastIndexOf("/")+1);
                 System.out.println("Downloading the object from Amazon S3 - Bucket name: " + bucketName +" - Key: " + key);
-                fullObject = s3Client.getObject(new GetObjectRequest(bucketName, key));
-                br = new BufferedReader(new InputStreamReader(fullObject.getObjectContent()));
+                br = new BufferedReader(new InputStreamReader(ObjectStores.getDefault().open(bucketName, key)));
                 json = parser.parse(br);
             }
             else
@@ -123,9 +113,6 @@ public class ChangeLoader {
                     allChanges.add(change);
                 }
             }
-            if (fullObject != null) {
-                fullObject.close();
-            }
             if (br != null) {
                 br.close();
             }
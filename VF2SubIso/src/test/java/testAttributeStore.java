@@ -0,0 +1,90 @@
+import Infra.Attribute;
+import Infra.DataVertex;
+import Infra.PatternVertex;
+import Util.Config;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class testAttributeStore {
+
+    public static void main(String []args) throws IOException, ClassNotFoundException, InterruptedException {
+
+        Config.columnarAttributes=true;
+
+        DataVertex v=new DataVertex("Frank_Lampard","player");
+        v.addAttribute("name","Lampard");
+        v.addAttribute("age","34");
+        v.addAttribute("height","1.84");
+        v.addAttribute("birthDate","1978-06-20");
+        v.addAttribute("number","011");
+        System.out.println(v);
+
+        // Values must come back exactly as they were added (lowercased)
+        check(v.getAttributeValueByName("name").equals("lampard"), "string value");
+        check(v.getAttributeValueByName("age").equals("34"), "integer value");
+        check(v.getAttributeValueByName("height").equals("1.84"), "decimal value");
+        check(v.getAttributeValueByName("birthdate").equals("1978-06-20"), "date value");
+        check(v.getAttributeValueByName("number").equals("011"), "non canonical integer value");
+        check(v.hasAttribute("birthDate") && !v.hasAttribute("team"), "hasAttribute");
+
+        v.setOrAddAttribute(new Attribute("age","35"));
+        v.deleteAttribute(new Attribute("number"));
+        check(v.getAttributeValueByName("age").equals("35"), "updated value");
+        check(!v.hasAttribute("number") && v.getAllAttributesNames().size()==5, "deleted value");
+
+        PatternVertex p=new PatternVertex("player");
+        p.addAttribute(new Attribute("name"));
+        p.addAttribute(new Attribute("age","35"));
+        check(p.isMapped(v), "pattern vertex is mapped");
+        p.addAttribute(new Attribute("team"));
+        check(!p.isMapped(v), "pattern vertex is not mapped");
+
+        // Shipping a vertex keeps its attributes
+        ByteArrayOutputStream bytes=new ByteArrayOutputStream();
+        ObjectOutputStream out=new ObjectOutputStream(bytes);
+        out.writeObject(v);
+        out.close();
+        DataVertex received=(DataVertex) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+        check(received.getAttributeValueByName("birthdate").equals("1978-06-20")
+                && received.getAllAttributesList().size()==5, "serialized vertex");
+
+        // Vertices are loaded and read by several threads at the same time
+        List<Thread> threads=new ArrayList<>();
+        List<String> failures=Collections.synchronizedList(new ArrayList<>());
+        for (int t=0;t<8;t++)
+        {
+            int thread=t;
+            threads.add(new Thread(() -> {
+                for (int i=0;i<5000;i++)
+                {
+                    DataVertex vertex=new DataVertex("v_"+thread+"_"+i,"player");
+                    vertex.addAttribute("name","name_"+thread+"_"+i);
+                    vertex.addAttribute("attr_"+(i%50),Integer.toString(i));
+                    vertex.addAttribute("team","team_"+(i%7));
+                    // The URI is an attribute too
+                    if(!vertex.getAttributeValueByName("name").equals("name_"+thread+"_"+i)
+                            || !vertex.getAttributeValueByName("attr_"+(i%50)).equals(Integer.toString(i))
+                            || !vertex.getAttributeValueByName("team").equals("team_"+(i%7))
+                            || vertex.getAllAttributesList().size()!=4)
+                        failures.add(vertex.toString());
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread:threads)
+            thread.join();
+        check(failures.isEmpty(), "concurrent vertices: "+failures);
+
+        System.out.println("PASSED");
+    }
+
+    private static void check(boolean condition, String message)
+    {
+        if(!condition)
+            throw new IllegalStateException("FAILED: " + message);
+        System.out.println("OK: " + message);
+    }
+}
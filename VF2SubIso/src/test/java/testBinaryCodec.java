@@ -0,0 +1,89 @@
+import Infra.*;
+import MPI.BinaryCodec;
+import Util.Config;
+import changeExploration.*;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultDirectedGraph;
+
+import java.util.*;
+
+public class testBinaryCodec {
+
+    public static void main(String []args) {
+
+        for (String compression:new String[]{"none", "deflate"})
+        {
+            Config.compression=compression;
+
+            // Edges to be shipped, by destination fragment
+            HashMap<Integer, ArrayList<SimpleEdge>> edgesByFragment=new HashMap<>();
+            edgesByFragment.put(2, new ArrayList<>(Arrays.asList(new SimpleEdge("a", "b", "knows"), new SimpleEdge("a", "c", "knows"))));
+            edgesByFragment.put(3, new ArrayList<>(Collections.singletonList(new SimpleEdge("c", "a", "likes"))));
+            HashMap<Integer, ArrayList<SimpleEdge>> decodedEdges=BinaryCodec.decodeEdges(BinaryCodec.encodeEdges(edgesByFragment));
+            check(decodedEdges.get(2).size()==2 && decodedEdges.get(3).size()==1, "number of edges");
+            SimpleEdge edge=decodedEdges.get(3).get(0);
+            check(edge.getSrc().equals("c") && edge.getDst().equals("a") && edge.getLabel().equals("likes"), "edge");
+
+            // Graph with types and attributes
+            Graph<Vertex, RelationshipEdge> graph = new DefaultDirectedGraph<>(RelationshipEdge.class);
+            DataVertex a=new DataVertex("a", "person");
+            a.addType("actor");
+            a.addAttribute("name", "Émile");
+            // An attribute without value, that a pattern only requires to exist
+            a.addAttribute(new Attribute("nickname"));
+            DataVertex b=new DataVertex("b", "movie");
+            DataVertex isolated=new DataVertex("isolated", "movie");
+            graph.addVertex(a);
+            graph.addVertex(b);
+            graph.addVertex(isolated);
+            graph.addEdge(a, b, new RelationshipEdge("actor_of"));
+            VF2DataGraph decodedGraph=new VF2DataGraph(BinaryCodec.decodeGraph(BinaryCodec.encodeGraph(graph)));
+            check(decodedGraph.getGraph().vertexSet().size()==3 && decodedGraph.getGraph().edgeSet().size()==1, "graph size");
+            Vertex decodedA=decodedGraph.getNode("a");
+            check(decodedA.getTypes().equals(new HashSet<>(Arrays.asList("person", "actor"))), "types");
+            check(decodedA.getAttributeValueByName("name").equals("émile"), "attribute");
+            check(decodedA.getAttributeValueByName("uri").equals("a"), "uri attribute");
+            check(decodedA.hasAttribute("nickname") && decodedA.getAttributeValueByName("nickname")==null, "attribute without value");
+            check(decodedGraph.getGraph().outgoingEdgesOf(decodedA).iterator().next().getLabel().equals("actor_of"), "edge label");
+
+            // Changes of all kinds, with their TGFDs and joblets
+            List<Change> changes=new ArrayList<>();
+            EdgeChange edgeChange=new EdgeChange(ChangeType.insertEdge, 1, "a", "b", "actor_of");
+            edgeChange.addTGFD("tgfd1");
+            edgeChange.addJobletID(new int[]{4, 500000});
+            changes.add(edgeChange);
+            VertexChange vertexChange=new VertexChange(ChangeType.insertVertex, 2, a);
+            vertexChange.addTGFD(Arrays.asList("tgfd1", "tgfd2"));
+            changes.add(vertexChange);
+            changes.add(new AttributeChange(ChangeType.changeAttr, 3, "a", new Attribute("name", "jean")));
+            changes.add(new AttributeChange(ChangeType.deleteAttr, -4, "b", new Attribute("year")));
+            List<Change> decodedChanges=BinaryCodec.decodeChanges(BinaryCodec.encodeChanges(changes));
+            check(decodedChanges.size()==4, "number of changes");
+
+            EdgeChange decodedEdgeChange=(EdgeChange) decodedChanges.get(0);
+            check(decodedEdgeChange.getTypeOfChange()==ChangeType.insertEdge && decodedEdgeChange.getId()==1, "edge change header");
+            check(decodedEdgeChange.getSrc().equals("a") && decodedEdgeChange.getDst().equals("b") && decodedEdgeChange.getLabel().equals("actor_of"), "edge change");
+            check(decodedEdgeChange.getTGFDs().equals(Collections.singleton("tgfd1")), "TGFDs");
+            check(Arrays.equals(decodedEdgeChange.getJobletIDs(), new int[]{4, 500000}), "joblet IDs");
+
+            VertexChange decodedVertexChange=(VertexChange) decodedChanges.get(1);
+            check(decodedVertexChange.getVertex().getVertexURI().equals("a") && decodedVertexChange.getVertex().getTypes().contains("actor"), "vertex change");
+            check(decodedVertexChange.getTGFDs().size()==2, "vertex change TGFDs");
+
+            AttributeChange decodedAttributeChange=(AttributeChange) decodedChanges.get(2);
+            check(decodedAttributeChange.getUri().equals("a") && decodedAttributeChange.getAttribute().getAttrValue().equals("jean"), "attribute change");
+            AttributeChange decodedNullChange=(AttributeChange) decodedChanges.get(3);
+            check(decodedNullChange.getId()==-4 && decodedNullChange.getAttribute().isNULL(), "attribute change without value");
+        }
+        System.out.println("PASSED");
+    }
+
+    private static void check(boolean condition, String message)
+    {
+        if(!condition)
+        {
+            System.out.println("FAILED: "+message);
+            System.exit(1);
+        }
+    }
+}
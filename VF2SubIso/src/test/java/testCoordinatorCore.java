@@ -0,0 +1,95 @@
+import MPI.Consumer;
+import MPI.Producer;
+import ParalleRunner.CoordinatorCore;
+import ParalleRunner.Status;
+import Util.Config;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+public class testCoordinatorCore {
+
+    public static void main(String []args) throws Exception {
+
+        Config.transport="inprocess";
+        List<String> workers=Arrays.asList("worker1", "worker2", "worker3");
+        int supersteps=5;
+
+        List<String> events=new CopyOnWriteArrayList<>();
+        CoordinatorCore core=new CoordinatorCore(workers, supersteps, superstep -> "results"+superstep);
+        core.start();
+        check(core.getStatus()==Status.Coordinator_Waits_For_Workers_Status, "waits for the workers");
+        core.assign(new CoordinatorCore.Phases() {
+            @Override
+            public void assign() {
+                events.add("assign");
+                Producer producer=new Producer();
+                producer.connect();
+                for (String worker:workers)
+                    producer.send(worker, "#jobs");
+                producer.close();
+            }
+
+            @Override
+            public CompletableFuture<Void> ship(int superstep) {
+                return CompletableFuture.runAsync(() -> {
+                    events.add("ship"+superstep);
+                    Producer producer=new Producer();
+                    producer.connect();
+                    for (String worker:workers)
+                        producer.send(worker, "#datashipper "+superstep);
+                    producer.close();
+                });
+            }
+        });
+
+        // Each worker waits for its jobs, then answers the data of each superstep with its results
+        long startTime=System.currentTimeMillis();
+        List<Thread> workerThreads=new ArrayList<>();
+        for (String worker:workers)
+        {
+            Thread thread=new Thread(() -> {
+                Producer producer=new Producer();
+                producer.connect();
+                producer.send("status", "up "+worker);
+                producer.close();
+                Consumer consumer=new Consumer();
+                consumer.connect(worker);
+                check(consumer.receive().equals("#jobs"), "jobs of "+worker);
+                for (int superstep=1;superstep<=supersteps;superstep++)
+                {
+                    check(consumer.receive().equals("#datashipper "+superstep), "data of superstep "+superstep);
+                    producer.send("results"+superstep, worker+"@result"+superstep);
+                    producer.close();
+                }
+            });
+            thread.start();
+            workerThreads.add(thread);
+        }
+
+        HashMap<String,List<String>> results=core.getDone().get(30, TimeUnit.SECONDS);
+        long duration=System.currentTimeMillis()-startTime;
+        for (Thread thread:workerThreads)
+            thread.join();
+
+        check(core.getStatus()==Status.Coordinator_Is_Done, "done");
+        check(events.equals(Arrays.asList("assign", "ship1", "ship2", "ship3", "ship4", "ship5")), "order of the phases "+events);
+        for (String worker:workers)
+            check(results.get(worker).equals(Arrays.asList("result1", "result2", "result3", "result4", "result5")), "results of "+worker);
+        // The supersteps advance as soon as the workers report, instead of after Config.threadsIdleTime
+        check(duration<Config.threadsIdleTime, "supersteps advance without waiting: "+duration+" ms");
+        System.out.println("All supersteps done in " + duration + " ms");
+        System.out.println("PASSED");
+    }
+
+    private static void check(boolean condition, String message)
+    {
+        if(!condition)
+        {
+            System.out.println("FAILED: "+message);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+import Infra.*;
+import Util.Config;
+import VF2BasedWorkload.CostModel;
+import VF2BasedWorkload.Joblet;
+
+import java.time.Duration;
+import java.time.Period;
+import java.util.*;
+
+public class testCostModel {
+
+    public static void main(String []args) {
+
+        VF2PatternGraph pattern=new VF2PatternGraph(1);
+        PatternVertex player=new PatternVertex("player");
+        PatternVertex team=new PatternVertex("team");
+        pattern.addVertex(player);
+        pattern.addVertex(team);
+        pattern.addEdge(player,team,new RelationshipEdge("playing"));
+        TGFD tgfd=new TGFD(pattern,new Delta(Period.ofDays(0),Period.ofDays(30),Duration.ofDays(1)),new Dependency(),"players");
+
+        // Players with 1 to 60 teams, and as many edges that cannot match
+        Random random=new Random(1);
+        VF2DataGraph graph=new VF2DataGraph();
+        List<Joblet> joblets=new ArrayList<>();
+        for (int i=0;i<400;i++)
+        {
+            DataVertex p=new DataVertex("player_"+i,"player");
+            graph.addVertex(p);
+            int teams=1+random.nextInt(60);
+            for (int j=0;j<teams;j++)
+            {
+                DataVertex t=new DataVertex("team_"+i+"_"+j,"team");
+                graph.addVertex(t);
+                graph.addEdge(p,t,new RelationshipEdge("playing"));
+                DataVertex c=new DataVertex("city_"+i+"_"+j,"city");
+                graph.addVertex(c);
+                graph.addEdge(p,c,new RelationshipEdge("born"));
+            }
+            Joblet joblet=new Joblet(i,p,tgfd,1,0);
+            joblet.setEdges(graph.getEdgesWithinDiameter(p,1));
+            joblets.add(joblet);
+        }
+        Joblet smallest=joblets.stream().min(Comparator.comparingInt(j -> j.getEdges().size())).get();
+        Joblet largest=joblets.stream().max(Comparator.comparingInt(j -> j.getEdges().size())).get();
+        check(largest.getSize()>smallest.getSize(), "default estimate grows with the edges");
+
+        Config.costSampleRate=0.1;
+        Config.costSampleBudget=20000;
+        Config.seed=7;
+        CostModel model=new CostModel(graph);
+        model.estimate(joblets);
+
+        check(model.getErrors().containsKey("players"), "error is reported");
+        double error=model.getErrors().get("players");
+        System.out.println("Mean relative error: " + error + " - weights: " + Arrays.toString(model.getWeights("players")));
+        check(!Double.isNaN(error) && error>=0, "error "+error);
+        check(largest.getSize()>smallest.getSize(), "larger neighbourhood, larger cost");
+        for (Joblet joblet:joblets)
+            check(joblet.getSize()>=0 && !Double.isInfinite(joblet.getSize()), "cost of joblet "+joblet.getId());
+
+        // Pairs of teams of a player, a star player has millions of them: the budget stops its matching
+        VF2PatternGraph pairsPattern=new VF2PatternGraph(1);
+        PatternVertex pairsPlayer=new PatternVertex("player");
+        PatternVertex firstTeam=new PatternVertex("team");
+        PatternVertex secondTeam=new PatternVertex("team");
+        pairsPattern.addVertex(pairsPlayer);
+        pairsPattern.addVertex(firstTeam);
+        pairsPattern.addVertex(secondTeam);
+        pairsPattern.addEdge(pairsPlayer,firstTeam,new RelationshipEdge("playing"));
+        pairsPattern.addEdge(pairsPlayer,secondTeam,new RelationshipEdge("playing"));
+        TGFD pairs=new TGFD(pairsPattern,new Delta(Period.ofDays(0),Period.ofDays(30),Duration.ofDays(1)),new Dependency(),"pairs");
+        DataVertex star=new DataVertex("star","player");
+        graph.addVertex(star);
+        for (int j=0;j<3000;j++)
+        {
+            DataVertex t=new DataVertex("team_star_"+j,"team");
+            graph.addVertex(t);
+            graph.addEdge(star,t,new RelationshipEdge("playing"));
+        }
+        List<Joblet> pairJoblets=new ArrayList<>();
+        // Enough joblets for the warm-up and a model
+        for (int i=0;i<12;i++)
+        {
+            Joblet joblet=new Joblet(1000+i,star,pairs,1,0);
+            joblet.setEdges(graph.getEdgesWithinDiameter(star,1));
+            pairJoblets.add(joblet);
+        }
+        Config.costSampleBudget=300;
+        long startTime=System.currentTimeMillis();
+        new CostModel(graph).estimate(pairJoblets);
+        long duration=System.currentTimeMillis()-startTime;
+        System.out.println("Sampling with a budget of 300 ms: " + duration + " ms");
+        check(duration<5000, "the budget is checked while matching: "+duration+" ms");
+
+        // Without samples, all the joblets keep the default estimate, in the same unit
+        List<Joblet> all=new ArrayList<>(joblets);
+        all.addAll(pairJoblets);
+        all.forEach(joblet -> joblet.setEstimatedCost(-1));
+        Config.costSampleBudget=0;
+        new CostModel(graph).estimate(all);
+        for (Joblet joblet:all)
+            check(joblet.getSize()==Math.pow(joblet.getEdges().size(), joblet.getTGFD().getPattern().getSize()), "default estimate of joblet "+joblet.getId());
+        System.out.println("PASSED");
+    }
+
+    private static void check(boolean condition, String message)
+    {
+        if(!condition)
+        {
+            System.out.println("FAILED: "+message);
+            System.exit(1);
+        }
+    }
+}
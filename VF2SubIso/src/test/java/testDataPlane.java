@@ -0,0 +1,142 @@
+import Infra.DataVertex;
+import Infra.RelationshipEdge;
+import Infra.VF2DataGraph;
+import Infra.Vertex;
+import MPI.DataPlane;
+import MPI.EdgeBatchCodec;
+import ParalleRunner.GraphShipper;
+import Util.Config;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultDirectedGraph;
+
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+public class testDataPlane {
+
+    public static void main(String []args) throws Exception {
+
+        // The codec keeps the vertices, their types and attributes, the edges, and the vertices without edges
+        Graph<Vertex, RelationshipEdge> fragment=createFragment("a", 25);
+        List<byte[]> batches=EdgeBatchCodec.encode(fragment, 10);
+        check(batches.size()==3, "number of batches: "+batches.size());
+        VF2DataGraph decoded=new VF2DataGraph();
+        for (byte[] batch:batches)
+            Partitioner.Util.mergeGraphs(decoded, EdgeBatchCodec.decode(batch));
+        check(decoded.getGraph().vertexSet().size()==fragment.vertexSet().size(), "decoded vertices");
+        check(decoded.getGraph().edgeSet().size()==fragment.edgeSet().size(), "decoded edges");
+        DataVertex v=(DataVertex) decoded.getNode("a_1");
+        check(v.getTypes().contains("person") && v.getTypes().contains("actor"), "decoded types");
+        check(v.getAttributeValueByName("name").equals("name of a_1"), "decoded attributes");
+
+        // A stream closed before its end is reported as incomplete
+        DataPlane dataPlane=new DataPlane(0, 4, 1024);
+        try (SocketChannel channel=DataPlane.connect("localhost", dataPlane.getPort()))
+        {
+            byte[] name="broken".getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer=ByteBuffer.allocate(16+name.length);
+            buffer.putInt(name.length).put(name).putInt(1).putInt(100).putInt(1).flip();
+            channel.write(buffer);
+        }
+        check(!dataPlane.receive("broken", 1, batch -> {}), "broken stream");
+        // A frame longer than the maximum, or with a negative length, is rejected
+        for (int batchLength:new int[]{1025, -1})
+        {
+            try (SocketChannel channel=DataPlane.connect("localhost", dataPlane.getPort()))
+            {
+                byte[] name="invalid".getBytes(StandardCharsets.UTF_8);
+                ByteBuffer buffer=ByteBuffer.allocate(12+name.length);
+                buffer.putInt(name.length).put(name).putInt(1).putInt(batchLength).flip();
+                channel.write(buffer);
+                check(!dataPlane.receive("invalid", 1, batch -> {}), "frame of "+batchLength+" bytes");
+            }
+        }
+        dataPlane.close();
+
+        // Workers ship their fragments to each other through the data plane
+        Config.transport="inprocess";
+        Config.dataPlane="socket";
+        Config.dataPlaneBatchSize=10;
+        Config.dataPlaneQueueSize=2;
+        int numberOfWorkers=3;
+        for (int i=0;i<numberOfWorkers;i++)
+        {
+            String workerName="worker"+i;
+            Config.workers.add(workerName);
+            try (ServerSocket socket=new ServerSocket(0))
+            {
+                Config.dataPlaneAddresses.put(workerName, "localhost:"+socket.getLocalPort());
+            }
+        }
+
+        List<VF2DataGraph> graphs=new ArrayList<>();
+        List<Thread> workers=new ArrayList<>();
+        for (int i=0;i<numberOfWorkers;i++)
+        {
+            int workerID=i;
+            VF2DataGraph graph=new VF2DataGraph();
+            graphs.add(graph);
+            GraphShipper shipper=new GraphShipper(Config.workers.get(workerID));
+            Thread worker=new Thread(() -> {
+                for (int superstep=1;superstep<=2;superstep++)
+                {
+                    HashMap<Integer, Graph<Vertex, RelationshipEdge>> graphsToBeSent=new HashMap<>();
+                    for (int j=0;j<numberOfWorkers;j++)
+                    {
+                        if(j!=workerID)
+                            graphsToBeSent.put(j, createFragment("w"+workerID+"s"+superstep, 100));
+                    }
+                    shipper.ship(superstep, graphsToBeSent);
+                    shipper.receive(superstep, graph);
+                }
+                shipper.close();
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker:workers)
+            worker.join();
+
+        int fragmentSize=createFragment("x", 100).vertexSet().size();
+        for (int i=0;i<numberOfWorkers;i++)
+        {
+            int expected=fragmentSize*(numberOfWorkers-1)*2;
+            check(graphs.get(i).getGraph().vertexSet().size()==expected,
+                    "worker"+i+" received "+graphs.get(i).getGraph().vertexSet().size()+" vertices instead of "+expected);
+        }
+        System.out.println("PASSED");
+    }
+
+    // A path of vertices with two types, and one vertex without any edge
+    private static Graph<Vertex, RelationshipEdge> createFragment(String prefix, int numberOfEdges)
+    {
+        Graph<Vertex, RelationshipEdge> graph = new DefaultDirectedGraph<>(RelationshipEdge.class);
+        DataVertex previous=null;
+        for (int i=0;i<=numberOfEdges;i++)
+        {
+            DataVertex v=new DataVertex(prefix+"_"+i, "person");
+            v.addType("actor");
+            v.addAttribute("name", "name of "+prefix+"_"+i);
+            graph.addVertex(v);
+            if(previous!=null)
+                graph.addEdge(previous, v, new RelationshipEdge("knows"));
+            previous=v;
+        }
+        graph.addVertex(new DataVertex(prefix+"_isolated", "person"));
+        return graph;
+    }
+
+    private static void check(boolean condition, String message)
+    {
+        if(!condition)
+        {
+            System.out.println("FAILED: "+message);
+            System.exit(1);
+        }
+    }
+}
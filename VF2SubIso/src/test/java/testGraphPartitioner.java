@@ -0,0 +1,63 @@
+import Infra.DataVertex;
+import Infra.RelationshipEdge;
+import Infra.VF2DataGraph;
+import Partitioner.FennelPartitioner;
+import Partitioner.GraphPartitioners;
+import Partitioner.RangeBasedPartitioner;
+
+import java.util.*;
+
+public class testGraphPartitioner {
+
+    public static void main(String []args) {
+
+        // 40 communities of 50 vertices, loaded in a random order, with a few edges between the communities
+        Random random=new Random(5);
+        List<DataVertex> vertices=new ArrayList<>();
+        for (int i=0;i<2000;i++)
+            vertices.add(new DataVertex("v_"+i, "type"+(i%3)));
+        List<DataVertex> loadingOrder=new ArrayList<>(vertices);
+        Collections.shuffle(loadingOrder, random);
+        VF2DataGraph graph=new VF2DataGraph();
+        loadingOrder.forEach(graph::addVertex);
+        for (int i=0;i<vertices.size();i++)
+        {
+            int community=i/50;
+            for (int j=0;j<3;j++)
+            {
+                int neighbour=community*50+random.nextInt(50);
+                if(neighbour!=i)
+                    graph.addEdge(vertices.get(i), vertices.get(neighbour), new RelationshipEdge("link"+j));
+            }
+            if(random.nextInt(10)==0)
+                graph.addEdge(vertices.get(i), vertices.get(random.nextInt(vertices.size())), new RelationshipEdge("other"));
+        }
+
+        int numberOfPartitions=4;
+        HashMap<DataVertex,Integer> range=new RangeBasedPartitioner(graph).fragment(numberOfPartitions);
+        HashMap<DataVertex,Integer> fennel=new FennelPartitioner(graph).fragment(numberOfPartitions);
+        int rangeCut=GraphPartitioners.getCutSize(graph, range);
+        int fennelCut=GraphPartitioners.getCutSize(graph, fennel);
+        double fennelBalance=GraphPartitioners.getBalance(graph, fennel, numberOfPartitions);
+        System.out.println("Cut edges: range " + rangeCut + " - fennel " + fennelCut + " - balance of fennel: " + fennelBalance);
+
+        check(fennel.size()==vertices.size(), "every vertex is placed");
+        for (int fragment:fennel.values())
+            check(fragment>=0 && fragment<numberOfPartitions, "fragment "+fragment);
+        check(fennelCut*3<rangeCut, "fennel cuts fewer edges");
+        check(fennelBalance<=1.25, "balance "+fennelBalance);
+
+        // The same graph gives the same fragments, so the coordinator and the split data files agree
+        check(fennel.equals(new FennelPartitioner(graph).fragment(numberOfPartitions)), "deterministic");
+        System.out.println("PASSED");
+    }
+
+    private static void check(boolean condition, String message)
+    {
+        if(!condition)
+        {
+            System.out.println("FAILED: "+message);
+            System.exit(1);
+        }
+    }
+}
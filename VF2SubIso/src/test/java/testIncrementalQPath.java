@@ -0,0 +1,111 @@
+import Infra.*;
+import QPathBasedWorkload.Job;
+import QPathBasedWorkload.Query;
+import changeExploration.ChangeType;
+import changeExploration.EdgeChange;
+
+import java.time.Duration;
+import java.time.Period;
+import java.util.*;
+
+public class testIncrementalQPath {
+
+    public static void main(String []args) {
+
+        // a-x->b-y->c and a-y->d-x->c share c, and a-x->e is one more path from the center
+        VF2PatternGraph pattern=new VF2PatternGraph(2,"a");
+        PatternVertex a=new PatternVertex("a");
+        PatternVertex b=new PatternVertex("b");
+        PatternVertex c=new PatternVertex("c");
+        PatternVertex d=new PatternVertex("d");
+        PatternVertex e=new PatternVertex("b");
+        for (PatternVertex v:new PatternVertex[]{a,b,c,d,e})
+            pattern.addVertex(v);
+        pattern.addEdge(a,b,new RelationshipEdge("x"));
+        pattern.addEdge(b,c,new RelationshipEdge("y"));
+        pattern.addEdge(a,d,new RelationshipEdge("y"));
+        pattern.addEdge(d,c,new RelationshipEdge("x"));
+        pattern.addEdge(a,e,new RelationshipEdge("x"));
+        Query query=new Query(new TGFD(pattern,new Delta(Period.ofDays(0),Period.ofDays(30),Duration.ofDays(1)),new Dependency(),"abcd"));
+
+        Random random=new Random(11);
+        VF2DataGraph graph=new VF2DataGraph();
+        List<DataVertex> vertices=new ArrayList<>();
+        String[] types={"a","b","c","d"};
+        for (int i=0;i<40;i++)
+        {
+            DataVertex v=new DataVertex("v_"+i, types[i%4]);
+            graph.addVertex(v);
+            vertices.add(v);
+        }
+        for (int i=0;i<700;i++)
+        {
+            DataVertex src=vertices.get(random.nextInt(vertices.size()));
+            DataVertex dst=vertices.get(random.nextInt(vertices.size()));
+            if(src!=dst)
+                graph.addEdge(src, dst, new RelationshipEdge(random.nextBoolean() ? "x" : "y"));
+        }
+
+        // The job changes the graph, and a job over the same graph finds the mappings from scratch after each change
+        Job job=new Job(0, vertices.get(0), query, 2, 0);
+        job.setSubgraph(graph.getGraph());
+        job.runTheFirstSnapshot();
+        job.findMatchMapping();
+        Set<String> previous=new HashSet<>(job.getLatestMappingSignatures().keySet());
+        System.out.println("Initial mappings: "+previous.size());
+        check(previous.equals(recompute(graph, query)), "initial mappings");
+
+        int added=0, removed=0;
+        for (int i=0;i<600;i++)
+        {
+            EdgeChange change;
+            if(random.nextBoolean())
+            {
+                DataVertex src=vertices.get(random.nextInt(vertices.size()));
+                DataVertex dst=vertices.get(random.nextInt(vertices.size()));
+                if(src==dst)
+                    continue;
+                change=new EdgeChange(ChangeType.insertEdge, i, src.getVertexURI(), dst.getVertexURI(), random.nextBoolean() ? "x" : "y");
+            }
+            else
+            {
+                List<RelationshipEdge> edges=new ArrayList<>(graph.getGraph().edgeSet());
+                change=new EdgeChange(ChangeType.deleteEdge, i, edges.get(random.nextInt(edges.size())));
+            }
+            job.applyChangeForTheNextSnapshot(change);
+
+            Set<String> current=new HashSet<>(job.getLatestMappingSignatures().keySet());
+            check(current.equals(recompute(graph, query)), "mappings after change "+i);
+            Set<String> expectedNew=new HashSet<>(current);
+            expectedNew.removeAll(previous);
+            Set<String> expectedRemoved=new HashSet<>(previous);
+            expectedRemoved.removeAll(current);
+            check(expectedNew.equals(job.getNewMappings().keySet()), "new mappings of change "+i);
+            check(expectedRemoved.equals(job.getRemovedSignatures()), "removed mappings of change "+i);
+            added+=expectedNew.size();
+            removed+=expectedRemoved.size();
+            previous=current;
+        }
+        System.out.println("Added mappings: "+added+", removed mappings: "+removed);
+        check(added>0 && removed>0, "some mappings are added and removed");
+        System.out.println("PASSED");
+    }
+
+    private static Set<String> recompute(VF2DataGraph graph, Query query)
+    {
+        Job job=new Job(1, null, query, 2, 0);
+        job.setSubgraph(graph.getGraph());
+        job.runTheFirstSnapshot();
+        job.findMatchMapping();
+        return new HashSet<>(job.getLatestMappingSignatures().keySet());
+    }
+
+    private static void check(boolean condition, String message)
+    {
+        if(!condition)
+        {
+            System.out.println("FAILED: "+message);
+            System.exit(1);
+        }
+    }
+}
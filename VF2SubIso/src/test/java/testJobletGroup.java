@@ -0,0 +1,133 @@
+import Infra.*;
+import VF2BasedWorkload.Joblet;
+import VF2BasedWorkload.JobletGroup;
+import VF2Runner.MultiPatternMatcher;
+import VF2Runner.VF2SubgraphIsomorphism;
+import org.jgrapht.GraphMapping;
+
+import java.time.Duration;
+import java.time.Period;
+import java.util.*;
+
+public class testJobletGroup {
+
+    public static void main(String []args) {
+
+        // a->b->c with diameter 2, and a->b with diameter 1, both centered on a
+        VF2PatternGraph path=new VF2PatternGraph(2,"a");
+        PatternVertex a=new PatternVertex("a");
+        PatternVertex b=new PatternVertex("b");
+        PatternVertex c=new PatternVertex("c");
+        path.addVertex(a);
+        path.addVertex(b);
+        path.addVertex(c);
+        path.addEdge(a,b,new RelationshipEdge("x"));
+        path.addEdge(b,c,new RelationshipEdge("y"));
+        TGFD abc=new TGFD(path,new Delta(Period.ofDays(0),Period.ofDays(30),Duration.ofDays(1)),new Dependency(),"abc");
+        VF2PatternGraph edge=new VF2PatternGraph(1,"a");
+        PatternVertex a2=new PatternVertex("a");
+        PatternVertex b2=new PatternVertex("b");
+        edge.addVertex(a2);
+        edge.addVertex(b2);
+        edge.addEdge(a2,b2,new RelationshipEdge("x"));
+        TGFD ab=new TGFD(edge,new Delta(Period.ofDays(0),Period.ofDays(30),Duration.ofDays(1)),new Dependency(),"ab");
+
+        Random random=new Random(5);
+        VF2DataGraph graph=new VF2DataGraph();
+        List<DataVertex> vertices=new ArrayList<>();
+        for (int i=0;i<2000;i++)
+        {
+            DataVertex v=new DataVertex("v_"+i, i%5==0 ? "a" : (i%2==0 ? "b" : "c"));
+            graph.addVertex(v);
+            vertices.add(v);
+        }
+        for (int i=0;i<4000;i++)
+        {
+            DataVertex src=vertices.get(random.nextInt(vertices.size()));
+            DataVertex dst=vertices.get(random.nextInt(vertices.size()));
+            if(src!=dst)
+                graph.addEdge(src, dst, new RelationshipEdge(random.nextBoolean() ? "x" : "y"));
+        }
+        List<Joblet> joblets=joblets(graph, abc, ab);
+
+        // Each joblet extracted and matched on its own
+        VF2SubgraphIsomorphism VF2=new VF2SubgraphIsomorphism();
+        MultiPatternMatcher matcher=new MultiPatternMatcher(Arrays.asList(abc, ab));
+        HashMap<TGFD, Set<String>> expected=new HashMap<>();
+        for (Joblet joblet:joblets)
+        {
+            Set<String> signatures=expected.computeIfAbsent(joblet.getTGFD(), tgfd -> new HashSet<>());
+            VF2DataGraph subgraph=new VF2DataGraph(graph.getSubGraphWithinDiameter(joblet.getCenterNode(), joblet.getDiameter(), joblet.getTGFD()));
+            Iterator<GraphMapping<Vertex, RelationshipEdge>> results=VF2.execute(subgraph, joblet.getTGFD().getPattern(), false);
+            if(results!=null)
+                results.forEachRemaining(mapping -> signatures.add(Match.signatureFromPattern(joblet.getTGFD().getPattern(), mapping)));
+        }
+
+        for (int maxCenters:new int[]{1, 4, 16})
+        {
+            joblets=joblets(graph, abc, ab);
+            List<JobletGroup> groups=JobletGroup.group(joblets, graph, maxCenters);
+            Set<Joblet> grouped=new HashSet<>();
+            groups.forEach(group -> grouped.addAll(group.getJoblets()));
+            check(grouped.size()==joblets.size(), "each joblet is in a group");
+            check(groups.size()<joblets.size(), "fewer regions than joblets: "+groups.size());
+
+            HashMap<TGFD, Set<String>> actual=new HashMap<>();
+            HashMap<TGFD, Set<String>> together=new HashMap<>();
+            int duplicates=0;
+            for (JobletGroup group:groups)
+            {
+                group.extractRegion(graph);
+                for (Map.Entry<TGFD, List<GraphMapping<Vertex, RelationshipEdge>>> entry:group.findAnchoredMatches(VF2).entrySet())
+                {
+                    for (GraphMapping<Vertex, RelationshipEdge> mapping:entry.getValue())
+                        if(!actual.computeIfAbsent(entry.getKey(), tgfd -> new HashSet<>()).add(Match.signatureFromPattern(entry.getKey().getPattern(), mapping)))
+                            duplicates++;
+                }
+                // The TGFDs matched together from the centers of the group
+                group.findAnchoredMatches(matcher).forEach((tgfd, mappings) -> mappings.forEach(mapping ->
+                        together.computeIfAbsent(tgfd, t -> new HashSet<>()).add(Match.signatureFromPattern(tgfd.getPattern(), mapping))));
+            }
+            System.out.println(maxCenters+" centers per group: "+groups.size()+" regions for "+joblets.size()+" joblets, "+duplicates+" matches found by two groups");
+            for (TGFD tgfd:Arrays.asList(abc, ab))
+            {
+                check(expected.get(tgfd).equals(actual.getOrDefault(tgfd, new HashSet<>())), "matches of "+tgfd.getName()+" with "+maxCenters+" centers per group");
+                check(expected.get(tgfd).equals(together.getOrDefault(tgfd, new HashSet<>())), "matches of "+tgfd.getName()+" matched together with "+maxCenters+" centers per group");
+            }
+
+            // The subgraph of a joblet extracted from its region is the one extracted from the graph
+            for (Joblet joblet:joblets)
+            {
+                Set<SimpleEdge> fromGraph=new HashSet<>();
+                graph.getSubGraphWithinDiameter(joblet.getCenterNode(), joblet.getDiameter(), joblet.getTGFD()).edgeSet().forEach(e -> fromGraph.add(new SimpleEdge(e)));
+                Set<SimpleEdge> fromRegion=new HashSet<>();
+                joblet.getSubgraph().getGraph().edgeSet().forEach(e -> fromRegion.add(new SimpleEdge(e)));
+                check(fromGraph.equals(fromRegion), "subgraph of joblet "+joblet.getId());
+                check(joblet.getSubgraph().getGraph().vertexSet().size()==graph.getSubGraphWithinDiameter(joblet.getCenterNode(), joblet.getDiameter(), joblet.getTGFD()).vertexSet().size(),
+                        "vertices of joblet "+joblet.getId());
+            }
+        }
+        System.out.println("PASSED");
+    }
+
+    // A joblet of each TGFD on each vertex of type a
+    private static List<Joblet> joblets(VF2DataGraph graph, TGFD... tgfds)
+    {
+        List<Joblet> joblets=new ArrayList<>();
+        for (Vertex center:graph.getVerticesByType("a"))
+        {
+            for (TGFD tgfd:tgfds)
+                joblets.add(new Joblet(joblets.size(), (DataVertex) center, tgfd, tgfd.getPattern().getDiameter(), 0));
+        }
+        return joblets;
+    }
+
+    private static void check(boolean condition, String message)
+    {
+        if(!condition)
+        {
+            System.out.println("FAILED: "+message);
+            System.exit(1);
+        }
+    }
+}
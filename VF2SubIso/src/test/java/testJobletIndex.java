@@ -0,0 +1,122 @@
+import Infra.*;
+import MPI.BinaryCodec;
+import VF2BasedWorkload.Joblet;
+import VF2BasedWorkload.JobletIndex;
+
+import java.time.Duration;
+import java.time.Period;
+import java.util.*;
+
+public class testJobletIndex {
+
+    public static void main(String []args) {
+
+        VF2PatternGraph pattern=new VF2PatternGraph(2,"a");
+        pattern.addVertex(new PatternVertex("a"));
+        TGFD tgfd=new TGFD(pattern,new Delta(Period.ofDays(0),Period.ofDays(30),Duration.ofDays(1)),new Dependency(),"a");
+
+        Random random=new Random(3);
+        VF2DataGraph graph=new VF2DataGraph();
+        List<DataVertex> vertices=new ArrayList<>();
+        for (int i=0;i<20000;i++)
+        {
+            DataVertex v=new DataVertex("v_"+i, i%4==0 ? "a" : "b");
+            graph.addVertex(v);
+            vertices.add(v);
+        }
+        for (int i=0;i<40000;i++)
+        {
+            DataVertex src=vertices.get(random.nextInt(vertices.size()));
+            DataVertex dst=vertices.get(random.nextInt(vertices.size()));
+            if(src!=dst)
+                graph.addEdge(src, dst, new RelationshipEdge("link"));
+        }
+        List<Joblet> joblets=new ArrayList<>();
+        for (Vertex center:graph.getVerticesByType("a"))
+        {
+            Joblet joblet=new Joblet(joblets.size(), (DataVertex) center, tgfd, 2, 0);
+            joblet.setEdges(graph.getEdgesWithinDiameter((DataVertex) center, 2));
+            joblets.add(joblet);
+        }
+
+        long startTime=System.currentTimeMillis();
+        JobletIndex index=JobletIndex.build(joblets);
+        System.out.println("Index of " + joblets.size() + " joblets over " + index.size() + " vertices built in " + (System.currentTimeMillis()-startTime) + " ms");
+        check(index, expectedIndex(joblets), "bulk construction");
+
+        // Incremental updates: the neighbourhoods change after edges are added and removed
+        List<RelationshipEdge> edges=new ArrayList<>(graph.getGraph().edgeSet());
+        for (int i=0;i<2000;i++)
+            graph.getGraph().removeEdge(edges.get(random.nextInt(edges.size())));
+        for (int i=0;i<2000;i++)
+        {
+            DataVertex src=vertices.get(random.nextInt(vertices.size()));
+            DataVertex dst=vertices.get(random.nextInt(vertices.size()));
+            if(src!=dst)
+                graph.addEdge(src, dst, new RelationshipEdge("link"));
+        }
+        for (Joblet joblet:joblets)
+        {
+            ArrayList<RelationshipEdge> oldEdges=joblet.getEdges();
+            joblet.setEdges(graph.getEdgesWithinDiameter(joblet.getCenterNode(), 2));
+            index.update(joblet, oldEdges);
+        }
+        check(index, expectedIndex(joblets), "incremental update");
+
+        // Single IDs and the union of sorted IDs
+        index.add("new", 7);
+        index.add("new", 3);
+        index.add("new", 7);
+        check(Arrays.equals(index.get("new"), new int[]{3, 7}), "add");
+        index.remove("new", 3);
+        index.remove("new", 5);
+        check(Arrays.equals(index.get("new"), new int[]{7}) && index.contains("new", 7) && !index.contains("new", 3), "remove");
+        index.remove("new", 7);
+        check(index.get("new").length==0 && index.get("unknown").length==0, "empty");
+        check(Arrays.equals(JobletIndex.union(new int[]{1, 4, 9}, new int[]{2, 4, 10}), new int[]{1, 2, 4, 9, 10}), "union");
+
+        // Shipped to the workers
+        byte[] bytes=BinaryCodec.encodeJobletIndex(index);
+        System.out.println("Encoded index: " + bytes.length + " bytes");
+        check(BinaryCodec.decodeJobletIndex(bytes), expectedIndex(joblets), "decoded index");
+        System.out.println("PASSED");
+    }
+
+    // The index as a set of joblet IDs for each vertex
+    private static HashMap<String, Set<Integer>> expectedIndex(List<Joblet> joblets)
+    {
+        HashMap<String, Set<Integer>> expected=new HashMap<>();
+        for (Joblet joblet:joblets)
+        {
+            expected.computeIfAbsent(joblet.getCenterNode().getVertexURI(), uri -> new HashSet<>()).add(joblet.getId());
+            for (RelationshipEdge edge:joblet.getEdges())
+            {
+                expected.computeIfAbsent(((DataVertex) edge.getSource()).getVertexURI(), uri -> new HashSet<>()).add(joblet.getId());
+                expected.computeIfAbsent(((DataVertex) edge.getTarget()).getVertexURI(), uri -> new HashSet<>()).add(joblet.getId());
+            }
+        }
+        return expected;
+    }
+
+    private static void check(JobletIndex index, HashMap<String, Set<Integer>> expected, String message)
+    {
+        check(index.size()==expected.size(), message+": number of vertices "+index.size()+" - "+expected.size());
+        index.forEach((uri, ids) -> {
+            for (int i=1;i<ids.length;i++)
+                check(ids[i-1]<ids[i], message+": sorted IDs of "+uri);
+            Set<Integer> actual=new HashSet<>();
+            for (int id:ids)
+                actual.add(id);
+            check(actual.equals(expected.get(uri)), message+": IDs of "+uri);
+        });
+    }
+
+    private static void check(boolean condition, String message)
+    {
+        if(!condition)
+        {
+            System.out.println("FAILED: "+message);
+            System.exit(1);
+        }
+    }
+}
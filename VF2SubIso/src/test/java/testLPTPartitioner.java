@@ -0,0 +1,75 @@
+import Infra.DataVertex;
+import Infra.RelationshipEdge;
+import Infra.VF2DataGraph;
+import Partitioner.LPTPartitioner;
+
+import java.util.*;
+
+public class testLPTPartitioner {
+
+    public static void main(String []args) {
+
+        // LPT: 7,6,5,4,3,2 on 3 fragments gives 9,9,9
+        List<Double> sizes=Arrays.asList(2.0, 7.0, 4.0, 6.0, 3.0, 5.0);
+        LPTPartitioner<Double> partitioner=new LPTPartitioner<>(size -> size);
+        HashMap<Integer, ArrayList<Double>> partition=partitioner.partition(sizes, Arrays.asList(0, 1, 2));
+        check(partition.keySet().equals(new HashSet<>(Arrays.asList(0, 1, 2))), "fragment IDs are kept");
+        for (int fragmentID:partition.keySet())
+            check(partitioner.getLoads().get(fragmentID)==9.0, "load of F"+fragmentID+": "+partitioner.getLoads().get(fragmentID));
+
+        // A million tasks are partitioned quickly
+        Random random=new Random(3);
+        List<Double> manySizes=new ArrayList<>();
+        for (int i=0;i<1_000_000;i++)
+            manySizes.add(Math.pow(random.nextInt(20)+1, 2));
+        long startTime=System.currentTimeMillis();
+        partitioner.partition(manySizes, Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7));
+        long duration=System.currentTimeMillis()-startTime;
+        double min=Collections.min(partitioner.getLoads().values()), max=Collections.max(partitioner.getLoads().values());
+        check(max-min<=400, "balanced: "+min+" - "+max);
+        check(duration<10000, "a million tasks in "+duration+" ms");
+
+        // Locality: each task stays on the fragment that owns its edges, as long as it is balanced
+        VF2DataGraph graph=new VF2DataGraph();
+        HashMap<DataVertex, Integer> fragments=new HashMap<>();
+        HashMap<String, List<RelationshipEdge>> edgesByTask=new HashMap<>();
+        List<String> tasks=new ArrayList<>();
+        for (int i=0;i<40;i++)
+        {
+            DataVertex center=new DataVertex("center_"+i, "center");
+            DataVertex neighbour=new DataVertex("neighbour_"+i, "neighbour");
+            graph.addVertex(center);
+            graph.addVertex(neighbour);
+            RelationshipEdge edge=new RelationshipEdge("link");
+            graph.addEdge(center, neighbour, edge);
+            fragments.put(center, i%2);
+            fragments.put(neighbour, i%2);
+            tasks.add("task_"+i);
+            edgesByTask.put("task_"+i, Collections.singletonList(edge));
+        }
+        LPTPartitioner<String> localPartitioner=new LPTPartitioner<>(task -> 1, edgesByTask::get, fragments, 0.1);
+        HashMap<Integer, ArrayList<String>> localPartition=localPartitioner.partition(tasks, Arrays.asList(0, 1));
+        for (int fragmentID:localPartition.keySet())
+        {
+            for (String task:localPartition.get(fragmentID))
+                check(Integer.parseInt(task.substring(5))%2==fragmentID, task+" is local");
+        }
+
+        // The load bound wins over locality
+        for (DataVertex v:fragments.keySet())
+            fragments.put(v, 0);
+        localPartitioner.partition(tasks, Arrays.asList(0, 1));
+        check(localPartitioner.getLoads().get(0)<=22 && localPartitioner.getLoads().get(1)>=18, "bounded load "+localPartitioner.getLoads());
+
+        System.out.println("PASSED");
+    }
+
+    private static void check(boolean condition, String message)
+    {
+        if(!condition)
+        {
+            System.out.println("FAILED: "+message);
+            System.exit(1);
+        }
+    }
+}
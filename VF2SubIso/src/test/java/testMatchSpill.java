@@ -0,0 +1,79 @@
+import BatchViolation.OptBatchTED;
+import Infra.*;
+import QPathBasedWorkload.VertexMapping;
+import Util.Config;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.List;
+
+public class testMatchSpill {
+
+    public static void main(String []args) {
+
+        VF2PatternGraph pattern=new VF2PatternGraph(1);
+        PatternVertex player=new PatternVertex("player");
+        player.addAttribute(new Attribute("name"));
+        PatternVertex team=new PatternVertex("team");
+        team.addAttribute(new Attribute("league"));
+        pattern.addVertex(player);
+        pattern.addVertex(team);
+        pattern.addEdge(player,team,new RelationshipEdge("playing"));
+
+        Dependency dependency=new Dependency();
+        dependency.addLiteralToX(new VariableLiteral("player","name","player","name"));
+        dependency.addLiteralToY(new VariableLiteral("team","league","team","league"));
+        TGFD tgfd=new TGFD(pattern,new Delta(Period.ofDays(0),Period.ofDays(30),Duration.ofDays(1)),dependency,"spill");
+
+        // Without a cache size, every match stays in memory
+        Config.matchCacheSize=0;
+        MatchCollection inMemory=new MatchCollection(pattern,dependency,Duration.ofDays(1));
+        // With a cache of 2 matches, the rest are spilled to the disk
+        Config.matchCacheSize=2;
+        MatchCollection spilled=new MatchCollection(pattern,dependency,Duration.ofDays(1));
+
+        LocalDate start=LocalDate.parse("2021-01-01");
+        for (int day=0;day<3;day++)
+        {
+            LocalDate timestamp=start.plusDays(day);
+            List<VertexMapping> mappings=generateMappings(player,team,10,day);
+            inMemory.addMatches(timestamp,mappings);
+            spilled.addMatches(timestamp,mappings);
+        }
+        // A snapshot without changes extends the intervals of all the matches, including the spilled ones
+        inMemory.addTimestamp(start.plusDays(3),new ArrayList<>(),new ArrayList<>());
+        spilled.addTimestamp(start.plusDays(3),new ArrayList<>(),new ArrayList<>());
+
+        System.out.println("Number of matches (in memory): " + inMemory.size());
+        System.out.println("Number of matches (spilled): " + spilled.size());
+
+        int inMemoryViolations=new OptBatchTED(inMemory,tgfd).findViolations().size();
+        int spilledViolations=new OptBatchTED(spilled,tgfd).findViolations().size();
+        System.out.println("Number of violations (in memory): " + inMemoryViolations);
+        System.out.println("Number of violations (spilled): " + spilledViolations);
+        System.out.println(inMemoryViolations==spilledViolations && inMemory.size()==spilled.size() ? "PASSED" : "FAILED");
+
+        spilled.close();
+    }
+
+    private static List<VertexMapping> generateMappings(PatternVertex player, PatternVertex team, int count, int day)
+    {
+        List<VertexMapping> mappings=new ArrayList<>();
+        for (int i=0;i<count;i++)
+        {
+            DataVertex p=new DataVertex("player_"+i,"player");
+            p.addAttribute("name","name_"+i);
+            DataVertex t=new DataVertex("team_"+i,"team");
+            // Every third player changes the league of its team on the last day, which is a violation
+            t.addAttribute("league",(i%3==0 && day==2) ? "league_b" : "league_a");
+
+            VertexMapping mapping=new VertexMapping();
+            mapping.addMapping(p,player);
+            mapping.addMapping(t,team);
+            mappings.add(mapping);
+        }
+        return mappings;
+    }
+}
@@ -0,0 +1,77 @@
+import Infra.*;
+import Util.Config;
+import Util.Metrics;
+import VF2Runner.VF2SubgraphIsomorphism;
+import org.jgrapht.GraphMapping;
+
+import java.util.Iterator;
+
+public class testMetrics {
+
+    public static void main(String []args) {
+
+        // Nothing is recorded while metrics are disabled
+        Config.metrics=false;
+        Metrics.add(Metrics.CHANGES, 5);
+        Metrics.stopTimer(Metrics.VF2_SEARCH, Metrics.startTimer());
+        check(Metrics.getCount(Metrics.CHANGES)==0 && Metrics.getNumberOfRecords(Metrics.VF2_SEARCH)==0, "disabled");
+
+        Config.metrics=true;
+        Metrics.add(Metrics.CHANGES, 5);
+        Metrics.increment(Metrics.CHANGES);
+        for (int i=0;i<3;i++)
+            Metrics.stopTimer(Metrics.VF2_SEARCH, Metrics.startTimer());
+        Metrics.record(Metrics.SUBGRAPH_SIZE, 3);
+        Metrics.record(Metrics.SUBGRAPH_SIZE, 100);
+        check(Metrics.getCount(Metrics.CHANGES)==6, "counter");
+        check(Metrics.getNumberOfRecords(Metrics.VF2_SEARCH)==3, "timer");
+        check(Metrics.getSum(Metrics.SUBGRAPH_SIZE)==103, "histogram");
+
+        String prometheus=Metrics.toPrometheus();
+        System.out.println(prometheus);
+        check(prometheus.contains("tgfd_changes_total 6"), "prometheus counter");
+        check(prometheus.contains("tgfd_subgraph_vertices_bucket{le=\"4.0\"} 1"), "prometheus bucket");
+        check(prometheus.contains("tgfd_subgraph_vertices_bucket{le=\"+Inf\"} 2"), "prometheus +Inf bucket");
+        check(prometheus.contains("tgfd_vf2_search_seconds_count 3"), "prometheus timer");
+
+        System.out.println(Metrics.toJson());
+        Metrics.reset();
+        check(Metrics.getCount(Metrics.CHANGES)==0, "reset");
+
+        // The VF2 search is timed until its matches are consumed
+        VF2DataGraph graph=new VF2DataGraph();
+        DataVertex center=new DataVertex("center", "a");
+        graph.addVertex(center);
+        for (int i=0;i<50;i++)
+        {
+            DataVertex v=new DataVertex("v"+i, "b");
+            graph.addVertex(v);
+            graph.addEdge(center, v, new RelationshipEdge("x"));
+        }
+        VF2PatternGraph pattern=new VF2PatternGraph();
+        PatternVertex a=new PatternVertex("a");
+        PatternVertex b=new PatternVertex("b");
+        pattern.addVertex(a);
+        pattern.addVertex(b);
+        pattern.addEdge(a, b, new RelationshipEdge("x"));
+        Iterator<GraphMapping<Vertex, RelationshipEdge>> results=new VF2SubgraphIsomorphism().execute(graph, pattern, false);
+        check(Metrics.getNumberOfRecords(Metrics.VF2_SEARCH)==0, "search not timed before the matches are consumed");
+        int matches=0;
+        while (results.hasNext())
+        {
+            results.next();
+            matches++;
+        }
+        results.hasNext();
+        check(matches==50 && Metrics.getNumberOfRecords(Metrics.VF2_SEARCH)==1, "search timed once the matches are consumed");
+        Metrics.reset();
+        System.out.println("PASSED");
+    }
+
+    private static void check(boolean condition, String message)
+    {
+        if(!condition)
+            throw new IllegalStateException("FAILED: " + message);
+        System.out.println("OK: " + message);
+    }
+}
@@ -0,0 +1,130 @@
+import Infra.*;
+import VF2Runner.MultiPatternMatcher;
+import VF2Runner.VF2SubgraphIsomorphism;
+import org.jgrapht.GraphMapping;
+
+import java.time.Duration;
+import java.time.Period;
+import java.util.*;
+
+public class testMultiPatternMatcher {
+
+    public static void main(String []args) {
+
+        List<TGFD> tgfds=new ArrayList<>();
+        // a-x->b, then the patterns that extend it
+        tgfds.add(tgfd("ab", new String[]{"a","b"}, new String[][]{{"0","1","x"}}));
+        tgfds.add(tgfd("abc", new String[]{"a","b","c"}, new String[][]{{"0","1","x"},{"1","2","y"}}));
+        tgfds.add(tgfd("abc2", new String[]{"a","b","c"}, new String[][]{{"0","1","x"},{"1","2","y"}}));
+        tgfds.add(tgfd("abac", new String[]{"a","b","c"}, new String[][]{{"0","1","x"},{"0","2","y"}}));
+        tgfds.add(tgfd("triangle", new String[]{"a","b","c"}, new String[][]{{"0","1","x"},{"1","2","y"},{"2","0","x"}}));
+        tgfds.add(tgfd("bab", new String[]{"a","b","b"}, new String[][]{{"0","1","x"},{"2","0","*"}}));
+        // Literals and an incoming edge from the center
+        TGFD named=tgfd("named", new String[]{"a","c"}, new String[][]{{"1","0","y"}});
+        for (Vertex v:named.getPattern().getPattern().vertexSet())
+            if(v.getTypes().contains("c"))
+                v.addAttribute("name", "n1");
+        tgfds.add(named);
+
+        Random random=new Random(7);
+        VF2DataGraph graph=new VF2DataGraph();
+        List<DataVertex> vertices=new ArrayList<>();
+        for (int i=0;i<400;i++)
+        {
+            DataVertex v=new DataVertex("v_"+i, i%4==0 ? "a" : (i%2==0 ? "b" : "c"));
+            v.addAttribute("name", "n"+random.nextInt(3));
+            graph.addVertex(v);
+            vertices.add(v);
+        }
+        for (int i=0;i<1200;i++)
+        {
+            DataVertex src=vertices.get(random.nextInt(vertices.size()));
+            DataVertex dst=vertices.get(random.nextInt(vertices.size()));
+            if(src!=dst)
+                graph.addEdge(src, dst, new RelationshipEdge(random.nextBoolean() ? "x" : "y"));
+        }
+
+        MultiPatternMatcher matcher=new MultiPatternMatcher(tgfds);
+        System.out.println("Trie of "+matcher.getNumberOfNodes()+" nodes for "+matcher.getNumberOfSteps()+" steps of "+tgfds.size()+" patterns");
+        check(matcher.getNumberOfNodes()<matcher.getNumberOfSteps(), "common prefixes are shared");
+
+        long startTime=System.currentTimeMillis();
+        HashMap<String, List<GraphMapping<Vertex, RelationshipEdge>>> byType=matcher.execute(graph);
+        System.out.println("Matched together in "+(System.currentTimeMillis()-startTime)+" ms");
+        HashMap<String, List<GraphMapping<Vertex, RelationshipEdge>>> byVertex=matcher.execute(graph.getGraph(), tgfd -> true);
+        HashMap<String, List<GraphMapping<Vertex, RelationshipEdge>>> some=matcher.execute(graph.getGraph(), tgfd -> tgfd.getName().startsWith("abc"));
+
+        startTime=System.currentTimeMillis();
+        VF2SubgraphIsomorphism VF2=new VF2SubgraphIsomorphism();
+        for (TGFD tgfd:tgfds)
+        {
+            Set<String> expected=new HashSet<>();
+            Iterator<GraphMapping<Vertex, RelationshipEdge>> results=VF2.execute(graph, tgfd.getPattern(), false);
+            if(results!=null)
+                results.forEachRemaining(mapping -> expected.add(key(tgfd, mapping)));
+            System.out.println(tgfd.getName()+": "+expected.size()+" matches");
+            check(expected.equals(keys(tgfd, byType.get(tgfd.getName()))), "matches of "+tgfd.getName());
+            check(expected.equals(keys(tgfd, byVertex.get(tgfd.getName()))), "matches of "+tgfd.getName()+" from every vertex");
+            if(tgfd.getName().startsWith("abc"))
+                check(expected.equals(keys(tgfd, some.get(tgfd.getName()))), "matches of "+tgfd.getName()+" with the other TGFDs pruned");
+            else
+                check(some.get(tgfd.getName()).isEmpty(), tgfd.getName()+" is pruned");
+        }
+        System.out.println("Matched with VF2 in "+(System.currentTimeMillis()-startTime)+" ms");
+        check(!byType.get("abc").isEmpty() && !byType.get("named").isEmpty(), "some matches");
+
+        // The matches are ingested like the ones of VF2
+        TGFD abc=tgfds.get(1);
+        MatchCollection matches=new MatchCollection(abc.getPattern(), abc.getDependency(), abc.getDelta().getGranularity());
+        check(matches.addMatches(java.time.LocalDate.of(2021, 1, 1), byType.get("abc").iterator())==byType.get("abc").size(), "ingested matches");
+        // or as soon as they are found
+        MatchCollection streamed=new MatchCollection(abc.getPattern(), abc.getDependency(), abc.getDelta().getGranularity());
+        matcher.execute(graph, (tgfd, mapping) -> {
+            if(tgfd==abc)
+                streamed.addMatches(java.time.LocalDate.of(2021, 1, 1), mapping);
+        });
+        check(streamed.size()==matches.size(), "matches ingested as they are found");
+        System.out.println("PASSED");
+    }
+
+    private static TGFD tgfd(String name, String[] types, String[][] edges)
+    {
+        VF2PatternGraph pattern=new VF2PatternGraph(2, types[0]);
+        List<PatternVertex> vertices=new ArrayList<>();
+        for (String type:types)
+        {
+            PatternVertex v=new PatternVertex(type);
+            pattern.addVertex(v);
+            vertices.add(v);
+        }
+        for (String[] edge:edges)
+            pattern.addEdge(vertices.get(Integer.parseInt(edge[0])), vertices.get(Integer.parseInt(edge[1])), new RelationshipEdge(edge[2]));
+        return new TGFD(pattern, new Delta(Period.ofDays(0), Period.ofDays(30), Duration.ofDays(1)), new Dependency(), name);
+    }
+
+    // The matched vertex of each pattern vertex, in the order of the pattern vertices
+    private static String key(TGFD tgfd, GraphMapping<Vertex, RelationshipEdge> mapping)
+    {
+        StringBuilder key=new StringBuilder();
+        for (Vertex v:tgfd.getPattern().getPattern().vertexSet())
+            key.append(((DataVertex) mapping.getVertexCorrespondence(v, false)).getVertexURI()).append(',');
+        return key.toString();
+    }
+
+    private static Set<String> keys(TGFD tgfd, List<GraphMapping<Vertex, RelationshipEdge>> mappings)
+    {
+        Set<String> keys=new HashSet<>();
+        for (GraphMapping<Vertex, RelationshipEdge> mapping:mappings)
+            check(keys.add(key(tgfd, mapping)), "mapping of "+tgfd.getName()+" found twice");
+        return keys;
+    }
+
+    private static void check(boolean condition, String message)
+    {
+        if(!condition)
+        {
+            System.out.println("FAILED: "+message);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+import AmazonStorage.S3Storage;
+import Storage.*;
+import Util.Config;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.*;
+
+import java.io.*;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class testObjectStore {
+
+    public static void main(String []args) throws IOException {
+
+        // Small parts, so readAll reads the object in parallel
+        Config.objectStorePartSize=1000;
+        byte[] bytes=new byte[10500];
+        new Random(7).nextBytes(bytes);
+
+        Path root=Files.createTempDirectory("objectstore");
+        for (ObjectStore store:new ObjectStore[]{new LocalObjectStore(root.toString()), new InMemoryObjectStore()})
+        {
+            String name=store.getClass().getSimpleName();
+            check(!store.exists("bucket", "data.bin"), name+": missing object");
+
+            store.write("bucket", "data.bin", bytes);
+            check(store.exists("bucket", "data.bin") && store.getSize("bucket", "data.bin")==bytes.length, name+": size");
+            check(Arrays.equals(store.readAll("bucket", "data.bin"), bytes), name+": readAll");
+
+            try (InputStream in=store.open("bucket", "data.bin", 4000, 300))
+            {
+                check(Arrays.equals(in.readAllBytes(), Arrays.copyOfRange(bytes, 4000, 4300)), name+": ranged read");
+            }
+
+            // The object is only visible once the stream is closed
+            OutputStream out=store.create("bucket", "text.txt");
+            out.write("first line\n".getBytes(StandardCharsets.UTF_8));
+            check(!store.exists("bucket", "text.txt"), name+": visible before close");
+            out.write("second line".getBytes(StandardCharsets.UTF_8));
+            out.close();
+            try (BufferedReader br=new BufferedReader(new InputStreamReader(store.open("bucket", "text.txt"))))
+            {
+                check(br.readLine().equals("first line") && br.readLine().equals("second line") && br.readLine()==null, name+": text");
+            }
+
+            // S3Storage goes through the default store
+            ObjectStores.setDefault(store);
+            HashMap<String, Integer> mapping=new HashMap<>();
+            mapping.put("a", 1);
+            check(S3Storage.upload("bucket", "mapping.ser", mapping), name+": upload object");
+            check(mapping.equals(S3Storage.downloadObject("bucket", "mapping.ser")), name+": download object");
+            check(Arrays.equals(S3Storage.downloadBytes("bucket", "data.bin"), bytes), name+": download bytes");
+            S3Storage.upload("bucket", "windows.txt", "first line\r\nsecond line");
+            check(S3Storage.downloadWholeTextFile("bucket", "windows.txt").toString().equals("first line\nsecond line\n"), name+": download text");
+        }
+
+        // S3: the parts are uploaded in the background while the data is written, with at most objectStoreUploadBuffers parts in memory
+        Config.objectStorePartSize=5*1024*1024;
+        Config.objectStoreUploadBuffers=3;
+        FakeS3 fakeS3=new FakeS3();
+        ObjectStore s3Store=new S3ObjectStore(fakeS3.client);
+        byte[] largeObject=new byte[5*5*1024*1024+123];
+        new Random(11).nextBytes(largeObject);
+        try (OutputStream out=s3Store.create("bucket", "large.bin"))
+        {
+            for (int offset=0;offset<largeObject.length;offset+=65536)
+                out.write(largeObject, offset, Math.min(65536, largeObject.length-offset));
+            check(fakeS3.uploadedParts.get()>0 && !fakeS3.objects.containsKey("large.bin"), "S3: parts uploaded before close");
+        }
+        check(Arrays.equals(fakeS3.objects.get("large.bin"), largeObject), "S3: multipart object");
+        check(fakeS3.uploadedParts.get()==6, "S3: number of parts");
+        check(fakeS3.maxPartsInFlight.get()>1 && fakeS3.maxPartsInFlight.get()<=3, "S3: parts in flight "+fakeS3.maxPartsInFlight.get());
+
+        s3Store.write("bucket", "small.bin", bytes);
+        check(Arrays.equals(fakeS3.objects.get("small.bin"), bytes) && fakeS3.uploadedParts.get()==6, "S3: single request for a small object");
+
+        // A failed part aborts the upload
+        fakeS3.failPart=2;
+        boolean failed=false;
+        try (OutputStream out=s3Store.create("bucket", "failed.bin"))
+        {
+            out.write(largeObject);
+        }
+        catch (IOException e)
+        {
+            failed=true;
+        }
+        check(failed && fakeS3.aborted.get() && !fakeS3.objects.containsKey("failed.bin"), "S3: failed upload is aborted");
+
+        System.out.println("PASSED");
+    }
+
+    // An S3 client that keeps the objects in memory and uploads the parts slowly
+    private static class FakeS3 {
+        final ConcurrentHashMap<String, byte[]> objects=new ConcurrentHashMap<>();
+        final ConcurrentHashMap<Integer, byte[]> parts=new ConcurrentHashMap<>();
+        final AtomicInteger uploadedParts=new AtomicInteger();
+        final AtomicInteger partsInFlight=new AtomicInteger();
+        final AtomicInteger maxPartsInFlight=new AtomicInteger();
+        final AtomicBoolean aborted=new AtomicBoolean();
+        volatile int failPart=-1;
+
+        final AmazonS3 client=(AmazonS3) Proxy.newProxyInstance(AmazonS3.class.getClassLoader(), new Class<?>[]{AmazonS3.class}, (proxy, method, args) -> {
+            switch (method.getName())
+            {
+                case "putObject":
+                    PutObjectRequest putRequest=(PutObjectRequest) args[0];
+                    objects.put(putRequest.getKey(), putRequest.getInputStream().readAllBytes());
+                    return null;
+                case "initiateMultipartUpload":
+                    parts.clear();
+                    InitiateMultipartUploadResult initiateResult=new InitiateMultipartUploadResult();
+                    initiateResult.setUploadId("upload");
+                    return initiateResult;
+                case "uploadPart":
+                    UploadPartRequest partRequest=(UploadPartRequest) args[0];
+                    int inFlight=partsInFlight.incrementAndGet();
+                    maxPartsInFlight.accumulateAndGet(inFlight, Math::max);
+                    try
+                    {
+                        Thread.sleep(100);
+                        if(partRequest.getPartNumber()==failPart)
+                            throw new IllegalStateException("part " + failPart + " failed");
+                        parts.put(partRequest.getPartNumber(), partRequest.getInputStream().readAllBytes());
+                        uploadedParts.incrementAndGet();
+                    }
+                    finally
+                    {
+                        partsInFlight.decrementAndGet();
+                    }
+                    UploadPartResult partResult=new UploadPartResult();
+                    partResult.setPartNumber(partRequest.getPartNumber());
+                    partResult.setETag("etag" + partRequest.getPartNumber());
+                    return partResult;
+                case "completeMultipartUpload":
+                    CompleteMultipartUploadRequest completeRequest=(CompleteMultipartUploadRequest) args[0];
+                    ByteArrayOutputStream object=new ByteArrayOutputStream();
+                    for (PartETag partETag:completeRequest.getPartETags())
+                        object.write(parts.get(partETag.getPartNumber()));
+                    objects.put(completeRequest.getKey(), object.toByteArray());
+                    return null;
+                case "abortMultipartUpload":
+                    aborted.set(true);
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private static void check(boolean condition, String message)
+    {
+        if(!condition)
+        {
+            System.out.println("FAILED: "+message);
+            System.exit(1);
+        }
+    }
+}
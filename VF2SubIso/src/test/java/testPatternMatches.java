@@ -0,0 +1,66 @@
+import Discovery.PatternMatches;
+import Discovery.TgfdDiscovery;
+import Infra.ConstantLiteral;
+
+import java.util.*;
+
+public class testPatternMatches {
+
+    public static void main(String []args) {
+
+        // Matches found in two partitions of each of the three snapshots, with their own literal IDs
+        PatternMatches matches=new PatternMatches(3);
+        for (int year=0;year<3;year++)
+        {
+            for (int part=0;part<2;part++)
+            {
+                PatternMatches partition=new PatternMatches(1);
+                if(part==1)
+                    partition.getLiteralId("city", "population", "p"+year);
+                int name=partition.getLiteralId("person", "name", "n"+part);
+                int city=partition.getLiteralId("city", "name", "c"+(year==2 && part==0 ? 1 : 0));
+                partition.addMatch(0, new int[]{name, city});
+                // A match without the attribute of Y
+                partition.addMatch(0, new int[]{name});
+                matches.addAll(year, partition, 0);
+            }
+        }
+        check(matches.getNumberOfMatches()==12, "matches of the partitions");
+        check(matches.getNumberOfLiterals()==7, "literals stored once");
+        for (int year=0;year<3;year++)
+        {
+            for (int[] match:matches.getMatches(year))
+            {
+                check(matches.getLiteral(match[0]).getVertexType().equals("person"), "IDs of the literals of a partition");
+                check(match.length==1 || matches.getLiteral(match[1]).getAttrName().equals("name"), "IDs of the literals of a partition");
+            }
+        }
+
+        // person.name -> city.name
+        List<ConstantLiteral> attributes=new ArrayList<>();
+        attributes.add(new ConstantLiteral("person", "name", null));
+        attributes.add(new ConstantLiteral("city", "name", null));
+        var entities=TgfdDiscovery.findMatches(attributes, matches);
+        check(entities!=null && entities.size()==6, "one entity per match with both attributes");
+        Map<String, List<Integer>> timestampsByValues=new TreeMap<>();
+        for (var entity:entities.entrySet())
+        {
+            check(entity.getKey().size()==1 && entity.getValue().size()==1, "value of the entity");
+            String key=entity.getKey().iterator().next().getAttrValue()+"->"+entity.getValue().get(0).getKey().getAttrValue();
+            timestampsByValues.computeIfAbsent(key, k -> new ArrayList<>()).addAll(entity.getValue().get(0).getValue());
+        }
+        timestampsByValues.values().forEach(Collections::sort);
+        System.out.println(timestampsByValues);
+        check(timestampsByValues.toString().equals("{n0->c0=[2015, 2016], n0->c1=[2017], n1->c0=[2015, 2016, 2017]}"), "timestamps of the values");
+        System.out.println("PASSED");
+    }
+
+    private static void check(boolean condition, String message)
+    {
+        if(!condition)
+        {
+            System.out.println("FAILED: "+message);
+            System.exit(1);
+        }
+    }
+}
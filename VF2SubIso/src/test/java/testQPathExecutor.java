@@ -0,0 +1,140 @@
+import Infra.*;
+import QPathBasedWorkload.QPathExecutor;
+import QPathBasedWorkload.Query;
+import QPathBasedWorkload.QueryPath;
+import QPathBasedWorkload.Triple;
+
+import java.time.Duration;
+import java.time.Period;
+import java.util.*;
+
+public class testQPathExecutor {
+
+    public static void main(String []args) {
+
+        // a-x->b-y->c-x->b, a-y->d and d-x->c, where d is both a c and a d
+        VF2PatternGraph pattern=new VF2PatternGraph(2,"a");
+        PatternVertex a=new PatternVertex("a");
+        PatternVertex b=new PatternVertex("b");
+        PatternVertex c=new PatternVertex("c");
+        PatternVertex d=new PatternVertex("d");
+        PatternVertex e=new PatternVertex("b");
+        d.addType("c");
+        pattern.addVertex(a);
+        pattern.addVertex(b);
+        pattern.addVertex(c);
+        pattern.addVertex(d);
+        pattern.addVertex(e);
+        pattern.addEdge(a,b,new RelationshipEdge("x"));
+        pattern.addEdge(b,c,new RelationshipEdge("y"));
+        pattern.addEdge(a,d,new RelationshipEdge("y"));
+        pattern.addEdge(d,c,new RelationshipEdge("x"));
+        pattern.addEdge(c,e,new RelationshipEdge("x"));
+        Query query=new Query(new TGFD(pattern,new Delta(Period.ofDays(0),Period.ofDays(30),Duration.ofDays(1)),new Dependency(),"abcd"));
+        check(query.getQueryPaths().stream().anyMatch(path -> path.getSize()==3), "path of three triples");
+
+        Random random=new Random(13);
+        VF2DataGraph graph=new VF2DataGraph();
+        List<DataVertex> vertices=new ArrayList<>();
+        String[] types={"a","b","c","d"};
+        for (int i=0;i<600;i++)
+        {
+            DataVertex v=new DataVertex("v_"+i, types[i%4]);
+            if(i%8==3)
+                v.addType("c");
+            graph.addVertex(v);
+            vertices.add(v);
+        }
+        List<RelationshipEdge> edges=new ArrayList<>();
+        for (int i=0;i<3000;i++)
+            addRandomEdge(graph, vertices, random, edges);
+
+        QPathExecutor executor=new QPathExecutor(graph);
+        int[] tripleIDs=new int[1];
+        for (int round=0;round<5;round++)
+        {
+            for (QueryPath path:query.getQueryPaths())
+            {
+                List<String> expected=expectedMatches(graph, path);
+                List<String> actual=new ArrayList<>();
+                for (ArrayList<Triple> triples:executor.findMatches(path, () -> tripleIDs[0]++))
+                {
+                    check(triples.size()==path.getSize(), "length of a match");
+                    StringBuilder key=new StringBuilder(((DataVertex) triples.get(0).getSrc()).getVertexURI());
+                    for (int i=0;i<triples.size();i++)
+                    {
+                        Triple triple=triples.get(i);
+                        check(triple.getEdge().equals(path.getTriples().get(i).getEdge()), "label of a triple");
+                        check(i==0 || triple.getSrc()==triples.get(i-1).getDst(), "chain of triples");
+                        check(i==0 || triple.getPrecTripleID()==triples.get(i-1).getTripleID(), "preceding triple");
+                        key.append(',').append(((DataVertex) triple.getDst()).getVertexURI());
+                    }
+                    actual.add(key.toString());
+                }
+                Collections.sort(actual);
+                System.out.println("Round "+round+", path of "+path.getSize()+" triples: "+actual.size()+" matches");
+                check(expected.equals(actual), "matches of a path of "+path.getSize()+" triples in round "+round);
+            }
+            // The index follows the edges inserted in and deleted from the subgraph
+            for (int i=0;i<200;i++)
+            {
+                RelationshipEdge edge=edges.remove(random.nextInt(edges.size()));
+                graph.getGraph().removeEdge(edge);
+                executor.removeEdge(edge.getSource(), edge.getTarget(), edge.getLabel());
+            }
+            for (int i=0;i<200;i++)
+            {
+                RelationshipEdge edge=addRandomEdge(graph, vertices, random, edges);
+                if(edge!=null)
+                    executor.addEdge(edge.getSource(), edge.getTarget(), edge.getLabel());
+            }
+        }
+        System.out.println("PASSED");
+    }
+
+    private static RelationshipEdge addRandomEdge(VF2DataGraph graph, List<DataVertex> vertices, Random random, List<RelationshipEdge> edges)
+    {
+        DataVertex src=vertices.get(random.nextInt(vertices.size()));
+        DataVertex dst=vertices.get(random.nextInt(vertices.size()));
+        RelationshipEdge edge=new RelationshipEdge(random.nextBoolean() ? "x" : "y");
+        if(src==dst || !graph.getGraph().addEdge(src, dst, edge))
+            return null;
+        edges.add(edge);
+        return edge;
+    }
+
+    // The chains of edges found by following the outgoing edges from every vertex
+    private static List<String> expectedMatches(VF2DataGraph graph, QueryPath path)
+    {
+        List<String> matches=new ArrayList<>();
+        for (Vertex v:graph.getGraph().vertexSet())
+            if(v.getTypes().containsAll(path.getTriples().get(0).getSrc().getTypes()))
+                extend(graph, path, 0, v, ((DataVertex) v).getVertexURI(), matches);
+        Collections.sort(matches);
+        return matches;
+    }
+
+    private static void extend(VF2DataGraph graph, QueryPath path, int level, Vertex v, String prefix, List<String> matches)
+    {
+        if(level==path.getSize())
+        {
+            matches.add(prefix);
+            return;
+        }
+        Triple patternTriple=path.getTriples().get(level);
+        for (RelationshipEdge edge:graph.getGraph().outgoingEdgesOf(v))
+        {
+            if(edge.getLabel().equals(patternTriple.getEdge()) && edge.getTarget().getTypes().containsAll(patternTriple.getDst().getTypes()))
+                extend(graph, path, level+1, edge.getTarget(), prefix+","+((DataVertex) edge.getTarget()).getVertexURI(), matches);
+        }
+    }
+
+    private static void check(boolean condition, String message)
+    {
+        if(!condition)
+        {
+            System.out.println("FAILED: "+message);
+            System.exit(1);
+        }
+    }
+}
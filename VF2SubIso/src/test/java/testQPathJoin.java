@@ -0,0 +1,122 @@
+import Infra.*;
+import QPathBasedWorkload.*;
+
+import java.time.Duration;
+import java.time.Period;
+import java.util.*;
+
+public class testQPathJoin {
+
+    public static void main(String []args) {
+
+        // a-x->b-y->c and a-y->d-x->c share c, a-x->e and a-y->f are two more paths from the center
+        VF2PatternGraph pattern=new VF2PatternGraph(2,"a");
+        PatternVertex a=new PatternVertex("a");
+        PatternVertex b=new PatternVertex("b");
+        PatternVertex c=new PatternVertex("c");
+        PatternVertex d=new PatternVertex("d");
+        PatternVertex e=new PatternVertex("b");
+        PatternVertex f=new PatternVertex("d");
+        for (PatternVertex v:new PatternVertex[]{a,b,c,d,e,f})
+            pattern.addVertex(v);
+        pattern.addEdge(a,b,new RelationshipEdge("x"));
+        pattern.addEdge(b,c,new RelationshipEdge("y"));
+        pattern.addEdge(a,d,new RelationshipEdge("y"));
+        pattern.addEdge(d,c,new RelationshipEdge("x"));
+        pattern.addEdge(a,e,new RelationshipEdge("x"));
+        pattern.addEdge(a,f,new RelationshipEdge("y"));
+        Query query=new Query(new TGFD(pattern,new Delta(Period.ofDays(0),Period.ofDays(30),Duration.ofDays(1)),new Dependency(),"abcd"));
+        System.out.println("Query paths: "+query.getQueryPaths().size());
+        check(query.getQueryPaths().size()>=3, "several query paths");
+
+        Random random=new Random(5);
+        VF2DataGraph graph=new VF2DataGraph();
+        List<DataVertex> vertices=new ArrayList<>();
+        String[] types={"a","b","c","d"};
+        for (int i=0;i<120;i++)
+        {
+            DataVertex v=new DataVertex("v_"+i, types[i%4]);
+            graph.addVertex(v);
+            vertices.add(v);
+        }
+        for (int i=0;i<900;i++)
+        {
+            DataVertex src=vertices.get(random.nextInt(vertices.size()));
+            DataVertex dst=vertices.get(random.nextInt(vertices.size()));
+            if(src!=dst)
+                graph.addEdge(src, dst, new RelationshipEdge(random.nextBoolean() ? "x" : "y"));
+        }
+
+        int total=0;
+        for (DataVertex center:vertices)
+        {
+            if(!center.getTypes().contains("a"))
+                continue;
+            Job job=new Job(0, center, query, 2, 0);
+            job.setSubgraph(graph.getSubGraphWithinDiameter(center, 2, query.getTGFD()));
+            job.runTheFirstSnapshot();
+
+            // The matches of each path, then the combinations of them that agree on the shared pattern vertices
+            List<List<ArrayList<Triple>>> matchesByPath=new ArrayList<>();
+            QPathExecutor executor=new QPathExecutor(job.getSubgraph());
+            for (QueryPath path:query.getQueryPaths())
+                matchesByPath.add(executor.findMatches(path, () -> 0));
+            Set<String> expected=new HashSet<>();
+            combine(query, matchesByPath, 0, new HashMap<>(), expected);
+
+            Set<String> actual=new HashSet<>();
+            for (VertexMapping mapping:job.findMatchMapping())
+            {
+                StringBuilder key=new StringBuilder();
+                for (PatternVertex v:new PatternVertex[]{a,b,c,d,e,f})
+                {
+                    check(mapping.getVertexCorrespondence(v)!=null, "every pattern vertex is mapped");
+                    key.append(((DataVertex) mapping.getVertexCorrespondence(v)).getVertexURI()).append(',');
+                }
+                check(actual.add(key.toString()), "mapping found twice");
+            }
+            check(expected.equals(actual), "mappings of "+center.getVertexURI());
+            check(job.getLatestMappingSignatures().size()==actual.size(), "signatures of "+center.getVertexURI());
+            total+=actual.size();
+        }
+        System.out.println("Mappings: "+total);
+        check(total>0, "some mappings");
+        System.out.println("PASSED");
+    }
+
+    private static void combine(Query query, List<List<ArrayList<Triple>>> matchesByPath, int p, HashMap<Vertex, Vertex> bound, Set<String> result)
+    {
+        if(p==matchesByPath.size())
+        {
+            StringBuilder key=new StringBuilder();
+            for (Vertex v:query.getTGFD().getPattern().getPattern().vertexSet())
+                key.append(((DataVertex) bound.get(v)).getVertexURI()).append(',');
+            result.add(key.toString());
+            return;
+        }
+        List<Triple> patternTriples=query.getQueryPaths().get(p).getTriples();
+        for (ArrayList<Triple> triples:matchesByPath.get(p))
+        {
+            HashMap<Vertex, Vertex> extended=new HashMap<>(bound);
+            boolean consistent=true;
+            for (int i=0;i<triples.size() && consistent;i++)
+            {
+                consistent=extended.getOrDefault(patternTriples.get(i).getSrc(), triples.get(i).getSrc())==triples.get(i).getSrc()
+                        && extended.getOrDefault(patternTriples.get(i).getDst(), triples.get(i).getDst())==triples.get(i).getDst();
+                extended.put(patternTriples.get(i).getSrc(), triples.get(i).getSrc());
+                extended.put(patternTriples.get(i).getDst(), triples.get(i).getDst());
+            }
+            if(consistent)
+                combine(query, matchesByPath, p+1, extended, result);
+        }
+    }
+
+    private static void check(boolean condition, String message)
+    {
+        if(!condition)
+        {
+            System.out.println("FAILED: "+message);
+            System.exit(1);
+        }
+    }
+}
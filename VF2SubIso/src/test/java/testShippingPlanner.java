@@ -0,0 +1,244 @@
+import Infra.*;
+import Loader.GraphLoader;
+import Partitioner.FennelPartitioner;
+import Util.Config;
+import VF2BasedWorkload.Joblet;
+import VF2BasedWorkload.WorkloadEstimator;
+import changeExploration.*;
+
+import java.time.Duration;
+import java.time.Period;
+import java.util.*;
+
+public class testShippingPlanner {
+
+    public static void main(String []args) {
+
+        VF2PatternGraph pattern=new VF2PatternGraph(2,"a");
+        PatternVertex a=new PatternVertex("a");
+        PatternVertex b=new PatternVertex("b");
+        PatternVertex c=new PatternVertex("c");
+        pattern.addVertex(a);
+        pattern.addVertex(b);
+        pattern.addVertex(c);
+        pattern.addEdge(a,b,new RelationshipEdge("x"));
+        pattern.addEdge(b,c,new RelationshipEdge("y"));
+        TGFD tgfd=new TGFD(pattern,new Delta(Period.ofDays(0),Period.ofDays(30),Duration.ofDays(1)),new Dependency(),"abc");
+
+        Random random=new Random(11);
+        VF2DataGraph graph=new VF2DataGraph();
+        List<DataVertex> vertices=new ArrayList<>();
+        for (int i=0;i<300;i++)
+        {
+            DataVertex v=new DataVertex("v_"+i, i%10==0 ? "a" : (i%2==0 ? "b" : "c"));
+            graph.addVertex(v);
+            vertices.add(v);
+        }
+        for (int i=0;i<600;i++)
+            addRandomEdge(graph, vertices, random);
+
+        int numberOfFragments=3;
+        GraphLoader loader=new GraphLoader();
+        loader.setGraph(graph);
+        HashMap<DataVertex,Integer> fragments=new FennelPartitioner(graph).fragment(numberOfFragments);
+        Config.costSampleRate=0;
+        WorkloadEstimator estimator=new WorkloadEstimator(loader, numberOfFragments, fragments);
+        estimator.defineJoblets(Collections.singletonList(tgfd));
+        estimator.partitionWorkload();
+
+        // The copies each fragment holds, as the workers see them
+        HashMap<Integer, HashSet<SimpleEdge>> copies=new HashMap<>();
+        for (int fragmentID=0;fragmentID<numberOfFragments;fragmentID++)
+            copies.put(fragmentID, new HashSet<>());
+        addShipped(copies, estimator.dataToBeShipped());
+
+        int changeID=0, shipped=0, scratch=0;
+        for (int snapshot=0;snapshot<6;snapshot++)
+        {
+            HashMap<Integer, Integer> fragmentOfJoblet=new HashMap<>();
+            for (int fragmentID:estimator.getJobletsByFragmentID().keySet())
+                for (Joblet joblet:estimator.getJobletsByFragmentID().get(fragmentID))
+                    fragmentOfJoblet.put(joblet.getId(), fragmentID);
+            HashMap<Integer, Set<String>> before=neighbourhoods(estimator);
+
+            List<Change> changes=new ArrayList<>();
+            LinkedHashSet<DataVertex> deleted=new LinkedHashSet<>();
+            List<RelationshipEdge> edges=new ArrayList<>(graph.getGraph().edgeSet());
+            for (int i=0;i<40;i++)
+            {
+                int type=random.nextInt(6);
+                if(type<=1)
+                {
+                    DataVertex src=vertices.get(random.nextInt(vertices.size()));
+                    DataVertex dst=vertices.get(random.nextInt(vertices.size()));
+                    if(src!=dst && graph.getNode(src.getVertexURI())==src && graph.getNode(dst.getVertexURI())==dst)
+                        changes.add(new EdgeChange(ChangeType.insertEdge, changeID++, src.getVertexURI(), dst.getVertexURI(), "x"));
+                }
+                else if(type<=3)
+                {
+                    RelationshipEdge edge=edges.remove(random.nextInt(edges.size()));
+                    changes.add(new EdgeChange(ChangeType.deleteEdge, changeID++, edge));
+                }
+                else if(type==4)
+                {
+                    DataVertex v=new DataVertex("new_"+snapshot+"_"+i, "b");
+                    vertices.add(v);
+                    changes.add(new VertexChange(ChangeType.insertVertex, changeID++, v));
+                    DataVertex neighbour=vertices.get(random.nextInt(vertices.size()-1));
+                    changes.add(new EdgeChange(ChangeType.insertEdge, changeID++, neighbour.getVertexURI(), v.getVertexURI(), "y"));
+                }
+                else
+                {
+                    DataVertex v=vertices.get(random.nextInt(vertices.size()));
+                    if(graph.getNode(v.getVertexURI())!=v)
+                        continue;
+                    if(random.nextBoolean())
+                        changes.add(new AttributeChange(ChangeType.changeAttr, changeID++, v.getVertexURI(), new Attribute("name", "n"+i)));
+                    else if(!v.getTypes().contains("a"))
+                        deleted.add(v);
+                }
+            }
+            // The vertices are deleted after the other changes, which may use them
+            for (DataVertex v:deleted)
+                changes.add(new VertexChange(ChangeType.deleteVertex, changeID++, v));
+
+            HashMap<String, DataVertex> verticesByURI=new HashMap<>();
+            vertices.forEach(v -> verticesByURI.put(v.getVertexURI(), v));
+            HashMap<Integer,HashMap<Integer,ArrayList<SimpleEdge>>> delta=estimator.dataToBeShipped(changes);
+            HashMap<Integer,List<Change>> routing=estimator.changesToBeSent(changes);
+
+            // The neighbourhoods are the ones extracted from scratch on the new graph
+            HashMap<Integer, Set<String>> after=neighbourhoods(estimator);
+            for (int fragmentID:estimator.getJobletsByFragmentID().keySet())
+            {
+                for (Joblet joblet:estimator.getJobletsByFragmentID().get(fragmentID))
+                {
+                    Set<SimpleEdge> expected=new HashSet<>();
+                    if(graph.getNode(joblet.getCenterNode().getVertexURI())==joblet.getCenterNode())
+                        graph.getEdgesWithinDiameter(joblet.getCenterNode(), joblet.getDiameter()).forEach(e -> expected.add(new SimpleEdge(e)));
+                    Set<SimpleEdge> actual=new HashSet<>();
+                    joblet.getEdges().forEach(e -> actual.add(new SimpleEdge(e)));
+                    check(expected.equals(actual), "neighbourhood of joblet "+joblet.getId());
+                }
+            }
+            for (Vertex v:graph.getGraph().vertexSet())
+            {
+                Set<Integer> expected=new HashSet<>();
+                for (int id:after.keySet())
+                    if(after.get(id).contains(((DataVertex) v).getVertexURI()))
+                        expected.add(id);
+                Set<Integer> actual=new HashSet<>();
+                for (int id:estimator.getJobletIndex().get(((DataVertex) v).getVertexURI()))
+                    actual.add(id);
+                check(expected.equals(actual), "joblet IDs of "+((DataVertex) v).getVertexURI()+": "+actual+" - "+expected);
+            }
+
+            // The deleted edges are dropped by the workers, the delta is new to the fragment and needed by it
+            HashSet<SimpleEdge> graphEdges=new HashSet<>();
+            graph.getGraph().edgeSet().forEach(e -> graphEdges.add(new SimpleEdge(e)));
+            for (HashSet<SimpleEdge> copy:copies.values())
+                copy.retainAll(graphEdges);
+            HashMap<Integer,HashMap<Integer,ArrayList<SimpleEdge>>> fromScratch=estimator.dataToBeShipped();
+            for (int sender:delta.keySet())
+            {
+                for (int fragmentID:delta.get(sender).keySet())
+                {
+                    for (SimpleEdge edge:delta.get(sender).get(fragmentID))
+                    {
+                        check(!copies.get(fragmentID).contains(edge), "shipped twice to F"+fragmentID+": "+edge);
+                        check(fromScratch.get(sender).get(fragmentID).contains(edge), "not needed by F"+fragmentID+": "+edge);
+                        shipped++;
+                    }
+                }
+            }
+            addShipped(copies, delta);
+            for (int sender:fromScratch.keySet())
+            {
+                for (int fragmentID:fromScratch.get(sender).keySet())
+                {
+                    scratch+=fromScratch.get(sender).get(fragmentID).size();
+                    for (SimpleEdge edge:fromScratch.get(sender).get(fragmentID))
+                        check(copies.get(fragmentID).contains(edge), "missing on F"+fragmentID+": "+edge);
+                }
+            }
+
+            // A change reaches the owners of its vertices and the joblets it touches, before or after the change
+            for (Change change:changes)
+            {
+                Set<String> uris=new HashSet<>();
+                if(change instanceof EdgeChange)
+                {
+                    uris.add(((EdgeChange) change).getSrc());
+                    uris.add(((EdgeChange) change).getDst());
+                }
+                else if(change instanceof AttributeChange)
+                    uris.add(((AttributeChange) change).getUri());
+                else
+                    uris.add(((VertexChange) change).getVertex().getVertexURI());
+                for (int id:fragmentOfJoblet.keySet())
+                {
+                    boolean touched=false;
+                    for (String uri:uris)
+                        touched|=before.get(id).contains(uri) || after.get(id).contains(uri);
+                    // An attribute only matters to the joblets that hold the vertex after the changes
+                    if(change instanceof AttributeChange)
+                        touched=after.get(id).contains(((AttributeChange) change).getUri());
+                    if(touched)
+                    {
+                        check(Arrays.binarySearch(change.getJobletIDs(), id)>=0, change+" touches joblet "+id);
+                        check(routing.get(fragmentOfJoblet.get(id)).contains(change), change+" is sent to F"+fragmentOfJoblet.get(id));
+                    }
+                }
+                for (String uri:uris)
+                    check(routing.get(fragments.get(verticesByURI.get(uri))).contains(change), change+" is sent to the owner");
+            }
+        }
+        System.out.println("Edges shipped incrementally: " + shipped + " - from scratch for each snapshot: " + scratch);
+        check(shipped<scratch, "incremental shipping");
+        System.out.println("PASSED");
+    }
+
+    private static void addRandomEdge(VF2DataGraph graph, List<DataVertex> vertices, Random random)
+    {
+        DataVertex src=vertices.get(random.nextInt(vertices.size()));
+        DataVertex dst=vertices.get(random.nextInt(vertices.size()));
+        if(src!=dst)
+            graph.addEdge(src, dst, new RelationshipEdge(random.nextBoolean() ? "x" : "y"));
+    }
+
+    private static void addShipped(HashMap<Integer, HashSet<SimpleEdge>> copies, HashMap<Integer,HashMap<Integer,ArrayList<SimpleEdge>>> shipped)
+    {
+        for (HashMap<Integer,ArrayList<SimpleEdge>> edgesByFragment:shipped.values())
+            edgesByFragment.forEach((fragmentID, edges) -> copies.get(fragmentID).addAll(edges));
+    }
+
+    // URIs of the center and the vertices of the edges of each joblet
+    private static HashMap<Integer, Set<String>> neighbourhoods(WorkloadEstimator estimator)
+    {
+        HashMap<Integer, Set<String>> neighbourhoods=new HashMap<>();
+        for (ArrayList<Joblet> joblets:estimator.getJobletsByFragmentID().values())
+        {
+            for (Joblet joblet:joblets)
+            {
+                Set<String> uris=new HashSet<>();
+                uris.add(joblet.getCenterNode().getVertexURI());
+                for (RelationshipEdge edge:joblet.getEdges())
+                {
+                    uris.add(((DataVertex) edge.getSource()).getVertexURI());
+                    uris.add(((DataVertex) edge.getTarget()).getVertexURI());
+                }
+                neighbourhoods.put(joblet.getId(), uris);
+            }
+        }
+        return neighbourhoods;
+    }
+
+    private static void check(boolean condition, String message)
+    {
+        if(!condition)
+        {
+            System.out.println("FAILED: "+message);
+            System.exit(1);
+        }
+    }
+}
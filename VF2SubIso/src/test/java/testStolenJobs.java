@@ -0,0 +1,149 @@
+import Infra.*;
+import Loader.GraphLoader;
+import Partitioner.FennelPartitioner;
+import QPathBasedWorkload.Job;
+import QPathBasedWorkload.WorkloadEstimatorForJobs;
+import changeExploration.*;
+
+import java.time.Duration;
+import java.time.Period;
+import java.util.*;
+
+public class testStolenJobs {
+
+    public static void main(String []args) {
+
+        VF2PatternGraph pattern=new VF2PatternGraph(2,"a");
+        PatternVertex a=new PatternVertex("a");
+        PatternVertex b=new PatternVertex("b");
+        PatternVertex c=new PatternVertex("c");
+        pattern.addVertex(a);
+        pattern.addVertex(b);
+        pattern.addVertex(c);
+        pattern.addEdge(a,b,new RelationshipEdge("x"));
+        pattern.addEdge(b,c,new RelationshipEdge("y"));
+        TGFD tgfd=new TGFD(pattern,new Delta(Period.ofDays(0),Period.ofDays(30),Duration.ofDays(1)),new Dependency(),"abc");
+
+        Random random=new Random(7);
+        VF2DataGraph graph=new VF2DataGraph();
+        List<DataVertex> vertices=new ArrayList<>();
+        for (int i=0;i<200;i++)
+        {
+            DataVertex v=new DataVertex("v_"+i, i%10==0 ? "a" : (i%2==0 ? "b" : "c"));
+            graph.addVertex(v);
+            vertices.add(v);
+        }
+        for (int i=0;i<500;i++)
+        {
+            DataVertex src=vertices.get(random.nextInt(vertices.size()));
+            DataVertex dst=vertices.get(random.nextInt(vertices.size()));
+            if(src!=dst)
+                graph.addEdge(src, dst, new RelationshipEdge(random.nextBoolean() ? "x" : "y"));
+        }
+
+        int numberOfFragments=3;
+        GraphLoader loader=new GraphLoader();
+        loader.setGraph(graph);
+        HashMap<DataVertex,Integer> fragments=new FennelPartitioner(graph).fragment(numberOfFragments);
+        WorkloadEstimatorForJobs estimator=new WorkloadEstimatorForJobs(loader, numberOfFragments, fragments);
+        estimator.defineJobs(Collections.singletonList(tgfd));
+
+        // The copies each fragment holds, as the workers see them
+        HashMap<Integer, HashSet<SimpleEdge>> copies=new HashMap<>();
+        for (int fragmentID=0;fragmentID<numberOfFragments;fragmentID++)
+            copies.put(fragmentID, new HashSet<>());
+        addShipped(copies, estimator.dataToBeShipped());
+
+        // A job is stolen before the first changes are planned, another one after
+        int changeID=0;
+        for (int snapshot=0;snapshot<2;snapshot++)
+        {
+            // The job whose neighbourhood is the least held by another fragment is stolen by it
+            Job stolen=null;
+            int victim=-1, thief=-1, missing=0;
+            for (int fragmentID=0;fragmentID<numberOfFragments;fragmentID++)
+            {
+                for (Job job:estimator.getJobsByFragmentID().get(fragmentID))
+                {
+                    for (int other=0;other<numberOfFragments;other++)
+                    {
+                        int count=0;
+                        for (RelationshipEdge edge:job.getEdges())
+                            if(!copies.get(other).contains(new SimpleEdge(edge)) && fragments.get((DataVertex) edge.getSource())!=other)
+                                count++;
+                        if(other!=fragmentID && count>missing)
+                        {
+                            stolen=job;
+                            victim=fragmentID;
+                            thief=other;
+                            missing=count;
+                        }
+                    }
+                }
+            }
+            check(stolen!=null, "a job with edges the other fragments do not hold");
+            estimator.reassignJob(stolen, victim, thief);
+            check(!estimator.getJobsByFragmentID().get(victim).contains(stolen), "the job is not on the victim anymore");
+            check(estimator.getJobsByFragmentID().get(thief).contains(stolen), "the job is on the thief");
+            // The victim ships the neighbourhood of the job to the thief
+            for (RelationshipEdge edge:stolen.getEdges())
+                copies.get(thief).add(new SimpleEdge(edge));
+
+            // Changes next to the center of the stolen job, and elsewhere in the graph
+            String center=stolen.getCenterNode().getVertexURI();
+            RelationshipEdge deleted=stolen.getEdges().get(0);
+            DataVertex far=vertices.get(random.nextInt(vertices.size()));
+            while (far==stolen.getCenterNode() || fragments.get(far)==thief || graph.getNode(far.getVertexURI())!=far)
+                far=vertices.get(random.nextInt(vertices.size()));
+            List<Change> changes=new ArrayList<>();
+            Change attributeChange=new AttributeChange(ChangeType.changeAttr, changeID++, center, new Attribute("name", "n"+snapshot));
+            Change insertion=new EdgeChange(ChangeType.insertEdge, changeID++, center, far.getVertexURI(), "x");
+            Change deletion=new EdgeChange(ChangeType.deleteEdge, changeID++, deleted);
+            changes.add(attributeChange);
+            changes.add(insertion);
+            changes.add(deletion);
+            for (int i=0;i<20;i++)
+            {
+                DataVertex src=vertices.get(random.nextInt(vertices.size()));
+                DataVertex dst=vertices.get(random.nextInt(vertices.size()));
+                if(src!=dst)
+                    changes.add(new EdgeChange(ChangeType.insertEdge, changeID++, src.getVertexURI(), dst.getVertexURI(), "y"));
+            }
+
+            HashMap<Integer,HashMap<Integer,ArrayList<SimpleEdge>>> delta=estimator.dataToBeShipped(changes);
+            HashMap<Integer,List<Change>> routing=estimator.changesToBeSent(changes);
+            for (Change change:new Change[]{attributeChange, insertion, deletion})
+            {
+                check(Arrays.binarySearch(change.getJobletIDs(), stolen.getJobID())>=0, change+" touches the stolen job");
+                check(routing.get(thief).contains(change), change+" is sent to the thief");
+            }
+
+            // The thief gets the new edge of the job, but not the edges it got with the job again
+            for (int sender:delta.keySet())
+            {
+                for (SimpleEdge edge:delta.get(sender).get(thief))
+                    check(!copies.get(thief).contains(edge), "shipped twice to the thief: "+edge);
+            }
+            addShipped(copies, delta);
+            SimpleEdge inserted=new SimpleEdge(center, far.getVertexURI(), "x");
+            check(copies.get(thief).contains(inserted), "the new edge of the stolen job is on the thief");
+            System.out.println("Job "+stolen.getJobID()+" stolen by F"+thief+" from F"+victim+" with "+missing+" edges gets its changes");
+        }
+        System.out.println("PASSED");
+    }
+
+    private static void addShipped(HashMap<Integer, HashSet<SimpleEdge>> copies, HashMap<Integer,HashMap<Integer,ArrayList<SimpleEdge>>> shipped)
+    {
+        for (HashMap<Integer,ArrayList<SimpleEdge>> edgesByFragment:shipped.values())
+            edgesByFragment.forEach((fragmentID, edges) -> copies.get(fragmentID).addAll(edges));
+    }
+
+    private static void check(boolean condition, String message)
+    {
+        if(!condition)
+        {
+            System.out.println("FAILED: "+message);
+            System.exit(1);
+        }
+    }
+}
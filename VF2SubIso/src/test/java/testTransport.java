@@ -0,0 +1,86 @@
+import MPI.Consumer;
+import MPI.Producer;
+import MPI.Transports;
+import Util.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class testTransport {
+
+    // Usage: testTransport [inprocess|embedded] [numberOfWorkers] [numberOfRoundTrips]
+    public static void main(String []args) throws InterruptedException {
+
+        Config.transport = args.length > 0 ? args[0] : "inprocess";
+        int numberOfWorkers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int numberOfRoundTrips = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+
+        // Each worker answers the messages of the coordinator with its name
+        List<Thread> workers=new ArrayList<>();
+        for (int i=1;i<=numberOfWorkers;i++)
+        {
+            String workerName="worker"+i;
+            Thread worker=new Thread(() -> {
+                Consumer consumer=new Consumer();
+                consumer.connect(workerName);
+                Producer producer=new Producer();
+                producer.connect();
+                for (int j=0;j<numberOfRoundTrips;j++)
+                {
+                    String msg=consumer.receive();
+                    producer.send("status", workerName+"#"+msg);
+                    producer.close();
+                }
+                consumer.close();
+            });
+            worker.start();
+            workers.add(worker);
+        }
+
+        Producer producer=new Producer();
+        producer.connect();
+        Consumer consumer=new Consumer();
+        consumer.connect("status");
+
+        long startTime=System.nanoTime();
+        for (int j=0;j<numberOfRoundTrips;j++)
+        {
+            for (int i=1;i<=numberOfWorkers;i++)
+                producer.send("worker"+i, Integer.toString(j));
+            producer.close();
+            int received=0;
+            for (int i=0;i<numberOfWorkers;i++)
+            {
+                String msg=consumer.receive();
+                check(msg!=null && msg.endsWith("#"+j), "round trip "+j+": "+msg);
+                received++;
+            }
+            check(received==numberOfWorkers, "all the workers answered");
+        }
+        long duration=System.nanoTime()-startTime;
+        for (Thread worker:workers)
+            worker.join();
+
+        // Binary payloads are delivered as they are
+        byte[] payload=new byte[]{0, -1, 127, -128, 10};
+        producer.send("binary", payload);
+        producer.close();
+        Consumer binaryConsumer=new Consumer();
+        binaryConsumer.connect("binary");
+        check(java.util.Arrays.equals(binaryConsumer.receiveBytes(), payload), "binary payload");
+
+        System.out.println(Config.transport+": "+numberOfRoundTrips+" round trips with "+numberOfWorkers+" workers, "
+                + (duration/1e6/numberOfRoundTrips) + " ms per round trip");
+        Transports.getDefault().close();
+        System.out.println("PASSED");
+    }
+
+    private static void check(boolean condition, String message)
+    {
+        if(!condition)
+        {
+            System.out.println("FAILED: "+message);
+            System.exit(1);
+        }
+    }
+}
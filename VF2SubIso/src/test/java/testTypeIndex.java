@@ -0,0 +1,64 @@
+import Infra.*;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultDirectedGraph;
+
+import java.util.*;
+
+public class testTypeIndex {
+
+    public static void main(String []args) {
+
+        VF2DataGraph graph=new VF2DataGraph();
+        DataVertex lampard=new DataVertex("lampard","player");
+        DataVertex drogba=new DataVertex("drogba","player");
+        DataVertex chelsea=new DataVertex("chelsea","team");
+        graph.addVertex(lampard);
+        graph.addVertex(drogba);
+        graph.addVertex(chelsea);
+        check(new ArrayList<>(graph.getVerticesByType("player")).equals(Arrays.asList(lampard, drogba)), "players");
+        check(new ArrayList<>(graph.getVerticesByType("team")).equals(Collections.singletonList(chelsea)), "teams");
+        check(graph.getVerticesByType("coach").isEmpty(), "no coach");
+
+        // A type added to a vertex of the graph is indexed once
+        graph.addType(lampard, "coach");
+        graph.addType(lampard, "coach");
+        check(new ArrayList<>(graph.getVerticesByType("coach")).equals(Collections.singletonList(lampard)) && lampard.getTypes().contains("coach"), "coach");
+
+        // A vertex that is not in the graph is not indexed, nor is a vertex added twice
+        DataVertex other=new DataVertex("mourinho","person");
+        graph.addType(other, "coach");
+        graph.addVertex(new DataVertex("drogba","player"));
+        check(graph.getVerticesByType("coach").size()==1 && graph.getVerticesByType("player").size()==2, "not indexed");
+
+        // Types added by merging a graph
+        Graph<Vertex, RelationshipEdge> fragment=new DefaultDirectedGraph<>(RelationshipEdge.class);
+        DataVertex drogbaCopy=new DataVertex("drogba","striker");
+        DataVertex arsenal=new DataVertex("arsenal","team");
+        fragment.addVertex(drogbaCopy);
+        fragment.addVertex(arsenal);
+        fragment.addEdge(drogbaCopy, arsenal, new RelationshipEdge("playing"));
+        Partitioner.Util.mergeGraphs(graph, fragment);
+        check(new ArrayList<>(graph.getVerticesByType("striker")).equals(Collections.singletonList(drogba)), "merged type");
+        check(new ArrayList<>(graph.getVerticesByType("team")).equals(Arrays.asList(chelsea, arsenal)), "merged vertex");
+
+        // A data graph made of an existing graph
+        VF2DataGraph subgraph=new VF2DataGraph(fragment);
+        check(new ArrayList<>(subgraph.getVerticesByType("striker")).equals(Collections.singletonList(drogbaCopy)), "subgraph");
+
+        // A removed vertex leaves the other vertices of its types in their order
+        graph.removeVertex(chelsea);
+        check(new ArrayList<>(graph.getVerticesByType("team")).equals(Collections.singletonList(arsenal)), "removed team");
+        graph.removeVertex(lampard);
+        check(new ArrayList<>(graph.getVerticesByType("player")).equals(Collections.singletonList(drogba)) && graph.getVerticesByType("coach").isEmpty(), "removed player");
+        System.out.println("PASSED");
+    }
+
+    private static void check(boolean condition, String message)
+    {
+        if(!condition)
+        {
+            System.out.println("FAILED: "+message);
+            System.exit(1);
+        }
+    }
+}
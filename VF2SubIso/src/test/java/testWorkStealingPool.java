@@ -0,0 +1,160 @@
+import Infra.*;
+import Util.Config;
+import Util.WorkStealingPool;
+import VF2BasedWorkload.Joblet;
+import VF2Runner.VF2SubgraphIsomorphism;
+import org.jgrapht.GraphMapping;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class testWorkStealingPool {
+
+    public static void main(String []args) {
+
+        List<Integer> sizes=new ArrayList<>();
+        for (int i=0;i<200;i++)
+            sizes.add((i*37)%101);
+
+        // With a single thread, the tasks run from the largest to the smallest
+        Config.workerThreads=1;
+        List<Integer> order=new ArrayList<>();
+        WorkStealingPool.forEachLargestFirst(sizes, size -> size, order::add);
+        List<Integer> expected=new ArrayList<>(sizes);
+        expected.sort(Collections.reverseOrder());
+        check(order.equals(expected), "largest first");
+
+        // With several threads, every task runs once
+        Config.workerThreads=4;
+        List<Integer> done=new CopyOnWriteArrayList<>();
+        Set<String> threads=ConcurrentHashMap.newKeySet();
+        WorkStealingPool.forEachLargestFirst(sizes, size -> size, size -> {
+            threads.add(Thread.currentThread().getName());
+            busyWork(size);
+            done.add(size);
+        });
+        List<Integer> sortedDone=new ArrayList<>(done);
+        sortedDone.sort(Collections.reverseOrder());
+        check(sortedDone.equals(expected), "every task runs once");
+        check(threads.size()>1, "tasks run on several threads");
+
+        // A failed task is reported once all the tasks are done
+        AtomicInteger count=new AtomicInteger();
+        boolean failed=false;
+        try
+        {
+            WorkStealingPool.forEachLargestFirst(sizes, size -> size, size -> {
+                count.incrementAndGet();
+                if(size==50)
+                    throw new IllegalStateException("task failed");
+            });
+        }
+        catch (IllegalStateException e)
+        {
+            failed=true;
+        }
+        check(failed && count.get()==sizes.size(), "failed task");
+
+        // The threads take the next task until there is none left, even if tasks are added while they run
+        LinkedList<Integer> queue=new LinkedList<>(sizes);
+        List<Integer> drained=new CopyOnWriteArrayList<>();
+        WorkStealingPool.drain(() -> {
+            synchronized (queue)
+            {
+                return queue.poll();
+            }
+        }, size -> {
+            if(size==100)
+            {
+                synchronized (queue)
+                {
+                    queue.add(101);
+                }
+            }
+            drained.add(size);
+        });
+        long added=sizes.stream().filter(size -> size==100).count();
+        check(added>0 && drained.size()==sizes.size()+added && drained.contains(101), "drained tasks");
+
+        // Joblets matched in parallel give the same matches as one thread
+        VF2PatternGraph pattern=new VF2PatternGraph(1);
+        PatternVertex player=new PatternVertex("player");
+        PatternVertex team=new PatternVertex("team");
+        pattern.addVertex(player);
+        pattern.addVertex(team);
+        pattern.addEdge(player,team,new RelationshipEdge("playing"));
+        Dependency dependency=new Dependency();
+        dependency.addLiteralToX(new VariableLiteral("player","name","player","name"));
+        dependency.addLiteralToY(new VariableLiteral("team","league","team","league"));
+        TGFD tgfd=new TGFD(pattern,new Delta(Period.ofDays(0),Period.ofDays(30),Duration.ofDays(1)),dependency,"players");
+
+        VF2DataGraph graph=new VF2DataGraph();
+        List<DataVertex> teams=new ArrayList<>();
+        for (int i=0;i<20;i++)
+        {
+            DataVertex t=new DataVertex("team_"+i,"team");
+            t.addAttribute("league","league_"+(i%3));
+            graph.addVertex(t);
+            teams.add(t);
+        }
+        List<Joblet> joblets=new ArrayList<>();
+        for (int i=0;i<500;i++)
+        {
+            DataVertex p=new DataVertex("player_"+i,"player");
+            p.addAttribute("name","name_"+i);
+            graph.addVertex(p);
+            for (int j=0;j<=i%4;j++)
+                graph.addEdge(p,teams.get((i+j*7)%teams.size()),new RelationshipEdge("playing"));
+            Joblet joblet=new Joblet(i,p,tgfd,1,0);
+            joblet.setSubgraph(graph.getSubGraphWithinDiameter(p,1));
+            joblets.add(joblet);
+        }
+
+        Config.matchCacheSize=0;
+        LocalDate timestamp=LocalDate.parse("2021-01-01");
+        Config.workerThreads=1;
+        MatchCollection sequential=matchJoblets(joblets,pattern,dependency,timestamp);
+        Config.workerThreads=4;
+        MatchCollection parallel=matchJoblets(joblets,pattern,dependency,timestamp);
+        check(sequential.size()>0 && sequential.size()==parallel.size(), "matches: "+sequential.size()+" - "+parallel.size());
+        System.out.println("PASSED");
+    }
+
+    private static MatchCollection matchJoblets(List<Joblet> joblets, VF2PatternGraph pattern, Dependency dependency, LocalDate timestamp)
+    {
+        MatchCollection matches=new MatchCollection(pattern,dependency,Duration.ofDays(1));
+        ThreadLocal<VF2SubgraphIsomorphism> VF2=ThreadLocal.withInitial(VF2SubgraphIsomorphism::new);
+        WorkStealingPool.forEachLargestFirst(joblets, Joblet::getSize, joblet -> {
+            Iterator<GraphMapping<Vertex, RelationshipEdge>> results=VF2.get().execute(joblet.getSubgraph(), pattern, false);
+            if(results==null)
+                return;
+            List<GraphMapping<Vertex, RelationshipEdge>> mappings=new ArrayList<>();
+            results.forEachRemaining(mappings::add);
+            matches.addMatches(timestamp,mappings.iterator());
+        });
+        return matches;
+    }
+
+    private static void busyWork(int size)
+    {
+        long sum=0;
+        for (int i=0;i<size*1000;i++)
+            sum+=i%7;
+        if(sum<0)
+            System.out.println(sum);
+    }
+
+    private static void check(boolean condition, String message)
+    {
+        if(!condition)
+        {
+            System.out.println("FAILED: "+message);
+            System.exit(1);
+        }
+    }
+}